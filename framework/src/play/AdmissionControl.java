@@ -0,0 +1,280 @@
+package play;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import play.Invoker.Invocation;
+import play.mvc.ActionInvoker;
+import play.mvc.Priority;
+import play.mvc.Priority.Lane;
+import play.mvc.Router;
+import play.mvc.results.Result;
+
+/**
+ * Keeps the queue of the {@link Invoker} short when the application can not keep up.
+ * <p>
+ * The requests are checked when they are received, on the I/O thread: once <code>play.pool.maxQueueSize</code>
+ * invocations are waiting, or once they wait longer than <code>play.pool.maxQueueWait</code> milliseconds, new
+ * requests are turned away with a <code>503 Service Unavailable</code> instead of waiting for a thread. A request that
+ * has waited longer than <code>play.pool.maxQueueWait</code> anyway is turned away as well when its turn comes.
+ * </p>
+ * <p>
+ * With <code>play.pool.lanes=true</code>, the {@link Priority} of the actions decides which requests run first, and
+ * which are turned away first.
+ * </p>
+ */
+public class AdmissionControl {
+
+    static int maxQueueSize;
+    static long maxQueueWait;
+    static boolean lanes;
+
+    /**
+     * The Retry-After of the requests turned away, in seconds
+     */
+    public static int retryAfter = 1;
+
+    private static final AtomicInteger queued = new AtomicInteger();
+    private static final AtomicLong rejected = new AtomicLong();
+    private static final AtomicLong waited = new AtomicLong();
+    private static final AtomicLong started = new AtomicLong();
+    private static volatile long lastQueueWait;
+
+    private static final Map<String, Lane> actionLanes = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    private static final Queue<FutureTask<Void>>[] laneQueues = (Queue<FutureTask<Void>>[]) new Queue<?>[] {
+            new ConcurrentLinkedQueue<FutureTask<Void>>(), new ConcurrentLinkedQueue<FutureTask<Void>>(),
+            new ConcurrentLinkedQueue<FutureTask<Void>>() };
+
+    /**
+     * Runs the oldest task of the first lane that has one. One is executed per task queued, so that there is always a
+     * task for it to run.
+     */
+    private static final Runnable nextInLane = () -> {
+        for (Queue<FutureTask<Void>> queue : laneQueues) {
+            FutureTask<Void> task = queue.poll();
+            if (task != null) {
+                task.run();
+                return;
+            }
+        }
+    };
+
+    static void configure() {
+        maxQueueSize = Integer.parseInt(Play.configuration.getProperty("play.pool.maxQueueSize", "0"));
+        maxQueueWait = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(Play.configuration.getProperty("play.pool.maxQueueWait", "0")));
+        lanes = Boolean.parseBoolean(Play.configuration.getProperty("play.pool.lanes", "false"));
+        retryAfter = Integer.parseInt(Play.configuration.getProperty("play.pool.retryAfter", "1"));
+    }
+
+    /**
+     * Checks whether a new request can wait for a thread.
+     *
+     * @param lane
+     *            The lane of the request
+     * @return false if the request must be turned away
+     */
+    public static boolean admit(Lane lane) {
+        if (lane == Lane.HIGH) {
+            return true;
+        }
+        int waiting = queued.get();
+        if (maxQueueSize > 0 && waiting >= (lane == Lane.LOW ? Math.max(1, maxQueueSize / 2) : maxQueueSize)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        // The last invocation that started waited too long: so will this one
+        if (maxQueueWait > 0 && waiting > 0 && lastQueueWait > maxQueueWait) {
+            rejected.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Finds the lane of a request from the {@link Priority} of its action. Actions are only looked up in PROD mode
+     * with <code>play.pool.lanes=true</code>, their requests are in the NORMAL lane otherwise.
+     *
+     * @param method
+     *            The HTTP method
+     * @param path
+     *            The path
+     * @return The lane of the request
+     */
+    public static Lane lane(String method, String path) {
+        if (!lanes || Play.mode != Play.Mode.PROD) {
+            return Lane.NORMAL;
+        }
+        Map<String, String> route;
+        try {
+            route = Router.route(method, path);
+        } catch (Result result) {
+            // Static files and 404 routes
+            return Lane.NORMAL;
+        }
+        String action = route.get("action");
+        if (action == null) {
+            return Lane.NORMAL;
+        }
+        if (action.indexOf('{') > -1) {
+            for (Map.Entry<String, String> arg : route.entrySet()) {
+                action = action.replace("{" + arg.getKey() + "}", arg.getValue());
+            }
+        }
+        Lane lane = actionLanes.get(action);
+        if (lane == null) {
+            lane = Lane.NORMAL;
+            try {
+                Object[] controllerAndMethod = ActionInvoker.getActionMethod(action);
+                Priority priority = ((Method) controllerAndMethod[1]).getAnnotation(Priority.class);
+                if (priority == null) {
+                    priority = ((Class<?>) controllerAndMethod[0]).getAnnotation(Priority.class);
+                }
+                if (priority != null) {
+                    lane = priority.value();
+                }
+            } catch (Exception e) {
+                // Not an action: the invocation will report it
+            }
+            actionLanes.put(action, lane);
+        }
+        return lane;
+    }
+
+    /**
+     * Submits an invocation, behind the ones of higher lanes when <code>play.pool.lanes=true</code>.
+     */
+    static Future<?> submit(Invocation invocation, InvocationExecutor executor) {
+        invocation.queuedAt = System.nanoTime();
+        invocation.inQueue.set(true);
+        queued.incrementAndGet();
+        try {
+            if (!lanes) {
+                return new QueuedFuture(executor.submit(invocation), invocation);
+            }
+            FutureTask<Void> task = InvocationExecutor.task(invocation);
+            Queue<FutureTask<Void>> queue = laneQueues[invocation.getLane().ordinal()];
+            queue.offer(task);
+            try {
+                executor.execute(nextInLane);
+            } catch (RuntimeException e) {
+                queue.remove(task);
+                throw e;
+            }
+            return new QueuedFuture(task, invocation);
+        } catch (RuntimeException e) {
+            // Rejected by the executor
+            dequeued(invocation);
+            throw e;
+        }
+    }
+
+    /**
+     * Stops counting an invocation in the queue, once it starts or if it never will
+     */
+    private static void dequeued(Invocation invocation) {
+        if (invocation.inQueue.compareAndSet(true, false)) {
+            queued.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records the time an invocation has waited for a thread.
+     *
+     * @return true if the invocation waited too long, and must be turned away
+     */
+    static boolean started(Invocation invocation, long queueWait) {
+        dequeued(invocation);
+        waited.addAndGet(queueWait);
+        started.incrementAndGet();
+        lastQueueWait = queueWait;
+        if (maxQueueWait > 0 && queueWait > maxQueueWait && invocation.getLane() != Lane.HIGH) {
+            rejected.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The future of a queued invocation, which leaves the queue when it is cancelled before it starts
+     */
+    private static final class QueuedFuture implements Future<Object> {
+
+        private final Future<?> future;
+        private final Invocation invocation;
+
+        QueuedFuture(Future<?> future, Invocation invocation) {
+            this.future = future;
+            this.invocation = invocation;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = future.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                dequeued(invocation);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        @Override
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        @Override
+        public Object get() throws InterruptedException, ExecutionException {
+            return future.get();
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return future.get(timeout, unit);
+        }
+    }
+
+    /**
+     * @return The number of invocations waiting for a thread
+     */
+    public static int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @return The number of requests turned away so far
+     */
+    public static long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return The time the last invocation waited for a thread, in milliseconds
+     */
+    public static long getLastQueueWait() {
+        return TimeUnit.NANOSECONDS.toMillis(lastQueueWait);
+    }
+
+    /**
+     * @return The average time the invocations waited for a thread, in milliseconds
+     */
+    public static double getAverageQueueWait() {
+        long count = started.get();
+        return count == 0 ? 0 : waited.get() / 1000000.0 / count;
+    }
+}
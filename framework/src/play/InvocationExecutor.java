@@ -0,0 +1,364 @@
+package play;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jboss.netty.util.Timeout;
+
+import play.Invoker.Invocation;
+import play.libs.Timers;
+import play.mvc.Http;
+import play.mvc.Scope;
+
+/**
+ * Runs the invocations of the {@link Invoker}.
+ * <p>
+ * The implementation is chosen with <code>play.pool.executor</code>:
+ * </p>
+ * <ul>
+ * <li><code>fixed</code> (default) - a fixed pool of <code>play.pool</code> threads</li>
+ * <li><code>workstealing</code> - a work-stealing pool of <code>play.pool</code> threads</li>
+ * <li><code>virtual</code> - a new virtual thread for each invocation, on JDKs that have them</li>
+ * <li>the name of a class implementing this interface, with a constructor taking the pool size</li>
+ * </ul>
+ * <p>
+ * Whatever the implementation, the request scopes of the thread (<code>Http.Request.current</code>,
+ * <code>Scope.Params.current</code>...) and its context classloader are cleared once an invocation is over.
+ * </p>
+ */
+public interface InvocationExecutor {
+
+    /**
+     * Runs an invocation as soon as possible.
+     *
+     * @param invocation
+     *            The invocation
+     * @return The future of the invocation
+     */
+    Future<?> submit(Invocation invocation);
+
+    /**
+     * Runs an invocation after a delay. The delay is kept by the {@link Timers} wheel, and cancelling the future
+     * removes the invocation from it.
+     *
+     * @param invocation
+     *            The invocation
+     * @param delay
+     *            The delay
+     * @param unit
+     *            The unit of the delay
+     * @return The future of the invocation
+     */
+    default Future<?> schedule(Invocation invocation, long delay, TimeUnit unit) {
+        final DelayedTask task = new DelayedTask(invocation);
+        task.timeout = Timers.schedule(() -> {
+            if (!task.isCancelled()) {
+                execute(task);
+            }
+        }, delay, unit);
+        return task;
+    }
+
+    /**
+     * Runs a task as soon as possible. Unlike {@link #submit(Invocation)}, nothing is done around it.
+     *
+     * @param task
+     *            The task
+     */
+    void execute(Runnable task);
+
+    /**
+     * @return The number of threads
+     */
+    int getPoolSize();
+
+    /**
+     * @return The number of threads running an invocation
+     */
+    int getActiveCount();
+
+    /**
+     * @return The number of invocations submitted so far
+     */
+    long getTaskCount();
+
+    /**
+     * @return The number of invocations waiting for a thread
+     */
+    int getQueueSize();
+
+    /**
+     * Creates the executor configured by <code>play.pool.executor</code>.
+     *
+     * @param poolSize
+     *            The number of threads of the pools
+     * @param executor
+     *            The executor of the fixed pool
+     * @return The executor
+     */
+    static InvocationExecutor create(int poolSize, ScheduledThreadPoolExecutor executor) {
+        String type = Play.configuration.getProperty("play.pool.executor", "fixed").trim();
+        switch (type) {
+        case "fixed":
+            return new FixedPool(executor);
+        case "workstealing":
+            return new WorkStealingPool(poolSize);
+        case "virtual":
+            if (VirtualThreads.isAvailable()) {
+                return new VirtualThreads();
+            }
+            Logger.warn("Virtual threads are not available in Java %s, using a fixed pool of %s threads", System.getProperty("java.version"), poolSize);
+            return new FixedPool(executor);
+        default:
+            try {
+                return (InvocationExecutor) Class.forName(type).getConstructor(int.class).newInstance(poolSize);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Invalid play.pool.executor: " + type, e);
+            }
+        }
+    }
+
+    /**
+     * Clears the request scopes left in the current thread by an invocation.
+     */
+    static void clearScopes() {
+        Http.Request.current.remove();
+        Http.Response.current.remove();
+        Http.Inbound.current.remove();
+        Http.Outbound.current.remove();
+        Scope.Params.current.remove();
+        Scope.RenderArgs.current.remove();
+        Scope.RouteArgs.current.remove();
+        Scope.Session.current.remove();
+        Scope.Flash.current.remove();
+        Invoker.InvocationContext.current.remove();
+    }
+
+    /**
+     * Wraps an invocation in a task that clears the request scopes once it is over.
+     *
+     * @param invocation
+     *            The invocation
+     * @return The task to run
+     */
+    static FutureTask<Void> task(Invocation invocation) {
+        return new FutureTask<>(scoped(invocation), null);
+    }
+
+    private static Runnable scoped(final Invocation invocation) {
+        return () -> {
+            try {
+                invocation.run();
+            } finally {
+                clearScopes();
+                // Set again by the next invocation: an idle thread does not keep the classloader of a reloaded application
+                Thread.currentThread().setContextClassLoader(ClassLoader.getSystemClassLoader());
+            }
+        };
+    }
+
+    /**
+     * An invocation waiting for its delay
+     */
+    final class DelayedTask extends FutureTask<Void> {
+
+        volatile Timeout timeout;
+
+        DelayedTask(Invocation invocation) {
+            super(scoped(invocation), null);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && timeout != null) {
+                timeout.cancel();
+            }
+            return cancelled;
+        }
+    }
+
+    /**
+     * A fixed pool of threads
+     */
+    class FixedPool implements InvocationExecutor {
+
+        private final ScheduledThreadPoolExecutor executor;
+
+        public FixedPool(ScheduledThreadPoolExecutor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public Future<?> submit(Invocation invocation) {
+            return executor.submit(task(invocation));
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            executor.execute(task);
+        }
+
+        @Override
+        public int getPoolSize() {
+            return executor.getPoolSize();
+        }
+
+        @Override
+        public int getActiveCount() {
+            return executor.getActiveCount();
+        }
+
+        @Override
+        public long getTaskCount() {
+            return executor.getTaskCount();
+        }
+
+        @Override
+        public int getQueueSize() {
+            return executor.getQueue().size();
+        }
+    }
+
+    /**
+     * Base of the executors that count their tasks themselves
+     */
+    abstract class CountingExecutor implements InvocationExecutor {
+
+        final AtomicLong taskCount = new AtomicLong();
+
+        abstract void dispatch(Runnable task);
+
+        @Override
+        public Future<?> submit(Invocation invocation) {
+            FutureTask<Void> task = task(invocation);
+            execute(task);
+            return task;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            taskCount.incrementAndGet();
+            dispatch(task);
+        }
+
+        @Override
+        public long getTaskCount() {
+            return taskCount.get();
+        }
+    }
+
+    /**
+     * A work-stealing pool: each thread has its own queue, which spreads bursts of invocations with less contention
+     * than the single queue of a fixed pool
+     */
+    class WorkStealingPool extends CountingExecutor {
+
+        private final ForkJoinPool pool;
+
+        public WorkStealingPool(int parallelism) {
+            final AtomicInteger threadNumber = new AtomicInteger(1);
+            this.pool = new ForkJoinPool(parallelism, p -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                thread.setName("play-ws-thread-" + threadNumber.getAndIncrement());
+                return thread;
+            }, null, true);
+        }
+
+        @Override
+        void dispatch(Runnable task) {
+            pool.execute(task);
+        }
+
+        @Override
+        public int getPoolSize() {
+            return pool.getPoolSize();
+        }
+
+        @Override
+        public int getActiveCount() {
+            return pool.getActiveThreadCount();
+        }
+
+        @Override
+        public int getQueueSize() {
+            return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+        }
+    }
+
+    /**
+     * A new virtual thread for each invocation: invocations blocked on I/O do not hold a platform thread, so they can
+     * not starve the others
+     */
+    class VirtualThreads extends CountingExecutor {
+
+        private final ExecutorService executor;
+        private final AtomicInteger active = new AtomicInteger();
+
+        public VirtualThreads() {
+            this.executor = newVirtualThreadExecutor();
+        }
+
+        /**
+         * @return true if the JDK has virtual threads
+         */
+        public static boolean isAvailable() {
+            try {
+                Thread.class.getMethod("ofVirtual");
+                return true;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+
+        private static ExecutorService newVirtualThreadExecutor() {
+            try {
+                // Thread.ofVirtual().name("play-virtual-", 1).factory(), without requiring a JDK that has it at build time
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "play-virtual-", 1L);
+                ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+                Method newThreadPerTaskExecutor = java.util.concurrent.Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+            } catch (Exception e) {
+                throw new UnsupportedOperationException("Virtual threads are not available", e);
+            }
+        }
+
+        @Override
+        void dispatch(final Runnable task) {
+            executor.execute(() -> {
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        }
+
+        @Override
+        public int getPoolSize() {
+            return active.get();
+        }
+
+        @Override
+        public int getActiveCount() {
+            return active.get();
+        }
+
+        @Override
+        public int getQueueSize() {
+            return 0;
+        }
+    }
+}
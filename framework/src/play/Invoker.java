@@ -1,17 +1,22 @@
 package play;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.jamonapi.Monitor;
 import com.jamonapi.MonitorFactory;
@@ -24,6 +29,8 @@ import play.exceptions.UnexpectedException;
 import play.i18n.Lang;
 import play.libs.F;
 import play.libs.F.Promise;
+import play.libs.Timers;
+import play.mvc.Priority;
 import play.utils.PThreadFactory;
 
 /**
@@ -32,10 +39,16 @@ import play.utils.PThreadFactory;
 public class Invoker {
 
     /**
-     * Main executor for requests invocations.
+     * Main executor for requests invocations with the fixed pool {@link InvocationExecutor}. It is only kept, with one
+     * thread, for the code that uses it directly with the other ones.
      */
     public static ScheduledThreadPoolExecutor executor = null;
 
+    /**
+     * Runs the invocations, as configured by <code>play.pool.executor</code>.
+     */
+    public static InvocationExecutor invocationExecutor = null;
+
     /**
      * Run the code in a new thread took from a thread pool.
      * 
@@ -45,9 +58,9 @@ public class Invoker {
      */
     public static Future<?> invoke(Invocation invocation) {
         Monitor monitor = MonitorFactory.getMonitor("Invoker queue size", "elmts.");
-        monitor.add(executor.getQueue().size());
+        monitor.add(invocationExecutor.getQueueSize());
         invocation.waitInQueue = MonitorFactory.start("Waiting for execution");
-        return executor.submit(invocation);
+        return AdmissionControl.submit(invocation, invocationExecutor);
     }
 
     /**
@@ -61,8 +74,8 @@ public class Invoker {
      */
     public static Future<?> invoke(Invocation invocation, long millis) {
         Monitor monitor = MonitorFactory.getMonitor("Invocation queue", "elmts.");
-        monitor.add(executor.getQueue().size());
-        return executor.schedule(invocation, millis, TimeUnit.MILLISECONDS);
+        monitor.add(invocationExecutor.getQueueSize());
+        return invocationExecutor.schedule(invocation, millis, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -93,6 +106,7 @@ public class Invoker {
     }
 
     static void resetClassloaders() {
+        // The threads of the other executors reset their context classloader after each invocation
         Thread[] executorThreads = new Thread[executor.getPoolSize()];
         Thread.enumerate(executorThreads);
         for (Thread thread : executorThreads) {
@@ -193,6 +207,19 @@ public class Invoker {
          */
         Monitor waitInQueue;
 
+        /**
+         * When the invocation was queued by {@link Invoker#invoke(Invocation)}, in nanoseconds
+         */
+        long queuedAt;
+
+        /**
+         * Set while the invocation is counted in the queue of {@link AdmissionControl}
+         */
+        final AtomicBoolean inQueue = new AtomicBoolean();
+
+        private long queueWait;
+        private boolean overdue;
+
         /**
          * Override this method
          * 
@@ -230,6 +257,28 @@ public class Invoker {
 
         public abstract InvocationContext getInvocationContext();
 
+        /**
+         * @return The lane of the invocation, when <code>play.pool.lanes</code> is enabled
+         */
+        public Priority.Lane getLane() {
+            return Priority.Lane.NORMAL;
+        }
+
+        /**
+         * @return The time the invocation waited for a thread, in milliseconds
+         */
+        public long getQueueWait() {
+            return TimeUnit.NANOSECONDS.toMillis(queueWait);
+        }
+
+        /**
+         * @return true if the invocation waited longer than <code>play.pool.maxQueueWait</code> this time, and should
+         *         not do its work
+         */
+        public boolean isOverdue() {
+            return overdue;
+        }
+
         /**
          * Things to do before an Invocation
          */
@@ -307,6 +356,12 @@ public class Invoker {
             if (waitInQueue != null) {
                 waitInQueue.stop();
             }
+            overdue = false;
+            if (queuedAt != 0) {
+                queueWait = System.nanoTime() - queuedAt;
+                queuedAt = 0;
+                overdue = AdmissionControl.started(this, queueWait);
+            }
             try {
                 preInit();
                 if (init()) {
@@ -370,7 +425,10 @@ public class Invoker {
     static {
         int core = Integer.parseInt(Play.configuration.getProperty("play.pool",
                 Play.mode == Mode.DEV ? "1" : ((Runtime.getRuntime().availableProcessors() + 1) + "")));
-        executor = new ScheduledThreadPoolExecutor(core, new PThreadFactory("play"), new ThreadPoolExecutor.AbortPolicy());
+        boolean fixed = "fixed".equals(Play.configuration.getProperty("play.pool.executor", "fixed").trim());
+        executor = new ScheduledThreadPoolExecutor(fixed ? core : 1, new PThreadFactory("play"), new ThreadPoolExecutor.AbortPolicy());
+        invocationExecutor = InvocationExecutor.create(core, executor);
+        AdmissionControl.configure();
     }
 
     /**
@@ -412,56 +470,107 @@ public class Invoker {
 
     /**
      * Utility that track tasks completion in order to resume suspended requests.
+     * <p>
+     * Promises, CompletableFutures and futures with an <code>addListener(Runnable, Executor)</code> method (such as
+     * Guava's ListenableFuture) resume the request as soon as they complete. Other futures are checked on the
+     * {@link Timers} wheel, at the next tick first, then less and less often, up to every {@link #MAX_CHECK_DELAY} ms.
+     * </p>
      */
-    static class WaitForTasksCompletion extends Thread {
+    public static class WaitForTasksCompletion {
 
-        static WaitForTasksCompletion instance;
-        Map<Future<?>, Invocation> queue;
+        static final long MAX_CHECK_DELAY = 50;
 
-        public WaitForTasksCompletion() {
-            queue = new ConcurrentHashMap<>();
-            setName("WaitForTasksCompletion");
-            setDaemon(true);
-        }
+        private static final AtomicInteger pending = new AtomicInteger();
+        private static final AtomicLong resumed = new AtomicLong();
+        private static final AtomicLong waited = new AtomicLong();
+        private static final Map<Class<?>, Optional<Method>> addListenerMethods = new ConcurrentHashMap<>();
 
         public static <V> void waitFor(Future<V> task, final Invocation invocation) {
+            pending.incrementAndGet();
+            final long start = System.nanoTime();
+            final AtomicBoolean done = new AtomicBoolean();
+            Runnable resume = () -> {
+                // A future may call its listeners more than once
+                if (done.compareAndSet(false, true)) {
+                    resume(invocation, start);
+                }
+            };
             if (task instanceof Promise) {
                 Promise<V> smartFuture = (Promise<V>) task;
                 smartFuture.onRedeem(new F.Action<F.Promise<V>>() {
                     @Override
                     public void invoke(Promise<V> result) {
-                        executor.submit(invocation);
+                        resume.run();
                     }
                 });
-            } else {
-                synchronized (WaitForTasksCompletion.class) {
-                    if (instance == null) {
-                        instance = new WaitForTasksCompletion();
-                        Logger.warn("Start WaitForTasksCompletion");
-                        instance.start();
-                    }
-                    instance.queue.put(task, invocation);
+                return;
+            }
+            if (task instanceof CompletableFuture) {
+                ((CompletableFuture<V>) task).whenComplete((result, error) -> resume.run());
+                return;
+            }
+            Optional<Method> addListener = addListenerMethods.computeIfAbsent(task.getClass(), WaitForTasksCompletion::addListenerMethod);
+            if (addListener.isPresent()) {
+                try {
+                    addListener.get().invoke(task, resume, (Executor) Runnable::run);
+                    return;
+                } catch (Exception e) {
+                    Logger.warn(e, "Cannot listen to %s, checking it instead", task);
                 }
             }
+            check(task, resume, 1);
         }
 
-        @Override
-        public void run() {
-            while (true) {
-                try {
-                    if (!queue.isEmpty()) {
-                        for (Future<?> task : new HashSet<>(queue.keySet())) {
-                            if (task.isDone()) {
-                                executor.submit(queue.get(task));
-                                queue.remove(task);
-                            }
-                        }
-                    }
-                    Thread.sleep(50);
-                } catch (InterruptedException ex) {
-                    Logger.warn(ex, "While waiting for task completions");
-                }
+        private static Optional<Method> addListenerMethod(Class<?> futureClass) {
+            try {
+                Method method = futureClass.getMethod("addListener", Runnable.class, Executor.class);
+                // The class itself may not be public
+                method.setAccessible(true);
+                return Optional.of(method);
+            } catch (Exception e) {
+                return Optional.empty();
             }
         }
+
+        private static void check(final Future<?> task, final Runnable resume, final long delay) {
+            Timers.schedule(() -> {
+                if (task.isDone()) {
+                    resume.run();
+                } else {
+                    check(task, resume, Math.min(delay * 2, MAX_CHECK_DELAY));
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        private static void resume(Invocation invocation, long start) {
+            long waitedFor = System.nanoTime() - start;
+            pending.decrementAndGet();
+            resumed.incrementAndGet();
+            waited.addAndGet(waitedFor);
+            MonitorFactory.add("Suspended invocation wait", "ms.", TimeUnit.NANOSECONDS.toMillis(waitedFor));
+            invocationExecutor.submit(invocation);
+        }
+
+        /**
+         * @return The number of invocations waiting for a task to complete
+         */
+        public static int getPending() {
+            return pending.get();
+        }
+
+        /**
+         * @return The number of invocations resumed so far
+         */
+        public static long getResumed() {
+            return resumed.get();
+        }
+
+        /**
+         * @return The average time the resumed invocations waited for their task, in milliseconds
+         */
+        public static double getAverageWait() {
+            long count = resumed.get();
+            return count == 0 ? 0 : waited.get() / 1000000.0 / count;
+        }
     }
 }
@@ -30,9 +30,11 @@ import play.exceptions.PlayException;
 import play.exceptions.RestartNeededException;
 import play.exceptions.UnexpectedException;
 import play.libs.IO;
+import play.mvc.CacheSessionStore;
 import play.mvc.Http;
 import play.mvc.Router;
 import play.plugins.PluginCollection;
+import play.templates.PrecompiledTemplates;
 import play.templates.TemplateLoader;
 import play.utils.OrderSafeProperties;
 import play.vfs.VirtualFile;
@@ -286,7 +288,7 @@ public class Play {
         // Build basic templates path
         templatesPath.clear();
         if (appRoot.child("app/views").exists()
-                || (usePrecompiled && appRoot.child("precompiled/templates/app/views").exists())) {
+                || (usePrecompiled && PrecompiledTemplates.exists("app/views"))) {
             templatesPath.add(appRoot.child("app/views"));
         }
 
@@ -602,6 +604,7 @@ public class Play {
             Logger.trace("Stopping the play application");
             pluginCollection.onApplicationStop();
             started = false;
+            CacheSessionStore.stopAll();
             Cache.stop();
             Router.lastLoading = 0L;
             Invoker.resetClassloaders();
@@ -837,11 +840,11 @@ public class Play {
             javaPath.add(root.child("app"));
         }
         if (root.child("app/views").exists() || (usePrecompiled
-                && appRoot.child("precompiled/templates/from_module_" + name + "/app/views").exists())) {
+                && PrecompiledTemplates.exists("from_module_" + name + "/app/views"))) {
             templatesPath.add(root.child("app/views"));
         }
         if (root.child("conf/routes").exists() || (usePrecompiled
-                && appRoot.child("precompiled/templates/from_module_" + name + "/conf/routes").exists())) {
+                && PrecompiledTemplates.exists("from_module_" + name + "/conf/routes"))) {
             modulesRoutes.put(name, root.child("conf/routes"));
         }
         roots.add(root);
@@ -174,6 +174,33 @@ public abstract class Cache {
         return cacheImpl.get(key);
     }
 
+    /**
+     * Computes an element to cache.
+     * @param <T> The element type
+     * @param <E> The exception the computation may throw
+     */
+    @FunctionalInterface
+    public interface Computation<T, E extends Exception> {
+        T compute() throws E;
+    }
+
+    /**
+     * Retrieve an element, computing and caching it if it is missing or expired. Only one thread of this JVM computes
+     * an element at a time: meanwhile the other threads get its previous value, or wait for it if there is none. An
+     * element is also computed again a bit before it expires, by a request chosen at random, so that it does not expire
+     * for all the requests at the same time. A null value is not cached.
+     * @param <T> The element type
+     * @param <E> The exception the computation may throw
+     * @param key Element key
+     * @param expiration Ex: 10s, 3mn, 8h
+     * @param computation Computes the element
+     * @return The element value
+     * @throws E If the computation failed
+     */
+    public static <T extends Serializable, E extends Exception> T get(String key, String expiration, Computation<T, E> computation) throws E {
+        return CachedValue.get(key, expiration, computation);
+    }
+
     /**
      * Bulk retrieve.
      * @param key List of keys
@@ -226,6 +253,8 @@ public abstract class Cache {
      * Initialize the cache system.
      */
     public static void init() {
+        CachedValue.configure();
+        ResponseCache.configure();
         if(forcedCacheImpl != null) {
             cacheImpl = forcedCacheImpl;
             return;
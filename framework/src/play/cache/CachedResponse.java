@@ -0,0 +1,98 @@
+package play.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import play.mvc.Http;
+
+/**
+ * A response cached by {@link ResponseCache}: its status, headers and encoded body, served again without invoking the
+ * action.
+ */
+public class CachedResponse implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public final int status;
+    public final String contentType;
+    public final String encoding;
+    /**
+     * The headers, without the cookies
+     */
+    public final Map<String, List<String>> headers;
+    public final byte[] body;
+    public final String etag;
+    /**
+     * The request headers it varies on, in lower case
+     */
+    final String[] vary;
+    /**
+     * Their values for this response
+     */
+    final String variant;
+
+    CachedResponse(Http.Response response, byte[] body, String etag, String[] vary, String variant) {
+        this.status = response.status;
+        this.contentType = response.contentType;
+        this.encoding = response.encoding;
+        this.headers = new LinkedHashMap<>();
+        for (Map.Entry<String, Http.Header> header : response.headers.entrySet()) {
+            if (header.getValue() != null && header.getValue().values != null) {
+                this.headers.put(header.getKey(), new ArrayList<>(header.getValue().values));
+            }
+        }
+        this.body = body;
+        this.etag = etag;
+        this.vary = vary;
+        this.variant = variant;
+    }
+
+    /**
+     * @param ifNoneMatch
+     *            The If-None-Match header of the request
+     * @return true if the client already has this response
+     */
+    public boolean isNotModified(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write this response, or 304 Not Modified if the client already has it
+     *
+     * @param request
+     *            The request
+     * @param response
+     *            The response to write to
+     */
+    public void writeTo(Http.Request request, Http.Response response) {
+        Http.Header ifNoneMatch = request.headers.get("if-none-match");
+        boolean notModified = isNotModified(ifNoneMatch == null ? null : ifNoneMatch.value());
+        response.status = notModified ? Http.StatusCode.NOT_MODIFIED : status;
+        response.contentType = contentType;
+        response.encoding = encoding;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            Http.Header h = new Http.Header();
+            h.name = header.getKey();
+            h.values = new ArrayList<>(header.getValue());
+            response.headers.put(header.getKey(), h);
+        }
+        if (!notModified) {
+            response.out.write(body, 0, body.length);
+        }
+    }
+}
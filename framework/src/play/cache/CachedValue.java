@@ -0,0 +1,215 @@
+package play.cache;
+
+import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import play.Play;
+import play.libs.Time;
+
+/**
+ * An element cached by {@link Cache#get(String, String, Cache.Computation)}, with when it must be computed again and
+ * how long it took to compute.
+ * <p>
+ * It is kept in the cache longer than its expiration, so that the previous value can be served while one thread
+ * computes it again. Before it expires, each read may decide to compute it again early, with a probability
+ * increasing as the expiration gets closer and with the time it takes to compute (see "Optimal Probabilistic Cache
+ * Stampede Prevention", Vattani et al.): the requests do not all find it expired at the same time.
+ * </p>
+ */
+final class CachedValue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Greater than 1 to favor computing earlier, lower than 1 to favor computing later
+     */
+    private static final double BETA = 1.0;
+
+    /**
+     * Longest expiration accepted by all the cache implementations, memcached takes longer ones as a date
+     */
+    private static final int MAX_EXPIRATION = Time.parseDuration("30d");
+
+    /**
+     * How long a thread waits for another one to compute an element before computing it itself, in milliseconds
+     */
+    static volatile long maxWait = 10000L;
+
+    static void configure() {
+        maxWait = Time.parseDuration(Play.configuration.getProperty("play.cache.maxWait", "10s")) * 1000L;
+    }
+
+    /**
+     * The computations in progress in this JVM, by key
+     */
+    private static final ConcurrentMap<String, Computing> computing = new ConcurrentHashMap<>();
+
+    /**
+     * An element being computed
+     */
+    static final class Computing {
+        final String key;
+        final Thread thread = Thread.currentThread();
+        final CompletableFuture<Object> value = new CompletableFuture<>();
+
+        private Computing(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @param key
+         *            Element key
+         * @return A new computation of the element, or null if it is being computed
+         */
+        static Computing start(String key) {
+            Computing mine = new Computing(key);
+            return computing.putIfAbsent(key, mine) == null ? mine : null;
+        }
+
+        /**
+         * @param key
+         *            Element key
+         * @return The computation of the element in progress, or null
+         */
+        static Computing of(String key) {
+            return computing.get(key);
+        }
+
+        /**
+         * @param result
+         *            The computed value, or null if it was not computed
+         */
+        void end(Object result) {
+            value.complete(result);
+            computing.remove(key, this);
+        }
+
+        /**
+         * @return The computed value, or null if it was not computed in time or if this thread was interrupted
+         */
+        Object await() {
+            try {
+                return value.get(maxWait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // Failed in the other thread, it may not fail in this one
+            } catch (TimeoutException e) {
+                // Still computing, or never ended: computed by this thread as well
+            }
+            return null;
+        }
+    }
+
+    final Serializable value;
+    /**
+     * When it must be computed again, in milliseconds, or Long.MAX_VALUE
+     */
+    final long expires;
+    /**
+     * How long it took to compute, in milliseconds
+     */
+    final long delta;
+
+    CachedValue(Serializable value, long expires, long delta) {
+        this.value = value;
+        this.expires = expires;
+        this.delta = delta;
+    }
+
+    /**
+     * @param key
+     *            Element key
+     * @return The element, or null if it is missing or was not cached by {@link Cache#get(String, String, Cache.Computation)}
+     */
+    static CachedValue read(String key) {
+        Object cached = Cache.get(key);
+        return cached instanceof CachedValue ? (CachedValue) cached : null;
+    }
+
+    /**
+     * @param now
+     *            The current time, in milliseconds
+     * @return false if it expired, or if this read computes it again early
+     */
+    boolean isFresh(long now) {
+        if (expires == Long.MAX_VALUE) {
+            return true;
+        }
+        double early = delta * BETA * -Math.log(1 - ThreadLocalRandom.current().nextDouble());
+        return now + early < expires;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Serializable, E extends Exception> T get(String key, String expiration,
+            Cache.Computation<T, E> computation) throws E {
+        CachedValue current = read(key);
+        if (current != null && current.isFresh(System.currentTimeMillis())) {
+            return (T) current.value;
+        }
+
+        Computing mine = Computing.start(key);
+        if (mine == null) {
+            Computing other = Computing.of(key);
+            if (other != null && other.thread == Thread.currentThread()) {
+                // Needed by its own computation
+                return compute(key, expiration, computation);
+            }
+            if (current != null) {
+                // Being computed again, the previous value is still served
+                return (T) current.value;
+            }
+            Object value = other == null ? null : other.await();
+            if (value != null) {
+                return (T) value;
+            }
+            return compute(key, expiration, computation);
+        }
+
+        T value = null;
+        try {
+            value = compute(key, expiration, computation);
+            return value;
+        } finally {
+            mine.end(value);
+        }
+    }
+
+    private static <T extends Serializable, E extends Exception> T compute(String key, String expiration,
+            Cache.Computation<T, E> computation) throws E {
+        long start = System.currentTimeMillis();
+        T value = computation.compute();
+        if (value != null) {
+            set(key, value, expiration, System.currentTimeMillis() - start);
+        }
+        return value;
+    }
+
+    /**
+     * Cache an element
+     *
+     * @param key
+     *            Element key
+     * @param value
+     *            Element value
+     * @param expiration
+     *            Ex: 10s, 3mn, 8h
+     * @param delta
+     *            How long it took to compute, in milliseconds
+     */
+    static void set(String key, Serializable value, String expiration, long delta) {
+        int duration = Time.parseDuration(expiration);
+        if (duration == 0) {
+            Cache.cacheImpl.set(key, new CachedValue(value, Long.MAX_VALUE, delta), 0);
+        } else {
+            Cache.cacheImpl.set(key, new CachedValue(value, System.currentTimeMillis() + duration * 1000L, delta),
+                    (int) Math.min(2L * duration, MAX_EXPIRATION));
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package play.cache;
+
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+
+import play.Play;
+import play.exceptions.UnexpectedException;
+import play.libs.Codec;
+import play.mvc.Http;
+import play.mvc.Scope;
+
+/**
+ * The responses of the actions annotated with {@link CacheFor}.
+ * <p>
+ * A response is looked up once the <code>@Before</code> interceptors of the action ran, and served as it was cached
+ * (status, headers and encoded body) without invoking the action. With
+ * <code>play.cache.serveBeforeInterceptors=true</code>, it is looked up as soon as the request is routed instead, and
+ * served without running the interceptors (<code>@Before</code> included) or the plugins. It is cached for
+ * the key of the {@link CacheFor#generator()}, or {@link CacheFor#id()}, and the values of the request headers listed
+ * by its Vary header. Clients revalidate it with its ETag.
+ * </p>
+ * <p>
+ * Only the successful responses to GET and HEAD requests without session or flash cookie nor Authorization header,
+ * which do not set cookies, are cached. As with {@link Cache#get(String, String, Cache.Computation)}, one request at a
+ * time computes a response, and it is computed again a bit before it expires.
+ * </p>
+ */
+public class ResponseCache {
+
+    /**
+     * The lookup of a request, in its args
+     */
+    private static final String LOOKUP = ResponseCache.class.getName();
+
+    /**
+     * Whether the responses are served before the invocation, without running the <code>@Before</code> interceptors
+     */
+    static boolean serveBeforeInterceptors;
+
+    static void configure() {
+        serveBeforeInterceptors = Boolean.parseBoolean(Play.configuration.getProperty("play.cache.serveBeforeInterceptors", "false"));
+    }
+
+    private static final class Lookup {
+        final String key;
+        final String expiration;
+        /**
+         * When the response started to be computed
+         */
+        final long start = System.currentTimeMillis();
+        /**
+         * Set if this request computes it for the other requests
+         */
+        CachedValue.Computing computing;
+
+        Lookup(String key, String expiration) {
+            this.key = key;
+            this.expiration = expiration;
+        }
+    }
+
+    /**
+     * Look up the cached response of a request as soon as it is routed, if
+     * <code>play.cache.serveBeforeInterceptors</code> is enabled
+     *
+     * @param request
+     *            The request
+     * @return The response to serve, or null if the request must be invoked
+     */
+    public static CachedResponse lookupBeforeInvocation(Http.Request request) {
+        return serveBeforeInterceptors ? lookup(request) : null;
+    }
+
+    /**
+     * Look up the cached response of a request, once its action is resolved
+     *
+     * @param request
+     *            The request
+     * @return The response to serve, or null if the action must be invoked
+     */
+    public static CachedResponse lookup(Http.Request request) {
+        Method action = request.invokedMethod;
+        if (action == null || request.args.containsKey(LOOKUP) || !action.isAnnotationPresent(CacheFor.class)
+                || !("GET".equals(request.method) || "HEAD".equals(request.method))
+                || request.cookies.containsKey(Scope.COOKIE_PREFIX + "_SESSION")
+                || request.cookies.containsKey(Scope.COOKIE_PREFIX + "_FLASH")
+                || request.headers.containsKey("authorization")) {
+            return null;
+        }
+        CacheFor cacheFor = action.getAnnotation(CacheFor.class);
+        String key = cacheFor.id();
+        if ("".equals(key)) {
+            try {
+                key = cacheFor.generator().getDeclaredConstructor().newInstance().generate(request);
+            } catch (ReflectiveOperationException e) {
+                throw new UnexpectedException(e);
+            }
+        }
+        if (key == null || "".equals(key)) {
+            return null;
+        }
+
+        String computedKey = key;
+        CachedValue cached = CachedValue.read(key);
+        CachedResponse response = cached != null && cached.value instanceof CachedResponse ? (CachedResponse) cached.value : null;
+        if (response != null && response.vary.length > 0) {
+            String variant = variant(request, response.vary);
+            if (!variant.equals(response.variant)) {
+                computedKey = key + variant;
+                cached = CachedValue.read(computedKey);
+                response = cached != null && cached.value instanceof CachedResponse ? (CachedResponse) cached.value : null;
+            }
+        }
+        if (response != null && cached.isFresh(System.currentTimeMillis())) {
+            return response;
+        }
+
+        Lookup lookup = new Lookup(key, cacheFor.value());
+        lookup.computing = CachedValue.Computing.start(computedKey);
+        if (lookup.computing == null) {
+            if (response != null) {
+                // Being computed again, the previous response is still served
+                return response;
+            }
+            CachedValue.Computing other = CachedValue.Computing.of(computedKey);
+            Object computed = other == null ? null : other.await();
+            if (computed instanceof CachedResponse) {
+                CachedResponse candidate = (CachedResponse) computed;
+                if (variant(request, candidate.vary).equals(candidate.variant)) {
+                    return candidate;
+                }
+            }
+        }
+        request.args.put(LOOKUP, lookup);
+        return null;
+    }
+
+    /**
+     * Cache the response of a request whose cached response was looked up and was missing, unless it cannot be cached
+     *
+     * @param request
+     *            The request
+     * @param response
+     *            Its response, not sent yet
+     */
+    public static void store(Http.Request request, Http.Response response) {
+        Lookup lookup = (Lookup) request.args.get(LOOKUP);
+        if (lookup == null) {
+            return;
+        }
+        CachedResponse cached = null;
+        try {
+            String[] vary = vary(response.getHeader("Vary"));
+            if (vary != null && isCacheable(response)) {
+                byte[] body = response.out.toByteArray();
+                String etag = response.getHeader("ETag");
+                if (etag == null) {
+                    etag = "\"" + Codec.byteToHexString(MessageDigest.getInstance("MD5").digest(body)) + "\"";
+                    response.setHeader("ETag", etag);
+                }
+                String variant = variant(request, vary);
+                cached = new CachedResponse(response, body, etag, vary, variant);
+                long delta = System.currentTimeMillis() - lookup.start;
+                if (vary.length > 0) {
+                    CachedValue.set(lookup.key + variant, cached, lookup.expiration, delta);
+                }
+                // Also tells which headers it varies on
+                CachedValue.set(lookup.key, cached, lookup.expiration, delta);
+            }
+        } catch (Exception e) {
+            throw new UnexpectedException(e);
+        } finally {
+            if (lookup.computing != null) {
+                lookup.computing.end(cached);
+                lookup.computing = null;
+            }
+        }
+    }
+
+    /**
+     * Let the other requests compute the response this request was computing, if it was not cached. It must be called
+     * once the request is over, whether its action was invoked or not, but not while it is suspended.
+     *
+     * @param request
+     *            The request
+     */
+    public static void release(Http.Request request) {
+        Lookup lookup = (Lookup) request.args.get(LOOKUP);
+        if (lookup != null && lookup.computing != null) {
+            lookup.computing.end(null);
+            lookup.computing = null;
+        }
+    }
+
+    private static boolean isCacheable(Http.Response response) {
+        if (response.status == null || response.status != Http.StatusCode.OK || response.direct != null || response.out == null) {
+            return false;
+        }
+        for (Http.Cookie cookie : response.cookies.values()) {
+            // The session and flash cookies are deleted when there are none
+            if (cookie.value != null && !cookie.value.isEmpty()) {
+                return false;
+            }
+        }
+        String cacheControl = response.getHeader("Cache-Control");
+        return cacheControl == null || !(cacheControl.contains("private") || cacheControl.contains("no-store"));
+    }
+
+    /**
+     * @return The request headers listed by a Vary header, in lower case, or null for "*"
+     */
+    private static String[] vary(String header) {
+        if (header == null || header.trim().isEmpty()) {
+            return new String[0];
+        }
+        String[] names = header.split(",");
+        for (int i = 0; i < names.length; i++) {
+            names[i] = names[i].trim().toLowerCase();
+            if (names[i].equals("*")) {
+                return null;
+            }
+        }
+        return names;
+    }
+
+    private static String variant(Http.Request request, String[] vary) {
+        StringBuilder variant = new StringBuilder();
+        for (String name : vary) {
+            Http.Header header = request.headers.get(name);
+            variant.append('|').append(name).append('=');
+            if (header != null) {
+                variant.append(String.join(",", header.values));
+            }
+        }
+        return variant.toString();
+    }
+}
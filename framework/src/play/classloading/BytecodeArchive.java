@@ -0,0 +1,249 @@
+package play.classloading;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import play.Logger;
+
+/**
+ * Bytecode of many classes or templates in one file, instead of one file each.
+ * <p>
+ * The file starts with an index of the entries (name, hash of the source, position and length of the bytecode),
+ * followed by the bytecode. It is mapped in memory, so that opening it only reads the index and an entry is read
+ * when it is needed. An archive is never modified: a new one is written with a {@link Builder} and replaces it.
+ * </p>
+ */
+public class BytecodeArchive {
+
+    private static final int MAGIC = 0x504c4241;
+    private static final int VERSION = 1;
+
+    private static final class Entry {
+        final String hash;
+        final int position;
+        final int length;
+
+        Entry(String hash, int position, int length) {
+            this.hash = hash;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    private final Map<String, Entry> entries;
+    private final ByteBuffer data;
+
+    private BytecodeArchive(Map<String, Entry> entries, ByteBuffer data) {
+        this.entries = entries;
+        this.data = data;
+    }
+
+    /**
+     * Open an archive
+     *
+     * @param file
+     *            The archive file
+     * @return The archive, or null if the file does not exist or is not a valid archive
+     */
+    public static BytecodeArchive open(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid once the channel is closed
+            ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                Logger.warn("%s is not a bytecode archive, ignoring it", file);
+                return null;
+            }
+            int count = buffer.getInt();
+            Map<String, Entry> entries = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                String name = readString(buffer);
+                String hash = readString(buffer);
+                entries.put(name, new Entry(hash, buffer.getInt(), buffer.getInt()));
+            }
+            ByteBuffer data = buffer.slice();
+            for (Entry entry : entries.values()) {
+                if (entry.position < 0 || entry.length < 0 || entry.position > data.limit() - entry.length) {
+                    Logger.warn("%s is truncated, ignoring it", file);
+                    return null;
+                }
+            }
+            return new BytecodeArchive(entries, data);
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            Logger.warn(e, "Cannot read the bytecode archive %s, ignoring it", file);
+            return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param name
+     *            The entry name
+     * @return true if the archive has this entry
+     */
+    public boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /**
+     * @param prefix
+     *            The start of entry names (ex: app/views/)
+     * @return true if the archive has an entry whose name starts with this prefix
+     */
+    public boolean containsPrefix(String prefix) {
+        for (String name : entries.keySet()) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The entry names
+     */
+    public Set<String> names() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * @param name
+     *            The entry name
+     * @return The bytecode, or null if there is no such entry
+     */
+    public byte[] get(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : read(entry);
+    }
+
+    /**
+     * @param name
+     *            The entry name
+     * @param hash
+     *            The hash of the current source
+     * @return The bytecode, or null if there is no such entry or if it was compiled from another source
+     */
+    public byte[] get(String name, String hash) {
+        Entry entry = entries.get(name);
+        return entry == null || !entry.hash.equals(hash) ? null : read(entry);
+    }
+
+    /**
+     * @param name
+     *            The entry name
+     * @return The hash of the source of this entry, or null if there is no such entry
+     */
+    public String hash(String name) {
+        Entry entry = entries.get(name);
+        return entry == null ? null : entry.hash;
+    }
+
+    private byte[] read(Entry entry) {
+        byte[] bytes = new byte[entry.length];
+        // A duplicate has its own position, the archive is read by concurrent threads
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(entry.position);
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * The entries of a new archive. Entries can be added by concurrent threads.
+     */
+    public static class Builder {
+
+        private final Map<String, String> hashes = new TreeMap<>();
+        private final Map<String, byte[]> bytecodes = new HashMap<>();
+
+        /**
+         * Add an entry, or replace it
+         *
+         * @param name
+         *            The entry name
+         * @param hash
+         *            The hash of the source
+         * @param bytecode
+         *            The bytecode
+         */
+        public synchronized void add(String name, String hash, byte[] bytecode) {
+            hashes.put(name, hash == null ? "" : hash);
+            bytecodes.put(name, bytecode);
+        }
+
+        /**
+         * @return The number of entries
+         */
+        public synchronized int size() {
+            return hashes.size();
+        }
+
+        /**
+         * Write the archive. It is written next to the file and then moved, so that the file is never partially
+         * written.
+         *
+         * @param file
+         *            The archive file
+         * @throws IOException
+         *             if the archive cannot be written
+         */
+        public synchronized void write(File file) throws IOException {
+            file.getParentFile().mkdirs();
+            File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 65536))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(hashes.size());
+                int position = 0;
+                for (Map.Entry<String, String> entry : hashes.entrySet()) {
+                    int length = bytecodes.get(entry.getKey()).length;
+                    writeString(out, entry.getKey());
+                    writeString(out, entry.getValue());
+                    out.writeInt(position);
+                    out.writeInt(length);
+                    position += length;
+                }
+                for (String name : hashes.keySet()) {
+                    out.write(bytecodes.get(name));
+                }
+            }
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xffff) {
+                throw new IOException("Name too long for a bytecode archive: " + value);
+            }
+            out.writeShort(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
@@ -5,9 +5,11 @@ import play.Play;
 import play.PlayPlugin;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.security.MessageDigest;
+import java.util.Arrays;
 
 import static org.apache.commons.io.FileUtils.writeByteArrayToFile;
 
@@ -16,6 +18,83 @@ import static org.apache.commons.io.FileUtils.writeByteArrayToFile;
  */
 public class BytecodeCache {
 
+    /**
+     * The archive written by {@link #writeArchive()}, in the cache directory
+     */
+    static final String ARCHIVE = "bytecode.archive";
+
+    private static File archiveFile;
+    private static BytecodeArchive archive;
+
+    /**
+     * The bytecode read or cached since {@link #startArchive()}
+     */
+    private static volatile BytecodeArchive.Builder archiving;
+    /**
+     * Whether some of it is not in the current archive
+     */
+    private static volatile boolean archiveChanged;
+
+    /**
+     * Collect the bytecode read from the cache or cached from now on, to write it in one archive with
+     * {@link #writeArchive()}. The bytecode is then read from this archive, before looking for single files.
+     */
+    public static void startArchive() {
+        if (isEnabled() && !Play.readOnlyTmp) {
+            archiving = new BytecodeArchive.Builder();
+            archiveChanged = false;
+        }
+    }
+
+    /**
+     * Write the bytecode collected since {@link #startArchive()} in an archive, replacing the current one, unless it
+     * has not changed.
+     */
+    public static void writeArchive() {
+        BytecodeArchive.Builder builder = archiving;
+        archiving = null;
+        if (builder == null || !archiveChanged) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            File file = cacheFile(ARCHIVE);
+            builder.write(file);
+            synchronized (BytecodeCache.class) {
+                archiveFile = null;
+                archive = null;
+            }
+            if (Logger.isTraceEnabled()) {
+                Logger.trace("%sms to archive %d bytecodes in %s", System.currentTimeMillis() - start, builder.size(), file);
+            }
+        } catch (Exception e) {
+            Logger.warn(e, "Cannot write the bytecode archive");
+        }
+    }
+
+    private static synchronized BytecodeArchive archive() {
+        File file = cacheFile(ARCHIVE);
+        if (!file.equals(archiveFile)) {
+            archiveFile = file;
+            archive = BytecodeArchive.open(file);
+        }
+        return archive;
+    }
+
+    private static void archived(String name, String hash, byte[] byteCode, boolean changed) {
+        BytecodeArchive.Builder builder = archiving;
+        if (builder != null) {
+            builder.add(name, hash, byteCode);
+            if (changed) {
+                archiveChanged = true;
+            }
+        }
+    }
+
+    private static boolean isEnabled() {
+        return Play.initialized && Play.tmpDir != null && Play.configuration.getProperty("play.bytecodeCache", "true").equals("true");
+    }
+
     /**
      * Delete the bytecode
      * @param name Cache name
@@ -29,44 +108,56 @@ public class BytecodeCache {
             if (f.exists()) {
                 f.delete();
             }
+            BytecodeArchive current = archive();
+            if (current != null && current.contains(name)) {
+                // An archive cannot be changed
+                synchronized (BytecodeCache.class) {
+                    archive = null;
+                }
+                Files.deleteIfExists(archiveFile.toPath());
+            }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
     /**
-     * Retrieve the bytecode if source has not changed
+     * Retrieve the bytecode if source has not changed, from the archive or else from its own file
      * @param name The cache name
      * @param source The source code
      * @return The bytecode
      */
     public static byte[] getBytecode(String name, String source) {
         try {
-            if (!Play.initialized || Play.tmpDir == null || !Play.configuration.getProperty("play.bytecodeCache", "true").equals("true")) {
+            if (!isEnabled()) {
                 return null;
             }
+            String hash = hash(source);
+            BytecodeArchive current = archive();
+            if (current != null) {
+                byte[] byteCode = current.get(name, hash);
+                if (byteCode != null) {
+                    archived(name, hash, byteCode, false);
+                    return byteCode;
+                }
+            }
             File f = cacheFile(name.replace("/", "_").replace("{", "_").replace("}", "_").replace(":", "_"));
             if (f.exists()) {
-                FileInputStream fis = new FileInputStream(f);
-                // Read hash
+                byte[] content = Files.readAllBytes(f.toPath());
+                // The hash ends with a null byte
                 int offset = 0;
-                int read = -1;
-                StringBuilder hash = new StringBuilder();
-                // look for null byte, or end-of file
-                while ((read = fis.read()) > 0) {
-                    hash.append((char) read);
+                while (offset < content.length && content[offset] != 0) {
                     offset++;
                 }
-                if (!hash(source).equals(hash.toString())) {
+                String cachedHash = new String(content, 0, offset, StandardCharsets.UTF_8);
+                if (!hash.equals(cachedHash)) {
                     if (Logger.isTraceEnabled()) {
-                        Logger.trace("Bytecode too old (%s != %s)", hash, hash(source));
+                        Logger.trace("Bytecode too old (%s != %s)", cachedHash, hash);
                     }
-                    fis.close();
                     return null;
                 }
-                byte[] byteCode = new byte[(int) f.length() - (offset + 1)];
-                fis.read(byteCode);
-                fis.close();
+                byte[] byteCode = Arrays.copyOfRange(content, Math.min(offset + 1, content.length), content.length);
+                archived(name, hash, byteCode, true);
                 return byteCode;
             }
 
@@ -90,11 +181,16 @@ public class BytecodeCache {
             if (!Play.initialized || Play.tmpDir == null || Play.readOnlyTmp || !Play.configuration.getProperty("play.bytecodeCache", "true").equals("true")) {
                 return;
             }
-            File f = cacheFile(name.replace("/", "_").replace("{", "_").replace("}", "_").replace(":", "_"));
-            try (FileOutputStream fos = new FileOutputStream(f)) {
-                fos.write(hash(source).getBytes("utf-8"));
-                fos.write(0);
-                fos.write(byteCode);
+            File f;
+            if (archiving != null) {
+                archived(name, hash(source), byteCode, true);
+            } else {
+                f = cacheFile(name.replace("/", "_").replace("{", "_").replace("}", "_").replace(":", "_"));
+                try (FileOutputStream fos = new FileOutputStream(f)) {
+                    fos.write(hash(source).getBytes("utf-8"));
+                    fos.write(0);
+                    fos.write(byteCode);
+                }
             }
 
             // emit bytecode to standard class layout as well
@@ -1,6 +1,9 @@
 package play.data.binding;
 
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.*;
 import java.util.*;
 
@@ -143,13 +146,21 @@ public class BeanWrapper {
 
     public static class Property {
 
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
         private Annotation[] annotations;
         private Method setter;
         private Field field;
+        /**
+         * The setter or the field, or null when it cannot be accessed through a method handle
+         */
+        private MethodHandle handle;
         private Class<?> type;
         private Type genericType;
         private String name;
         private String[] profiles;
+        private String[] noBindingProfiles;
+        private Class<? extends TypeBinder<?>> binder;
 
         Property(String propertyName, Method setterMethod) {
             name = propertyName;
@@ -158,6 +169,16 @@ public class BeanWrapper {
             annotations = setter.getAnnotations();
             genericType = setter.getGenericParameterTypes()[0];
             setProfiles(this.annotations);
+            try {
+                setter.setAccessible(true);
+            } catch (RuntimeException e) {
+                // Not opened to Play: only a public setter can be called
+            }
+            try {
+                handle = MethodHandles.lookup().unreflect(setter).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                Logger.trace("Setter %s is called through reflection: %s", setter, e);
+            }
         }
 
         Property(Field field) {
@@ -168,9 +189,15 @@ public class BeanWrapper {
             annotations = field.getAnnotations();
             genericType = field.getGenericType();
             setProfiles(this.annotations);
+            try {
+                handle = MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                Logger.trace("Field %s is set through reflection: %s", field, e);
+            }
         }
 
         public void setProfiles(Annotation[] annotations) {
+            binder = null;
             if (annotations != null) {
                 for (Annotation annotation : annotations) {
                     if (annotation.annotationType().equals(NoBinding.class)) {
@@ -178,18 +205,25 @@ public class BeanWrapper {
                         profiles = as.value();
                     }
                 }
+                binder = Binder.getAsBinder(annotations);
             }
+            noBindingProfiles = profiles != null ? profiles : new String[0];
         }
 
         public void setValue(Object instance, Object value) {
             try {
-                if (setter != null) {
+                if (handle != null) {
+                    if (Logger.isTraceEnabled()) {
+                        Logger.trace("set %s on %s with value %s", setter != null ? setter : field, instance, value);
+                    }
+
+                    handle.invokeExact(instance, value);
+                } else if (setter != null) {
                     if (Logger.isTraceEnabled()) {
                         Logger.trace("invoke setter %s on %s with value %s", setter, instance, value);
                     }
 
                     setter.invoke(instance, value);
-                    return;
                 } else {
                     if (Logger.isTraceEnabled()) {
                         Logger.trace("field.set(%s, %s)", instance, value);
@@ -198,12 +232,23 @@ public class BeanWrapper {
                     field.set(instance, value);
                 }
 
-            } catch (Exception ex) {
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable ex) {
                 Logger.warn(ex, "ERROR in BeanWrapper when setting property %s value is %s (%s)", name, value, value == null ? null : value.getClass());
                 throw new UnexpectedException(ex);
             }
         }
 
+        /**
+         * @param profiles
+         *            The profiles of the bean being bound
+         * @return The binding annotations of the property, resolved when the property was registered
+         */
+        BindingAnnotations getBindingAnnotations(String[] profiles) {
+            return new BindingAnnotations(annotations, profiles, noBindingProfiles, binder);
+        }
+
         String getName() {
             return name;
         }
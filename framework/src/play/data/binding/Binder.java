@@ -18,6 +18,7 @@ import java.math.BigInteger;
 import java.text.ParseException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The binder try to convert String values to Java objects.
@@ -28,6 +29,10 @@ public abstract class Binder {
     public static final Object NO_BINDING = new Object();
 
     static final Map<Class<?>, TypeBinder<?>> supportedTypes = new HashMap<>();
+    /**
+     * Incremented when the supported types change, to find the binders of the types again
+     */
+    private static volatile int supportedTypesVersion;
 
     // TODO: something a bit more dynamic? The As annotation allows you to inject your own binder
     static {
@@ -63,6 +68,7 @@ public abstract class Binder {
      */
     public static <T> void register(Class<T> clazz, TypeBinder<T> typeBinder) {
         supportedTypes.put(clazz, typeBinder);
+        supportedTypesVersion++;
     }
 
     /**
@@ -75,18 +81,110 @@ public abstract class Binder {
      */
     public static <T> void unregister(Class<T> clazz) {
         supportedTypes.remove(clazz);
+        supportedTypesVersion++;
     }
 
-    static Map<Class<?>, BeanWrapper> beanwrappers = new HashMap<>();
+    /**
+     * Kept with each class, so the wrappers of the reloaded application classes go away with the old classloader
+     */
+    private static final ClassValue<BeanWrapper> beanwrappers = new ClassValue<BeanWrapper>() {
+        @Override
+        protected BeanWrapper computeValue(Class<?> type) {
+            return new BeanWrapper(type);
+        }
+    };
 
-    static BeanWrapper getBeanWrapper(Class<?> clazz) {
-        if (!beanwrappers.containsKey(clazz)) {
-            BeanWrapper beanwrapper = new BeanWrapper(clazz);
-            beanwrappers.put(clazz, beanwrapper);
+    private static final ClassValue<Constructor<?>> constructors = new ClassValue<Constructor<?>>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                Constructor<?> constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                return constructor;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
         }
+    };
+
+    private static final ClassValue<AtomicReference<DirectBinders>> directBinders = new ClassValue<AtomicReference<DirectBinders>>() {
+        @Override
+        protected AtomicReference<DirectBinders> computeValue(Class<?> type) {
+            return new AtomicReference<>();
+        }
+    };
+
+    /**
+     * The binders to try for a type, found once: the global application binders, then the registered one
+     */
+    private static final class DirectBinders {
+        final List<?> applicationBinders;
+        final int version;
+        final List<Class<TypeBinder<?>>> global = new ArrayList<>();
+        final TypeBinder<?> registered;
+
+        @SuppressWarnings("unchecked")
+        DirectBinders(Class<?> clazz, List<?> applicationBinders, int version) {
+            this.applicationBinders = applicationBinders;
+            this.version = version;
+            for (Object binderClass : applicationBinders) {
+                Class<TypeBinder<?>> c = (Class<TypeBinder<?>>) binderClass;
+                if (c.isAnnotationPresent(Global.class)) {
+                    Class<?> forType = (Class<?>) ((ParameterizedType) c.getGenericInterfaces()[0]).getActualTypeArguments()[0];
+                    if (forType.isAssignableFrom(clazz)) {
+                        global.add(c);
+                    }
+                }
+            }
+            TypeBinder<?> binder = null;
+            for (Class<?> c : supportedTypes.keySet()) {
+                if (c.isAssignableFrom(clazz)) {
+                    binder = supportedTypes.get(c);
+                    break;
+                }
+            }
+            registered = binder;
+            if (Logger.isTraceEnabled()) {
+                Logger.trace("directBind: binders of %s are %s then %s", clazz, global, registered);
+            }
+        }
+    }
+
+    static BeanWrapper getBeanWrapper(Class<?> clazz) {
         return beanwrappers.get(clazz);
     }
 
+    private static DirectBinders getDirectBinders(Class<?> clazz) {
+        List<?> applicationBinders = Play.classloader.getAssignableClasses(TypeBinder.class);
+        int version = supportedTypesVersion;
+        AtomicReference<DirectBinders> cached = directBinders.get(clazz);
+        DirectBinders binders = cached.get();
+        if (binders == null || binders.applicationBinders != applicationBinders || binders.version != version) {
+            binders = new DirectBinders(clazz, applicationBinders, version);
+            cached.set(binders);
+        }
+        return binders;
+    }
+
+    /**
+     * @param annotations
+     *            The annotations of a parameter or property
+     * @return The binder given with <code>@As(binder=...)</code>, or null
+     */
+    static Class<? extends TypeBinder<?>> getAsBinder(Annotation[] annotations) {
+        if (annotations != null) {
+            for (Annotation annotation : annotations) {
+                if (annotation.annotationType().equals(As.class)) {
+                    Class<? extends TypeBinder<?>> binder = ((As) annotation).binder();
+                    if (!binder.equals(As.DEFAULT.class)) {
+                        return binder;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
     public static class MethodAndParamInfo {
         public final Object objectInstance;
         public final Method method;
@@ -225,7 +323,7 @@ public abstract class Binder {
             }
 
             Object directBindResult = internalDirectBind(paramNode.getOriginalKey(), bindingAnnotations.annotations,
-                    paramNode.getFirstValue(clazz), clazz, type);
+                    bindingAnnotations.getBinder(), paramNode.getFirstValue(clazz), clazz, type);
 
             if (directBindResult != DIRECTBINDING_NO_RESULT) {
                 // we found a value/result when direct binding
@@ -335,10 +433,13 @@ public abstract class Binder {
         return bean;
     }
 
+    @SuppressWarnings("unchecked")
     private static <T> T createNewInstance(Class<T> clazz) {
         try {
-            Constructor<T> constructor = clazz.getDeclaredConstructor();
-            constructor.setAccessible(true);
+            Constructor<T> constructor = (Constructor<T>) constructors.get(clazz);
+            if (constructor == null) {
+                throw new NoSuchMethodException(clazz.getName() + ".<init>()");
+            }
             return constructor.newInstance();
         } catch (InstantiationException | IllegalAccessException e) {
             Logger.warn("Failed to create instance of %s: %s", clazz.getName(), e);
@@ -399,10 +500,8 @@ public abstract class Binder {
             ParamNode propParamNode = paramNode.getChild(prop.getName());
             if (propParamNode != null) {
                 // Create new ParamsContext for this property
-                Annotation[] annotations = null;
                 // first we try with annotations resolved from property
-                annotations = prop.getAnnotations();
-                BindingAnnotations propBindingAnnotations = new BindingAnnotations(annotations, bindingAnnotations.getProfiles());
+                BindingAnnotations propBindingAnnotations = prop.getBindingAnnotations(bindingAnnotations.getProfiles());
                 Object value = internalBind(propParamNode, prop.getType(), prop.getGenericType(), propBindingAnnotations);
                 if (value != MISSING) {
                     if (value != NO_BINDING) {
@@ -519,8 +618,8 @@ public abstract class Binder {
             boolean hasMissing = false;
             for (int i = 0; i < values.length; i++) {
                 try {
-                    Object value = internalDirectBind(paramNode.getOriginalKey(), bindingAnnotations.annotations, values[i], componentClass,
-                            componentType);
+                    Object value = internalDirectBind(paramNode.getOriginalKey(), bindingAnnotations.annotations,
+                            bindingAnnotations.getBinder(), values[i], componentClass, componentType);
                     if (value == DIRECTBINDING_NO_RESULT) {
                         hasMissing = true;
                     } else {
@@ -663,7 +762,7 @@ public abstract class Binder {
      */
     public static Object directBind(String name, Annotation[] annotations, String value, Class<?> clazz, Type type) throws Exception {
         // calls the direct binding and returns null if no value could be resolved..
-        Object r = internalDirectBind(name, annotations, value, clazz, type);
+        Object r = internalDirectBind(name, annotations, getAsBinder(annotations), value, clazz, type);
         if (r == DIRECTBINDING_NO_RESULT) {
             return null;
         } else {
@@ -673,48 +772,29 @@ public abstract class Binder {
 
     // If internalDirectBind was not able to bind it, it returns a special variable instance: DIRECTBIND_MISSING
     // Needs this because sometimes we need to know if no value was returned..
-    private static Object internalDirectBind(String name, Annotation[] annotations, String value, Class<?> clazz, Type type)
-            throws Exception {
+    private static Object internalDirectBind(String name, Annotation[] annotations, Class<? extends TypeBinder<?>> asBinder,
+            String value, Class<?> clazz, Type type) throws Exception {
         boolean nullOrEmpty = value == null || value.trim().length() == 0;
 
-        if (annotations != null) {
-            for (Annotation annotation : annotations) {
-                if (annotation.annotationType().equals(As.class)) {
-                    Class<? extends TypeBinder<?>> toInstantiate = ((As) annotation).binder();
-                    if (!(toInstantiate.equals(As.DEFAULT.class))) {
-                        // Instantiate the binder
-                        TypeBinder<?> myInstance = createNewInstance(toInstantiate);
-                        return myInstance.bind(name, annotations, value, clazz, type);
-                    }
-                }
-            }
+        if (asBinder != null) {
+            // Instantiate the binder
+            TypeBinder<?> myInstance = createNewInstance(asBinder);
+            return myInstance.bind(name, annotations, value, clazz, type);
         }
 
+        DirectBinders binders = getDirectBinders(clazz);
+
         // application custom types have higher priority. If unable to bind proceed with the next one
-        for (Class<TypeBinder<?>> c : Play.classloader.getAssignableClasses(TypeBinder.class)) {
-            if (c.isAnnotationPresent(Global.class)) {
-                Class<?> forType = (Class) ((ParameterizedType) c.getGenericInterfaces()[0]).getActualTypeArguments()[0];
-                if (forType.isAssignableFrom(clazz)) {
-                    Object result = createNewInstance(c).bind(name, annotations, value, clazz, type);
-                    if (result != null) {
-                        return result;
-                    }
-                }
+        for (Class<TypeBinder<?>> c : binders.global) {
+            Object result = createNewInstance(c).bind(name, annotations, value, clazz, type);
+            if (result != null) {
+                return result;
             }
         }
 
         // custom types
-        for (Class<?> c : supportedTypes.keySet()) {
-            if (Logger.isTraceEnabled()) {
-                Logger.trace("directBind: value [" + value + "] c [" + c + "] Class [" + clazz + "]");
-            }
-
-            if (c.isAssignableFrom(clazz)) {
-                if (Logger.isTraceEnabled()) {
-                    Logger.trace("directBind: isAssignableFrom is true");
-                }
-                return supportedTypes.get(c).bind(name, annotations, value, clazz, type);
-            }
+        if (binders.registered != null) {
+            return binders.registered.bind(name, annotations, value, clazz, type);
         }
 
         // raw String
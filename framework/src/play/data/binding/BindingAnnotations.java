@@ -6,6 +6,8 @@ public class BindingAnnotations {
     public final Annotation[] annotations;
     private String[] profiles;
     private String[] noBindingProfiles;
+    private Class<? extends TypeBinder<?>> binder;
+    private boolean binderResolved;
 
     public BindingAnnotations() {
         this(null);
@@ -20,6 +22,14 @@ public class BindingAnnotations {
         this.profiles = profiles;
     }
 
+    BindingAnnotations(Annotation[] annotations, String[] profiles, String[] noBindingProfiles,
+            Class<? extends TypeBinder<?>> binder) {
+        this(annotations, profiles);
+        this.noBindingProfiles = noBindingProfiles;
+        this.binder = binder;
+        this.binderResolved = true;
+    }
+
     public String[] getProfiles() {
         if (profiles != null) {
             return profiles;
@@ -64,6 +74,17 @@ public class BindingAnnotations {
         return noBindingProfiles;
     }
 
+    /**
+     * @return The binder given with <code>@As(binder=...)</code>, or null
+     */
+    Class<? extends TypeBinder<?>> getBinder() {
+        if (!binderResolved) {
+            binder = Binder.getAsBinder(annotations);
+            binderResolved = true;
+        }
+        return binder;
+    }
+
     public boolean checkNoBinding() {
 
         String[] _profiles = getProfiles();
@@ -2,6 +2,7 @@ package play.data.binding;
 
 import play.utils.Utils;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -21,7 +22,39 @@ public class ParamNode {
     // a[b].c=12
     // a[b][c]=12
     // a.b[c]=12
-    private static final String keyPartDelimiterRegexpString = "[\\.\\[\\]]+";
+    // Same result as key.split("[\\.\\[\\]]+"), without compiling the regexp on each call
+    static String[] splitKey(String key) {
+        List<String> parts = null;
+        int start = 0;
+        int i = 0;
+        while (i < key.length()) {
+            if (!isKeyPartDelimiter(key.charAt(i))) {
+                i++;
+                continue;
+            }
+            if (parts == null) {
+                parts = new ArrayList<>(4);
+            }
+            parts.add(key.substring(start, i));
+            while (i < key.length() && isKeyPartDelimiter(key.charAt(i))) {
+                i++;
+            }
+            start = i;
+        }
+        if (parts == null) {
+            return new String[] { key };
+        }
+        parts.add(key.substring(start));
+        int size = parts.size();
+        while (size > 0 && parts.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return parts.subList(0, size).toArray(new String[size]);
+    }
+
+    private static boolean isKeyPartDelimiter(char c) {
+        return c == '.' || c == '[' || c == ']';
+    }
 
     public ParamNode(String name) {
         this.name = name;
@@ -57,7 +90,7 @@ public class ParamNode {
     }
 
     public ParamNode getChild(String name, boolean returnEmptyChildIfNotFound) {
-        ParamNode child = getChild( name.split(keyPartDelimiterRegexpString));
+        ParamNode child = getChild(splitKey(name));
         if (child == null && returnEmptyChildIfNotFound) {
             child = new ParamNode(name);
         }
@@ -143,8 +176,8 @@ public class ParamNode {
 
             ParamNode currentParent = root;
 
-            for ( String name : key.split(keyPartDelimiterRegexpString)) {
-                ParamNode paramNode = currentParent.getChild( name );
+            for (String name : splitKey(key)) {
+                ParamNode paramNode = currentParent._children.get(name);
                 if (paramNode ==null) {
                     // first time we see this node - create it and add it to parent
                     paramNode = new ParamNode(name);
@@ -3,6 +3,8 @@ package play.data.parsing;
 import java.io.InputStream;
 import java.util.Map;
 
+import play.utils.Utils;
+
 /**
  * A data parser parse the HTTP request data to a Map&lt;String,String[]&gt;
  */
@@ -10,4 +12,18 @@ public abstract class DataParser {
 
     public abstract Map<String, String[]> parse(InputStream is);
 
+    /**
+     * Parses the data into a map of parameters, adding the values of the parameters that are already in it.
+     *
+     * @param is
+     *            The data
+     * @param params
+     *            The parameters
+     */
+    public void parse(InputStream is, Map<String, String[]> params) {
+        for (Map.Entry<String, String[]> entry : parse(is).entrySet()) {
+            Utils.Maps.mergeValueInMap(params, entry.getKey(), entry.getValue());
+        }
+    }
+
 }
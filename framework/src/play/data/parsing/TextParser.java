@@ -1,11 +1,15 @@
 package play.data.parsing;
 
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
 import play.exceptions.UnexpectedException;
 import play.mvc.Http;
+import play.utils.ByteBufferInputStream;
 
 public class TextParser extends DataParser {
 
@@ -13,13 +17,14 @@ public class TextParser extends DataParser {
     public Map<String, String[]> parse(InputStream is) {
         try {
             Map<String, String[]> params = new HashMap<>();
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
-            int b;
-            while ((b = is.read()) != -1) {
-                os.write(b);
+            String encoding = Http.Request.current().encoding;
+            String body;
+            if (is instanceof ByteBufferInputStream) {
+                body = ((ByteBufferInputStream) is).readString(Charset.forName(encoding));
+            } else {
+                body = IOUtils.toString(is, encoding);
             }
-            byte[] data = os.toByteArray();
-            params.put("body", new String[] {new String(data, Http.Request.current().encoding)});
+            params.put("body", new String[] {body});
             return params;
         } catch (Exception e) {
             throw new UnexpectedException(e);
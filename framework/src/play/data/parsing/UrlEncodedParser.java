@@ -1,154 +1,360 @@
 package play.data.parsing;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+import org.apache.commons.io.IOUtils;
+
 import play.Logger;
 import play.Play;
 import play.exceptions.UnexpectedException;
 import play.mvc.Http;
 import play.mvc.results.Status;
+import play.utils.ByteBufferInputStream;
 import play.utils.Utils;
 
 
 /**
  * Parse url-encoded requests.
+ * <p>
+ * The data is decoded in a single pass over its bytes: each name and value is percent-decoded into a buffer of the
+ * thread, and only then turned into a String. Parameter names that come back often are decoded once per thread.
+ * </p>
  */
 public class UrlEncodedParser extends DataParser {
 
     // Sets the maximum count of accepted POST params - protection against Hash collision DOS attacks
-    private static final int maxParams = Integer.parseInt(Play.configuration.getProperty("http.maxParams", "1000")); // 0 == no limit
-    
+    private static final int maxParams = Play.configuration != null
+            ? Integer.parseInt(Play.configuration.getProperty("http.maxParams", "1000")) : 1000; // 0 == no limit
+
+    private static final ThreadLocal<Decoder> decoders = ThreadLocal.withInitial(Decoder::new);
+
     boolean forQueryString = false;
-    
+
     public static Map<String, String[]> parse(String urlEncoded) {
         try {
             String encoding = Http.Request.current().encoding;
-            return new UrlEncodedParser().parse(new ByteArrayInputStream(urlEncoded.getBytes( encoding )));
+            Map<String, String[]> params = new LinkedHashMap<>();
+            parse(ByteBuffer.wrap(urlEncoded.getBytes(encoding)), Charset.forName(encoding), params, urlEncoded);
+            return params.isEmpty() ? new HashMap<>(0) : params;
         } catch (UnsupportedEncodingException ex) {
             throw new UnexpectedException(ex);
         }
     }
-    
+
     public static Map<String, String[]> parseQueryString(InputStream is) {
         UrlEncodedParser parser = new UrlEncodedParser();
         parser.forQueryString = true;
         return parser.parse(is);
     }
 
+    /**
+     * Decodes a query string into a map of parameters.
+     *
+     * @param querystring
+     *            The query string, without its <code>?</code>
+     * @param params
+     *            The parameters to add the decoded ones to
+     */
+    public static void parseQueryString(String querystring, Map<String, String[]> params) {
+        if (querystring.isEmpty()) {
+            return;
+        }
+        Charset charset = Charset.forName(Http.Request.current().encoding);
+        ByteBuffer data = decoders.get().ascii(querystring);
+        if (data == null) {
+            data = ByteBuffer.wrap(querystring.getBytes(charset));
+        }
+        parse(data, charset, params, null);
+    }
+
     @Override
     public Map<String, String[]> parse(InputStream is) {
+        Map<String, String[]> params = new LinkedHashMap<>();
+        parse(is, params);
+        return params.isEmpty() ? new HashMap<>(0) : params;
+    }
+
+    @Override
+    public void parse(InputStream is, Map<String, String[]> params) {
         // Encoding is either retrieved from contentType or it is the default encoding
-        String encoding = Http.Request.current().encoding;
+        Charset encoding = Charset.forName(Http.Request.current().encoding);
         try {
-            Map<String, String[]> params = new LinkedHashMap<>();
-            ByteArrayOutputStream os = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            while ( (bytesRead = is.read(buffer)) > 0 ) {
-                os.write( buffer, 0, bytesRead);
-            }
-
-            String data = new String(os.toByteArray(), encoding);
-            if (data.length() == 0) {
-                //data is empty - can skip the rest
-                return new HashMap<>(0);
-            }
-
-            // data is o the form:
-            // a=b&b=c%12...
-
-            // Let us parse in two phases - we wait until everything is parsed before
-            // we decoded it - this makes it possible for use to look for the
-            // special _charset_ param which can hold the charset the form is encoded in.
-            //
-            // http://www.crazysquirrel.com/computing/general/form-encoding.jspx
-            // https://bugzilla.mozilla.org/show_bug.cgi?id=18643
-            //
-            // NB: _charset_ must always be used with accept-charset and it must have the same value
-
-            String[] keyValues = data.split("&");
-
-
-            // to prevent the Play-server from being vulnerable to POST hash collision DOS-attack (Denial of Service through hash table multi-collisions),
-            // we should by default not parse the params into HashMap if the count exceeds a maximum limit
-            if(maxParams != 0 && keyValues.length > maxParams) {
-                Logger.warn("Number of request parameters %d is higher than maximum of %d, aborting. Can be configured using 'http.maxParams'", keyValues.length, maxParams);
-                throw new Status(413); //413 Request Entity Too Large
-            }
-
-            for (String keyValue : keyValues) {
-                // split this key-value on the first '='
-                int i = keyValue.indexOf('=');
-                String key=null;
-                String value=null;
-                if ( i > 0) {
-                    key = keyValue.substring(0,i);
-                    value = keyValue.substring(i+1);
-                } else {
-                    key = keyValue;
+            ByteBuffer data;
+            String body = null;
+            if (is instanceof ByteBufferInputStream) {
+                // Decoded straight from the received bytes
+                data = ((ByteBufferInputStream) is).buffer();
+                if (!forQueryString) {
+                    body = ((ByteBufferInputStream) is).readString(encoding);
                 }
-                if (key.length()>0) {
-                    Utils.Maps.mergeValueInMap(params, key, value);
+            } else {
+                data = ByteBuffer.wrap(IOUtils.toByteArray(is));
+                if (!forQueryString) {
+                    body = new String(data.array(), encoding);
                 }
             }
+            parse(data, encoding, params, body);
+        } catch (Status s) {
+            // just pass it along
+            throw s;
+        } catch (Exception e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
+    /**
+     * @param body
+     *            The whole data as text, to add as the <code>body</code> param, or null
+     */
+    private static void parse(ByteBuffer data, Charset encoding, Map<String, String[]> params, String body) {
+        if (!data.hasRemaining()) {
+            //data is empty - can skip the rest
+            return;
+        }
+        Decoder decoder = decoders.get();
+        byte[] bytes;
+        int start;
+        if (data.hasArray()) {
+            bytes = data.array();
+            start = data.arrayOffset() + data.position();
+        } else {
+            // Read-only or direct buffers are copied once, into a buffer of the thread
+            bytes = decoder.input(data.remaining());
+            data.duplicate().get(bytes, 0, data.remaining());
+            start = 0;
+        }
+        int end = start + data.remaining();
+
+        // data is o the form:
+        // a=b&b=c%12...
+
+        // The special _charset_ param can hold the charset the form is encoded in, so it is looked for before
+        // anything is decoded.
+        //
+        // http://www.crazysquirrel.com/computing/general/form-encoding.jspx
+        // https://bugzilla.mozilla.org/show_bug.cgi?id=18643
+        //
+        // NB: _charset_ must always be used with accept-charset and it must have the same value
+        Charset charset = encoding;
+        String providedCharset = providedCharset(bytes, start, end);
+        if (providedCharset != null) {
+            // The form contains a _charset_ param - When this is used together
+            // with accept-charset, we can use _charset_ to extract the encoding.
+            // PS: When rendering the view/form, _charset_ and accept-charset must be given the
+            // same value - since only Firefox and sometimes IE actually sets it when Posting
+            try {
+                charset = Charset.forName(providedCharset);
+            } catch (Exception e) {
+                Logger.debug(e, "Got invalid _charset_ in form: " + providedCharset);
+                // lets just use the default one..
+            }
+        }
 
-            // Second phase - look for _charset_ param and do the encoding
-            String charset = encoding;
-            if (params.containsKey("_charset_")) {
-                // The form contains a _charset_ param - When this is used together
-                // with accept-charset, we can use _charset_ to extract the encoding.
-                // PS: When rendering the view/form, _charset_ and accept-charset must be given the
-                // same value - since only Firefox and sometimes IE actually sets it when Posting
-                String providedCharset = params.get("_charset_")[0];
-                // Must be sure the providedCharset is a valid encoding..
-                try {
-                    "test".getBytes(providedCharset);
-                    charset = providedCharset; // it works..
-                } catch (Exception e) {
-                    Logger.debug(e, "Got invalid _charset_ in form: " + providedCharset);
-                    // lets just use the default one..
+        String[] before = body == null ? null : params.get("body");
+        decoder.decode(bytes, start, end, charset, params);
+
+        // add the complete body as a parameters, in place of a form field with the same name
+        if (body != null) {
+            if (before == null) {
+                params.put("body", new String[] { body });
+            } else {
+                // The params parsed before the form are kept
+                params.put("body", before);
+                Utils.Maps.mergeValueInMap(params, "body", body);
+            }
+        }
+    }
+
+    private static final byte[] CHARSET_PARAM = "_charset_=".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * @return The value of the first <code>_charset_</code> param, as is
+     */
+    private static String providedCharset(byte[] data, int start, int end) {
+        while (start < end) {
+            int next = indexOf(data, (byte) '&', start, end);
+            if (next - start >= CHARSET_PARAM.length) {
+                int i = 0;
+                while (i < CHARSET_PARAM.length && data[start + i] == CHARSET_PARAM[i]) {
+                    i++;
+                }
+                if (i == CHARSET_PARAM.length) {
+                    return new String(data, start + i, next - start - i, StandardCharsets.ISO_8859_1);
                 }
             }
+            start = next + 1;
+        }
+        return null;
+    }
 
-            // We're ready to decode the params
-            Map<String, String[]> decodedParams = new LinkedHashMap<>(params.size());
-            for (Map.Entry<String, String[]> e : params.entrySet()) {
-                String key = e.getKey();
-                try {
-                    key = URLDecoder.decode(e.getKey(), charset);
-                } catch (Throwable z) {
-                    // Nothing we can do about, ignore
+    private static int indexOf(byte[] data, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Decodes url-encoded data, with buffers reused from one request to the next
+     */
+    static final class Decoder {
+
+        private static final int NAMES = 512;
+        private static final int MAX_NAME_LENGTH = 64;
+        /**
+         * The largest buffers kept by the thread, larger ones are only used for the data they were allocated for
+         */
+        private static final int MAX_KEPT_LENGTH = 8192;
+
+        private byte[] input = new byte[256];
+        private byte[] decoded = new byte[256];
+
+        /**
+         * The names decoded so far, by hash of their bytes
+         */
+        private final byte[][] nameBytes = new byte[NAMES][];
+        private final String[] names = new String[NAMES];
+        private Charset namesCharset;
+
+        void decode(byte[] data, int start, int end, Charset charset, Map<String, String[]> params) {
+            if (charset != namesCharset) {
+                Arrays.fill(nameBytes, null);
+                Arrays.fill(names, null);
+                namesCharset = charset;
+            }
+            try {
+                int fields = 0;
+                while (start < end) {
+                    int next = indexOf(data, (byte) '&', start, end);
+                    if (next > start) {
+                        // to prevent the Play-server from being vulnerable to POST hash collision DOS-attack (Denial of Service through hash table multi-collisions),
+                        // we should by default not parse the params into HashMap if the count exceeds a maximum limit
+                        if (maxParams != 0 && ++fields > maxParams) {
+                            Logger.warn("Number of request parameters is higher than maximum of %d, aborting. Can be configured using 'http.maxParams'", maxParams);
+                            throw new Status(413); //413 Request Entity Too Large
+                        }
+                        // split this key-value on the first '='
+                        int i = indexOf(data, (byte) '=', start, next);
+                        String key;
+                        String value = null;
+                        if (i > start && i < next) {
+                            key = name(data, start, i, charset);
+                            value = value(data, i + 1, next, charset);
+                        } else {
+                            key = name(data, start, next, charset);
+                        }
+                        Utils.Maps.mergeValueInMap(params, key, value);
+                    }
+                    start = next + 1;
+                }
+            } finally {
+                if (decoded.length > MAX_KEPT_LENGTH) {
+                    decoded = new byte[256];
                 }
-                for (String value : e.getValue()) {
-                    try {
-                        String decodedValue = value == null ? null : URLDecoder.decode(value, charset);
-                        Utils.Maps.mergeValueInMap(decodedParams, key, decodedValue);
-                    } catch (Throwable z) {
-                        // Nothing we can do about, lets fill in with the non decoded value
-                        Utils.Maps.mergeValueInMap(decodedParams, key, value);
+            }
+        }
+
+        /**
+         * Percent-decodes <code>data[from, to[</code> into {@link #decoded}
+         *
+         * @return The length decoded, or -1 if the data is not properly encoded
+         */
+        private int percentDecode(byte[] data, int from, int to) {
+            if (decoded.length < to - from) {
+                decoded = new byte[Math.max(to - from, decoded.length * 2)];
+            }
+            byte[] out = decoded;
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                byte b = data[i];
+                if (b == '+') {
+                    b = ' ';
+                } else if (b == '%') {
+                    if (i + 2 >= to) {
+                        return -1;
+                    }
+                    int high = Character.digit(data[i + 1], 16);
+                    int low = Character.digit(data[i + 2], 16);
+                    if (high < 0 || low < 0) {
+                        return -1;
                     }
+                    b = (byte) ((high << 4) + low);
+                    i += 2;
                 }
+                out[n++] = b;
+            }
+            return n;
+        }
+
+        private String value(byte[] data, int from, int to, Charset charset) {
+            int length = percentDecode(data, from, to);
+            if (length < 0) {
+                // Nothing we can do about, lets fill in with the non decoded value
+                return new String(data, from, to - from, charset);
             }
+            return new String(decoded, 0, length, charset);
+        }
 
-            // add the complete body as a parameters
-            if(!forQueryString) {
-                decodedParams.put("body", new String[] {data});
+        private String name(byte[] data, int from, int to, Charset charset) {
+            int length = percentDecode(data, from, to);
+            if (length < 0) {
+                return new String(data, from, to - from, charset);
+            }
+            if (length > MAX_NAME_LENGTH) {
+                return new String(decoded, 0, length, charset);
+            }
+            int hash = 1;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + decoded[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (NAMES - 1);
+            byte[] bytes = nameBytes[slot];
+            if (bytes != null && Arrays.equals(bytes, 0, bytes.length, decoded, 0, length)) {
+                return names[slot];
             }
+            String name = new String(decoded, 0, length, charset);
+            nameBytes[slot] = Arrays.copyOf(decoded, length);
+            names[slot] = name;
+            return name;
+        }
 
-            return decodedParams;
-        } catch (Status s) {
-            // just pass it along
-            throw s;
-        } catch (Exception e) {
-            throw new UnexpectedException(e);
+        /**
+         * @return A buffer of the thread of at least <code>length</code> bytes, or a new one if it is too large to keep
+         */
+        byte[] input(int length) {
+            if (length > MAX_KEPT_LENGTH) {
+                return new byte[length];
+            }
+            if (input.length < length) {
+                input = new byte[Math.max(length, input.length * 2)];
+            }
+            return input;
         }
-    }
 
+        /**
+         * @return The bytes of an ASCII string, in a buffer of the thread, or null if it is not ASCII
+         */
+        ByteBuffer ascii(String s) {
+            int length = s.length();
+            byte[] bytes = input(length);
+            for (int i = 0; i < length; i++) {
+                char c = s.charAt(i);
+                if (c >= 0x80) {
+                    return null;
+                }
+                bytes[i] = (byte) c;
+            }
+            return ByteBuffer.wrap(bytes, 0, length);
+        }
+    }
 }
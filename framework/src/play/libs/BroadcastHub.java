@@ -0,0 +1,353 @@
+package play.libs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+
+import play.Logger;
+import play.libs.F.IndexedEvent;
+import play.libs.F.Promise;
+import play.mvc.Http;
+
+/**
+ * Broadcasts messages, by topic, to WebSockets and to long-polling clients.
+ * <p>
+ * A message is turned into a WebSocket frame once, which the server encodes once for all the sockets of the topic.
+ * Each topic keeps its last messages in a ring, so the messages since a given id are found without scanning the
+ * archive.
+ * </p>
+ *
+ * <pre>
+ * BroadcastHub.Topic&lt;String&gt; room = BroadcastHub.topic("room");
+ * room.subscribe(outbound, SlowConsumerPolicy.DROP);
+ * room.publish("Hello");
+ * </pre>
+ */
+public class BroadcastHub {
+
+    /**
+     * What to do with a socket that does not read the messages as fast as they are published
+     */
+    public enum SlowConsumerPolicy {
+        /**
+         * Skip the messages until the socket catches up
+         */
+        DROP,
+        /**
+         * Close the socket
+         */
+        DISCONNECT
+    }
+
+    static final int DEFAULT_ARCHIVE_SIZE = 100;
+
+    private static final Map<String, Topic<?>> topics = new ConcurrentHashMap<>();
+
+    /**
+     * @param name
+     *            The name of the topic
+     * @return The topic, created with an archive of 100 messages if it did not exist
+     */
+    public static <T> Topic<T> topic(String name) {
+        return topic(name, DEFAULT_ARCHIVE_SIZE);
+    }
+
+    /**
+     * @param name
+     *            The name of the topic
+     * @param archiveSize
+     *            The messages kept by the topic, if it is created
+     * @return The topic
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Topic<T> topic(String name, int archiveSize) {
+        return (Topic<T>) topics.computeIfAbsent(name, n -> new Topic<>(archiveSize));
+    }
+
+    /**
+     * Removes a topic, and its subscriptions
+     *
+     * @param name
+     *            The name of the topic
+     */
+    public static void remove(String name) {
+        Topic<?> topic = topics.remove(name);
+        if (topic != null) {
+            topic.subscriptions.clear();
+        }
+    }
+
+    /**
+     * The messages of a topic
+     *
+     * @param <T>
+     *            The type of the messages: text, bytes, or objects sent as JSON
+     */
+    public static class Topic<T> {
+
+        private final IndexedEvent<T>[] archive;
+        private final int mask;
+        private long lastId;
+        private List<Waiting<T>> waiting = new ArrayList<>();
+        final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+        /**
+         * @param archiveSize
+         *            The messages kept, rounded up to a power of two
+         */
+        @SuppressWarnings("unchecked")
+        public Topic(int archiveSize) {
+            int size = Integer.highestOneBit(Math.max(archiveSize, 1) - 1) << 1;
+            archive = (IndexedEvent<T>[]) new IndexedEvent<?>[Math.max(size, 1)];
+            mask = archive.length - 1;
+        }
+
+        /**
+         * Publishes a message to the subscribed sockets and to the clients waiting for it
+         *
+         * @param message
+         *            The message
+         * @return The message, with its id
+         */
+        public IndexedEvent<T> publish(T message) {
+            IndexedEvent<T> event;
+            List<Waiting<T>> ready;
+            synchronized (this) {
+                event = new IndexedEvent<>(message, ++lastId);
+                archive[(int) (event.id & mask)] = event;
+                ready = waiting;
+                if (!ready.isEmpty()) {
+                    waiting = new ArrayList<>();
+                }
+            }
+            if (!subscriptions.isEmpty()) {
+                Http.WebSocketFrame frame = frame(message);
+                for (Subscription subscription : subscriptions) {
+                    subscription.send(event.id, frame);
+                }
+            }
+            for (Waiting<T> client : ready) {
+                client.invoke(since(client.lastEventSeen));
+            }
+            return event;
+        }
+
+        /**
+         * @param lastEventSeen
+         *            The id of the last message seen, or 0
+         * @return The messages archived since, oldest first
+         */
+        public synchronized List<IndexedEvent<T>> since(long lastEventSeen) {
+            if (lastEventSeen >= lastId) {
+                return Collections.emptyList();
+            }
+            long from = Math.max(lastEventSeen + 1, lastId - archive.length + 1);
+            List<IndexedEvent<T>> events = new ArrayList<>((int) (lastId - from + 1));
+            for (long id = from; id <= lastId; id++) {
+                events.add(archive[(int) (id & mask)]);
+            }
+            return events;
+        }
+
+        /**
+         * For long-polling clients
+         *
+         * @param lastEventSeen
+         *            The id of the last message seen, or 0
+         * @return The messages since, as soon as there is one
+         */
+        public Promise<List<IndexedEvent<T>>> nextEvents(long lastEventSeen) {
+            Waiting<T> client = new Waiting<>(lastEventSeen);
+            synchronized (this) {
+                if (lastEventSeen >= lastId) {
+                    waiting.add(client);
+                    return client;
+                }
+            }
+            client.invoke(since(lastEventSeen));
+            return client;
+        }
+
+        /**
+         * @return The messages archived, oldest first
+         */
+        public List<T> archive() {
+            List<T> messages = new ArrayList<>();
+            for (IndexedEvent<T> event : since(0)) {
+                messages.add(event.data);
+            }
+            return messages;
+        }
+
+        /**
+         * Sends the next messages to a socket, until it is closed
+         *
+         * @param outbound
+         *            The socket
+         * @param policy
+         *            What to do when the socket falls behind
+         * @return The subscription
+         */
+        public Subscription subscribe(Http.Outbound outbound, SlowConsumerPolicy policy) {
+            synchronized (this) {
+                Subscription subscription = new Subscription(this, outbound, policy, lastId + 1);
+                subscriptions.add(subscription);
+                return subscription;
+            }
+        }
+
+        /**
+         * Sends the messages archived since an id to a socket, then the next ones
+         *
+         * @param outbound
+         *            The socket
+         * @param policy
+         *            What to do when the socket falls behind
+         * @param lastEventSeen
+         *            The id of the last message the socket has seen
+         * @return The subscription
+         */
+        public Subscription subscribe(Http.Outbound outbound, SlowConsumerPolicy policy, long lastEventSeen) {
+            List<IndexedEvent<T>> missed;
+            Subscription subscription;
+            synchronized (this) {
+                missed = since(lastEventSeen);
+                subscription = new Subscription(this, outbound, policy, missed.isEmpty() ? lastId + 1 : missed.get(0).id);
+                subscriptions.add(subscription);
+            }
+            // Sent without holding the topic: the messages published meanwhile wait in the subscription for these ones
+            for (IndexedEvent<T> event : missed) {
+                subscription.send(event.id, frame(event.data));
+            }
+            return subscription;
+        }
+
+        /**
+         * @return The number of sockets subscribed
+         */
+        public int subscribers() {
+            return subscriptions.size();
+        }
+
+        private static Http.WebSocketFrame frame(Object message) {
+            if (message instanceof String) {
+                return new Http.WebSocketFrame((String) message);
+            }
+            if (message instanceof byte[]) {
+                return new Http.WebSocketFrame((byte[]) message);
+            }
+            return new Http.WebSocketFrame(new Gson().toJson(message));
+        }
+    }
+
+    /**
+     * A socket subscribed to a topic. The messages are sent in the order of their ids, whatever the order the
+     * publishing threads reach it in: one thread at a time sends them, the others leave theirs to it.
+     */
+    public static class Subscription {
+
+        final Topic<?> topic;
+        final Http.Outbound outbound;
+        final SlowConsumerPolicy policy;
+        final AtomicLong dropped = new AtomicLong();
+        /**
+         * The messages arrived before the previous ones, by id
+         */
+        private final TreeMap<Long, Http.WebSocketFrame> pending = new TreeMap<>();
+        /**
+         * The id of the next message to send
+         */
+        private long next;
+        private boolean sending;
+
+        Subscription(Topic<?> topic, Http.Outbound outbound, SlowConsumerPolicy policy, long next) {
+            this.topic = topic;
+            this.outbound = outbound;
+            this.policy = policy;
+            this.next = next;
+        }
+
+        void send(long id, Http.WebSocketFrame frame) {
+            synchronized (this) {
+                if (id < next) {
+                    return;
+                }
+                pending.put(id, frame);
+                if (sending) {
+                    // Sent by the thread sending the previous ones
+                    return;
+                }
+                sending = true;
+            }
+            while (true) {
+                Http.WebSocketFrame ready;
+                synchronized (this) {
+                    Map.Entry<Long, Http.WebSocketFrame> first = pending.firstEntry();
+                    if (first == null || first.getKey() != next) {
+                        sending = false;
+                        return;
+                    }
+                    pending.pollFirstEntry();
+                    next++;
+                    ready = first.getValue();
+                }
+                write(ready);
+            }
+        }
+
+        private void write(Http.WebSocketFrame frame) {
+            if (!outbound.isOpen()) {
+                cancel();
+                return;
+            }
+            if (!outbound.isWritable()) {
+                if (policy == SlowConsumerPolicy.DROP) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                cancel();
+                outbound.close();
+                return;
+            }
+            try {
+                outbound.send(frame);
+            } catch (IllegalStateException e) {
+                // Closed in between
+                cancel();
+            } catch (Exception e) {
+                Logger.warn(e, "Cannot broadcast to a socket, unsubscribing it");
+                cancel();
+            }
+        }
+
+        /**
+         * @return The messages not sent to the socket as it was behind
+         */
+        public long dropped() {
+            return dropped.get();
+        }
+
+        /**
+         * Stops sending the messages of the topic to the socket
+         */
+        public void cancel() {
+            topic.subscriptions.remove(this);
+        }
+    }
+
+    static class Waiting<T> extends Promise<List<IndexedEvent<T>>> {
+
+        final long lastEventSeen;
+
+        Waiting(long lastEventSeen) {
+            this.lastEventSeen = lastEventSeen;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package play.libs;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.crypto.Cipher;
 import javax.crypto.Mac;
@@ -41,6 +45,44 @@ public class Crypto {
 
     static final char[] HEX_CHARS = { '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f' };
 
+    /**
+     * The Mac instances of the thread, by algorithm, with the key they were last initialized with
+     */
+    private static final ThreadLocal<Map<String, KeyedMac>> macs = ThreadLocal.withInitial(() -> new HashMap<>(4));
+
+    private static final class KeyedMac {
+        final Mac mac;
+        byte[] key;
+
+        KeyedMac(Mac mac) {
+            this.mac = mac;
+        }
+    }
+
+    private static volatile SecretKeyBytes secretKeyBytes;
+
+    private static final class SecretKeyBytes {
+        final String secretKey;
+        final byte[] bytes;
+
+        SecretKeyBytes(String secretKey) {
+            this.secretKey = secretKey;
+            this.bytes = secretKey.getBytes();
+        }
+    }
+
+    /**
+     * @return The bytes of <code>Play.secretKey</code>, which must not be modified
+     */
+    static byte[] secretKey() {
+        SecretKeyBytes key = secretKeyBytes;
+        if (key == null || key.secretKey != Play.secretKey) {
+            key = new SecretKeyBytes(Play.secretKey);
+            secretKeyBytes = key;
+        }
+        return key.bytes;
+    }
+
     /**
      * Sign a message using the application secret key (HMAC-SHA1)
      * 
@@ -49,7 +91,7 @@ public class Crypto {
      * @return The signed message
      */
     public static String sign(String message) {
-        return sign(message, Play.secretKey.getBytes());
+        return sign(message, secretKey());
     }
 
     /**
@@ -62,16 +104,40 @@ public class Crypto {
      * @return The signed message (in hexadecimal)
      */
     public static String sign(String message, byte[] key) {
+        return sign(message, key, "HmacSHA1");
+    }
+
+    /**
+     * Sign a message with a key and a MAC algorithm. The Mac instances are kept by each thread, and only
+     * initialized again when the key changes.
+     * 
+     * @param message
+     *            The message to sign
+     * @param key
+     *            The key to use
+     * @param algorithm
+     *            The MAC algorithm, such as HmacSHA1 or HmacSHA256
+     * @return The signed message (in hexadecimal)
+     */
+    public static String sign(String message, byte[] key, String algorithm) {
 
         if (key.length == 0) {
             return message;
         }
 
         try {
-            Mac mac = Mac.getInstance("HmacSHA1");
-            SecretKeySpec signingKey = new SecretKeySpec(key, "HmacSHA1");
-            mac.init(signingKey);
-            byte[] messageBytes = message.getBytes("utf-8");
+            Map<String, KeyedMac> threadMacs = macs.get();
+            KeyedMac keyedMac = threadMacs.get(algorithm);
+            if (keyedMac == null) {
+                keyedMac = new KeyedMac(Mac.getInstance(algorithm));
+                threadMacs.put(algorithm, keyedMac);
+            }
+            Mac mac = keyedMac.mac;
+            if (!Arrays.equals(keyedMac.key, key)) {
+                mac.init(new SecretKeySpec(key, algorithm));
+                keyedMac.key = key.clone();
+            }
+            byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
             byte[] result = mac.doFinal(messageBytes);
             int len = result.length;
             char[] hexChars = new char[len * 2];
@@ -7,8 +7,6 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Iterator;
 import java.util.ListIterator;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
@@ -292,7 +290,7 @@ public class F {
             return result;
         }
 
-        private static Promise<F.Tuple<Integer, Promise<Object>>> waitEitherInternal(Promise<?>... futures) {
+        private static Promise<F.Tuple<Integer, Promise<Object>>> waitEitherInternal(final Promise<?>... futures) {
             final Promise<F.Tuple<Integer, Promise<Object>>> result = new Promise<>();
             for (int i = 0; i < futures.length; i++) {
                 final int index = i + 1;
@@ -422,7 +420,7 @@ public class F {
             return result;
         }
 
-        public static <T> Promise<T> waitAny(Promise<T>... futures) {
+        public static <T> Promise<T> waitAny(final Promise<T>... futures) {
             final Promise<T> result = new Promise<>();
 
             F.Action<Promise<T>> action = new F.Action<Promise<T>>() {
@@ -452,11 +450,16 @@ public class F {
         }
     }
 
+    /**
+     * A promise redeemed after a delay. Cancelling it once it is of no use, for example when the other promise of a
+     * {@link Promise#waitEither(Promise, Promise)} won, frees the timer at once. The combinators never cancel it, as it
+     * may be shared with other waits.
+     */
     public static class Timeout extends Promise<Timeout> {
 
-        static Timer timer = new Timer("F.Timeout", true);
         public final String token;
         public final long delay;
+        private final org.jboss.netty.util.Timeout scheduled;
 
         public Timeout(String delay) {
             this(Time.parseDuration(delay) * 1000);
@@ -474,13 +477,35 @@ public class F {
             this.delay = delay;
             this.token = token;
             final Timeout timeout = this;
-            timer.schedule(new TimerTask() {
+            this.scheduled = Timers.schedule(new Runnable() {
 
                 @Override
                 public void run() {
-                    timeout.invoke(timeout);
+                    if (!timeout.isCancelled()) {
+                        timeout.invoke(timeout);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Removes the timeout from the timer, if it is not redeemed yet. It will then never be redeemed.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            synchronized (this) {
+                if (invoked) {
+                    return false;
                 }
-            }, delay);
+                cancelled = true;
+            }
+            scheduled.cancel();
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
         }
 
         @Override
@@ -624,6 +649,13 @@ public class F {
             notifyNewEvent();
         }
 
+        /**
+         * @return The next event not read yet, removed from the stream, or null if there is none
+         */
+        public T poll() {
+            return events.poll();
+        }
+
         synchronized void notifyNewEvent() {
             T value = events.peek();
             for (Promise<T> task : waiting) {
@@ -682,6 +714,17 @@ public class F {
             this.id = idGenerator.getAndIncrement();
         }
 
+        /**
+         * @param data
+         *            The event
+         * @param id
+         *            Its id, in a sequence of its own
+         */
+        public IndexedEvent(M data, long id) {
+            this.data = data;
+            this.id = id;
+        }
+
         @Override
         public String toString() {
             return "Event(id: " + id + ", " + data + ")";
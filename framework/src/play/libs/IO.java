@@ -8,6 +8,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Properties;
 
@@ -15,6 +16,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
 import play.exceptions.UnexpectedException;
+import play.utils.ByteBufferInputStream;
 import play.utils.OrderSafeProperties;
 
 /**
@@ -63,6 +65,9 @@ public class IO {
      */
     public static String readContentAsString(InputStream is, String encoding) {
         try {
+            if (is instanceof ByteBufferInputStream) {
+                return ((ByteBufferInputStream) is).readString(Charset.forName(encoding));
+            }
             return IOUtils.toString(is, encoding);
         } catch (Exception e) {
             throw new RuntimeException(e);
@@ -0,0 +1,64 @@
+package play.libs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+
+import play.Logger;
+import play.Play;
+
+/**
+ * The timer of the delayed tasks of the framework: {@link F.Timeout} and delayed invocations.
+ * <p>
+ * It is a hashed wheel timer, which schedules and cancels a task in constant time, whatever the number of pending
+ * tasks, at the cost of precision: a task runs up to <code>play.timer.tickDuration</code> milliseconds late. The tasks
+ * run on the thread of the timer, so they must only hand the work over to another thread.
+ * </p>
+ */
+public class Timers {
+
+    private static volatile HashedWheelTimer timer;
+
+    /**
+     * Runs a task after a delay.
+     *
+     * @param task
+     *            The task, which must be quick
+     * @param delay
+     *            The delay
+     * @param unit
+     *            The unit of the delay
+     * @return The scheduled task, to cancel it
+     */
+    public static Timeout schedule(final Runnable task, long delay, TimeUnit unit) {
+        return timer().newTimeout(timeout -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                Logger.error(e, "Error in timer task %s", task);
+            }
+        }, delay, unit);
+    }
+
+    private static HashedWheelTimer timer() {
+        if (timer == null) {
+            synchronized (Timers.class) {
+                if (timer == null) {
+                    long tickDuration = Long.parseLong(property("play.timer.tickDuration", "10"));
+                    int ticksPerWheel = Integer.parseInt(property("play.timer.ticksPerWheel", "512"));
+                    timer = new HashedWheelTimer(r -> {
+                        Thread thread = new Thread(r, "play-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }, tickDuration, TimeUnit.MILLISECONDS, ticksPerWheel);
+                }
+            }
+        }
+        return timer;
+    }
+
+    private static String property(String key, String defaultValue) {
+        return Play.configuration != null ? Play.configuration.getProperty(key, defaultValue) : defaultValue;
+    }
+}
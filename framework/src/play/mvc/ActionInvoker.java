@@ -7,8 +7,8 @@ import org.apache.commons.javaflow.bytecode.StackRecorder;
 import play.Invoker.Suspend;
 import play.Logger;
 import play.Play;
-import play.cache.Cache;
-import play.cache.CacheFor;
+import play.cache.CachedResponse;
+import play.cache.ResponseCache;
 import play.classloading.enhancers.ControllersEnhancer;
 import play.classloading.enhancers.ControllersEnhancer.ControllerInstrumentation;
 import play.data.binding.Binder;
@@ -26,18 +26,18 @@ import play.mvc.Http.Request;
 import play.mvc.Router.Route;
 import play.mvc.results.NoResult;
 import play.mvc.results.NotFound;
+import play.mvc.results.RenderCachedResponse;
+import play.mvc.results.RenderTemplate;
 import play.mvc.results.Result;
 import play.utils.Java;
 import play.utils.Utils;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.concurrent.Future;
@@ -108,6 +108,7 @@ public class ActionInvoker {
 
     public static void invoke(Http.Request request, Http.Response response) {
         Monitor monitor = null;
+        boolean suspended = false;
 
         try {
             initActionContext(request, response);
@@ -117,9 +118,7 @@ public class ActionInvoker {
             Scope.Params.current().__mergeWith(request.routeArgs);
 
             // add parameters from the URI query string
-            String encoding = Http.Request.current().encoding;
-            Scope.Params.current()
-                    ._mergeWith(UrlEncodedParser.parseQueryString(new ByteArrayInputStream(request.querystring.getBytes(encoding))));
+            UrlEncodedParser.parseQueryString(request.querystring, Scope.Params.current().data);
 
             // 2. Easy debugging ...
             if (Play.mode == Play.Mode.DEV) {
@@ -139,7 +138,6 @@ public class ActionInvoker {
             // Monitoring
             monitor = MonitorFactory.start(request.action + "()");
 
-            String cacheKey = null;
             Result actionResult = null;
 
             // 3. Invoke the action
@@ -149,29 +147,16 @@ public class ActionInvoker {
 
                 // Action
 
-                // Check the cache (only for GET or HEAD)
-                if ((request.method.equals("GET") || request.method.equals("HEAD")) && actionMethod.isAnnotationPresent(CacheFor.class)) {
-                    CacheFor cacheFor = actionMethod.getAnnotation(CacheFor.class);;
-                    cacheKey = cacheFor.id();
-                    if ("".equals(cacheKey)) {
-                        // Generate a cache key for this request
-                        cacheKey = cacheFor.generator().newInstance().generate(request);
-                    }
-                    if(cacheKey != null && !"".equals(cacheKey)) {
-                    	actionResult = (Result) Cache.get(cacheKey);
-                    }
-                }
-
-                if (actionResult == null) {
+                // Check the cache (only for GET or HEAD), when it was not checked before the invocation
+                CachedResponse cached = ResponseCache.lookup(request);
+                if (cached != null) {
+                    actionResult = new RenderCachedResponse(cached);
+                } else {
                     ControllerInstrumentation.initActionCall();
                     inferResult(invokeControllerMethod(actionMethod));
                 }
             } catch (Result result) {
                 actionResult = result;
-                // Cache it if needed
-                if (cacheKey != null && !"".equals(cacheKey)) {
-                    Cache.set(cacheKey, actionResult, actionMethod.getAnnotation(CacheFor.class).value());
-                }
             } catch (JavaExecutionException e) {
                 invokeControllerCatchMethods(e.getCause());
                 throw e;
@@ -194,11 +179,30 @@ public class ActionInvoker {
             Play.pluginCollection.onActionInvocationResult(result);
 
             // OK there is a result to apply
-            // Save session & flash scope now
-            Scope.Session.current().save();
-            Scope.Flash.current().save();
+            boolean streamed = result instanceof RenderTemplate && ((RenderTemplate) result).getContent() == null;
+            if (streamed) {
+                // Rendered while the result is applied: the scopes are saved once it is, or with its first chunk
+                response.writeChunkHandlers.add(0, chunk -> {
+                    if (response.direct == null) {
+                        saveScopes();
+                    }
+                });
+            } else {
+                // Save session & flash scope now
+                saveScopes();
+            }
 
-            result.apply(request, response);
+            try {
+                result.apply(request, response);
+            } catch (RuntimeException e) {
+                // Streamed templates are rendered while the result is applied
+                handleFinallies(request, e);
+                throw e;
+            }
+            if (streamed && !response.chunked) {
+                saveScopes();
+            }
+            ResponseCache.store(request, response);
 
             Play.pluginCollection.afterActionInvocation();
 
@@ -209,12 +213,16 @@ public class ActionInvoker {
             handleFinallies(request, e.getCause());
             throw e;
         } catch (PlayException e) {
+            suspended = e instanceof Suspend;
             handleFinallies(request, e);
             throw e;
         } catch (Throwable e) {
             handleFinallies(request, e);
             throw new UnexpectedException(e);
         } finally {
+            if (!suspended) {
+                ResponseCache.release(request);
+            }
             Play.pluginCollection.onActionInvocationFinally();
 
             if (monitor != null) {
@@ -226,17 +234,12 @@ public class ActionInvoker {
     private static void invokeControllerCatchMethods(Throwable throwable) throws Exception {
         // @Catch
         Object[] args = new Object[] {throwable};
-        List<Method> catches = Java.findAllAnnotatedMethods(getControllerClass(), Catch.class);
+        InterceptorChain chain = InterceptorChain.of(getControllerClass(), Http.Request.current().action);
         ControllerInstrumentation.stopActionCall();
-        for (Method mCatch : catches) {
-            Class[] exceptions = mCatch.getAnnotation(Catch.class).value();
-            if (exceptions.length == 0) {
-                exceptions = new Class[]{Exception.class};
-            }
-            for (Class exception : exceptions) {
+        for (int i = 0; i < chain.catches.length; i++) {
+            for (Class<?> exception : chain.caught[i]) {
                 if (exception.isInstance(args[0])) {
-                    mCatch.setAccessible(true);
-                    inferResult(invokeControllerMethod(mCatch, args));
+                    inferResult(invokeControllerMethod(chain.catches[i], args));
                     break;
                 }
             }
@@ -275,71 +278,24 @@ public class ActionInvoker {
         return null;
     }
 
+    private static void saveScopes() {
+        Scope.Session.current().save();
+        Scope.Flash.current().save();
+    }
+
     private static void handleBefores(Http.Request request) throws Exception {
-        List<Method> befores = Java.findAllAnnotatedMethods(getControllerClass(), Before.class);
+        Method[] befores = InterceptorChain.of(getControllerClass(), request.action).befores;
         ControllerInstrumentation.stopActionCall();
         for (Method before : befores) {
-            String[] unless = before.getAnnotation(Before.class).unless();
-            String[] only = before.getAnnotation(Before.class).only();
-            boolean skip = false;
-            for (String un : only) {
-                if (!un.contains(".")) {
-                    un = before.getDeclaringClass().getName().substring(12).replace("$", "") + "." + un;
-                }
-                if (un.equals(request.action)) {
-                    skip = false;
-                    break;
-                } else {
-                    skip = true;
-                }
-            }
-            for (String un : unless) {
-                if (!un.contains(".")) {
-                    un = before.getDeclaringClass().getName().substring(12).replace("$", "") + "." + un;
-                }
-                if (un.equals(request.action)) {
-                    skip = true;
-                    break;
-                }
-            }
-            if (!skip) {
-                before.setAccessible(true);
-                inferResult(invokeControllerMethod(before));
-            }
+            inferResult(invokeControllerMethod(before));
         }
     }
 
     private static void handleAfters(Http.Request request) throws Exception {
-        List<Method> afters = Java.findAllAnnotatedMethods(getControllerClass(), After.class);
+        Method[] afters = InterceptorChain.of(getControllerClass(), request.action).afters;
         ControllerInstrumentation.stopActionCall();
         for (Method after : afters) {
-            String[] unless = after.getAnnotation(After.class).unless();
-            String[] only = after.getAnnotation(After.class).only();
-            boolean skip = false;
-            for (String un : only) {
-                if (!un.contains(".")) {
-                    un = after.getDeclaringClass().getName().substring(12) + "." + un;
-                }
-                if (un.equals(request.action)) {
-                    skip = false;
-                    break;
-                } else {
-                    skip = true;
-                }
-            }
-            for (String un : unless) {
-                if (!un.contains(".")) {
-                    un = after.getDeclaringClass().getName().substring(12) + "." + un;
-                }
-                if (un.equals(request.action)) {
-                    skip = true;
-                    break;
-                }
-            }
-            if (!skip) {
-                after.setAccessible(true);
-                inferResult(invokeControllerMethod(after));
-            }
+            inferResult(invokeControllerMethod(after));
         }
     }
 
@@ -362,46 +318,19 @@ public class ActionInvoker {
         }
 
         try {
-            List<Method> allFinally = Java.findAllAnnotatedMethods(Request.current().controllerClass, Finally.class);
+            Method[] allFinally = InterceptorChain.of(Request.current().controllerClass, request.action).finallies;
             ControllerInstrumentation.stopActionCall();
             for (Method aFinally : allFinally) {
-                String[] unless = aFinally.getAnnotation(Finally.class).unless();
-                String[] only = aFinally.getAnnotation(Finally.class).only();
-                boolean skip = false;
-                for (String un : only) {
-                    if (!un.contains(".")) {
-                        un = aFinally.getDeclaringClass().getName().substring(12) + "." + un;
-                    }
-                    if (un.equals(request.action)) {
-                        skip = false;
-                        break;
-                    } else {
-                        skip = true;
-                    }
-                }
-                for (String un : unless) {
-                    if (!un.contains(".")) {
-                        un = aFinally.getDeclaringClass().getName().substring(12) + "." + un;
-                    }
-                    if (un.equals(request.action)) {
-                        skip = true;
-                        break;
-                    }
-                }
-                if (!skip) {
-                    aFinally.setAccessible(true);
-
-                    // check if method accepts Throwable as only parameter
-                    Class[] parameterTypes = aFinally.getParameterTypes();
-                    if (parameterTypes.length == 1 && parameterTypes[0] == Throwable.class) {
-                        // invoking @Finally method with caughtException as
-                        // parameter
-                        invokeControllerMethod(aFinally, new Object[] { caughtException });
-                    } else {
-                        // invoke @Finally-method the regular way without
-                        // caughtException
-                        invokeControllerMethod(aFinally, null);
-                    }
+                // check if method accepts Throwable as only parameter
+                Class<?>[] parameterTypes = aFinally.getParameterTypes();
+                if (parameterTypes.length == 1 && parameterTypes[0] == Throwable.class) {
+                    // invoking @Finally method with caughtException as
+                    // parameter
+                    invokeControllerMethod(aFinally, new Object[] { caughtException });
+                } else {
+                    // invoke @Finally-method the regular way without
+                    // caughtException
+                    invokeControllerMethod(aFinally, null);
                 }
             }
         } catch (PlayException e) {
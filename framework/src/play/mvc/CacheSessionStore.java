@@ -0,0 +1,415 @@
+package play.mvc;
+
+import play.Logger;
+import play.Play;
+import play.cache.Cache;
+import play.exceptions.UnexpectedException;
+import play.libs.Codec;
+import play.libs.Crypto;
+import play.libs.Time;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static play.mvc.Scope.*;
+
+/**
+ * Session store that keeps the session data in the {@link Cache}, and only a signed session id in the cookie.
+ * <p>
+ * Each value is stored under its own key, with an index of the names of the session, so that saving a session only
+ * writes the values that changed since the request restored it. The sessions are also kept by this node for as long as
+ * they are used, so a session is only read from the cache the first time this node serves it. They assume the requests
+ * of a session are served by the same node: when they are not, the local copies can be disabled with
+ * <code>application.session.cache.localSize=0</code>.
+ * </p>
+ * <p>
+ * A session expires when it has not been used for <code>application.session.cache.expiration</code>. The writes can
+ * be delayed by <code>application.session.cache.writeBehind</code>, to gather the changes of the next requests in one
+ * write. They are written when the application stops.
+ * </p>
+ * <p>
+ * The session id is signed as the cookies of {@link CookieSessionStore} are, with
+ * <code>application.session.signatureAlgorithm</code>.
+ * </p>
+ * Enable it with <code>application.session.storeClass=play.mvc.CacheSessionStore</code>.
+ */
+public class CacheSessionStore implements SessionStore {
+
+    static final String KEY_PREFIX = "session:";
+
+    /**
+     * The session a request restored, in its args
+     */
+    private static final String RESTORED = CacheSessionStore.class.getName();
+
+    /**
+     * The stores whose tasks are scheduled, until the application stops
+     */
+    private static final Set<CacheSessionStore> started = ConcurrentHashMap.newKeySet();
+
+    private final int expiration;
+    private final long expirationMillis;
+    private final int localSize;
+    private final long writeBehind;
+
+    /**
+     * The sessions used on this node, by id
+     */
+    private final Map<String, LocalSession> sessions = new ConcurrentHashMap<>();
+    /**
+     * The writes delayed by <code>application.session.cache.writeBehind</code>, by session id
+     */
+    private final Map<String, Write> writes = new ConcurrentHashMap<>();
+
+    /**
+     * Runs the eviction and the delayed writes, from the first request after the application started
+     */
+    volatile ScheduledThreadPoolExecutor scheduler;
+
+    public CacheSessionStore() {
+        expiration = Time.parseDuration(Play.configuration.getProperty("application.session.cache.expiration",
+                COOKIE_EXPIRE != null ? COOKIE_EXPIRE : "1h"));
+        expirationMillis = expiration * 1000L;
+        localSize = Integer.parseInt(Play.configuration.getProperty("application.session.cache.localSize", "10000"));
+        String delay = Play.configuration.getProperty("application.session.cache.writeBehind");
+        writeBehind = delay == null ? 0 : Time.parseDuration(delay) * 1000L;
+    }
+
+    private void start() {
+        if (scheduler != null) {
+            return;
+        }
+        synchronized (this) {
+            if (scheduler == null) {
+                ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                    Thread thread = new Thread(r, "play-sessions");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                long sweep = Math.min(expirationMillis, 60000L);
+                executor.scheduleWithFixedDelay(this::evict, sweep, sweep, TimeUnit.MILLISECONDS);
+                if (writeBehind > 0) {
+                    executor.scheduleWithFixedDelay(this::flush, writeBehind, writeBehind, TimeUnit.MILLISECONDS);
+                }
+                scheduler = executor;
+                started.add(this);
+            }
+        }
+    }
+
+    /**
+     * Writes the delayed changes and stops the scheduled tasks. The store starts again with the next request.
+     */
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+            started.remove(this);
+        }
+        flush();
+        // The cache may not keep them once it stops
+        sessions.clear();
+    }
+
+    /**
+     * Stops the stores when the application stops, before the cache does
+     */
+    public static void stopAll() {
+        for (CacheSessionStore store : started) {
+            store.stop();
+        }
+    }
+
+    /**
+     * The names of a session, stored under the session id
+     */
+    static final class Index implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final String[] names;
+        /**
+         * When all the values of the session were last written, which extended their expiration
+         */
+        final long persisted;
+
+        Index(String[] names, long persisted) {
+            this.names = names;
+            this.persisted = persisted;
+        }
+    }
+
+    /**
+     * A session as this node last read or wrote it
+     */
+    private static final class LocalSession {
+        final Map<String, String> data;
+        /**
+         * When all the values of the session were last written to the cache, or 0 if unknown
+         */
+        final long persisted;
+        volatile long accessed;
+
+        LocalSession(Map<String, String> data, long persisted, long accessed) {
+            this.data = data;
+            this.persisted = persisted;
+            this.accessed = accessed;
+        }
+    }
+
+    /**
+     * The changes of a session not written yet
+     */
+    private static final class Write {
+        final Map<String, String> data;
+        /**
+         * The names to write, or to delete when they are not in the data anymore
+         */
+        final Set<String> names;
+        final boolean index;
+        final long persisted;
+
+        Write(Map<String, String> data, Set<String> names, boolean index, long persisted) {
+            this.data = data;
+            this.names = names;
+            this.index = index;
+            this.persisted = persisted;
+        }
+
+        Write merge(Write next) {
+            Set<String> all = new HashSet<>(names);
+            all.addAll(next.names);
+            return new Write(next.data, all, index || next.index, next.persisted);
+        }
+    }
+
+    @Override
+    public Session restore() {
+        start();
+        try {
+            Session session = new Session();
+            Http.Request request = Http.Request.current();
+            Http.Cookie cookie = request.cookies.get(COOKIE_PREFIX + "_SESSION");
+            if (cookie != null && Play.started && cookie.value != null && !cookie.value.trim().equals("")) {
+                String id = id(cookie.value);
+                if (id != null) {
+                    LocalSession local = load(id);
+                    if (local != null) {
+                        session.data.putAll(local.data);
+                        session.cookie = cookie.value;
+                        // What changed is known even if this node does not keep the session
+                        request.args.put(RESTORED, local);
+                    }
+                }
+            }
+            return session;
+        } catch (Exception e) {
+            throw new UnexpectedException("Corrupted HTTP session from " + Http.Request.current().remoteAddress, e);
+        }
+    }
+
+    @Override
+    public void save(Session session) {
+        if (Http.Response.current() == null) {
+            // Some request like WebSocket don't have any response
+            return;
+        }
+        start();
+        try {
+            // The cookie was verified when the session was restored
+            String id = session.cookie != null ? session.cookie.substring(session.cookie.indexOf('-') + 1) : null;
+            LocalSession restored = id != null ? (LocalSession) Http.Request.current().args.get(RESTORED) : null;
+            if (session.isEmpty()) {
+                if (id != null) {
+                    store(id, Collections.emptyMap(), restored);
+                }
+                // The session is empty: delete the cookie
+                if (Http.Request.current().cookies.containsKey(COOKIE_PREFIX + "_SESSION") || !SESSION_SEND_ONLY_IF_CHANGED) {
+                    Http.Response.current().setCookie(COOKIE_PREFIX + "_SESSION", "", null, "/", 0, COOKIE_SECURE, SESSION_HTTPONLY);
+                }
+                return;
+            }
+            String value = session.cookie;
+            if (id == null) {
+                id = Codec.UUID();
+                value = sign(id) + "-" + id;
+            }
+            store(id, session.data, restored);
+            // The cookie only changes with the session id, or to extend its expiration
+            if (value != session.cookie || !SESSION_SEND_ONLY_IF_CHANGED || COOKIE_EXPIRE != null) {
+                if (COOKIE_EXPIRE == null) {
+                    Http.Response.current().setCookie(COOKIE_PREFIX + "_SESSION", value, null, "/", null, COOKIE_SECURE,
+                            SESSION_HTTPONLY);
+                } else {
+                    Http.Response.current().setCookie(COOKIE_PREFIX + "_SESSION", value, null, "/",
+                            Time.parseDuration(COOKIE_EXPIRE), COOKIE_SECURE, SESSION_HTTPONLY);
+                }
+            }
+        } catch (Exception e) {
+            throw new UnexpectedException("Session serializationProblem", e);
+        }
+    }
+
+    /**
+     * @return The session id of a cookie, or null if it is not properly signed
+     */
+    private static String id(String cookie) {
+        int firstDashIndex = cookie.indexOf('-');
+        if (firstDashIndex < 0) {
+            return null;
+        }
+        String id = cookie.substring(firstDashIndex + 1);
+        return CookieDataCodec.safeEquals(cookie.substring(0, firstDashIndex), sign(id)) ? id : null;
+    }
+
+    private static String sign(String id) {
+        return Crypto.sign(id, Play.secretKey.getBytes(), CookieSessionStore.SIGNATURE_ALGORITHM);
+    }
+
+    /**
+     * @return The session, or null if it expired
+     */
+    private LocalSession load(String id) {
+        long now = System.currentTimeMillis();
+        LocalSession local = sessions.get(id);
+        if (local != null) {
+            local.accessed = now;
+            return local;
+        }
+        Write write = writes.get(id);
+        if (write != null) {
+            return write.data.isEmpty() ? null : new LocalSession(write.data, write.persisted, now);
+        }
+        Object index = Cache.get(KEY_PREFIX + id);
+        if (!(index instanceof Index)) {
+            return null;
+        }
+        String[] names = ((Index) index).names;
+        String[] keys = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = KEY_PREFIX + id + ":" + names[i];
+        }
+        Map<String, Object> values = Cache.get(keys);
+        Map<String, String> data = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            Object value = values.get(keys[i]);
+            if (value != null) {
+                data.put(names[i], (String) value);
+            }
+        }
+        local = new LocalSession(Collections.unmodifiableMap(data), ((Index) index).persisted, now);
+        keep(id, local);
+        return local;
+    }
+
+    /**
+     * Writes what changed in a session since this node last read or wrote it, or else since the request restored it
+     */
+    private void store(String id, Map<String, String> data, LocalSession restored) {
+        long now = System.currentTimeMillis();
+        LocalSession local = sessions.get(id);
+        if (local == null) {
+            local = restored;
+        }
+        Map<String, String> previous = local != null ? local.data : null;
+        // The whole session is written again before it expires
+        boolean refresh = previous == null || now - local.persisted > expirationMillis / 4;
+        if (!refresh && previous.equals(data)) {
+            local.accessed = now;
+            return;
+        }
+        Set<String> names = new HashSet<>();
+        boolean index = refresh;
+        if (refresh) {
+            names.addAll(data.keySet());
+            if (previous != null) {
+                names.addAll(previous.keySet());
+            }
+        } else {
+            for (Map.Entry<String, String> entry : data.entrySet()) {
+                if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                    names.add(entry.getKey());
+                    index |= !previous.containsKey(entry.getKey());
+                }
+            }
+            for (String name : previous.keySet()) {
+                if (!data.containsKey(name)) {
+                    names.add(name);
+                    index = true;
+                }
+            }
+        }
+        long persisted = refresh ? now : local.persisted;
+        Map<String, String> snapshot = Collections.unmodifiableMap(new HashMap<>(data));
+        Write write = new Write(snapshot, names, index, persisted);
+        if (writeBehind > 0) {
+            writes.merge(id, write, Write::merge);
+        } else {
+            write(id, write);
+        }
+        if (snapshot.isEmpty()) {
+            sessions.remove(id);
+        } else {
+            keep(id, new LocalSession(snapshot, persisted, now));
+        }
+    }
+
+    private void keep(String id, LocalSession local) {
+        if (sessions.size() >= localSize && !sessions.containsKey(id)) {
+            evict();
+            if (sessions.size() >= localSize) {
+                return;
+            }
+        }
+        sessions.put(id, local);
+    }
+
+    private void write(String id, Write write) {
+        String prefix = KEY_PREFIX + id;
+        for (String name : write.names) {
+            String value = write.data.get(name);
+            if (value == null) {
+                Cache.cacheImpl.delete(prefix + ":" + name);
+            } else {
+                Cache.cacheImpl.set(prefix + ":" + name, value, expiration);
+            }
+        }
+        if (write.index) {
+            if (write.data.isEmpty()) {
+                Cache.cacheImpl.delete(prefix);
+            } else {
+                Cache.cacheImpl.set(prefix, new Index(write.data.keySet().toArray(new String[0]), write.persisted), expiration);
+            }
+        }
+    }
+
+    /**
+     * Writes the changes delayed by <code>application.session.cache.writeBehind</code>
+     */
+    void flush() {
+        for (String id : writes.keySet()) {
+            Write write = writes.remove(id);
+            if (write != null) {
+                try {
+                    write(id, write);
+                } catch (Exception e) {
+                    Logger.error(e, "Cannot save session %s", id);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the sessions not used for longer than they last
+     */
+    void evict() {
+        long expired = System.currentTimeMillis() - expirationMillis;
+        sessions.values().removeIf(local -> local.accessed < expired);
+    }
+}
@@ -5,14 +5,75 @@ import play.exceptions.UnexpectedException;
 import play.libs.Crypto;
 import play.libs.Time;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import static play.mvc.Scope.*;
 import static play.mvc.Scope.Session.TS_KEY;
 
 /**
  * Default session store implementation that stores signed data in a cookie
+ * <p>
+ * The cookie is signed with <code>application.session.signatureAlgorithm</code> (HmacSHA1 by default, or HmacSHA256).
+ * The cookies recently verified or signed are remembered with their data, so that a request carrying the same cookie
+ * as a previous one is neither verified nor decoded again, and a session that did not change is not signed again.
+ * </p>
  */
 public class CookieSessionStore implements SessionStore {
 
+    static final String SIGNATURE_ALGORITHM = Play.configuration != null
+            ? Play.configuration.getProperty("application.session.signatureAlgorithm", "HmacSHA1") : "HmacSHA1";
+
+    private static final int VERIFIED_COOKIES = 1024;
+
+    private static volatile VerifiedCookies verifiedCookies;
+
+    /**
+     * The cookies verified with a secret key, in a table indexed by their hash
+     */
+    private static final class VerifiedCookies {
+        final String secretKey;
+        final byte[] key;
+        final AtomicReferenceArray<VerifiedCookie> cookies = new AtomicReferenceArray<>(VERIFIED_COOKIES);
+
+        VerifiedCookies(String secretKey) {
+            this.secretKey = secretKey;
+            this.key = secretKey.getBytes();
+        }
+
+        Map<String, String> get(String cookie) {
+            VerifiedCookie verified = cookies.get(cookie.hashCode() & (VERIFIED_COOKIES - 1));
+            // Compared in constant time, not to tell how much of another cookie was guessed
+            return verified != null && CookieDataCodec.safeEquals(verified.cookie, cookie) ? verified.data : null;
+        }
+
+        void put(String cookie, Map<String, String> data) {
+            cookies.set(cookie.hashCode() & (VERIFIED_COOKIES - 1),
+                    new VerifiedCookie(cookie, Collections.unmodifiableMap(new HashMap<>(data))));
+        }
+    }
+
+    private static final class VerifiedCookie {
+        final String cookie;
+        final Map<String, String> data;
+
+        VerifiedCookie(String cookie, Map<String, String> data) {
+            this.cookie = cookie;
+            this.data = data;
+        }
+    }
+
+    private static VerifiedCookies verifiedCookies() {
+        VerifiedCookies verified = verifiedCookies;
+        if (verified == null || verified.secretKey != Play.secretKey) {
+            verified = new VerifiedCookies(Play.secretKey);
+            verifiedCookies = verified;
+        }
+        return verified;
+    }
+
     @Override
     public Session restore() {
         try {
@@ -23,12 +84,21 @@ public class CookieSessionStore implements SessionStore {
 
             if (cookie != null && Play.started && cookie.value != null && !cookie.value.trim().equals("")) {
                 String value = cookie.value;
-                int firstDashIndex = value.indexOf("-");
-                if (firstDashIndex > -1) {
-                    String sign = value.substring(0, firstDashIndex);
-                    String data = value.substring(firstDashIndex + 1);
-                    if (CookieDataCodec.safeEquals(sign, Crypto.sign(data, Play.secretKey.getBytes()))) {
-                        CookieDataCodec.decode(session.data, data);
+                VerifiedCookies verified = verifiedCookies();
+                Map<String, String> verifiedData = verified.get(value);
+                if (verifiedData != null) {
+                    session.data.putAll(verifiedData);
+                    session.cookie = value;
+                } else {
+                    int firstDashIndex = value.indexOf("-");
+                    if (firstDashIndex > -1) {
+                        String sign = value.substring(0, firstDashIndex);
+                        String data = value.substring(firstDashIndex + 1);
+                        if (CookieDataCodec.safeEquals(sign, Crypto.sign(data, verified.key, SIGNATURE_ALGORITHM))) {
+                            CookieDataCodec.decode(session.data, data);
+                            verified.put(value, session.data);
+                            session.cookie = value;
+                        }
                     }
                 }
                 if (COOKIE_EXPIRE != null) {
@@ -81,12 +151,19 @@ public class CookieSessionStore implements SessionStore {
         }
         try {
             String sessionData = CookieDataCodec.encode(session.data);
-            String sign = Crypto.sign(sessionData, Play.secretKey.getBytes());
+            String value = session.cookie;
+            if (value == null || !value.endsWith(sessionData) || value.indexOf('-') != value.length() - sessionData.length() - 1) {
+                // The data changed since the session was restored, it is signed again
+                VerifiedCookies verified = verifiedCookies();
+                String sign = Crypto.sign(sessionData, verified.key, SIGNATURE_ALGORITHM);
+                value = sign + "-" + sessionData;
+                verified.put(value, session.data);
+            }
             if (COOKIE_EXPIRE == null) {
-                Http.Response.current().setCookie(COOKIE_PREFIX + "_SESSION", sign + "-" + sessionData, null, "/", null, COOKIE_SECURE,
+                Http.Response.current().setCookie(COOKIE_PREFIX + "_SESSION", value, null, "/", null, COOKIE_SECURE,
                         SESSION_HTTPONLY);
             } else {
-                Http.Response.current().setCookie(COOKIE_PREFIX + "_SESSION", sign + "-" + sessionData, null, "/",
+                Http.Response.current().setCookie(COOKIE_PREFIX + "_SESSION", value, null, "/",
                         Time.parseDuration(COOKIE_EXPIRE), COOKIE_SECURE, SESSION_HTTPONLY);
             }
         } catch (Exception e) {
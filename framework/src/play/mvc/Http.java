@@ -14,9 +14,16 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelHandlerContext;
 
 import com.google.gson.Gson;
@@ -275,6 +282,10 @@ public class Http {
          * When the request has been received
          */
         public Date date = new Date();
+        /**
+         * How long the request waited for a thread, in milliseconds
+         */
+        public long queueWait;
         /**
          * New request or already submitted
          */
@@ -633,7 +644,7 @@ public class Http {
          */
         public Map<String, Http.Cookie> cookies = new HashMap<>(16);
         /**
-         * Response body stream
+         * Response body stream, emptied once the response is written
          */
         public ByteArrayOutputStream out;
         /**
@@ -893,10 +904,31 @@ public class Http {
      */
     public abstract static class Inbound {
 
+        /**
+         * The frames a {@link WebSocketHandler} can be behind before the socket stops being read
+         */
+        static final int MAX_QUEUED_FRAMES = Play.configuration != null
+                ? Integer.parseInt(Play.configuration.getProperty("play.websocket.maxQueuedFrames", "100")) : 100;
+
+        /**
+         * The events handled at most by one dispatch, before the others are dispatched again
+         */
+        static final int EVENTS_PER_DISPATCH = 64;
+
         public static final ThreadLocal<Inbound> current = new ThreadLocal<>();
         final BlockingEventStream<WebSocketEvent> stream;
+        final ChannelHandlerContext ctx;
+
+        private volatile WebSocketHandler handler;
+        private Outbound outbound;
+        private final Queue<WebSocketEvent> events = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicBoolean dispatching = new AtomicBoolean();
+        private final AtomicBoolean suspended = new AtomicBoolean();
+        private boolean closed;
 
         public Inbound(ChannelHandlerContext ctx) {
+            this.ctx = ctx;
             stream = new BlockingEventStream<>(ctx);
         }
 
@@ -904,8 +936,12 @@ public class Http {
             return current.get();
         }
 
-        public void _received(WebSocketFrame frame) {
-            stream.publish(frame);
+        public synchronized void _received(WebSocketFrame frame) {
+            if (handler != null) {
+                queue(frame);
+            } else {
+                stream.publish(frame);
+            }
         }
 
         public Promise<WebSocketEvent> nextEvent() {
@@ -915,11 +951,113 @@ public class Http {
             return stream.nextEvent();
         }
 
-        public void close() {
-            stream.publish(new WebSocketClose());
+        public synchronized void close() {
+            if (handler != null) {
+                queue(new WebSocketClose());
+            } else {
+                stream.publish(new WebSocketClose());
+            }
         }
 
         public abstract boolean isOpen();
+
+        /**
+         * Handles the next events of the socket with a handler, instead of {@link #nextEvent()}. The events received
+         * and not read yet are handled first.
+         *
+         * @param handler
+         *            The handler
+         * @param outbound
+         *            The outbound channel of the socket, given to the handler
+         */
+        public synchronized void handle(WebSocketHandler handler, Outbound outbound) {
+            if (this.handler != null) {
+                throw new IllegalStateException("The inbound channel already has a handler");
+            }
+            this.handler = handler;
+            this.outbound = outbound;
+            outbound.hold();
+            try {
+                handler.onOpen(outbound);
+            } finally {
+                outbound.flush();
+            }
+            for (WebSocketEvent event; (event = stream.poll()) != null;) {
+                queue(event);
+            }
+            if (!suspended.get() && !ctx.getChannel().isReadable() && isOpen()) {
+                // Stopped by the stream when it was full
+                ctx.getChannel().setReadable(true);
+            }
+        }
+
+        /**
+         * @return true if the events are handled by a {@link WebSocketHandler}
+         */
+        public boolean isHandled() {
+            return handler != null;
+        }
+
+        private void queue(WebSocketEvent event) {
+            events.offer(event);
+            if (queued.incrementAndGet() >= MAX_QUEUED_FRAMES && suspended.compareAndSet(false, true)) {
+                // The handler is too slow: the socket is not read anymore until it catches up
+                ctx.getChannel().setReadable(false);
+            }
+            if (dispatching.compareAndSet(false, true)) {
+                dispatch(this::handleEvents);
+            }
+        }
+
+        /**
+         * Runs the handling of the events queued. The server runs it with the context of the request, the default
+         * runs it in the calling thread.
+         *
+         * @param task
+         *            Handles the events queued
+         */
+        protected void dispatch(Runnable task) {
+            task.run();
+        }
+
+        private void handleEvents() {
+            outbound.hold();
+            try {
+                for (int i = 0; i < EVENTS_PER_DISPATCH; i++) {
+                    WebSocketEvent event = events.poll();
+                    if (event == null) {
+                        dispatching.set(false);
+                        // An event may have been queued since it was polled
+                        if (events.isEmpty() || !dispatching.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    if (queued.decrementAndGet() <= MAX_QUEUED_FRAMES / 2 && suspended.compareAndSet(true, false)) {
+                        ctx.getChannel().setReadable(true);
+                    }
+                    if (closed) {
+                        continue;
+                    }
+                    if (event instanceof WebSocketFrame) {
+                        handler.onFrame((WebSocketFrame) event);
+                    } else if (event instanceof WebSocketClose) {
+                        closed = true;
+                        handler.onClose();
+                    }
+                }
+            } catch (Throwable e) {
+                // The next events, at least the close of the socket, must still reach the handler
+                dispatching.set(false);
+                if (!events.isEmpty() && dispatching.compareAndSet(false, true)) {
+                    dispatch(this::handleEvents);
+                }
+                throw e;
+            } finally {
+                outbound.flush();
+            }
+            dispatch(this::handleEvents);
+        }
     }
 
     /**
@@ -941,6 +1079,19 @@ public class Http {
 
         public abstract void close();
 
+        /**
+         * Holds the frames sent until {@link #flush()} is called, to write them at once. By default the frames are
+         * written as they are sent.
+         */
+        public void hold() {
+        }
+
+        /**
+         * Writes the frames held since {@link #hold()}
+         */
+        public void flush() {
+        }
+
         public void send(byte opcode, byte[] data) {
             send(opcode, data, 0, data.length);
         }
@@ -952,6 +1103,27 @@ public class Http {
         public void sendJson(Object o) {
             send(new Gson().toJson(o));
         }
+
+        /**
+         * Sends a frame. A frame sent to several sockets is only encoded once.
+         *
+         * @param frame
+         *            The frame
+         */
+        public void send(WebSocketFrame frame) {
+            if (frame.isBinary) {
+                send((byte) 0x2, frame.binaryData);
+            } else {
+                send(frame.textData);
+            }
+        }
+
+        /**
+         * @return false while the frames sent are not written as fast as they are sent
+         */
+        public boolean isWritable() {
+            return true;
+        }
     }
 
     public static class WebSocketEvent {
@@ -1014,6 +1186,25 @@ public class Http {
             this.binaryData = data;
             this.textData = null;
         }
+
+        /**
+         * The frame as the server writes it, shared by all the sockets it is sent to
+         */
+        private volatile ChannelBuffer encoded;
+
+        /**
+         * @param encoder
+         *            Encodes the frame, the first time it is sent
+         * @return The frame encoded, in a read-only buffer
+         */
+        public ChannelBuffer encoded(Function<WebSocketFrame, ChannelBuffer> encoder) {
+            ChannelBuffer buffer = encoded;
+            if (buffer == null) {
+                buffer = ChannelBuffers.unmodifiableBuffer(encoder.apply(this));
+                encoded = buffer;
+            }
+            return buffer;
+        }
     }
 
     public static class WebSocketClose extends WebSocketEvent {
@@ -0,0 +1,138 @@
+package play.mvc;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import play.Play;
+import play.utils.Java;
+
+/**
+ * The interceptors of an action: the @Before, @After and @Finally methods that apply to it once their
+ * <code>only</code> and <code>unless</code> lists are checked, and the @Catch methods of its controller.
+ * <p>
+ * The chains are built once per action, and dropped when the application classes change. Looking one up takes no
+ * lock.
+ * </p>
+ */
+final class InterceptorChain {
+
+    private static final Map<Class<?>, Map<String, InterceptorChain>> chains = new ConcurrentHashMap<>();
+    private static volatile Object classloaderState;
+
+    final Method[] befores;
+    final Method[] afters;
+    final Method[] finallies;
+    final Method[] catches;
+    /**
+     * The exceptions caught by each of the {@link #catches}
+     */
+    final Class<?>[][] caught;
+
+    private InterceptorChain(Class<?> controllerClass, String action) {
+        befores = filter(controllerClass, Before.class, action);
+        afters = filter(controllerClass, After.class, action);
+        finallies = filter(controllerClass, Finally.class, action);
+        List<Method> catchMethods = Java.findAllAnnotatedMethods(controllerClass, Catch.class);
+        catches = accessible(catchMethods);
+        caught = new Class<?>[catches.length][];
+        for (int i = 0; i < catches.length; i++) {
+            Class<?>[] exceptions = catches[i].getAnnotation(Catch.class).value();
+            caught[i] = exceptions.length == 0 ? new Class<?>[] { Exception.class } : exceptions;
+        }
+    }
+
+    /**
+     * @param controllerClass
+     *            The controller class
+     * @param action
+     *            The action, as in <code>request.action</code>
+     * @return The interceptors of the action
+     */
+    static InterceptorChain of(Class<?> controllerClass, String action) {
+        Object state = Play.classloader.currentState;
+        if (state != classloaderState) {
+            chains.clear();
+            classloaderState = state;
+        }
+        Map<String, InterceptorChain> actions = chains.get(controllerClass);
+        if (actions == null) {
+            actions = new ConcurrentHashMap<>();
+            Map<String, InterceptorChain> existing = chains.putIfAbsent(controllerClass, actions);
+            if (existing != null) {
+                actions = existing;
+            }
+        }
+        String key = action == null ? "" : action;
+        InterceptorChain chain = actions.get(key);
+        if (chain == null) {
+            chain = new InterceptorChain(controllerClass, action);
+            actions.put(key, chain);
+        }
+        return chain;
+    }
+
+    private static Method[] filter(Class<?> controllerClass, Class<? extends Annotation> type, String action) {
+        List<Method> interceptors = Java.findAllAnnotatedMethods(controllerClass, type);
+        List<Method> applying = new ArrayList<>(interceptors.size());
+        for (Method interceptor : interceptors) {
+            Annotation annotation = interceptor.getAnnotation(type);
+            boolean applies;
+            if (annotation instanceof Before) {
+                applies = applies(interceptor, ((Before) annotation).only(), ((Before) annotation).unless(), action, true);
+            } else if (annotation instanceof After) {
+                applies = applies(interceptor, ((After) annotation).only(), ((After) annotation).unless(), action, false);
+            } else {
+                applies = applies(interceptor, ((Finally) annotation).only(), ((Finally) annotation).unless(), action, false);
+            }
+            if (applies) {
+                applying.add(interceptor);
+            }
+        }
+        return accessible(applying);
+    }
+
+    private static Method[] accessible(List<Method> methods) {
+        for (Method method : methods) {
+            method.setAccessible(true);
+        }
+        return methods.toArray(new Method[methods.size()]);
+    }
+
+    /**
+     * @param innerClassNames
+     *            true to name the actions of inner classes without their $, as @Before always did
+     */
+    private static boolean applies(Method interceptor, String[] only, String[] unless, String action, boolean innerClassNames) {
+        boolean skip = false;
+        for (String un : only) {
+            if (!un.contains(".")) {
+                un = controllerName(interceptor, innerClassNames) + "." + un;
+            }
+            if (un.equals(action)) {
+                skip = false;
+                break;
+            } else {
+                skip = true;
+            }
+        }
+        for (String un : unless) {
+            if (!un.contains(".")) {
+                un = controllerName(interceptor, innerClassNames) + "." + un;
+            }
+            if (un.equals(action)) {
+                skip = true;
+                break;
+            }
+        }
+        return !skip;
+    }
+
+    private static String controllerName(Method interceptor, boolean innerClassNames) {
+        String controller = interceptor.getDeclaringClass().getName().substring(12);
+        return innerClassNames ? controller.replace("$", "") : controller;
+    }
+}
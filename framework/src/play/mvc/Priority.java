@@ -0,0 +1,40 @@
+package play.mvc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The lane of the requests of an action (or of every action of a controller) when the invocation pool is busy. It is
+ * only used with <code>play.pool.lanes=true</code>, in PROD mode.
+ *
+ * <p>Example: <code>@Priority(Priority.Lane.HIGH)</code>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Inherited
+public @interface Priority {
+
+    enum Lane {
+        /**
+         * Run before the others, and never turned away because of <code>play.pool.maxQueueSize</code> or
+         * <code>play.pool.maxQueueWait</code>
+         */
+        HIGH,
+        /**
+         * The default lane
+         */
+        NORMAL,
+        /**
+         * Run after the others, and turned away once the queue is half full
+         */
+        LOW
+    }
+
+    /**
+     * @return The lane of the requests
+     */
+    Lane value();
+}
@@ -0,0 +1,288 @@
+package play.mvc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import play.Play;
+
+/**
+ * Response body buffer made of fixed size chunks, that can be handed to Netty without copying.
+ * <p>
+ * It is a drop-in replacement for the <code>ByteArrayOutputStream</code> of {@link Http.Response#out}: growing it
+ * never copies what has already been written, text can be encoded straight into it, and
+ * {@link #toChannelBuffer()} wraps the chunks instead of copying them. The chunks come from a shared pool and go back
+ * to it with {@link #release()}, once Netty has written the response.
+ * </p>
+ * <p>
+ * The server moves the chunks out of {@link Http.Response#out} with {@link #detach()} when it writes the response, so
+ * the body is empty from then on: the plugin hooks that run after the action result was applied, such as
+ * <code>afterInvocation</code> or <code>onInvocationSuccess</code>, do not see it anymore.
+ * </p>
+ * <p>
+ * The chunk size and the number of pooled chunks are set with <code>play.netty.responseBuffer.chunkSize</code>
+ * (default 16384 bytes) and <code>play.netty.responseBuffer.poolSize</code> (default 512 chunks, 0 disables the
+ * pool).
+ * </p>
+ */
+public class ResponseBuffer extends ByteArrayOutputStream {
+
+    static final int CHUNK_SIZE = intConfiguration("play.netty.responseBuffer.chunkSize", 16384);
+    static final int POOL_SIZE = intConfiguration("play.netty.responseBuffer.poolSize", 512);
+
+    private static final ConcurrentLinkedQueue<byte[]> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * Characters are copied in slices to this size before being encoded
+     */
+    private static final int ENCODE_SLICE = 4096;
+
+    private final List<byte[]> chunks = new ArrayList<>(4);
+    private byte[] current;
+    private int currentCount;
+    private int size;
+
+    public ResponseBuffer() {
+        super(0);
+    }
+
+    private static int intConfiguration(String key, int defaultValue) {
+        if (Play.configuration == null) {
+            return defaultValue;
+        }
+        return Integer.parseInt(Play.configuration.getProperty(key, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * @return The number of chunks in the pool
+     */
+    static int pooledChunks() {
+        return pooled.get();
+    }
+
+    private static byte[] acquire() {
+        byte[] chunk = pool.poll();
+        if (chunk == null) {
+            return new byte[CHUNK_SIZE];
+        }
+        pooled.decrementAndGet();
+        return chunk;
+    }
+
+    private void nextChunk() {
+        current = acquire();
+        currentCount = 0;
+        chunks.add(current);
+    }
+
+    private void ensureSpace() {
+        if (current == null || currentCount == current.length) {
+            nextChunk();
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        ensureSpace();
+        current[currentCount++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            ensureSpace();
+            int n = Math.min(len, current.length - currentCount);
+            System.arraycopy(b, off, current, currentCount, n);
+            currentCount += n;
+            size += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void writeBytes(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    /**
+     * Encodes text into the buffer, with the same replacement of unmappable characters as
+     * {@link String#getBytes(Charset)} but without creating the intermediate byte array.
+     *
+     * @param text
+     *            The text to write
+     * @param charset
+     *            The charset to encode it with
+     */
+    public synchronized void write(CharSequence text, Charset charset) {
+        CharsetEncoder encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        int length = text.length();
+        char[] slice = new char[Math.min(Math.max(length, 2), ENCODE_SLICE)];
+        CharBuffer in = CharBuffer.wrap(slice);
+        in.limit(0);
+        int position = 0;
+        boolean endOfInput;
+        do {
+            // Keep what the encoder left (half of a surrogate pair) and append the next slice
+            in.compact();
+            int n = Math.min(in.remaining(), length - position);
+            if (text instanceof String) {
+                ((String) text).getChars(position, position + n, slice, in.position());
+            } else {
+                for (int i = 0; i < n; i++) {
+                    slice[in.position() + i] = text.charAt(position + i);
+                }
+            }
+            in.position(in.position() + n);
+            in.flip();
+            position += n;
+            endOfInput = position == length;
+            CoderResult result;
+            do {
+                ensureSpace();
+                ByteBuffer out = ByteBuffer.wrap(current, currentCount, current.length - currentCount);
+                result = encoder.encode(in, out, endOfInput);
+                written(out);
+            } while (result.isOverflow());
+        } while (!endOfInput);
+        CoderResult result;
+        do {
+            ensureSpace();
+            ByteBuffer out = ByteBuffer.wrap(current, currentCount, current.length - currentCount);
+            result = encoder.flush(out);
+            written(out);
+        } while (result.isOverflow());
+    }
+
+    private void written(ByteBuffer out) {
+        int n = out.position() - currentCount;
+        currentCount += n;
+        size += n;
+    }
+
+    @Override
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        int remaining = size;
+        for (byte[] chunk : chunks) {
+            int n = Math.min(remaining, chunk.length);
+            out.write(chunk, 0, n);
+            remaining -= n;
+        }
+    }
+
+    @Override
+    public synchronized void reset() {
+        release();
+    }
+
+    @Override
+    public synchronized byte[] toByteArray() {
+        byte[] result = new byte[size];
+        int offset = 0;
+        for (byte[] chunk : chunks) {
+            int n = Math.min(size - offset, chunk.length);
+            System.arraycopy(chunk, 0, result, offset, n);
+            offset += n;
+        }
+        return result;
+    }
+
+    /**
+     * Wraps the written bytes in a buffer that shares the chunks of this one. It must not be used after
+     * {@link #release()}.
+     *
+     * @return The content of this buffer
+     */
+    public synchronized ChannelBuffer toChannelBuffer() {
+        if (size == 0) {
+            return ChannelBuffers.EMPTY_BUFFER;
+        }
+        ChannelBuffer[] buffers = new ChannelBuffer[chunks.size()];
+        int remaining = size;
+        for (int i = 0; i < buffers.length; i++) {
+            byte[] chunk = chunks.get(i);
+            int n = Math.min(remaining, chunk.length);
+            buffers[i] = ChannelBuffers.wrappedBuffer(chunk, 0, n);
+            remaining -= n;
+        }
+        return buffers.length == 1 ? buffers[0] : ChannelBuffers.wrappedBuffer(true, buffers);
+    }
+
+    /**
+     * Moves the written bytes to a new buffer, and empties this one without giving its chunks back to the pool.
+     *
+     * @return A buffer with the content of this one
+     */
+    public synchronized ResponseBuffer detach() {
+        ResponseBuffer detached = new ResponseBuffer();
+        detached.chunks.addAll(chunks);
+        detached.current = current;
+        detached.currentCount = currentCount;
+        detached.size = size;
+        chunks.clear();
+        current = null;
+        currentCount = 0;
+        size = 0;
+        return detached;
+    }
+
+    /**
+     * Empties the buffer and gives its chunks back to the pool.
+     */
+    public synchronized void release() {
+        for (byte[] chunk : chunks) {
+            if (chunk.length != CHUNK_SIZE) {
+                continue;
+            }
+            // Counted before it is offered, so that concurrent releases never exceed the size of the pool
+            if (pooled.incrementAndGet() <= POOL_SIZE) {
+                pool.offer(chunk);
+            } else {
+                pooled.decrementAndGet();
+            }
+        }
+        chunks.clear();
+        current = null;
+        currentCount = 0;
+        size = 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return new String(toByteArray());
+    }
+
+    @Override
+    public synchronized String toString(String charsetName) throws java.io.UnsupportedEncodingException {
+        return new String(toByteArray(), charsetName);
+    }
+
+    @Override
+    public synchronized String toString(Charset charset) {
+        return new String(toByteArray(), charset);
+    }
+}
@@ -0,0 +1,221 @@
+package play.mvc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import play.mvc.Router.Route;
+
+/**
+ * Dispatch index over a snapshot of the routes list.
+ * <p>
+ * Routes are grouped by HTTP method, then stored in a prefix trie keyed by the literal path segments that precede
+ * the first dynamic part of their path. For a request path the index only returns the routes whose literal prefix is
+ * compatible with it, in their declaration order, so the caller keeps the first-match-wins semantics of a linear scan
+ * while only running the regex of a handful of candidates.
+ */
+final class RouteIndex {
+
+    /**
+     * Characters that give a route path segment a regex meaning (the path is compiled as a jregex pattern).
+     */
+    private static final String REGEX_CHARS = "\\.[](){}*+?^$|";
+
+    /**
+     * Key of the trie used when no method is given, it holds every route.
+     */
+    private static final String ANY_METHOD = "";
+
+    /**
+     * Key of the trie used for methods that no route declares explicitly: only the "*" routes apply.
+     */
+    private static final String OTHER_METHOD = "*";
+
+    /**
+     * The routes list this index was built from, and the change count of that list at that time.
+     */
+    final List<Route> list;
+    final int version;
+    private final Route[] routes;
+    private final Map<String, Node> tries = new HashMap<>();
+
+    RouteIndex(List<Route> list, Route[] routes, int version) {
+        this.list = list;
+        this.routes = routes;
+        this.version = version;
+        List<String> methods = new ArrayList<>();
+        methods.add("GET");
+        methods.add("HEAD");
+        for (Route route : routes) {
+            String method = route.method == null ? null : route.method.toUpperCase(Locale.ENGLISH);
+            if (method != null && !method.equals("*") && !methods.contains(method)) {
+                methods.add(method);
+            }
+        }
+        tries.put(ANY_METHOD, build(null));
+        tries.put(OTHER_METHOD, build(OTHER_METHOD));
+        for (String method : methods) {
+            tries.put(method, build(method));
+        }
+    }
+
+    /**
+     * Returns the routes that may match the given request, in declaration order.
+     *
+     * @param method
+     *            The HTTP method, or null for any method
+     * @param path
+     *            The request path
+     * @return The candidate routes, never null
+     */
+    Route[] candidates(String method, String path) {
+        Node node = tries.get(method == null ? ANY_METHOD : method.toUpperCase(Locale.ENGLISH));
+        if (node == null) {
+            node = tries.get(OTHER_METHOD);
+        }
+        // Same normalization as Route.matches()
+        if (path.equals(play.Play.ctxPath)) {
+            path = path + "/";
+        }
+
+        int[] found = node.prefix;
+        int count = found.length;
+        found = Arrays.copyOf(found, Math.max(count, 8));
+        if (path.startsWith("/")) {
+            int start = 1;
+            while (node != null) {
+                int end = path.indexOf('/', start);
+                String segment = end < 0 ? path.substring(start) : path.substring(start, end);
+                node = node.children.get(segment);
+                if (node == null) {
+                    break;
+                }
+                int[] matching = end < 0 ? node.exact : node.prefix;
+                if (matching.length > 0) {
+                    if (count + matching.length > found.length) {
+                        found = Arrays.copyOf(found, Math.max(found.length * 2, count + matching.length));
+                    }
+                    System.arraycopy(matching, 0, found, count, matching.length);
+                    count += matching.length;
+                }
+                if (end < 0) {
+                    break;
+                }
+                start = end + 1;
+            }
+        }
+
+        Arrays.sort(found, 0, count);
+        Route[] result = new Route[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = routes[found[i]];
+        }
+        return result;
+    }
+
+    private Node build(String method) {
+        Map<List<String>, List<Integer>> prefixes = new HashMap<>();
+        Map<List<String>, List<Integer>> exacts = new HashMap<>();
+        Node root = new Node();
+        for (int i = 0; i < routes.length; i++) {
+            Route route = routes[i];
+            if (!accepts(route, method)) {
+                continue;
+            }
+            String path = route.path;
+            int dynamic = firstRegexChar(path);
+            boolean exact = route.staticDir == null ? dynamic == path.length() : route.staticFile && dynamic == path.length();
+            List<String> segments = new ArrayList<>();
+            if (path.startsWith("/") && route.pattern != null && path.indexOf('|') < 0 && dynamic > 0) {
+                String literal = exact ? path : path.substring(0, path.lastIndexOf('/', dynamic - 1) + 1);
+                segments.addAll(Arrays.asList(literal.substring(1).split("/", -1)));
+                if (!exact) {
+                    // The literal part ends with a '/', drop the empty segment it yields
+                    segments.remove(segments.size() - 1);
+                }
+            } else {
+                exact = false;
+            }
+            Node node = root;
+            for (String segment : segments) {
+                Node child = node.children.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.children.put(segment, child);
+                }
+                node = child;
+            }
+            List<String> key = new ArrayList<>(segments);
+            (exact ? exacts : prefixes).computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        fill(root, new ArrayList<String>(), prefixes, exacts);
+        return root;
+    }
+
+    private static void fill(Node node, List<String> segments, Map<List<String>, List<Integer>> prefixes,
+            Map<List<String>, List<Integer>> exacts) {
+        node.prefix = toArray(prefixes.get(segments));
+        node.exact = toArray(exacts.get(segments));
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            segments.add(child.getKey());
+            fill(child.getValue(), segments, prefixes, exacts);
+            segments.remove(segments.size() - 1);
+        }
+    }
+
+    private static int[] toArray(List<Integer> indexes) {
+        if (indexes == null) {
+            return new int[0];
+        }
+        int[] result = new int[indexes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = indexes.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Same method check as Route.matches(): a null method accepts every route, HEAD also accepts GET routes.
+     */
+    private static boolean accepts(Route route, String method) {
+        if (method == null || "*".equals(route.method)) {
+            return true;
+        }
+        if (OTHER_METHOD.equals(method)) {
+            return false;
+        }
+        return method.equalsIgnoreCase(route.method) || (method.equals("HEAD") && "GET".equalsIgnoreCase(route.method));
+    }
+
+    /**
+     * Returns the length of the literal part of a route path. When the first regex character is a quantifier, the
+     * character it applies to is not part of the literal either (e.g. "/legacy/?" also matches "/legacy").
+     */
+    private static int firstRegexChar(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (REGEX_CHARS.indexOf(c) >= 0) {
+                boolean quantifier = c == '?' || c == '*'
+                        || (c == '{' && i + 1 < path.length() && (Character.isDigit(path.charAt(i + 1)) || path.charAt(i + 1) == ','));
+                return quantifier ? i - 1 : i;
+            }
+        }
+        return path.length();
+    }
+
+    private static final class Node {
+
+        final Map<String, Node> children = new HashMap<>(4);
+        /**
+         * Routes whose path starts with the literal segments leading to this node followed by a '/'
+         */
+        int[] prefix;
+        /**
+         * Routes whose path is exactly the literal segments leading to this node
+         */
+        int[] exact;
+    }
+}
@@ -19,9 +19,13 @@ import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 /**
  * The router matches HTTP requests to action invocations
@@ -49,10 +53,15 @@ public class Router {
     public static void load(String prefix) {
         routes.clear();
         actionRoutesCache.clear();
+        reverseCache.clear();
+        staticReverseCache.clear();
+        reverseCacheSize = Integer.parseInt(Play.configuration.getProperty("application.reverseRoutes.cacheSize", "0"));
         parse(Play.routes, prefix);
         lastLoading = System.currentTimeMillis();
         // Plugins
         Play.pluginCollection.onRoutesLoaded();
+        // Compile the dispatch index now rather than on the first request
+        routeIndex();
     }
 
     /**
@@ -341,10 +350,138 @@ public class Router {
     /**
      * All the loaded routes.
      */
-    public static List<Route> routes = new CopyOnWriteArrayList<>();
+    public static List<Route> routes = new RouteList();
+
+    private static volatile RouteIndex routeIndex;
+
+    /**
+     * Returns the dispatch index of the current routes, rebuilding it if the routes list changed since it was built.
+     * 
+     * @return The index, or null if the routes list has been replaced by a list whose changes cannot be tracked
+     */
+    static RouteIndex routeIndex() {
+        List<Route> current = routes;
+        if (!(current instanceof RouteList)) {
+            return null;
+        }
+        RouteList list = (RouteList) current;
+        RouteIndex index = routeIndex;
+        int version = list.version.get();
+        if (index == null || index.version != version || index.list != list) {
+            // Read the version before taking the snapshot: a concurrent change makes the index stale, never wrong
+            index = new RouteIndex(list, list.toArray(new Route[0]), version);
+            routeIndex = index;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the routes that may match the given request, in declaration order.
+     */
+    private static Collection<Route> candidateRoutes(String method, String path) {
+        RouteIndex index = routeIndex();
+        if (index == null) {
+            return routes;
+        }
+        return Arrays.asList(index.candidates(method, path));
+    }
+
+    /**
+     * Routes list that keeps track of its changes so that the dispatch index can be rebuilt.
+     */
+    private static final class RouteList extends CopyOnWriteArrayList<Route> {
+
+        private static final long serialVersionUID = 1L;
+
+        final AtomicInteger version = new AtomicInteger();
+
+        private <T> T changed(T result) {
+            version.incrementAndGet();
+            return result;
+        }
+
+        @Override
+        public Route set(int index, Route element) {
+            return changed(super.set(index, element));
+        }
+
+        @Override
+        public boolean add(Route e) {
+            return changed(super.add(e));
+        }
+
+        @Override
+        public void add(int index, Route element) {
+            super.add(index, element);
+            changed(null);
+        }
+
+        @Override
+        public Route remove(int index) {
+            return changed(super.remove(index));
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return changed(super.remove(o));
+        }
+
+        @Override
+        public boolean addIfAbsent(Route e) {
+            return changed(super.addIfAbsent(e));
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            return changed(super.removeAll(c));
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            return changed(super.retainAll(c));
+        }
+
+        @Override
+        public int addAllAbsent(Collection<? extends Route> c) {
+            return changed(super.addAllAbsent(c));
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            changed(null);
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Route> c) {
+            return changed(super.addAll(c));
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends Route> c) {
+            return changed(super.addAll(index, c));
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super Route> filter) {
+            return changed(super.removeIf(filter));
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<Route> operator) {
+            super.replaceAll(operator);
+            changed(null);
+        }
+
+        @Override
+        public void sort(Comparator<? super Route> c) {
+            super.sort(c);
+            changed(null);
+        }
+    }
 
     public static void routeOnlyStatic(Http.Request request) {
-        for (Route route : routes) {
+        for (Route route : candidateRoutes(request.method, request.path)) {
             try {
                 if (route.matches(request.method, request.path, request.format, request.domain) != null) {
                     break;
@@ -371,7 +508,7 @@ public class Router {
                 request.method = matcher.group("method");
             }
         }
-        for (Route route : routes) {
+        for (Route route : candidateRoutes(request.method, request.path)) {
             Map<String, String> args = route.matches(request.method, request.path, request.format, request.domain);
             if (args != null) {
                 request.routeArgs = args;
@@ -412,7 +549,7 @@ public class Router {
     }
 
     public static Map<String, String> route(String method, String path, String headers, String host) {
-        for (Route route : routes) {
+        for (Route route : candidateRoutes(method, path)) {
             Map<String, String> args = route.matches(method, path, headers, host);
             if (args != null) {
                 args.put("action", route.action);
@@ -468,6 +605,11 @@ public class Router {
         if (file == null || !file.exists()) {
             throw new NoRouteFoundException("File not found (" + file + ")");
         }
+        StaticReverse reversed = reverseStatic(file);
+        return absolute ? reversed.absoluteUrl() : reversed.url;
+    }
+
+    private static StaticReverse reverseStatic(VirtualFile file) {
         String path = file.relativePath();
         path = path.substring(path.indexOf("}") + 1);
         for (Route route : routes) {
@@ -484,19 +626,7 @@ public class Router {
                     if (to.endsWith("/index.html")) {
                         to = to.substring(0, to.length() - "/index.html".length() + 1);
                     }
-                    if (absolute) {
-                        boolean isSecure = Http.Request.current() == null ? false : Http.Request.current().secure;
-                        String base = getBaseUrl();
-                        if (!StringUtils.isEmpty(route.host)) {
-                            // Compute the host
-                            int port = Http.Request.current() == null ? 80 : Http.Request.current().get().port;
-                            String host = (port != 80 && port != 443) ? route.host + ":" + port : route.host;
-                            to = (isSecure ? "https://" : "http://") + host + to;
-                        } else {
-                            to = base + to;
-                        }
-                    }
-                    return to;
+                    return new StaticReverse(route, to);
                 }
             }
         }
@@ -510,6 +640,54 @@ public class Router {
         return reverse(file, absolute);
     }
 
+    /**
+     * Reverse a static file given its path in the application, as the <code>@{'/public/...'}</code> template syntax
+     * does. In PROD mode the files cannot change, so the result of the lookup is remembered until the routes change.
+     * 
+     * @param name
+     *            The path of the file
+     * @param absolute
+     *            Whether to return an absolute URL
+     * @return The URL of the file
+     */
+    public static String reverseWithCheck(String name, boolean absolute) {
+        if (Play.mode != Mode.PROD) {
+            return reverseWithCheck(name, Play.getVirtualFile(name), absolute);
+        }
+        checkReverseCaches();
+        StaticReverse reversed = staticReverseCache.get(name);
+        if (reversed == null) {
+            VirtualFile file = Play.getVirtualFile(name);
+            if (file == null || !file.exists()) {
+                throw new NoRouteFoundException(name + " (file not found)");
+            }
+            reversed = reverseStatic(file);
+            staticReverseCache.put(name, reversed);
+        }
+        return absolute ? reversed.absoluteUrl() : reversed.url;
+    }
+
+    private static final class StaticReverse {
+        private final Route route;
+        private final String url;
+
+        private StaticReverse(Route route, String url) {
+            this.route = route;
+            this.url = url;
+        }
+
+        private String absoluteUrl() {
+            boolean isSecure = Http.Request.current() == null ? false : Http.Request.current().secure;
+            if (!StringUtils.isEmpty(route.host)) {
+                // Compute the host
+                int port = Http.Request.current() == null ? 80 : Http.Request.current().get().port;
+                String host = (port != 80 && port != 443) ? route.host + ":" + port : route.host;
+                return (isSecure ? "https://" : "http://") + host + url;
+            }
+            return getBaseUrl() + url;
+        }
+    }
+
     public static ActionDefinition reverse(String action, Map<String, Object> args) {
 
         String encoding = Http.Response.current() == null ? Play.defaultWebEncoding : Http.Response.current().encoding;
@@ -520,9 +698,9 @@ public class Router {
         Map<String, Object> argsbackup = new HashMap<>(args);
         // Add routeArgs
         if (Scope.RouteArgs.current() != null) {
-            for (String key : Scope.RouteArgs.current().data.keySet()) {
-                if (!args.containsKey(key)) {
-                    args.put(key, Scope.RouteArgs.current().data.get(key));
+            for (Map.Entry<String, Object> entry : Scope.RouteArgs.current().data.entrySet()) {
+                if (!args.containsKey(entry.getKey())) {
+                    args.put(entry.getKey(), entry.getValue());
                 }
             }
         }
@@ -530,16 +708,33 @@ public class Router {
         Http.Request request = Http.Request.current();
         String requestFormat = request == null || request.format == null ? "" : request.format;
 
+        checkReverseCaches();
+        List<Object> cacheKey = null;
+        if (reverseCacheSize > 0 && args.size() <= REVERSE_CACHE_MAX_ARGS && isCacheable(args)) {
+            cacheKey = Arrays.asList(action, encoding, requestFormat, new HashSet<>(argsbackup.keySet()), new HashMap<>(args));
+            CachedReverse cached = reverseCache.get(cacheKey);
+            if (cached != null) {
+                return cached.toActionDefinition(action, argsbackup);
+            }
+        }
+
+        Charset charset;
+        try {
+            charset = Charset.forName(encoding);
+        } catch (IllegalArgumentException e) {
+            charset = null;
+        }
+
         List<ActionRoute> matchingRoutes = getActionRoutes(action);
         for (ActionRoute actionRoute : matchingRoutes) {
             Route route = actionRoute.route;
             args.putAll(actionRoute.args);
 
-            List<String> inPathArgs = new ArrayList<>(16);
+            int inPathArgs = route.args.size();
             boolean allRequiredArgsAreHere = true;
             // les noms de parametres matchent ils ?
-            for (Route.Arg arg : route.args) {
-                inPathArgs.add(arg.name);
+            for (int i = 0; i < route.args.size(); i++) {
+                Route.Arg arg = route.args.get(i);
                 Object value = args.get(arg.name);
                 if (value == null) {
                     // This is a hack for reverting on hostname that are
@@ -551,6 +746,7 @@ public class Router {
                     if (host.equals(arg.name) || host.matches(arg.name)) {
                         args.remove(arg.name);
                         route.host = request == null ? "" : request.domain;
+                        inPathArgs = i + 1;
                         break;
                     } else {
                         allRequiredArgsAreHere = false;
@@ -562,7 +758,7 @@ public class Router {
                         List<Object> l = (List<Object>) value;
                         value = l.get(0);
                     }
-                    if (!value.toString().startsWith(":") && !arg.constraint.matches(Utils.urlEncodePath(value.toString()))) {
+                    if (!value.toString().startsWith(":") && !actionRoute.accepts(i, value.toString())) {
                         allRequiredArgsAreHere = false;
                         break;
                     }
@@ -584,103 +780,149 @@ public class Router {
                 }
             }
             if (allRequiredArgsAreHere) {
-                StringBuilder queryString = new StringBuilder();
-                String path = route.path;
+                StringBuilder url = new StringBuilder(64);
+                actionRoute.path.append(url, actionRoute, inPathArgs, args, charset, false);
                 String host = route.host;
-                if (path.endsWith("/?")) {
-                    path = path.substring(0, path.length() - 2);
+                if (host.indexOf('{') > -1) {
+                    StringBuilder hostBuilder = new StringBuilder(host.length());
+                    UrlTemplate.compile(host).append(hostBuilder, actionRoute, inPathArgs, args, charset, true);
+                    host = hostBuilder.toString();
                 }
+                boolean firstParam = true;
                 for (Map.Entry<String, Object> entry : args.entrySet()) {
                     String key = entry.getKey();
                     Object value = entry.getValue();
-                    if (inPathArgs.contains(key) && value != null) {
-                        if (List.class.isAssignableFrom(value.getClass())) {
-                            @SuppressWarnings("unchecked")
-                            List<Object> vals = (List<Object>) value;
-                            path = path.replaceAll("\\{(<[^>]+>)?" + key + "\\}", vals.get(0).toString()).replace("$", "\\$");
-                        } else {
-                            try {
-                                path = path.replaceAll("\\{(<[^>]+>)?" + key + "\\}", URLEncoder.encode(value.toString(), encoding)
-                                        .replace("$", "\\$").replace("%3A", ":").replace("%40", "@").replace("+", "%20"));
-                            } catch (UnsupportedEncodingException e) {
-                                path = path.replaceAll("\\{(<[^>]+>)?" + key + "\\}",
-                                        value.toString().replace("$", "\\$").replace("%3A", ":").replace("%40", "@").replace("+", "%20"));
-                            }
-                            try {
-                                host = host.replaceAll("\\{(<[^>]+>)?" + key + "\\}", URLEncoder.encode(value.toString(), encoding)
-                                        .replace("$", "\\$").replace("%3A", ":").replace("%40", "@").replace("+", "%20"));
-                            } catch (UnsupportedEncodingException e) {
-                                host = host.replaceAll("\\{(<[^>]+>)?" + key + "\\}",
-                                        value.toString().replace("$", "\\$").replace("%3A", ":").replace("%40", "@").replace("+", "%20"));
-                            }
-                        }
+                    if (actionRoute.isInPath(key, inPathArgs) && value != null) {
+                        // Already in the path
                     } else if (route.staticArgs.containsKey(key)) {
                         // Do nothing -> The key is static
                     } else if (!argsbackup.containsKey(key)) {
                         // Do nothing -> The key is provided in
                         // RouteArgs and not used (see #447)
-                    } else if (value != null) {
+                    } else if (value != null && charset != null) {
                         if (List.class.isAssignableFrom(value.getClass())) {
                             @SuppressWarnings("unchecked")
                             List<Object> vals = (List<Object>) value;
                             for (Object object : vals) {
-                                try {
-                                    queryString.append(URLEncoder.encode(key, encoding));
-                                    queryString.append("=");
-                                    String objStr = object.toString();
-                                    // Special case to handle jsAction
-                                    // tag
-                                    if (objStr.startsWith(":") && objStr.length() > 1) {
-                                        queryString.append(':');
-                                        objStr = objStr.substring(1);
-                                    }
-                                    queryString.append(URLEncoder.encode(objStr + "", encoding));
-                                    queryString.append("&");
-                                } catch (UnsupportedEncodingException ex) {
-                                }
+                                url.append(firstParam ? '?' : '&');
+                                firstParam = false;
+                                appendParam(url, key, object.toString(), charset);
                             }
                         } else if (value.getClass().equals(Default.class)) {
                             // Skip defaults in queryString
                         } else {
-                            try {
-                                queryString.append(URLEncoder.encode(key, encoding));
-                                queryString.append("=");
-                                String objStr = value.toString();
-                                // Special case to handle jsAction tag
-                                if (objStr.startsWith(":") && objStr.length() > 1) {
-                                    queryString.append(':');
-                                    objStr = objStr.substring(1);
-                                }
-                                queryString.append(URLEncoder.encode(objStr + "", encoding));
-                                queryString.append("&");
-                            } catch (UnsupportedEncodingException ex) {
-                            }
+                            url.append(firstParam ? '?' : '&');
+                            firstParam = false;
+                            appendParam(url, key, value.toString(), charset);
                         }
                     }
                 }
-                String qs = queryString.toString();
-                if (qs.endsWith("&")) {
-                    qs = qs.substring(0, qs.length() - 1);
-                }
-                ActionDefinition actionDefinition = new ActionDefinition();
-                actionDefinition.url = qs.length() == 0 ? path : path + "?" + qs;
-                actionDefinition.method = route.method == null || route.method.equals("*") ? "GET" : route.method.toUpperCase();
-                actionDefinition.star = "*".equals(route.method);
-                actionDefinition.action = action;
-                actionDefinition.args = argsbackup;
-                actionDefinition.host = host;
-                if (Boolean.parseBoolean(Play.configuration.getProperty("application.forceSecureReverseRoutes", "false"))) {
-                    actionDefinition.secure();
+                String method = route.method == null || route.method.equals("*") ? "GET" : route.method.toUpperCase();
+                CachedReverse reversed = new CachedReverse(url.toString(), method, "*".equals(route.method), host);
+                // Routes with a host may be changed by the hostname hack above
+                if (cacheKey != null && route.host.isEmpty()) {
+                    if (reverseCache.size() >= reverseCacheSize) {
+                        reverseCache.clear();
+                    }
+                    reverseCache.put(cacheKey, reversed);
                 }
-                return actionDefinition;
+                return reversed.toActionDefinition(action, argsbackup);
             }
         }
 
         throw new NoRouteFoundException(action, args);
     }
 
+    private static void appendParam(StringBuilder url, String key, String value, Charset charset) {
+        urlEncode(url, key, charset, false);
+        url.append('=');
+        // Special case to handle jsAction tag
+        if (value.startsWith(":") && value.length() > 1) {
+            url.append(':');
+            value = value.substring(1);
+        }
+        urlEncode(url, value, charset, false);
+    }
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Appends the same encoding as {@link URLEncoder#encode(String, String)} without intermediate Strings. In a path,
+     * ':' and '@' are kept and spaces are encoded as %20.
+     */
+    static void urlEncode(StringBuilder sb, String value, Charset charset, boolean path) {
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            char c = value.charAt(i);
+            if (!needsEncoding(c, path)) {
+                sb.append(c);
+                i++;
+            } else if (c == ' ') {
+                sb.append(path ? "%20" : "+");
+                i++;
+            } else {
+                int start = i;
+                do {
+                    i++;
+                } while (i < length && needsEncoding(value.charAt(i), path) && value.charAt(i) != ' ');
+                for (byte b : value.substring(start, i).getBytes(charset)) {
+                    sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+                }
+            }
+        }
+    }
+
+    private static boolean needsEncoding(char c, boolean path) {
+        if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+            return false;
+        }
+        return c != '.' && c != '-' && c != '*' && c != '_' && !(path && (c == ':' || c == '@'));
+    }
+
+    /**
+     * Only immutable values with a stable toString() are used as reverse cache keys.
+     */
+    private static boolean isCacheable(Map<String, Object> args) {
+        for (Object value : args.values()) {
+            if (value != null && !(value instanceof String || value instanceof Integer || value instanceof Long
+                    || value instanceof Boolean || value instanceof Short || value instanceof Byte || value instanceof Character
+                    || value instanceof Enum)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final int REVERSE_CACHE_MAX_ARGS = 4;
+
+    /**
+     * Maximum number of entries of the reverse routing cache, 0 to disable it.
+     */
+    static int reverseCacheSize = 0;
+
+    private static final Map<List<Object>, CachedReverse> reverseCache = new ConcurrentHashMap<>();
+
+    private static final Map<String, StaticReverse> staticReverseCache = new ConcurrentHashMap<>();
+
     private static final Map<String, List<ActionRoute>> actionRoutesCache = new ConcurrentHashMap<>();
 
+    private static volatile int reverseCachesVersion = -1;
+
+    /**
+     * Drop the reverse routing caches when routes have been added or removed since they were filled.
+     */
+    private static void checkReverseCaches() {
+        List<Route> current = routes;
+        int version = current instanceof RouteList ? ((RouteList) current).version.get() : -1;
+        if (version != reverseCachesVersion) {
+            actionRoutesCache.clear();
+            reverseCache.clear();
+            staticReverseCache.clear();
+            reverseCachesVersion = version;
+        }
+    }
+
     private static List<ActionRoute> getActionRoutes(String action) {
         List<ActionRoute> matchingRoutes = actionRoutesCache.get(action);
         if (matchingRoutes == null) {
@@ -696,8 +938,7 @@ public class Router {
             if (route.actionPattern != null) {
                 Matcher matcher = route.actionPattern.matcher(action);
                 if (matcher.matches()) {
-                    ActionRoute matchingRoute = new ActionRoute();
-                    matchingRoute.route = route;
+                    ActionRoute matchingRoute = new ActionRoute(route);
 
                     for (String group : route.actionArgs) {
                         String v = matcher.group(group);
@@ -713,9 +954,142 @@ public class Router {
         return matchingRoutes;
     }
 
+    /**
+     * A route that can reverse an action, with its path compiled into a URL template.
+     */
     private static final class ActionRoute {
-        private Route route;
-        private Map<String, String> args = new HashMap<>(2);
+        private final Route route;
+        private final Map<String, String> args = new HashMap<>(2);
+        private final UrlTemplate path;
+        /**
+         * Position of each route argument in route.args
+         */
+        private final Map<String, Integer> argIndexes = new HashMap<>(4);
+        /**
+         * Whether the constraint of the route argument at the same position accepts any non empty value
+         */
+        private final boolean[] anyValue;
+
+        private ActionRoute(Route route) {
+            this.route = route;
+            String path = route.path;
+            if (path.endsWith("/?")) {
+                path = path.substring(0, path.length() - 2);
+            }
+            this.path = UrlTemplate.compile(path);
+            this.anyValue = new boolean[route.args.size()];
+            for (int i = 0; i < route.args.size(); i++) {
+                Route.Arg arg = route.args.get(i);
+                argIndexes.putIfAbsent(arg.name, i);
+                String constraint = arg.constraint.toString();
+                // The URL encoded value never contains a '/'
+                anyValue[i] = constraint.equals("[^/]+") || constraint.equals(".*");
+            }
+        }
+
+        private boolean accepts(int index, String value) {
+            if (anyValue[index]) {
+                return !value.isEmpty() || route.args.get(index).constraint.toString().equals(".*");
+            }
+            return route.args.get(index).constraint.matches(Utils.urlEncodePath(value));
+        }
+
+        /**
+         * Whether the argument is one of the first inPathArgs route arguments
+         */
+        private boolean isInPath(String name, int inPathArgs) {
+            Integer index = argIndexes.get(name);
+            return index != null && index < inPathArgs;
+        }
+    }
+
+    /**
+     * A route path or host split around its <code>{name}</code> and <code>{&lt;regex&gt;name}</code> arguments.
+     */
+    static final class UrlTemplate {
+
+        private static final java.util.regex.Pattern ARGUMENT = java.util.regex.Pattern.compile("\\{(<[^>]+>)?([a-zA-Z_0-9]+)\\}");
+
+        /**
+         * The text between the arguments, one more element than names
+         */
+        private final String[] literals;
+        private final String[] names;
+        private final String[] tokens;
+
+        private UrlTemplate(String[] literals, String[] names, String[] tokens) {
+            this.literals = literals;
+            this.names = names;
+            this.tokens = tokens;
+        }
+
+        static UrlTemplate compile(String source) {
+            List<String> literals = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            List<String> tokens = new ArrayList<>();
+            java.util.regex.Matcher matcher = ARGUMENT.matcher(source);
+            int last = 0;
+            while (matcher.find()) {
+                literals.add(source.substring(last, matcher.start()));
+                names.add(matcher.group(2));
+                tokens.add(matcher.group());
+                last = matcher.end();
+            }
+            literals.add(source.substring(last));
+            return new UrlTemplate(literals.toArray(new String[0]), names.toArray(new String[0]), tokens.toArray(new String[0]));
+        }
+
+        /**
+         * Appends the template with the arguments replaced by their URL encoded value. Arguments without a value are
+         * left as they are. A list value is replaced by its first element, which is not encoded and not used in a host.
+         */
+        void append(StringBuilder sb, ActionRoute actionRoute, int inPathArgs, Map<String, Object> args, Charset charset, boolean host) {
+            for (int i = 0; i < names.length; i++) {
+                sb.append(literals[i]);
+                Object value = actionRoute.isInPath(names[i], inPathArgs) ? args.get(names[i]) : null;
+                if (value == null || (host && value instanceof List<?>)) {
+                    sb.append(tokens[i]);
+                } else if (value instanceof List<?>) {
+                    sb.append(((List<?>) value).get(0));
+                } else if (charset == null) {
+                    sb.append(value.toString().replace("%3A", ":").replace("%40", "@").replace("+", "%20"));
+                } else {
+                    urlEncode(sb, value.toString(), charset, true);
+                }
+            }
+            sb.append(literals[names.length]);
+        }
+    }
+
+    /**
+     * The outcome of a reverse lookup, ActionDefinition is mutable so a new one is created from it each time.
+     */
+    private static final class CachedReverse {
+        private final String url;
+        private final String method;
+        private final boolean star;
+        private final String host;
+
+        private CachedReverse(String url, String method, boolean star, String host) {
+            this.url = url;
+            this.method = method;
+            this.star = star;
+            this.host = host;
+        }
+
+        private ActionDefinition toActionDefinition(String action, Map<String, Object> args) {
+            ActionDefinition actionDefinition = new ActionDefinition();
+            actionDefinition.url = url;
+            actionDefinition.method = method;
+            actionDefinition.star = star;
+            actionDefinition.action = action;
+            actionDefinition.args = args;
+            actionDefinition.host = host;
+            if (Boolean.parseBoolean(Play.configuration.getProperty("application.forceSecureReverseRoutes", "false"))) {
+                actionDefinition.secure();
+            }
+            return actionDefinition;
+        }
     }
 
     public static class ActionDefinition {
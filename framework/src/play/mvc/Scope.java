@@ -181,6 +181,10 @@ public class Scope {
 
         Map<String, String> data = new HashMap<>(); // ThreadLocal access
         boolean changed = false;
+        /**
+         * The signed cookie the session was restored from, if any
+         */
+        String cookie;
         public static final ThreadLocal<Session> current = new ThreadLocal<>();
 
         public static Session current() {
@@ -320,7 +324,7 @@ public class Scope {
                     if (contentType != null) {
                         DataParser dataParser = DataParsers.forContentType(contentType);
                         if (dataParser != null) {
-                            _mergeWith(dataParser.parse(request.body));
+                            dataParser.parse(request.body, data);
                         }
                     }
                     try {
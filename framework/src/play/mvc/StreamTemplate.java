@@ -0,0 +1,30 @@
+package play.mvc;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Render the templates of an action (or of every action of a controller) straight into the response, instead of
+ * building the whole page as a String first. It overrides the <code>play.templates.streaming</code> configuration.
+ * Pages with a layout are only written once they are completely rendered.
+ *
+ * <p>Example: <code>@StreamTemplate(chunked = true)</code>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Inherited
+public @interface StreamTemplate {
+
+    /**
+     * @return false to always buffer the rendered page, whatever the configuration says
+     */
+    boolean value() default true;
+
+    /**
+     * @return true to send large pages with chunked transfer encoding while they are rendered
+     */
+    boolean chunked() default false;
+}
@@ -40,6 +40,17 @@ public class WebSocketController implements ControllerSupport, LocalVariablesSup
         Controller.await(future, callback);
     }
 
+    /**
+     * Handles the next events of the socket with a handler, as they arrive, instead of waiting for them in the action.
+     * The action returns right after, and the socket stays open until it is closed by either side.
+     *
+     * @param handler
+     *            The handler
+     */
+    protected static void handle(WebSocketHandler handler) {
+        Http.Inbound.current().handle(handler, Http.Outbound.current());
+    }
+
     protected static void disconnect() {
         throw new WebSocketDisconnect();
     }
@@ -0,0 +1,37 @@
+package play.mvc;
+
+/**
+ * Handles the frames of a WebSocket as they arrive, instead of waiting for them with
+ * {@link Http.Inbound#nextEvent()}: no thread is held while the socket is idle.
+ * <p>
+ * A WebSocket action registers it with {@link WebSocketController#handle(WebSocketHandler)} and returns. The events of
+ * a socket are handled one at a time, in the order they arrived, and the frames sent while handling them are written
+ * at once.
+ * </p>
+ */
+@FunctionalInterface
+public interface WebSocketHandler {
+
+    /**
+     * Called when the handler is registered
+     *
+     * @param outbound
+     *            The outbound channel of the socket
+     */
+    default void onOpen(Http.Outbound outbound) {
+    }
+
+    /**
+     * Called for each frame received
+     *
+     * @param frame
+     *            The frame
+     */
+    void onFrame(Http.WebSocketFrame frame);
+
+    /**
+     * Called once the socket is closed
+     */
+    default void onClose() {
+    }
+}
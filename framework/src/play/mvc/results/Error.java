@@ -51,7 +51,7 @@ public class Error extends Result {
             // no template in desired format, just display the default response
         }
         try {
-            response.out.write(errorHtml.getBytes(getEncoding()));
+            writeText(response, errorHtml);
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
@@ -52,7 +52,7 @@ public class NotFound extends Result {
         } catch(Exception e) {
         }
         try {
-            response.out.write(errorHtml.getBytes(getEncoding()));
+            writeText(response, errorHtml);
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
@@ -0,0 +1,28 @@
+package play.mvc.results;
+
+import play.cache.CachedResponse;
+import play.mvc.Http.Request;
+import play.mvc.Http.Response;
+
+/**
+ * 200 OK with a response cached by {@link play.cache.ResponseCache}, or 304 Not Modified
+ */
+public class RenderCachedResponse extends Result {
+
+    private static final long serialVersionUID = 1L;
+
+    private final CachedResponse cached;
+
+    public RenderCachedResponse(CachedResponse cached) {
+        this.cached = cached;
+    }
+
+    @Override
+    public void apply(Request request, Response response) {
+        cached.writeTo(request, response);
+    }
+
+    public CachedResponse getCachedResponse() {
+        return cached;
+    }
+}
@@ -19,7 +19,7 @@ public class RenderHtml extends Result {
     public void apply(Request request, Response response) {
         try {
             setContentTypeIfNotSet(response, "text/html");
-            response.out.write(html.getBytes(getEncoding()));
+            writeText(response, html);
         } catch(Exception e) {
             throw new UnexpectedException(e);
         }
@@ -59,7 +59,7 @@ public class RenderJson extends Result {
         try {
             String encoding = getEncoding();
             setContentTypeIfNotSet(response, "application/json; charset=" + encoding);
-            response.out.write(json.getBytes(encoding));
+            writeText(response, json);
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
@@ -1,22 +1,45 @@
 package play.mvc.results;
 
+import play.Play;
+import play.cache.CacheFor;
+import play.exceptions.PlayException;
 import play.exceptions.UnexpectedException;
 import play.libs.MimeTypes;
 import play.mvc.Http.Request;
 import play.mvc.Http.Response;
+import play.mvc.ResponseBuffer;
+import play.mvc.Scope;
+import play.mvc.StreamTemplate;
 import play.templates.Template;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
 import java.util.Map;
 
 /**
  * 200 OK with a template rendering
+ * <p>
+ * When streaming is enabled, with <code>play.templates.streaming</code> or {@link StreamTemplate}, the template is
+ * only rendered when the result is applied, straight into the response, and {@link #getContent()} returns null. The
+ * session and flash are saved once it is rendered, or just before its first chunk is sent. A page with a layout is
+ * only written once it is completely rendered.
+ * </p>
  */
 public class RenderTemplate extends Result {
 
+    private enum Streaming {
+        OFF, BUFFER, CHUNKED
+    }
+
     private final String name;
     private final String content;
     private final Map<String, Object> arguments;
-    private final long renderTime;
+    private final transient Template template;
+    private final Streaming streaming;
+    private long renderTime;
 
     public RenderTemplate(Template template, Map<String, Object> arguments) {
         if (arguments.containsKey("out")) {
@@ -24,17 +47,72 @@ public class RenderTemplate extends Result {
         }
         this.name = template.name;
         this.arguments = arguments;
-        long start = System.currentTimeMillis();
-        this.content = template.render(arguments);
-        this.renderTime = System.currentTimeMillis() - start;
+        this.streaming = streaming(Request.current());
+        if (streaming == Streaming.OFF) {
+            this.template = null;
+            long start = System.currentTimeMillis();
+            this.content = template.render(arguments);
+            this.renderTime = System.currentTimeMillis() - start;
+        } else {
+            this.template = template;
+            this.content = null;
+            Scope.Session session = Scope.Session.current();
+            if (streaming == Streaming.CHUNKED && session != null && (!session.isEmpty() || usesAuthenticityToken(template))) {
+                // The session may be sent with the first chunk, before #{form} or #{authenticityToken} adds the token
+                session.getAuthenticityToken();
+            }
+        }
+    }
+
+    private static boolean usesAuthenticityToken(Template template) {
+        return template.source != null && (template.source.contains("#{form") || template.source.contains("authenticityToken"));
+    }
+
+    private static Streaming streaming(Request request) {
+        if (request == null || request.invokedMethod == null) {
+            return Streaming.OFF;
+        }
+        Method action = request.invokedMethod;
+        if (action.isAnnotationPresent(CacheFor.class)) {
+            // The cached result must hold the page
+            return Streaming.OFF;
+        }
+        Streaming streaming;
+        StreamTemplate annotation = action.getAnnotation(StreamTemplate.class);
+        if (annotation == null && request.controllerClass != null) {
+            annotation = request.controllerClass.getAnnotation(StreamTemplate.class);
+        }
+        if (annotation != null) {
+            streaming = !annotation.value() ? Streaming.OFF : annotation.chunked() ? Streaming.CHUNKED : Streaming.BUFFER;
+        } else {
+            String value = Play.configuration.getProperty("play.templates.streaming", "false");
+            streaming = "chunked".equals(value) ? Streaming.CHUNKED : Boolean.parseBoolean(value) ? Streaming.BUFFER : Streaming.OFF;
+        }
+        if (streaming == Streaming.CHUNKED && "HEAD".equals(request.method)) {
+            return Streaming.BUFFER;
+        }
+        return streaming;
     }
 
     @Override
     public void apply(Request request, Response response) {
         try {
             String contentType = MimeTypes.getContentType(name, "text/plain");
-            response.out.write(content.getBytes(getEncoding()));
+            if (streaming == Streaming.OFF) {
+                writeText(response, content);
+                setContentTypeIfNotSet(response, contentType);
+                return;
+            }
+            // The headers must be complete before the first chunk is sent
             setContentTypeIfNotSet(response, contentType);
+            long start = System.currentTimeMillis();
+            OutputStream out = streaming == Streaming.CHUNKED ? new ChunkedOutputStream(response) : response.out;
+            Writer writer = new OutputStreamWriter(out, response.encoding);
+            template.render(arguments, writer);
+            writer.close();
+            renderTime = System.currentTimeMillis() - start;
+        } catch (PlayException e) {
+            throw e;
         } catch (Exception e) {
             throw new UnexpectedException(e);
         }
@@ -55,4 +133,52 @@ public class RenderTemplate extends Result {
     public long getRenderTime() {
         return renderTime;
     }
+
+    /**
+     * Writes to the response buffer, and sends it as a chunk whenever it reaches
+     * <code>play.templates.streaming.chunkSize</code> bytes. A page smaller than that is sent as a regular response.
+     */
+    private static class ChunkedOutputStream extends OutputStream {
+
+        private final Response response;
+        private final int chunkSize;
+
+        ChunkedOutputStream(Response response) {
+            this.response = response;
+            this.chunkSize = Integer.parseInt(Play.configuration.getProperty("play.templates.streaming.chunkSize", "65536"));
+        }
+
+        @Override
+        public void write(int b) {
+            response.out.write(b);
+            if (response.out.size() >= chunkSize) {
+                sendChunk();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            response.out.write(b, off, len);
+            if (response.out.size() >= chunkSize) {
+                sendChunk();
+            }
+        }
+
+        private void sendChunk() {
+            if (response.out instanceof ResponseBuffer) {
+                // Its chunks are handed over as they are, and the next ones are written to new chunks
+                response.writeChunk(((ResponseBuffer) response.out).detach().toChannelBuffer());
+            } else {
+                response.writeChunk(response.out.toByteArray());
+                response.out.reset();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (response.chunked && response.out.size() > 0) {
+                sendChunk();
+            }
+        }
+    }
 }
@@ -36,7 +36,7 @@ public class RenderXml extends Result {
     public void apply(Request request, Response response) {
         try {
             setContentTypeIfNotSet(response, "text/xml");
-            response.out.write(xml.getBytes(getEncoding()));
+            writeText(response, xml);
         } catch(Exception e) {
             throw new UnexpectedException(e);
         }
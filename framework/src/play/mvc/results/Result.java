@@ -1,6 +1,10 @@
 package play.mvc.results;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
+
 import play.mvc.Http;
+import play.mvc.ResponseBuffer;
 import play.utils.FastRuntimeException;
 
 /**
@@ -31,4 +35,23 @@ public abstract class Result extends FastRuntimeException {
         return Http.Response.current().encoding;
     }
 
+    /**
+     * Writes text to the response body with the encoding of this response. When the body is a
+     * {@link ResponseBuffer} the text is encoded directly into it.
+     * 
+     * @param response
+     *            The response to write to
+     * @param text
+     *            The text to write
+     * @throws IOException
+     *             if the encoding is not supported or the body cannot be written
+     */
+    protected void writeText(Http.Response response, CharSequence text) throws IOException {
+        if (response.out instanceof ResponseBuffer) {
+            ((ResponseBuffer) response.out).write(text, Charset.forName(getEncoding()));
+        } else {
+            response.out.write(text.toString().getBytes(getEncoding()));
+        }
+    }
+
 }
@@ -7,6 +7,7 @@ import com.jamonapi.Monitor;
 import com.jamonapi.MonitorFactory;
 import com.jamonapi.utils.Misc;
 import org.apache.commons.lang.StringUtils;
+import play.AdmissionControl;
 import play.Invoker;
 import play.Logger;
 import play.Play;
@@ -160,10 +161,16 @@ public class PlayStatusPlugin extends PlayPlugin {
         out.println();
         out.println("Requests execution pool:");
         out.println("~~~~~~~~~~~~~~~~~~~~~~~~");
-        out.println("Pool size: " + Invoker.executor.getPoolSize());
-        out.println("Active count: " + Invoker.executor.getActiveCount());
-        out.println("Scheduled task count: " + Invoker.executor.getTaskCount());
-        out.println("Queue size: " + Invoker.executor.getQueue().size());
+        out.println("Executor: " + Invoker.invocationExecutor.getClass().getSimpleName());
+        out.println("Pool size: " + Invoker.invocationExecutor.getPoolSize());
+        out.println("Active count: " + Invoker.invocationExecutor.getActiveCount());
+        out.println("Scheduled task count: " + Invoker.invocationExecutor.getTaskCount());
+        out.println("Queue size: " + Invoker.invocationExecutor.getQueueSize());
+        out.println("Last queue wait: " + AdmissionControl.getLastQueueWait() + " ms");
+        out.println("Average queue wait: " + String.format("%.2f", AdmissionControl.getAverageQueueWait()) + " ms");
+        out.println("Rejected requests: " + AdmissionControl.getRejected());
+        out.println("Suspended invocations: " + Invoker.WaitForTasksCompletion.getPending());
+        out.println("Average suspended wait: " + String.format("%.2f", Invoker.WaitForTasksCompletion.getAverageWait()) + " ms");
         out.println();
         try {
             out.println("Monitors:");
@@ -215,10 +222,16 @@ public class PlayStatusPlugin extends PlayPlugin {
 
         {
             JsonObject pool = new JsonObject();
-            pool.addProperty("size", Invoker.executor.getPoolSize());
-            pool.addProperty("active", Invoker.executor.getActiveCount());
-            pool.addProperty("scheduled", Invoker.executor.getTaskCount());
-            pool.addProperty("queue", Invoker.executor.getQueue().size());
+            pool.addProperty("executor", Invoker.invocationExecutor.getClass().getSimpleName());
+            pool.addProperty("size", Invoker.invocationExecutor.getPoolSize());
+            pool.addProperty("active", Invoker.invocationExecutor.getActiveCount());
+            pool.addProperty("scheduled", Invoker.invocationExecutor.getTaskCount());
+            pool.addProperty("queue", Invoker.invocationExecutor.getQueueSize());
+            pool.addProperty("lastQueueWait", AdmissionControl.getLastQueueWait());
+            pool.addProperty("averageQueueWait", AdmissionControl.getAverageQueueWait());
+            pool.addProperty("rejected", AdmissionControl.getRejected());
+            pool.addProperty("suspended", Invoker.WaitForTasksCompletion.getPending());
+            pool.addProperty("averageSuspendedWait", Invoker.WaitForTasksCompletion.getAverageWait());
             status.add("pool", pool);
         }
 
@@ -75,6 +75,11 @@ public class PluginCollection {
      */
     protected List<PlayPlugin> enabledPlugins_readOnlyCopy = createReadonlyCopy(enabledPlugins);
 
+    /**
+     * The enabled plugins that implement each of the hooks called on every request
+     */
+    private volatile Hooks hooks;
+
     /**
      * List of all enabled plugins with filters
      */
@@ -425,6 +430,20 @@ public class PluginCollection {
     @SuppressWarnings({ "deprecation" })
     public void updatePlayPluginsList() {
         Play.plugins = Collections.unmodifiableList(getEnabledPlugins());
+        hooks = new Hooks(getEnabledPlugins());
+    }
+
+    /**
+     * @return The dispatch tables of the enabled plugins, rebuilt if they have changed since
+     */
+    private Hooks hooks() {
+        List<PlayPlugin> plugins = getEnabledPlugins();
+        Hooks current = hooks;
+        if (current == null || current.plugins != plugins) {
+            current = new Hooks(plugins);
+            hooks = current;
+        }
+        return current;
     }
 
     /**
@@ -541,31 +560,31 @@ public class PluginCollection {
     }
 
     public void invocationFinally() {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().invocationFinally) {
             plugin.invocationFinally();
         }
     }
 
     public void beforeInvocation() {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().beforeInvocation) {
             plugin.beforeInvocation();
         }
     }
 
     public void afterInvocation() {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().afterInvocation) {
             plugin.afterInvocation();
         }
     }
 
     public void onInvocationSuccess() {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().onInvocationSuccess) {
             plugin.onInvocationSuccess();
         }
     }
 
     public void onInvocationException(Throwable e) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().onInvocationException) {
             try {
                 plugin.onInvocationException(e);
             } catch (Throwable ex) {
@@ -575,13 +594,13 @@ public class PluginCollection {
     }
 
     public void beforeDetectingChanges() {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().beforeDetectingChanges) {
             plugin.beforeDetectingChanges();
         }
     }
 
     public void detectChange() {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().detectChange) {
             plugin.detectChange();
         }
     }
@@ -626,7 +645,7 @@ public class PluginCollection {
     }
 
     public void onEvent(String message, Object context) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().onEvent) {
             plugin.onEvent(message, context);
         }
     }
@@ -662,7 +681,7 @@ public class PluginCollection {
     }
 
     public Object bind(RootParamNode rootParamNode, String name, Class<?> clazz, Type type, Annotation[] annotations) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().bind) {
             Object result = plugin.bind(rootParamNode, name, clazz, type, annotations);
             if (result != null) {
                 return result;
@@ -672,7 +691,7 @@ public class PluginCollection {
     }
 
     public Object bindBean(RootParamNode rootParamNode, String name, Object bean) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().bindBean) {
             Object result = plugin.bindBean(rootParamNode, name, bean);
             if (result != null) {
                 return result;
@@ -682,7 +701,7 @@ public class PluginCollection {
     }
 
     public Map<String, Object> unBind(Object src, String name) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().unBind) {
             Map<String, Object> r = plugin.unBind(src, name);
             if (r != null) {
                 return r;
@@ -692,7 +711,7 @@ public class PluginCollection {
     }
 
     public Object willBeValidated(Object value) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().willBeValidated) {
             Object newValue = plugin.willBeValidated(value);
             if (newValue != null) {
                 return newValue;
@@ -702,7 +721,7 @@ public class PluginCollection {
     }
 
     public Model.Factory modelFactory(Class<? extends Model> modelClass) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().modelFactory) {
             Model.Factory factory = plugin.modelFactory(modelClass);
             if (factory != null) {
                 return factory;
@@ -712,7 +731,7 @@ public class PluginCollection {
     }
 
     public String getMessage(String locale, Object key, Object... args) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().getMessage) {
             String message = plugin.getMessage(locale, key, args);
             if (message != null) {
                 return message;
@@ -722,37 +741,37 @@ public class PluginCollection {
     }
 
     public void beforeActionInvocation(Method actionMethod) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().beforeActionInvocation) {
             plugin.beforeActionInvocation(actionMethod);
         }
     }
 
     public void onActionInvocationResult(Result result) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().onActionInvocationResult) {
             plugin.onActionInvocationResult(result);
         }
     }
 
     public void afterActionInvocation() {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().afterActionInvocation) {
             plugin.afterActionInvocation();
         }
     }
 
     public void onActionInvocationFinally() {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().onActionInvocationFinally) {
             plugin.onActionInvocationFinally();
         }
     }
 
     public void routeRequest(Http.Request request) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().routeRequest) {
             plugin.routeRequest(request);
         }
     }
 
     public void onRequestRouting(Router.Route route) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().onRequestRouting) {
             plugin.onRequestRouting(route);
         }
     }
@@ -764,7 +783,7 @@ public class PluginCollection {
     }
 
     public boolean rawInvocation(Http.Request request, Http.Response response) throws Exception {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().rawInvocation) {
             if (plugin.rawInvocation(request, response)) {
                 return true;
             }
@@ -773,7 +792,7 @@ public class PluginCollection {
     }
 
     public boolean serveStatic(VirtualFile file, Http.Request request, Http.Response response) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().serveStatic) {
             if (plugin.serveStatic(file, request, response)) {
                 return true;
             }
@@ -790,7 +809,7 @@ public class PluginCollection {
     }
 
     public String overrideTemplateSource(BaseTemplate template, String source) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().overrideTemplateSource) {
             String newSource = plugin.overrideTemplateSource(template, source);
             if (newSource != null) {
                 source = newSource;
@@ -800,7 +819,7 @@ public class PluginCollection {
     }
 
     public Template loadTemplate(VirtualFile file) {
-        for (PlayPlugin plugin : getEnabledPlugins()) {
+        for (PlayPlugin plugin : hooks().loadTemplate) {
             Template pluginProvided = plugin.loadTemplate(file);
             if (pluginProvided != null) {
                 return pluginProvided;
@@ -848,4 +867,104 @@ public class PluginCollection {
 
         return allPluginTests;
     }
+
+    /**
+     * For each hook called on every request, the enabled plugins that override it, in order. The hooks no plugin
+     * overrides cost an empty loop.
+     */
+    private static final class Hooks {
+
+        final List<PlayPlugin> plugins;
+        final PlayPlugin[] invocationFinally;
+        final PlayPlugin[] beforeInvocation;
+        final PlayPlugin[] afterInvocation;
+        final PlayPlugin[] onInvocationSuccess;
+        final PlayPlugin[] onInvocationException;
+        final PlayPlugin[] beforeDetectingChanges;
+        final PlayPlugin[] detectChange;
+        final PlayPlugin[] onEvent;
+        final PlayPlugin[] bind;
+        final PlayPlugin[] bindBean;
+        final PlayPlugin[] unBind;
+        final PlayPlugin[] willBeValidated;
+        final PlayPlugin[] modelFactory;
+        final PlayPlugin[] getMessage;
+        final PlayPlugin[] beforeActionInvocation;
+        final PlayPlugin[] onActionInvocationResult;
+        final PlayPlugin[] afterActionInvocation;
+        final PlayPlugin[] onActionInvocationFinally;
+        final PlayPlugin[] routeRequest;
+        final PlayPlugin[] onRequestRouting;
+        final PlayPlugin[] rawInvocation;
+        final PlayPlugin[] serveStatic;
+        final PlayPlugin[] overrideTemplateSource;
+        final PlayPlugin[] loadTemplate;
+
+        @SuppressWarnings("deprecation")
+        Hooks(List<PlayPlugin> plugins) {
+            this.plugins = plugins;
+            invocationFinally = overriding("invocationFinally");
+            beforeInvocation = overriding("beforeInvocation");
+            afterInvocation = overriding("afterInvocation");
+            onInvocationSuccess = overriding("onInvocationSuccess");
+            onInvocationException = overriding("onInvocationException", Throwable.class);
+            beforeDetectingChanges = overriding("beforeDetectingChanges");
+            detectChange = overriding("detectChange");
+            onEvent = overriding("onEvent", String.class, Object.class);
+            // The default bind and bindBean call the deprecated ones
+            bind = overriding(
+                    hook("bind", RootParamNode.class, String.class, Class.class, Type.class, Annotation[].class),
+                    hook("bind", String.class, Class.class, Type.class, Annotation[].class, Map.class));
+            bindBean = overriding(hook("bindBean", RootParamNode.class, String.class, Object.class),
+                    hook("bind", String.class, Object.class, Map.class));
+            unBind = overriding("unBind", Object.class, String.class);
+            willBeValidated = overriding("willBeValidated", Object.class);
+            modelFactory = overriding("modelFactory", Class.class);
+            getMessage = overriding("getMessage", String.class, Object.class, Object[].class);
+            beforeActionInvocation = overriding("beforeActionInvocation", Method.class);
+            onActionInvocationResult = overriding("onActionInvocationResult", Result.class);
+            afterActionInvocation = overriding("afterActionInvocation");
+            onActionInvocationFinally = overriding("onActionInvocationFinally");
+            routeRequest = overriding("routeRequest", Http.Request.class);
+            onRequestRouting = overriding("onRequestRouting", Router.Route.class);
+            rawInvocation = overriding("rawInvocation", Http.Request.class, Http.Response.class);
+            serveStatic = overriding("serveStatic", VirtualFile.class, Http.Request.class, Http.Response.class);
+            overrideTemplateSource = overriding("overrideTemplateSource", BaseTemplate.class, String.class);
+            loadTemplate = overriding("loadTemplate", VirtualFile.class);
+        }
+
+        private static Method hook(String name, Class<?>... parameterTypes) {
+            try {
+                return PlayPlugin.class.getMethod(name, parameterTypes);
+            } catch (NoSuchMethodException e) {
+                throw new UnexpectedException("PlayPlugin has no hook " + name, e);
+            }
+        }
+
+        private PlayPlugin[] overriding(String name, Class<?>... parameterTypes) {
+            return overriding(hook(name, parameterTypes));
+        }
+
+        private PlayPlugin[] overriding(Method... hooks) {
+            List<PlayPlugin> overriding = new ArrayList<>();
+            for (PlayPlugin plugin : plugins) {
+                for (Method hook : hooks) {
+                    if (overrides(plugin, hook)) {
+                        overriding.add(plugin);
+                        break;
+                    }
+                }
+            }
+            return overriding.toArray(new PlayPlugin[overriding.size()]);
+        }
+
+        private static boolean overrides(PlayPlugin plugin, Method hook) {
+            try {
+                return plugin.getClass().getMethod(hook.getName(), hook.getParameterTypes()).getDeclaringClass() != PlayPlugin.class;
+            } catch (NoSuchMethodException e) {
+                // Can not happen: PlayPlugin has it
+                return true;
+            }
+        }
+    }
 }
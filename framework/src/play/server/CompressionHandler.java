@@ -0,0 +1,425 @@
+package play.server;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+
+import play.Play;
+
+/**
+ * Compresses the HTTP responses with gzip or deflate, as negotiated with the <code>Accept-Encoding</code> header of
+ * the request.
+ * <p>
+ * It goes between the <code>HttpResponseEncoder</code> and the <code>ChunkedWriteHandler</code> of the pipeline.
+ * Responses are compressed when their content type starts with one of <code>play.netty.compression.mimeTypes</code>
+ * and they are at least <code>play.netty.compression.minSize</code> bytes long. Chunked responses are compressed
+ * chunk by chunk, and the bodies written after the response headers (static files, streams) are sent as a chunked
+ * compressed stream. Responses that already have a <code>Content-Encoding</code>, partial contents and HEAD
+ * requests are left alone.
+ * </p>
+ * <p>
+ * Nothing is compressed unless <code>play.netty.compression</code> is true. The deflaters are pooled, up to
+ * <code>play.netty.compression.poolSize</code> of them.
+ * </p>
+ */
+public class CompressionHandler extends SimpleChannelHandler {
+
+    static final boolean ENABLED = Boolean.parseBoolean(configuration("play.netty.compression", "false"));
+    static final int LEVEL = Integer.parseInt(configuration("play.netty.compression.level", "6"));
+    static final int MIN_SIZE = Integer.parseInt(configuration("play.netty.compression.minSize", "1024"));
+    static final int BUFFER_SIZE = Integer.parseInt(configuration("play.netty.compression.bufferSize", "8192"));
+    static final int POOL_SIZE = Integer.parseInt(configuration("play.netty.compression.poolSize", "64"));
+    static final String[] MIME_TYPES = configuration("play.netty.compression.mimeTypes",
+            "text/,application/json,application/javascript,application/x-javascript,application/xml,application/xhtml+xml,application/rss+xml,application/atom+xml,image/svg+xml")
+                    .trim().split("\\s*,\\s*");
+
+    private static final Queue<Codec> gzipPool = new ConcurrentLinkedQueue<>();
+    private static final Queue<Codec> deflatePool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * Accepted encodings of the requests waiting for their response, empty for the requests that must not be
+     * compressed
+     */
+    private final Queue<String> acceptEncodings = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Encoder of the response being written, when its body comes after its headers
+     */
+    private Encoder encoder;
+
+    /**
+     * Bytes of the uncompressed body still expected, -1 when the body comes as HTTP chunks
+     */
+    private long remaining;
+
+    private static String configuration(String key, String defaultValue) {
+        if (Play.configuration == null) {
+            return defaultValue;
+        }
+        return Play.configuration.getProperty(key, defaultValue);
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        Object msg = e.getMessage();
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            String acceptEncoding = request.headers().get(HttpHeaders.Names.ACCEPT_ENCODING);
+            acceptEncodings.offer(acceptEncoding == null || request.getMethod().equals(HttpMethod.HEAD) ? "" : acceptEncoding);
+        }
+        ctx.sendUpstream(e);
+    }
+
+    @Override
+    public void writeRequested(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        Object msg = e.getMessage();
+        if (msg instanceof HttpResponse) {
+            HttpResponse response = (HttpResponse) msg;
+            if (response.getStatus().getCode() == 100) {
+                ctx.sendDownstream(e);
+                return;
+            }
+            release();
+            String acceptEncoding = acceptEncodings.poll();
+            if (ENABLED && compressible(response)) {
+                varyOnAcceptEncoding(response);
+                String encoding = acceptEncoding == null ? null : negotiate(acceptEncoding, "gzip", "deflate");
+                if (encoding != null) {
+                    writeResponse(ctx, e, response, encoding);
+                    return;
+                }
+            }
+            ctx.sendDownstream(e);
+        } else if (encoder != null && msg instanceof HttpChunk && remaining < 0) {
+            HttpChunk chunk = (HttpChunk) msg;
+            if (chunk.isLast()) {
+                writeLast(ctx, e, encoder.finish());
+            } else {
+                write(ctx, e, encoder.encode(chunk.getContent(), true));
+            }
+        } else if (encoder != null && msg instanceof ChannelBuffer && remaining >= 0) {
+            ChannelBuffer content = (ChannelBuffer) msg;
+            remaining -= content.readableBytes();
+            if (remaining <= 0) {
+                writeLast(ctx, e, ChannelBuffers.wrappedBuffer(encoder.encode(content, false), encoder.finish()));
+            } else {
+                write(ctx, e, encoder.encode(content, false));
+            }
+        } else {
+            ctx.sendDownstream(e);
+        }
+    }
+
+    private void writeResponse(ChannelHandlerContext ctx, MessageEvent e, HttpResponse response, String encoding) {
+        ChannelBuffer content = response.getContent();
+        response.headers().set(HttpHeaders.Names.CONTENT_ENCODING, encoding);
+        if (content.readable()) {
+            Encoder full = new Encoder(encoding);
+            ChannelBuffer compressed = ChannelBuffers.wrappedBuffer(full.encode(content, false), full.finish());
+            response.setContent(compressed);
+            HttpHeaders.setContentLength(response, compressed.readableBytes());
+        } else {
+            // The body follows: as HTTP chunks, or as buffers adding up to its Content-Length
+            encoder = new Encoder(encoding);
+            remaining = HttpHeaders.isTransferEncodingChunked(response) ? -1 : HttpHeaders.getContentLength(response);
+            response.headers().remove(HttpHeaders.Names.CONTENT_LENGTH);
+            response.headers().set(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        }
+        ctx.sendDownstream(e);
+    }
+
+    private static void write(ChannelHandlerContext ctx, MessageEvent e, ChannelBuffer compressed) {
+        if (compressed.readable()) {
+            Channels.write(ctx, e.getFuture(), new DefaultHttpChunk(compressed), e.getRemoteAddress());
+        } else {
+            // The deflater kept all of it
+            e.getFuture().setSuccess();
+        }
+    }
+
+    private void writeLast(ChannelHandlerContext ctx, MessageEvent e, ChannelBuffer compressed) {
+        encoder = null;
+        Channels.write(ctx, Channels.future(ctx.getChannel()), new DefaultHttpChunk(compressed), e.getRemoteAddress());
+        Channels.write(ctx, e.getFuture(), HttpChunk.LAST_CHUNK, e.getRemoteAddress());
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        release();
+        super.channelClosed(ctx, e);
+    }
+
+    private void release() {
+        if (encoder != null) {
+            encoder.release();
+            encoder = null;
+        }
+    }
+
+    private static boolean compressible(HttpResponse response) {
+        int status = response.getStatus().getCode();
+        if (status < 200 || status == 204 || status == 205 || status == 206 || status == 304) {
+            return false;
+        }
+        if (response.headers().contains(HttpHeaders.Names.CONTENT_ENCODING) || response.headers().contains(HttpHeaders.Names.CONTENT_RANGE)) {
+            return false;
+        }
+        String contentType = response.headers().get(HttpHeaders.Names.CONTENT_TYPE);
+        if (contentType == null || !compressibleType(contentType)) {
+            return false;
+        }
+        if (response.getContent().readable()) {
+            return response.getContent().readableBytes() >= MIN_SIZE;
+        }
+        return HttpHeaders.isTransferEncodingChunked(response) || HttpHeaders.getContentLength(response, 0) >= MIN_SIZE;
+    }
+
+    /**
+     * Adds Accept-Encoding to the Vary header of a response, merged with the headers it already varies on
+     */
+    static void varyOnAcceptEncoding(HttpResponse response) {
+        List<String> values = response.headers().getAll(HttpHeaders.Names.VARY);
+        StringBuilder vary = new StringBuilder();
+        for (String value : values) {
+            for (String name : value.split(",")) {
+                name = name.trim();
+                if (name.equals("*") || name.equalsIgnoreCase(HttpHeaders.Names.ACCEPT_ENCODING)) {
+                    return;
+                }
+                if (!name.isEmpty()) {
+                    vary.append(name).append(", ");
+                }
+            }
+        }
+        response.headers().set(HttpHeaders.Names.VARY, vary.append(HttpHeaders.Names.ACCEPT_ENCODING).toString());
+    }
+
+    static boolean compressibleType(String contentType) {
+        for (String type : MIME_TYPES) {
+            if (type.length() > 0 && contentType.regionMatches(true, 0, type, 0, type.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the encoding of the precompressed sibling of a static file (<code>file.br</code> or
+     * <code>file.gz</code>) to send instead of the file, if the request accepts it and it is not older than the file.
+     *
+     * @param file
+     *            The requested file
+     * @param nettyRequest
+     *            The request
+     * @return "br", "gzip" or null
+     */
+    static String precompressedEncoding(File file, HttpRequest nettyRequest) {
+        String acceptEncoding = nettyRequest.headers().get(HttpHeaders.Names.ACCEPT_ENCODING);
+        if (!ENABLED || acceptEncoding == null || nettyRequest.headers().contains(HttpHeaders.Names.RANGE)) {
+            return null;
+        }
+        List<String> available = new ArrayList<>(2);
+        for (String encoding : new String[] { "br", "gzip" }) {
+            File sibling = precompressedFile(file, encoding);
+            if (sibling.isFile() && sibling.lastModified() >= file.lastModified()) {
+                available.add(encoding);
+            }
+        }
+        if (available.isEmpty()) {
+            return null;
+        }
+        return negotiate(acceptEncoding, available.toArray(new String[available.size()]));
+    }
+
+    static File precompressedFile(File file, String encoding) {
+        return new File(file.getPath() + (encoding.equals("br") ? ".br" : ".gz"));
+    }
+
+    /**
+     * Picks the encoding with the highest quality in an <code>Accept-Encoding</code> header, the first of the
+     * supported ones on a tie.
+     *
+     * @param acceptEncoding
+     *            The header value
+     * @param supported
+     *            The supported encodings, by order of preference
+     * @return The encoding, or null if none is acceptable
+     */
+    static String negotiate(String acceptEncoding, String... supported) {
+        String best = null;
+        float bestQuality = 0;
+        for (String encoding : supported) {
+            float quality = -1;
+            float anyQuality = -1;
+            for (String part : acceptEncoding.split(",")) {
+                String[] params = part.split(";");
+                String name = params[0].trim();
+                float q = 1;
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            q = Float.parseFloat(param.substring(2));
+                        } catch (NumberFormatException ex) {
+                            q = 0;
+                        }
+                    }
+                }
+                if (name.equalsIgnoreCase(encoding)) {
+                    quality = q;
+                } else if (name.equals("*")) {
+                    anyQuality = q;
+                }
+            }
+            if (quality < 0) {
+                quality = anyQuality;
+            }
+            if (quality > bestQuality) {
+                best = encoding;
+                bestQuality = quality;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * A pooled deflater with its output buffer
+     */
+    private static final class Codec {
+
+        final Deflater deflater;
+        final byte[] buffer = new byte[BUFFER_SIZE];
+
+        Codec(boolean gzip) {
+            deflater = new Deflater(LEVEL, gzip);
+        }
+    }
+
+    /**
+     * Compresses one response body, with the gzip or zlib (deflate) format
+     */
+    static final class Encoder {
+
+        private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+        private final boolean gzip;
+        private final CRC32 crc;
+        private Codec codec;
+        private boolean started;
+        private long size;
+
+        Encoder(String encoding) {
+            gzip = encoding.equals("gzip");
+            crc = gzip ? new CRC32() : null;
+            Codec pooledCodec = (gzip ? gzipPool : deflatePool).poll();
+            if (pooledCodec != null) {
+                pooled.decrementAndGet();
+                codec = pooledCodec;
+            } else {
+                codec = new Codec(gzip);
+            }
+        }
+
+        /**
+         * @param content
+         *            The next part of the body
+         * @param flush
+         *            Whether the client must be able to decompress everything written so far
+         * @return The compressed data, possibly empty
+         */
+        ChannelBuffer encode(ChannelBuffer content, boolean flush) {
+            ChannelBuffer out = ChannelBuffers.dynamicBuffer(Math.min(Math.max(content.readableBytes() / 4, 64), BUFFER_SIZE));
+            header(out);
+            for (ByteBuffer input : content.toByteBuffers()) {
+                size += input.remaining();
+                if (gzip) {
+                    crc.update(input.duplicate());
+                }
+                codec.deflater.setInput(input);
+                deflate(out, Deflater.NO_FLUSH);
+            }
+            if (flush) {
+                deflate(out, Deflater.SYNC_FLUSH);
+            }
+            return out;
+        }
+
+        /**
+         * Ends the compressed stream and gives the deflater back to the pool.
+         *
+         * @return The last compressed data
+         */
+        ChannelBuffer finish() {
+            ChannelBuffer out = ChannelBuffers.dynamicBuffer(64);
+            header(out);
+            Deflater deflater = codec.deflater;
+            deflater.finish();
+            while (!deflater.finished()) {
+                int n = deflater.deflate(codec.buffer);
+                out.writeBytes(codec.buffer, 0, n);
+            }
+            if (gzip) {
+                int crcValue = (int) crc.getValue();
+                int isize = (int) size;
+                out.writeBytes(new byte[] { (byte) crcValue, (byte) (crcValue >> 8), (byte) (crcValue >> 16), (byte) (crcValue >> 24), (byte) isize,
+                        (byte) (isize >> 8), (byte) (isize >> 16), (byte) (isize >> 24) });
+            }
+            release();
+            return out;
+        }
+
+        private void header(ChannelBuffer out) {
+            if (gzip && !started) {
+                out.writeBytes(GZIP_HEADER);
+            }
+            started = true;
+        }
+
+        private void deflate(ChannelBuffer out, int flush) {
+            Deflater deflater = codec.deflater;
+            int n;
+            do {
+                n = deflater.deflate(codec.buffer, 0, codec.buffer.length, flush);
+                out.writeBytes(codec.buffer, 0, n);
+            } while (n == codec.buffer.length || (flush == Deflater.NO_FLUSH && !deflater.needsInput()));
+        }
+
+        /**
+         * Gives the deflater back to the pool, the encoder can not be used anymore.
+         */
+        void release() {
+            if (codec == null) {
+                return;
+            }
+            codec.deflater.reset();
+            if (pooled.incrementAndGet() <= POOL_SIZE) {
+                (gzip ? gzipPool : deflatePool).offer(codec);
+            } else {
+                pooled.decrementAndGet();
+                codec.deflater.end();
+            }
+            codec = null;
+        }
+    }
+}
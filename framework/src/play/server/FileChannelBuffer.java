@@ -15,7 +15,7 @@ import java.nio.channels.ScatteringByteChannel;
  */
 public class FileChannelBuffer extends AbstractChannelBuffer implements WrappedChannelBuffer {
 
-    private final FileInputStream is;
+    private final InputStream is;
 
 
     public FileChannelBuffer(File file) {
@@ -29,6 +29,17 @@ public class FileChannelBuffer extends AbstractChannelBuffer implements WrappedC
         }
     }
 
+    /**
+     * @param is
+     *            The body, as it is being received
+     */
+    public FileChannelBuffer(InputStream is) {
+        if (is == null) {
+            throw new NullPointerException("is");
+        }
+        this.is = is;
+    }
+
 
     public InputStream getInputStream() {
         return is;
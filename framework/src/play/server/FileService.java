@@ -29,7 +29,13 @@ import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
 public class FileService  {
 
     public static void serve(File localFile, HttpRequest nettyRequest, HttpResponse nettyResponse, ChannelHandlerContext ctx, Request request, Response response, Channel channel) throws FileNotFoundException {
-        RandomAccessFile raf = new RandomAccessFile(localFile, "r");
+        // Send the precompressed version of the file when there is one
+        String encoding = CompressionHandler.precompressedEncoding(localFile, nettyRequest);
+        RandomAccessFile raf = new RandomAccessFile(encoding == null ? localFile : CompressionHandler.precompressedFile(localFile, encoding), "r");
+        if (encoding != null) {
+            nettyResponse.headers().set(HttpHeaders.Names.CONTENT_ENCODING, encoding);
+            CompressionHandler.varyOnAcceptEncoding(nettyResponse);
+        }
         try {
             long fileLength = raf.length();
             
@@ -1,8 +1,6 @@
 package play.server;
 
-import org.apache.commons.io.IOUtils;
 import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.buffer.ChannelBufferInputStream;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.handler.codec.frame.TooLongFrameException;
@@ -15,10 +13,13 @@ import org.jboss.netty.handler.codec.http.websocketx.*;
 import org.jboss.netty.handler.stream.ChunkedInput;
 import org.jboss.netty.handler.stream.ChunkedStream;
 import org.jboss.netty.handler.stream.ChunkedWriteHandler;
+import play.AdmissionControl;
 import play.Invoker;
 import play.Invoker.InvocationContext;
 import play.Logger;
 import play.Play;
+import play.cache.CachedResponse;
+import play.cache.ResponseCache;
 import play.data.binding.CachedBoundActionMethodArgs;
 import play.data.validation.Validation;
 import play.exceptions.PlayException;
@@ -34,7 +35,9 @@ import play.mvc.results.NotFound;
 import play.mvc.results.RenderStatic;
 import play.templates.JavaExtensions;
 import play.templates.TemplateLoader;
+import play.utils.ByteBufferInputStream;
 import play.utils.HTTP;
+import play.utils.LazyMap;
 import play.utils.Utils;
 import play.vfs.VirtualFile;
 
@@ -132,7 +135,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 final Request request = parseRequest(ctx, nettyRequest, messageEvent);
 
                 // Buffered in memory output
-                response.out = new ByteArrayOutputStream();
+                response.out = new ResponseBuffer();
 
                 // Direct output (will be set later)
                 response.direct = null;
@@ -152,8 +155,15 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                     copyResponse(ctx, request, response, nettyRequest);
                 } else {
 
-                    // Delegate to Play framework
-                    Invoker.invoke(new NettyInvocation(request, response, ctx, nettyRequest, messageEvent));
+                    Priority.Lane lane = AdmissionControl.lane(request.method, request.path);
+                    if (!AdmissionControl.admit(lane)) {
+                        serve503(ctx, nettyRequest);
+                    } else {
+                        // Delegate to Play framework
+                        NettyInvocation invocation = new NettyInvocation(request, response, ctx, nettyRequest, messageEvent);
+                        invocation.lane = lane;
+                        Invoker.invoke(invocation);
+                    }
 
                 }
 
@@ -183,6 +193,8 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         private final Response response;
         private final HttpRequest nettyRequest;
         private final MessageEvent event;
+        private Priority.Lane lane = Priority.Lane.NORMAL;
+        private boolean suspended;
 
         public NettyInvocation(Request request, Response response, ChannelHandlerContext ctx, HttpRequest nettyRequest,
                                MessageEvent e) {
@@ -200,6 +212,15 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 Logger.trace("init: begin");
             }
 
+            if (isOverdue()) {
+                serve503(ctx, nettyRequest);
+                if (Logger.isTraceEnabled()) {
+                    Logger.trace("init: end false");
+                }
+                return false;
+            }
+            request.queueWait = getQueueWait();
+
             Request.current.set(request);
             Response.current.set(response);
 
@@ -228,6 +249,15 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 }
                 Router.routeOnlyStatic(request);
                 super.init();
+                // Served without invoking the action, before the invocation is executed
+                CachedResponse cached = ResponseCache.lookupBeforeInvocation(request);
+                if (cached != null) {
+                    serveCached(cached, ctx, request, response, nettyRequest);
+                    if (Logger.isTraceEnabled()) {
+                        Logger.trace("init: end false");
+                    }
+                    return false;
+                }
             } catch (NotFound nf) {
                 serve404(nf, ctx, request, nettyRequest);
                 if (Logger.isTraceEnabled()) {
@@ -253,6 +283,21 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             return true;
         }
 
+        @Override
+        public Priority.Lane getLane() {
+            return lane;
+        }
+
+        @Override
+        public void _finally() {
+            if (!suspended) {
+                // The action may not have been invoked to compute the response looked up. A suspended action still
+                // computes it once it is resumed.
+                ResponseCache.release(request);
+            }
+            super._finally();
+        }
+
         @Override
         public InvocationContext getInvocationContext() {
             ActionInvoker.resolve(request);
@@ -260,8 +305,15 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                     request.invokedMethod.getDeclaringClass().getAnnotations());
         }
 
+        @Override
+        public void suspend(Invoker.Suspend suspendRequest) {
+            suspended = true;
+            super.suspend(suspendRequest);
+        }
+
         @Override
         public void run() {
+            suspended = false;
             try {
                 if (Logger.isTraceEnabled()) {
                     Logger.trace("run: begin");
@@ -270,6 +322,14 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             } catch (Exception e) {
                 serve500(e, ctx, nettyRequest);
             }
+            if (!suspended && request.body instanceof StreamChunkAggregator.StreamedBody) {
+                // Discard what the action did not read, so that the client can be read from again
+                try {
+                    request.body.close();
+                } catch (IOException e) {
+                    // Ignore
+                }
+            }
             if (Logger.isTraceEnabled()) {
                 Logger.trace("run: end");
             }
@@ -391,23 +451,26 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             Logger.trace("writeResponse: begin");
         }
 
-        byte[] content = null;
-
         boolean keepAlive = isKeepAlive(nettyRequest);
+        int length = response.out.size();
+        // The chunks handed to Netty are moved out of the response, which is left empty rather than released under
+        // the plugins that still run. They go back to the pool once written.
+        final ResponseBuffer buffer = response.out instanceof ResponseBuffer ? ((ResponseBuffer) response.out).detach() : null;
+        ChannelBuffer buf;
         if (nettyRequest.getMethod().equals(HttpMethod.HEAD)) {
-            content = new byte[0];
+            buf = ChannelBuffers.EMPTY_BUFFER;
+        } else if (buffer != null) {
+            buf = buffer.toChannelBuffer();
         } else {
-            content = response.out.toByteArray();
+            buf = wrappedBuffer(response.out.toByteArray());
         }
-
-        ChannelBuffer buf = ChannelBuffers.copiedBuffer(content);
         nettyResponse.setContent(buf);
 
         if (!nettyResponse.getStatus().equals(HttpResponseStatus.NOT_MODIFIED)) {
             if (Logger.isTraceEnabled()) {
-                Logger.trace("writeResponse: content length [" + response.out.size() + "]");
+                Logger.trace("writeResponse: content length [" + length + "]");
             }
-            setContentLength(nettyResponse, response.out.size());
+            setContentLength(nettyResponse, length);
         }
 
         ChannelFuture f = null;
@@ -418,6 +481,19 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                     String.valueOf(keepAlive));
         }
 
+        if (buffer != null) {
+            if (f != null) {
+                f.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) {
+                        buffer.release();
+                    }
+                });
+            } else {
+                buffer.release();
+            }
+        }
+
         // Decide whether to close the connection or not.
         if (f != null && !keepAlive) {
             // Close the connection when the whole content is written out.
@@ -585,15 +661,13 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             Integer max = Integer.valueOf(Play.configuration.getProperty("play.netty.maxContentLength", "-1"));
 
             body = buffer.getInputStream();
-            if (!(max == -1 || body.available() < max)) {
+            if (!(max == -1 || body instanceof StreamChunkAggregator.StreamedBody || body.available() < max)) {
                 body = new ByteArrayInputStream(new byte[0]);
             }
 
         } else {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            IOUtils.copy(new ChannelBufferInputStream(b), out);
-            byte[] n = out.toByteArray();
-            body = new ByteArrayInputStream(n);
+            // A view of the received bytes, which the parsers decode without copying them first
+            body = new ByteBufferInputStream(b.toByteBuffer());
         }
 
         String host = nettyRequest.headers().get(HOST);
@@ -648,38 +722,37 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         return request;
     }
 
+    /**
+     * @return The headers of the request, which are only read as they are looked up
+     */
     protected static Map<String, Http.Header> getHeaders(HttpRequest nettyRequest) {
-        Map<String, Http.Header> headers = new HashMap<>(16);
+        return new RequestHeaders(nettyRequest.headers());
+    }
 
-        for (String key : nettyRequest.headers().names()) {
-            Http.Header hd = new Http.Header();
-            hd.name = key.toLowerCase();
-            hd.values = new ArrayList<>();
-            for (String next : nettyRequest.headers().getAll(key)) {
-                hd.values.add(next);
-            }
-            headers.put(hd.name, hd);
+    /**
+     * @return The cookies of the request, which are only decoded when they are first used
+     */
+    protected static Map<String, Http.Cookie> getCookies(HttpRequest nettyRequest) {
+        final String value = nettyRequest.headers().get(COOKIE);
+        if (value == null) {
+            return new HashMap<>(16);
         }
-
-        return headers;
+        return new LazyMap<>(() -> decodeCookies(value));
     }
 
-    protected static Map<String, Http.Cookie> getCookies(HttpRequest nettyRequest) {
+    private static Map<String, Http.Cookie> decodeCookies(String value) {
         Map<String, Http.Cookie> cookies = new HashMap<>(16);
-        String value = nettyRequest.headers().get(COOKIE);
-        if (value != null) {
-            Set<Cookie> cookieSet = ServerCookieDecoder.STRICT.decode(value);
-            if (cookieSet != null) {
-                for (Cookie cookie : cookieSet) {
-                    Http.Cookie playCookie = new Http.Cookie();
-                    playCookie.name = cookie.name();
-                    playCookie.path = cookie.path();
-                    playCookie.domain = cookie.domain();
-                    playCookie.secure = cookie.isSecure();
-                    playCookie.value = cookie.value();
-                    playCookie.httpOnly = cookie.isHttpOnly();
-                    cookies.put(playCookie.name, playCookie);
-                }
+        Set<Cookie> cookieSet = ServerCookieDecoder.STRICT.decode(value);
+        if (cookieSet != null) {
+            for (Cookie cookie : cookieSet) {
+                Http.Cookie playCookie = new Http.Cookie();
+                playCookie.name = cookie.name();
+                playCookie.path = cookie.path();
+                playCookie.domain = cookie.domain();
+                playCookie.secure = cookie.isSecure();
+                playCookie.value = cookie.value();
+                playCookie.httpOnly = cookie.isHttpOnly();
+                cookies.put(playCookie.name, playCookie);
             }
         }
         return cookies;
@@ -720,7 +793,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         String errorHtml = TemplateLoader.load("errors/404." + format).render(binding);
         try {
             byte[] bytes = errorHtml.getBytes(Response.current().encoding);
-            ChannelBuffer buf = ChannelBuffers.copiedBuffer(bytes);
+            ChannelBuffer buf = wrappedBuffer(bytes);
             setContentLength(nettyResponse, bytes.length);
             nettyResponse.setContent(buf);
             ChannelFuture writeFuture = ctx.getChannel().write(nettyResponse);
@@ -733,6 +806,32 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
+    /**
+     * Turns a request away because the application is too busy, without going through the invocation pool.
+     *
+     * @param ctx
+     *            The channel context
+     * @param nettyRequest
+     *            The request
+     */
+    public static void serve503(ChannelHandlerContext ctx, HttpRequest nettyRequest) {
+        if (Logger.isTraceEnabled()) {
+            Logger.trace("serve503: %s %s", nettyRequest.getMethod(), nettyRequest.getUri());
+        }
+        HttpResponse nettyResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.SERVICE_UNAVAILABLE);
+        if (exposePlayServer) {
+            nettyResponse.headers().set(SERVER, signature);
+        }
+        nettyResponse.headers().set(RETRY_AFTER, AdmissionControl.retryAfter);
+        nettyResponse.headers().set(CONTENT_TYPE, "text/plain");
+        // Closing the connection also stops any other request it has in the pipeline
+        nettyResponse.headers().set(CONNECTION, HttpHeaders.Values.CLOSE);
+        byte[] bytes = HttpResponseStatus.SERVICE_UNAVAILABLE.getReasonPhrase().getBytes();
+        setContentLength(nettyResponse, bytes.length);
+        nettyResponse.setContent(wrappedBuffer(bytes));
+        ctx.getChannel().write(nettyResponse).addListener(ChannelFutureListener.CLOSE);
+    }
+
     protected static Map<String, Object> getBindingForErrors(Exception e, boolean isError) {
 
         Map<String, Object> binding = new HashMap<>();
@@ -770,6 +869,13 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         Request request = Request.current();
         Response response = Response.current();
 
+        if (response != null && response.direct instanceof LazyChunkedInput) {
+            // Part of a chunked response is already sent, all we can do is to cut it short
+            Logger.error(e, "Error after the response was committed, closing the connection");
+            ctx.getChannel().close();
+            return;
+        }
+
         String encoding = response.encoding;
 
         try {
@@ -812,7 +918,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 String errorHtml = TemplateLoader.load("errors/500." + format).render(binding);
 
                 byte[] bytes = errorHtml.getBytes(encoding);
-                ChannelBuffer buf = ChannelBuffers.copiedBuffer(bytes);
+                ChannelBuffer buf = wrappedBuffer(bytes);
                 setContentLength(nettyResponse, bytes.length);
                 nettyResponse.setContent(buf);
                 ChannelFuture writeFuture = ctx.getChannel().write(nettyResponse);
@@ -824,7 +930,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 try {
                     String errorHtml = "Internal Error (check logs)";
                     byte[] bytes = errorHtml.getBytes(encoding);
-                    ChannelBuffer buf = ChannelBuffers.copiedBuffer(bytes);
+                    ChannelBuffer buf = wrappedBuffer(bytes);
                     setContentLength(nettyResponse, bytes.length);
                     nettyResponse.setContent(buf);
                     ChannelFuture writeFuture = ctx.getChannel().write(nettyResponse);
@@ -837,7 +943,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             try {
                 String errorHtml = "Internal Error (check logs)";
                 byte[] bytes = errorHtml.getBytes(encoding);
-                ChannelBuffer buf = ChannelBuffers.copiedBuffer(bytes);
+                ChannelBuffer buf = wrappedBuffer(bytes);
                 setContentLength(nettyResponse, bytes.length);
                 nettyResponse.setContent(buf);
                 ChannelFuture writeFuture = ctx.getChannel().write(nettyResponse);
@@ -855,6 +961,23 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
+    public void serveCached(CachedResponse cached, ChannelHandlerContext ctx, Request request, Response response,
+                            HttpRequest nettyRequest) {
+        if (Logger.isTraceEnabled()) {
+            Logger.trace("serveCached: begin");
+        }
+        try {
+            cached.writeTo(request, response);
+            copyResponse(ctx, request, response, nettyRequest);
+        } catch (Exception e) {
+            Logger.error(e, "serveCached for request %s", request.method + " " + request.url);
+            serve500(e, ctx, nettyRequest);
+        }
+        if (Logger.isTraceEnabled()) {
+            Logger.trace("serveCached: end");
+        }
+    }
+
     public void serveStatic(RenderStatic renderStatic, ChannelHandlerContext ctx, Request request, Response response,
                             HttpRequest nettyRequest, MessageEvent e) {
         if (Logger.isTraceEnabled()) {
@@ -908,7 +1031,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                         HttpResponseStatus.INTERNAL_SERVER_ERROR);
                 String errorHtml = "Internal Error (check logs)";
                 byte[] bytes = errorHtml.getBytes(response.encoding);
-                ChannelBuffer buf = ChannelBuffers.copiedBuffer(bytes);
+                ChannelBuffer buf = wrappedBuffer(bytes);
                 setContentLength(nettyResponse, bytes.length);
                 errorResponse.setContent(buf);
                 ChannelFuture future = ctx.getChannel().write(errorResponse);
@@ -973,7 +1096,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
     static class LazyChunkedInput implements org.jboss.netty.handler.stream.ChunkedInput {
 
         private boolean closed = false;
-        private ConcurrentLinkedQueue<byte[]> nextChunks = new ConcurrentLinkedQueue<>();
+        private ConcurrentLinkedQueue<HttpChunk> nextChunks = new ConcurrentLinkedQueue<>();
 
         @Override
         public boolean hasNextChunk() throws Exception {
@@ -985,7 +1108,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             if (nextChunks.isEmpty()) {
                 return null;
             }
-            return wrappedBuffer(nextChunks.poll());
+            return nextChunks.poll();
         }
 
         @Override
@@ -996,7 +1119,7 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
         @Override
         public void close() throws Exception {
             if (!closed) {
-                nextChunks.offer("0\r\n\r\n".getBytes());
+                nextChunks.offer(HttpChunk.LAST_CHUNK);
             }
             closed = true;
         }
@@ -1006,6 +1129,13 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 throw new Exception("HTTP output stream closed");
             }
 
+            if (chunk instanceof ChannelBuffer) {
+                ChannelBuffer buffer = (ChannelBuffer) chunk;
+                if (buffer.readable()) {
+                    nextChunks.offer(new DefaultHttpChunk(buffer));
+                }
+                return;
+            }
             byte[] bytes;
             if (chunk instanceof byte[]) {
                 bytes = (byte[]) chunk;
@@ -1014,13 +1144,10 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 bytes = message.getBytes(Response.current().encoding);
             }
 
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            byteStream.write(Integer.toHexString(bytes.length).getBytes());
-            byte[] crlf = new byte[] { (byte) '\r', (byte) '\n' };
-            byteStream.write(crlf);
-            byteStream.write(bytes);
-            byteStream.write(crlf);
-            nextChunks.offer(byteStream.toByteArray());
+            if (bytes.length > 0) {
+                // The HttpResponseEncoder frames the chunks (an empty one would end the response)
+                nextChunks.offer(new DefaultHttpChunk(wrappedBuffer(bytes)));
+            }
         }
     }
 
@@ -1123,21 +1250,16 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
             return;
         }
 
-        // Inbound
-        Http.Inbound inbound = new Http.Inbound(ctx) {
-
-            @Override
-            public boolean isOpen() {
-                return ctx.getChannel().isOpen();
-            }
-        };
-        channels.put(ctx, inbound);
-
         // Outbound
         Http.Outbound outbound = new Http.Outbound() {
 
             final List<ChannelFuture> writeFutures = Collections.synchronizedList(new ArrayList<ChannelFuture>());
             Promise<Void> closeTask;
+            /**
+             * The frames held until the holds are flushed, or the frames already encoded
+             */
+            final List<Object> held = new ArrayList<>();
+            int holds;
 
             synchronized void writeAndClose(ChannelFuture writeFuture) {
                 if (!writeFuture.isDone()) {
@@ -1159,12 +1281,43 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 }
             }
 
+            synchronized void write(Object frame) {
+                if (holds > 0) {
+                    held.add(frame);
+                } else {
+                    writeAndClose(ctx.getChannel().write(frame));
+                }
+            }
+
+            void writeHeld() {
+                if (held.size() == 1 || handshaker.getVersion() == WebSocketVersion.V00) {
+                    for (Object frame : held) {
+                        writeAndClose(ctx.getChannel().write(frame));
+                    }
+                } else {
+                    writeAndClose(ctx.getChannel().write(encodeFrames(held)));
+                }
+                held.clear();
+            }
+
+            @Override
+            public synchronized void hold() {
+                holds++;
+            }
+
+            @Override
+            public synchronized void flush() {
+                if (holds > 0 && --holds == 0 && !held.isEmpty() && ctx.getChannel().isOpen()) {
+                    writeHeld();
+                }
+            }
+
             @Override
             public void send(String data) {
                 if (!isOpen()) {
                     throw new IllegalStateException("The outbound channel is closed");
                 }
-                writeAndClose(ctx.getChannel().write(new TextWebSocketFrame(data)));
+                write(new TextWebSocketFrame(data));
             }
 
             @Override
@@ -1173,7 +1326,24 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                     throw new IllegalStateException("The outbound channel is closed");
                 }
 
-                writeAndClose(ctx.getChannel().write(new BinaryWebSocketFrame(wrappedBuffer(data, offset, length))));
+                write(new BinaryWebSocketFrame(wrappedBuffer(data, offset, length)));
+            }
+
+            @Override
+            public void send(Http.WebSocketFrame frame) {
+                if (handshaker.getVersion() == WebSocketVersion.V00) {
+                    super.send(frame);
+                    return;
+                }
+                if (!isOpen()) {
+                    throw new IllegalStateException("The outbound channel is closed");
+                }
+                write(frame.encoded(PlayHandler::encodeFrame).duplicate());
+            }
+
+            @Override
+            public boolean isWritable() {
+                return ctx.getChannel().isWritable();
             }
 
             @Override
@@ -1183,6 +1353,10 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
 
             @Override
             public synchronized void close() {
+                if (!held.isEmpty()) {
+                    writeHeld();
+                }
+                holds = 0;
                 closeTask = new Promise<>();
                 closeTask.onRedeem(new Action<Promise<Void>>() {
 
@@ -1196,6 +1370,23 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
                 futureClose();
             }
         };
+
+        // Inbound
+        Http.Inbound inbound = new Http.Inbound(ctx) {
+
+            @Override
+            public boolean isOpen() {
+                return ctx.getChannel().isOpen();
+            }
+
+            @Override
+            protected void dispatch(Runnable task) {
+                // The events of an open socket are not admitted again, nor counted in the queue of the requests
+                Invoker.invocationExecutor.submit(new WebSocketEventsInvocation(request, this, outbound, ctx, task));
+            }
+        };
+        channels.put(ctx, inbound);
+
         Logger.trace("invoking");
 
         Invoker.invoke(new WebSocketInvocation(route, request, inbound, outbound, ctx, messageEvent));
@@ -1259,8 +1450,102 @@ public class PlayHandler extends SimpleChannelUpstreamHandler {
 
         @Override
         public void onSuccess() throws Exception {
-            outbound.close();
+            if (!inbound.isHandled()) {
+                outbound.close();
+            }
             super.onSuccess();
         }
     }
+
+    /**
+     * Handles the events of a WebSocket queued for its {@link play.mvc.WebSocketHandler}
+     */
+    static class WebSocketEventsInvocation extends Invoker.Invocation {
+
+        final Http.Request request;
+        final Http.Inbound inbound;
+        final Http.Outbound outbound;
+        final ChannelHandlerContext ctx;
+        final Runnable task;
+
+        WebSocketEventsInvocation(Http.Request request, Http.Inbound inbound, Http.Outbound outbound,
+                                  ChannelHandlerContext ctx, Runnable task) {
+            this.request = request;
+            this.inbound = inbound;
+            this.outbound = outbound;
+            this.ctx = ctx;
+            this.task = task;
+        }
+
+        @Override
+        public boolean init() {
+            Http.Request.current.set(request);
+            Http.Inbound.current.set(inbound);
+            Http.Outbound.current.set(outbound);
+            return super.init();
+        }
+
+        @Override
+        public InvocationContext getInvocationContext() {
+            return new InvocationContext(Http.invocationType, request.invokedMethod.getAnnotations(),
+                    request.invokedMethod.getDeclaringClass().getAnnotations());
+        }
+
+        @Override
+        public void execute() throws Exception {
+            task.run();
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            Logger.error(e, "Internal Server Error in WebSocket (closing the socket) for request %s",
+                    request.method + " " + request.url);
+            ctx.getChannel().close();
+            super.onException(e);
+        }
+    }
+
+    /**
+     * Encodes WebSocket frames (RFC 6455, as sent by a server) into a single buffer, to write them at once
+     *
+     * @param frames
+     *            The frames, or buffers of frames already encoded
+     */
+    static ChannelBuffer encodeFrames(List<?> frames) {
+        int size = 0;
+        for (Object frame : frames) {
+            size += frame instanceof ChannelBuffer ? ((ChannelBuffer) frame).readableBytes()
+                    : 10 + ((WebSocketFrame) frame).getBinaryData().readableBytes();
+        }
+        ChannelBuffer encoded = ChannelBuffers.buffer(size);
+        for (Object item : frames) {
+            if (item instanceof ChannelBuffer) {
+                ChannelBuffer buffer = (ChannelBuffer) item;
+                encoded.writeBytes(buffer, buffer.readerIndex(), buffer.readableBytes());
+                continue;
+            }
+            WebSocketFrame frame = (WebSocketFrame) item;
+            ChannelBuffer data = frame.getBinaryData();
+            int length = data.readableBytes();
+            // FIN, then the opcode
+            encoded.writeByte(0x80 | (frame instanceof TextWebSocketFrame ? 0x1 : 0x2));
+            if (length < 126) {
+                encoded.writeByte(length);
+            } else if (length <= 0xFFFF) {
+                encoded.writeByte(126);
+                encoded.writeShort(length);
+            } else {
+                encoded.writeByte(127);
+                encoded.writeLong(length);
+            }
+            encoded.writeBytes(data, data.readerIndex(), length);
+        }
+        return encoded;
+    }
+
+    static ChannelBuffer encodeFrame(Http.WebSocketFrame frame) {
+        WebSocketFrame encoded = frame.isBinary ? new BinaryWebSocketFrame(wrappedBuffer(frame.binaryData))
+                : new TextWebSocketFrame(frame.textData);
+        return encodeFrames(Collections.singletonList(encoded));
+    }
 }
\ No newline at end of file
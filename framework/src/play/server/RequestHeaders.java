@@ -0,0 +1,85 @@
+package play.server;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+
+import play.mvc.Http;
+import play.utils.LazyMap;
+
+/**
+ * The headers of a request, by lower-case name, read from the Netty headers as they are looked up.
+ * <p>
+ * Looking a header up only reads that one. The whole map is built the first time it is changed or iterated.
+ * </p>
+ */
+class RequestHeaders extends LazyMap<String, Http.Header> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient HttpHeaders headers;
+    /**
+     * The headers looked up before the map is built, which it keeps
+     */
+    private transient Map<String, Http.Header> read;
+
+    RequestHeaders(HttpHeaders headers) {
+        this.headers = headers;
+    }
+
+    @Override
+    protected Map<String, Http.Header> load() {
+        Map<String, Http.Header> all = new HashMap<>(16);
+        for (String key : headers.names()) {
+            String name = key.toLowerCase();
+            Http.Header header = read != null ? read.get(name) : null;
+            if (header == null) {
+                header = new Http.Header(name, headers.getAll(key));
+            }
+            all.put(name, header);
+        }
+        read = null;
+        return all;
+    }
+
+    @Override
+    public Http.Header get(Object key) {
+        if (isLoaded() || !(key instanceof String)) {
+            return super.get(key);
+        }
+        String name = (String) key;
+        Http.Header header = read != null ? read.get(name) : null;
+        if (header == null && isLowerCase(name)) {
+            List<String> values = headers.getAll(name);
+            if (!values.isEmpty()) {
+                header = new Http.Header(name, values);
+                if (read == null) {
+                    read = new HashMap<>(8);
+                }
+                read.put(name, header);
+            }
+        }
+        return header;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (isLoaded() || !(key instanceof String)) {
+            return super.containsKey(key);
+        }
+        String name = (String) key;
+        return isLowerCase(name) && headers.contains(name);
+    }
+
+    private static boolean isLowerCase(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.toLowerCase(c) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
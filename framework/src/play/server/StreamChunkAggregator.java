@@ -1,23 +1,58 @@
 package play.server;
 
-import org.apache.commons.io.IOUtils;
-import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.handler.codec.http.HttpChunk;
 import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpMessage;
+import play.Logger;
 import play.Play;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Aggregates the chunks of a chunked request into its body.
+ * <p>
+ * Bodies up to <code>play.netty.requestBody.memoryThreshold</code> bytes (default 65536) are kept in memory, as the
+ * chunks received. Larger ones are spilled to a file of <code>Play.tmpDir</code>, through a pooled direct buffer so
+ * that the file is written in large blocks whatever the size of the chunks.
+ * </p>
+ * <p>
+ * With <code>play.netty.requestBody.streaming=true</code>, the request is handed over as soon as its headers are
+ * received, and <code>request.body</code> is fed with the chunks as they arrive: reading it blocks until the next
+ * chunk comes. The client is not read from while more than the memory threshold is waiting to be read. What the
+ * action does not read is discarded once its invocation completes.
+ * </p>
+ */
 public class StreamChunkAggregator extends SimpleChannelUpstreamHandler {
 
-    private volatile HttpMessage currentMessage;
-    private volatile OutputStream out;
     private static final int maxContentLength = Integer.valueOf(Play.configuration.getProperty("play.netty.maxContentLength", "-1"));
+    static final int memoryThreshold = Integer.parseInt(Play.configuration.getProperty("play.netty.requestBody.memoryThreshold", "65536"));
+    static final boolean streaming = Boolean.parseBoolean(Play.configuration.getProperty("play.netty.requestBody.streaming", "false"));
+
+    private static final int SPILL_BUFFER_SIZE = 65536;
+    private static final int SPILL_POOL_SIZE = 64;
+    private static final ConcurrentLinkedQueue<ByteBuffer> spillBuffers = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledSpillBuffers = new AtomicInteger();
+
+    private volatile HttpMessage currentMessage;
+    private volatile long length;
+    private volatile boolean exceeded;
+    private final List<ChannelBuffer> chunks = new ArrayList<>();
     private volatile File file;
+    private volatile FileChannel out;
+    private volatile ByteBuffer spill;
+    private volatile StreamedBody stream;
 
     /**
      * Creates a new instance.
@@ -33,11 +68,9 @@ public class StreamChunkAggregator extends SimpleChannelUpstreamHandler {
         }
 
         HttpMessage currentMessage = this.currentMessage;
-        File localFile = this.file;
         if (currentMessage == null) {
             HttpMessage m = (HttpMessage) msg;
             if (m.isChunked()) {
-                String localName = UUID.randomUUID().toString();
                 // A chunked message - remove 'Transfer-Encoding' header,
                 // initialize the cumulative buffer, and wait for incoming chunks.
                 List<String> encodings = m.headers().getAll(HttpHeaders.Names.TRANSFER_ENCODING);
@@ -45,40 +78,285 @@ public class StreamChunkAggregator extends SimpleChannelUpstreamHandler {
                 if (encodings.isEmpty()) {
                     m.headers().remove(HttpHeaders.Names.TRANSFER_ENCODING);
                 }
+                m.setChunked(false);
                 this.currentMessage = m;
-                this.file = new File(Play.tmpDir, localName);
-                this.out = new FileOutputStream(file, true);
+                this.length = 0;
+                this.exceeded = false;
+                if (streaming) {
+                    this.stream = new StreamedBody(ctx.getChannel(), memoryThreshold);
+                    m.setContent(new FileChannelBuffer(stream));
+                    Channels.fireMessageReceived(ctx, m, e.getRemoteAddress());
+                }
             } else {
                 // Not a chunked message - pass through.
                 ctx.sendUpstream(e);
             }
-        } else {
-            // TODO: If less that threshold then in memory
-            // Merge the received chunk into the content of the current message.
-            HttpChunk chunk = (HttpChunk) msg;
-            if (maxContentLength != -1 && (localFile.length() > (maxContentLength - chunk.getContent().readableBytes()))) {
-                currentMessage.headers().set(HttpHeaders.Names.WARNING, "play.netty.content.length.exceeded");
+            return;
+        }
+
+        // Merge the received chunk into the content of the current message.
+        HttpChunk chunk = (HttpChunk) msg;
+        ChannelBuffer content = chunk.getContent();
+        int size = content.readableBytes();
+        if (!exceeded && maxContentLength != -1 && length > maxContentLength - size) {
+            exceeded = true;
+            currentMessage.headers().set(HttpHeaders.Names.WARNING, "play.netty.content.length.exceeded");
+            if (stream != null) {
+                stream.fail(new IOException("The request body exceeds play.netty.maxContentLength"));
+            }
+            discard();
+        }
+        length += size;
+        if (!exceeded && size > 0) {
+            if (stream != null) {
+                stream.offer(content);
+            } else if (out != null) {
+                write(content);
+            } else if (length > memoryThreshold) {
+                spill();
+                write(content);
             } else {
-                IOUtils.copyLarge(new ChannelBufferInputStream(chunk.getContent()), this.out);
-
-                if (chunk.isLast()) {
-                    this.out.flush();
-                    this.out.close();
-
-                    currentMessage.headers().set(
-                            HttpHeaders.Names.CONTENT_LENGTH,
-                            String.valueOf(localFile.length()));
-
-                    currentMessage.setContent(new FileChannelBuffer(localFile));
-                    this.out = null;
-                    this.currentMessage = null;
-                    this.file.delete();
-                    this.file = null;
-                    Channels.fireMessageReceived(ctx, currentMessage, e.getRemoteAddress());
+                chunks.add(content);
+            }
+        }
+
+        if (chunk.isLast()) {
+            this.currentMessage = null;
+            if (stream != null) {
+                stream.finish();
+                stream = null;
+                return;
+            }
+            currentMessage.headers().set(HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(length));
+            if (exceeded) {
+                currentMessage.setContent(ChannelBuffers.EMPTY_BUFFER);
+            } else if (out != null) {
+                flush();
+                // The body stays readable once its file is deleted
+                currentMessage.setContent(new FileChannelBuffer(file));
+                discard();
+            } else {
+                currentMessage.setContent(ChannelBuffers.wrappedBuffer(chunks.toArray(new ChannelBuffer[chunks.size()])));
+                chunks.clear();
+            }
+            Channels.fireMessageReceived(ctx, currentMessage, e.getRemoteAddress());
+        }
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        if (stream != null) {
+            stream.fail(new EOFException("The connection was closed before the end of the request body"));
+            stream = null;
+        }
+        discard();
+        currentMessage = null;
+        super.channelClosed(ctx, e);
+    }
+
+    /**
+     * Moves the body to a file, once it grows past the memory threshold
+     */
+    private void spill() throws IOException {
+        file = new File(Play.tmpDir, UUID.randomUUID().toString());
+        out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        spill = acquireSpillBuffer();
+        for (ChannelBuffer chunk : chunks) {
+            write(chunk);
+        }
+        chunks.clear();
+    }
+
+    private void write(ChannelBuffer content) throws IOException {
+        while (content.readable()) {
+            if (!spill.hasRemaining()) {
+                flush();
+            }
+            int n = Math.min(spill.remaining(), content.readableBytes());
+            int limit = spill.limit();
+            spill.limit(spill.position() + n);
+            content.readBytes(spill);
+            spill.limit(limit);
+        }
+    }
+
+    private void flush() throws IOException {
+        spill.flip();
+        while (spill.hasRemaining()) {
+            out.write(spill);
+        }
+        spill.clear();
+    }
+
+    /**
+     * Drops what has been aggregated so far
+     */
+    private void discard() {
+        chunks.clear();
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                Logger.warn(ex, "Cannot close %s", file);
+            }
+            out = null;
+            file.delete();
+            file = null;
+        }
+        if (spill != null) {
+            releaseSpillBuffer(spill);
+            spill = null;
+        }
+    }
+
+    private static ByteBuffer acquireSpillBuffer() {
+        ByteBuffer buffer = spillBuffers.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(SPILL_BUFFER_SIZE);
+        }
+        pooledSpillBuffers.decrementAndGet();
+        return buffer;
+    }
+
+    private static void releaseSpillBuffer(ByteBuffer buffer) {
+        if (pooledSpillBuffers.incrementAndGet() <= SPILL_POOL_SIZE) {
+            buffer.clear();
+            spillBuffers.offer(buffer);
+        } else {
+            pooledSpillBuffers.decrementAndGet();
+        }
+    }
+
+    /**
+     * A request body read as its chunks are received.
+     * <p>
+     * Reading the channel is suspended while more than <code>maxBuffered</code> bytes wait to be read, and resumed
+     * once half of them have been. Closing the body discards the rest of it.
+     * </p>
+     */
+    static final class StreamedBody extends InputStream {
+
+        private final Channel channel;
+        private final int maxBuffered;
+        private final ArrayDeque<ChannelBuffer> chunks = new ArrayDeque<>();
+        private int buffered;
+        private boolean finished;
+        private boolean closed;
+        private boolean suspended;
+        private IOException failure;
+
+        StreamedBody(Channel channel, int maxBuffered) {
+            this.channel = channel;
+            this.maxBuffered = maxBuffered;
+        }
+
+        synchronized void offer(ChannelBuffer chunk) {
+            if (closed) {
+                return;
+            }
+            chunks.add(chunk);
+            buffered += chunk.readableBytes();
+            if (buffered > maxBuffered && !suspended) {
+                suspended = true;
+                channel.setReadable(false);
+            }
+            notifyAll();
+        }
+
+        synchronized void finish() {
+            finished = true;
+            notifyAll();
+        }
+
+        synchronized void fail(IOException e) {
+            failure = e;
+            chunks.clear();
+            buffered = 0;
+            resume();
+            notifyAll();
+        }
+
+        private ChannelBuffer next() throws IOException {
+            while (true) {
+                if (closed) {
+                    throw new IOException("The request body is closed");
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+                ChannelBuffer chunk = chunks.peek();
+                if (chunk != null) {
+                    return chunk;
                 }
+                if (finished) {
+                    return null;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+
+        private void consumed(ChannelBuffer chunk, int n) {
+            buffered -= n;
+            if (!chunk.readable()) {
+                chunks.poll();
+            }
+            if (suspended && buffered <= maxBuffered / 2) {
+                resume();
             }
         }
 
+        private void resume() {
+            if (suspended) {
+                suspended = false;
+                channel.setReadable(true);
+            }
+        }
+
+        @Override
+        public synchronized int read() throws IOException {
+            ChannelBuffer chunk = next();
+            if (chunk == null) {
+                return -1;
+            }
+            int b = chunk.readByte() & 0xff;
+            consumed(chunk, 1);
+            return b;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            ChannelBuffer chunk = next();
+            if (chunk == null) {
+                return -1;
+            }
+            int n = Math.min(len, chunk.readableBytes());
+            chunk.readBytes(b, off, n);
+            consumed(chunk, n);
+            return n;
+        }
+
+        @Override
+        public synchronized int available() {
+            return buffered;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                chunks.clear();
+                buffered = 0;
+                resume();
+                notifyAll();
+            }
+        }
     }
 }
-
@@ -1,6 +1,5 @@
 package play.templates;
 
-import java.io.File;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -14,7 +13,6 @@ import play.exceptions.TagInternalException;
 import play.exceptions.TemplateExecutionException;
 import play.exceptions.TemplateExecutionException.DoBodyException;
 import play.libs.Codec;
-import play.libs.IO;
 
 public abstract class BaseTemplate extends Template {
 
@@ -37,9 +35,7 @@ public abstract class BaseTemplate extends Template {
 
     public void loadPrecompiled() {
         try {
-            File file = Play.getFile("precompiled/templates/" + name);
-            byte[] code = IO.readContent(file);
-            directLoad(code);
+            directLoad(PrecompiledTemplates.get(name));
         } catch (Exception e) {
             throw new RuntimeException("Cannot load precompiled template " + name, e);
         }
@@ -36,19 +36,24 @@ import play.utils.HTML;
 public class FastTags {
 
     public static void _cache(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
-        String key = args.get("arg").toString();
+        StringBuilder key = new StringBuilder(args.get("arg").toString());
         String duration = null;
         if (args.containsKey("for")) {
             duration = args.get("for").toString();
         }
-        Object cached = Cache.get(key);
-        if (cached != null) {
-            out.print(cached);
-            return;
+        Object vary = args.get("vary");
+        if (vary instanceof Collection) {
+            for (Object value : (Collection<?>) vary) {
+                key.append('|').append(value);
+            }
+        } else if (vary instanceof Object[]) {
+            for (Object value : (Object[]) vary) {
+                key.append('|').append(value);
+            }
+        } else if (vary != null) {
+            key.append('|').append(vary);
         }
-        String result = JavaExtensions.toString(body);
-        Cache.set(key, result, duration);
-        out.print(result);
+        out.print(Cache.get(key.toString(), duration, () -> JavaExtensions.toString(body)));
     }
 
     public static void _verbatim(Map<?, ?> args, Closure body, PrintWriter out, ExecutableTemplate template, int fromLine) {
@@ -382,6 +387,10 @@ public class FastTags {
                 throw new TemplateExecutionException(template.template, fromLine, "Specify a template name", new TagInternalException(
                         "Specify a template name"));
             }
+            if (out instanceof StreamingTemplateWriter && ((StreamingTemplateWriter) out).isStreaming()) {
+                throw new TemplateExecutionException(template.template, fromLine, "#{extends} must be called before the page is streamed",
+                        new TagInternalException("#{extends} must be called before the page is streamed"));
+            }
             String name = args.get("arg").toString();
             if (name.startsWith("./")) {
                 String ct = BaseTemplate.currentTemplate.get().name;
@@ -1,8 +1,9 @@
 package play.templates;
 
-import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -12,8 +13,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.LinkedList;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.commons.io.FileUtils;
 import org.codehaus.groovy.control.CompilationUnit;
 import org.codehaus.groovy.control.CompilationUnit.IGroovyClassOperation;
 import org.codehaus.groovy.control.CompilerConfiguration;
@@ -40,6 +41,7 @@ import groovy.lang.Script;
 import play.Logger;
 import play.Play;
 import play.Play.Mode;
+import play.classloading.ApplicationClassloaderState;
 import play.classloading.BytecodeCache;
 import play.data.binding.Unbinder;
 import play.exceptions.ActionNotFoundException;
@@ -189,18 +191,11 @@ public class GroovyTemplate extends BaseTemplate {
                     sb.append("\n");
                 }
                 // Cache
-                BytecodeCache.cacheBytecode(sb.toString().getBytes("utf-8"), name, source);
+                byte[] code = sb.toString().getBytes("utf-8");
+                BytecodeCache.cacheBytecode(code, name, source);
                 compiledTemplate = tClassLoader.loadClass(groovyClassesForThisTemplate.get(0).getName());
                 if (System.getProperty("precompile") != null) {
-                    try {
-                        // emit bytecode to standard class layout as well
-                        File f = Play.getFile("precompiled/templates/"
-                                + name.replaceAll("\\{(.*)\\}", "from_$1").replace(":", "_").replace("..", "parent"));
-                        f.getParentFile().mkdirs();
-                        FileUtils.write(f, sb.toString(), "utf-8");
-                    } catch (Exception e) {
-                        Logger.warn(e, "Unexpected");
-                    }
+                    PrecompiledTemplates.add(PrecompiledTemplates.name(name), code);
                 }
 
                 if (Logger.isTraceEnabled()) {
@@ -250,6 +245,15 @@ public class GroovyTemplate extends BaseTemplate {
         }
     }
 
+    @Override
+    public void render(Map<String, Object> args, Writer out) {
+        try {
+            super.render(args, out);
+        } finally {
+            currentTemplate.remove();
+        }
+    }
+
     protected Binding setUpBindingVariables(Map<String, Object> args) {
         Binding binding = new Binding(args);
         binding.setVariable("play", new Play());
@@ -260,6 +264,21 @@ public class GroovyTemplate extends BaseTemplate {
 
     @Override
     protected String internalRender(Map<String, Object> args) {
+        return doRender(args, null);
+    }
+
+    @Override
+    protected void internalRender(Map<String, Object> args, Writer target) {
+        if (args.containsKey("out")) {
+            throw new IllegalArgumentException("Arguments should not contain out");
+        }
+        doRender(args, target);
+    }
+
+    /**
+     * Renders the template. The page is returned as a String, or written to the target writer when there is one.
+     */
+    private String doRender(Map<String, Object> args, Writer target) {
         compile();
 
         Binding binding = this.setUpBindingVariables(args);
@@ -270,6 +289,7 @@ public class GroovyTemplate extends BaseTemplate {
             binding.setVariable("_response_encoding", currentResponse.encoding);
         }
         StringWriter writer = null;
+        StreamingTemplateWriter streamingWriter = null;
         Boolean applyLayouts = false;
 
         // must check if this is the first template being rendered..
@@ -282,8 +302,13 @@ public class GroovyTemplate extends BaseTemplate {
             // to write the output to..
             applyLayouts = true;
             layout.set(null);
-            writer = new StringWriter();
-            binding.setProperty("out", new PrintWriter(writer));
+            if (target == null) {
+                writer = new StringWriter();
+                binding.setProperty("out", new PrintWriter(writer));
+            } else {
+                streamingWriter = new StreamingTemplateWriter(target);
+                binding.setProperty("out", streamingWriter);
+            }
             currentTemplate.set(this);
         }
         if (!args.containsKey("_body") && !args.containsKey("_isLayout") && !args.containsKey("_isInclude")) {
@@ -333,6 +358,11 @@ public class GroovyTemplate extends BaseTemplate {
             layoutArgs.put("_isLayout", true);
             String layoutR = layout.get().internalRender(layoutArgs);
 
+            if (streamingWriter != null) {
+                writeWithLayout(target, layoutR, streamingWriter);
+                return null;
+            }
+
             // Must replace '____%LAYOUT%____' inside the string layoutR with the content from writer..
             String whatToFind = "____%LAYOUT%____";
             int pos = layoutR.indexOf(whatToFind);
@@ -349,9 +379,64 @@ public class GroovyTemplate extends BaseTemplate {
         if (writer != null) {
             return writer.toString();
         }
+        if (streamingWriter != null) {
+            try {
+                streamingWriter.finish();
+            } catch (IOException e) {
+                throw new UnexpectedException(e);
+            }
+        }
         return null;
     }
 
+    /**
+     * Writes the layout with the body of the page in place of its '____%LAYOUT%____' marker, trimmed like the
+     * String rendering, without concatenating them. Nothing is written before, so a page with a layout is not streamed.
+     */
+    private static void writeWithLayout(Writer target, String layoutR, StreamingTemplateWriter body) {
+        try {
+            body.flush();
+            String whatToFind = "____%LAYOUT%____";
+            int pos = layoutR.indexOf(whatToFind);
+            if (pos < 0) {
+                target.write(layoutR);
+                return;
+            }
+            CharSequence[] parts = { layoutR.substring(0, pos), body.buffered(), layoutR.substring(pos + whatToFind.length()) };
+            int first = 0;
+            int start = 0;
+            while (first < parts.length && (start = firstNonSpace(parts[first])) == parts[first].length()) {
+                first++;
+            }
+            int last = parts.length - 1;
+            int end = 0;
+            while (last >= first && (end = lastNonSpace(parts[last]) + 1) == 0) {
+                last--;
+            }
+            for (int i = first; i <= last; i++) {
+                StreamingTemplateWriter.write(target, parts[i], i == first ? start : 0, i == last ? end : parts[i].length());
+            }
+        } catch (IOException e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
+    private static int firstNonSpace(CharSequence text) {
+        int i = 0;
+        while (i < text.length() && text.charAt(i) <= ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int lastNonSpace(CharSequence text) {
+        int i = text.length() - 1;
+        while (i >= 0 && text.charAt(i) <= ' ') {
+            i--;
+        }
+        return i;
+    }
+
     @Override
     protected Throwable cleanStackTrace(Throwable e) {
         List<StackTraceElement> cleanTrace = new ArrayList<>();
@@ -420,29 +505,17 @@ public class GroovyTemplate extends BaseTemplate {
             String templateName = tag.replace(".", "/");
             String callerExtension = (extension != null) ? extension : "tag";
 
-            BaseTemplate tagTemplate = null;
-            try {
-                tagTemplate = (BaseTemplate) TemplateLoader.load("tags/" + templateName + "." + callerExtension);
-            } catch (TemplateNotFoundException e) {
-                try {
-                    tagTemplate = (BaseTemplate) TemplateLoader.load("tags/" + templateName + ".tag");
-                } catch (TemplateNotFoundException ex) {
-                    if (callerExtension.equals("tag")) {
-                        throw new TemplateNotFoundException("tags/" + templateName + ".tag", template, fromLine);
-                    }
-                    throw new TemplateNotFoundException(
-                            "tags/" + templateName + "." + callerExtension + " or tags/" + templateName + ".tag", template, fromLine);
+            BaseTemplate tagTemplate = TemplateLoader.loadTag(templateName, callerExtension);
+            if (tagTemplate == null) {
+                if (callerExtension.equals("tag")) {
+                    throw new TemplateNotFoundException("tags/" + templateName + ".tag", template, fromLine);
                 }
+                throw new TemplateNotFoundException(
+                        "tags/" + templateName + "." + callerExtension + " or tags/" + templateName + ".tag", template, fromLine);
             }
             TagContext.enterTag(tag);
-            Map<String, Object> args = new HashMap<>();
-            args.put("session", getBinding().getVariables().get("session"));
-            args.put("flash", getBinding().getVariables().get("flash"));
-            args.put("request", getBinding().getVariables().get("request"));
-            args.put("params", getBinding().getVariables().get("params"));
-            args.put("play", getBinding().getVariables().get("play"));
-            args.put("lang", getBinding().getVariables().get("lang"));
-            args.put("messages", getBinding().getVariables().get("messages"));
+            // play, lang and messages are set by the tag template itself
+            Map<String, Object> args = new TagArgs(getBinding().getVariables());
             args.put("out", getBinding().getVariable("out"));
             args.put("_attrs", attrs);
             // all other vars are template-specific
@@ -526,7 +599,7 @@ public class GroovyTemplate extends BaseTemplate {
         }
 
         private String __reverseWithCheck(String action, boolean absolute) {
-            return Router.reverseWithCheck(action, Play.getVirtualFile(action), absolute);
+            return Router.reverseWithCheck(action, absolute);
         }
 
         public String __safe(Object val, String stringValue) {
@@ -559,6 +632,27 @@ public class GroovyTemplate extends BaseTemplate {
                 this.template = template;
             }
 
+            /**
+             * Action methods and their parameter names, dropped when the application classes change
+             */
+            private static final Map<String, Object[]> actionMethods = new ConcurrentHashMap<>();
+            private static volatile ApplicationClassloaderState actionMethodsState;
+
+            private static Object[] resolveAction(String action) throws Exception {
+                ApplicationClassloaderState state = Play.classloader.currentState;
+                if (!state.equals(actionMethodsState)) {
+                    actionMethods.clear();
+                    actionMethodsState = state;
+                }
+                Object[] resolved = actionMethods.get(action);
+                if (resolved == null) {
+                    Method actionMethod = (Method) ActionInvoker.getActionMethod(action)[1];
+                    resolved = new Object[] { actionMethod, Java.parameterNames(actionMethod) };
+                    actionMethods.put(action, resolved);
+                }
+                return resolved;
+            }
+
             @Override
             public Object getProperty(String property) {
                 return new ActionBridge(template, controller == null ? property : controller + "." + property, absolute);
@@ -582,8 +676,9 @@ public class GroovyTemplate extends BaseTemplate {
                     }
                     try {
                         Map<String, Object> r = new HashMap<>();
-                        Method actionMethod = (Method) ActionInvoker.getActionMethod(action)[1];
-                        String[] names = Java.parameterNames(actionMethod);
+                        Object[] resolved = resolveAction(action);
+                        Method actionMethod = (Method) resolved[0];
+                        String[] names = (String[]) resolved[1];
                         if (param instanceof Object[]) {
                             if (((Object[]) param).length == 1 && ((Object[]) param)[0] instanceof Map) {
                                 r = (Map<String, Object>) ((Object[]) param)[0];
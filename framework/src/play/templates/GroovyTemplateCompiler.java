@@ -8,6 +8,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import groovy.lang.Closure;
@@ -24,6 +25,18 @@ public class GroovyTemplateCompiler extends TemplateCompiler {
     // Have to split it if it is really that big
     protected static final int maxPlainTextLength = 60000;
 
+    /**
+     * <code>*{ @types users:List&lt;models.User&gt;, user:models.User }*</code>
+     */
+    static final Pattern TYPES = Pattern.compile("\\*\\{\\s*@types\\s(.*?)\\}\\*", Pattern.DOTALL);
+    private static final Pattern TYPE_DECLARATION = Pattern.compile("\\s*([a-zA-Z_$][a-zA-Z0-9_$]*)\\s*:\\s*(\\S.*?)\\s*");
+
+    /**
+     * The parameters declaring the types of the template variables (ex: <code>List&lt;models.User&gt; users</code>),
+     * or null when the template is compiled dynamically
+     */
+    protected List<String> types;
+
     @Override
     public BaseTemplate compile(BaseTemplate template) {
         try {
@@ -50,9 +63,53 @@ public class GroovyTemplateCompiler extends TemplateCompiler {
             source = this.checkScalaCompatibility(source);
         }
 
+        types = parseTypes(source);
         return source;
     }
 
+    /**
+     * @param source
+     *            The template source
+     * @return The types declared by the template, as method parameters, or null if it declares none
+     */
+    protected List<String> parseTypes(String source) {
+        Matcher matcher = TYPES.matcher(source);
+        if (!matcher.find()) {
+            return null;
+        }
+        int line = 1;
+        for (int i = 0; i < matcher.start(); i++) {
+            if (source.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        List<String> parameters = new ArrayList<>();
+        String declarations = matcher.group(1);
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i <= declarations.length(); i++) {
+            char c = i < declarations.length() ? declarations.charAt(i) : ',';
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                String declaration = declarations.substring(start, i);
+                start = i + 1;
+                if (declaration.trim().isEmpty()) {
+                    continue;
+                }
+                Matcher type = TYPE_DECLARATION.matcher(declaration);
+                if (!type.matches()) {
+                    throw new TemplateCompilationException(template, line, "Invalid type declaration '" + declaration.trim()
+                            + "', expected name:Type");
+                }
+                parameters.add(type.group(2).replaceAll("\\s+", " ") + " " + type.group(1));
+            }
+        }
+        return parameters;
+    }
+
     @Deprecated
     protected String checkScalaComptability(String source) {
         return checkScalaCompatibility(source);
@@ -151,11 +208,27 @@ public class GroovyTemplateCompiler extends TemplateCompiler {
         for (String n : extensionsClassnames) {
             println("use(__loadClass('" + n + "')) {");
         }
+        if (types != null) {
+            // Categories cannot be used in statically compiled code: the template is rendered by another method
+            println("__render();");
+            for (String n : extensionsClassnames) {
+                println(" } ");
+            }
+            println("} }");
+            println("@groovy.transform.CompileStatic(extensions='" + TemplateTypeChecking.class.getName() + "')");
+            println("void __render() {");
+        }
     }
 
     @Override
     @SuppressWarnings("unused")
     protected void end() {
+        if (types != null) {
+            println("}");
+            println("void " + TemplateTypeChecking.TYPES_METHOD + "(" + String.join(", ", types) + ") {}");
+            println("}");
+            return;
+        }
         for (String n : extensionsClassnames) {
             println(" } ");
         }
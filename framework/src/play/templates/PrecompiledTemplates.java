@@ -0,0 +1,138 @@
+package play.templates;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+
+import play.Logger;
+import play.Play;
+import play.classloading.BytecodeArchive;
+import play.libs.IO;
+
+/**
+ * The templates compiled by <code>play precompile</code>, loaded without compiling them when the application is
+ * precompiled. They are written in one archive, precompiled/templates.archive; the applications precompiled by
+ * previous versions have one file per template in precompiled/templates.
+ */
+public class PrecompiledTemplates {
+
+    static final String ARCHIVE = "precompiled/templates.archive";
+    static final String DIRECTORY = "precompiled/templates/";
+
+    private static File archiveFile;
+    private static BytecodeArchive archive;
+
+    /**
+     * The templates compiled since {@link #startArchive()}
+     */
+    private static volatile BytecodeArchive.Builder archiving;
+
+    /**
+     * @param relativePath
+     *            The relative path of a template (ex: {module:crud}/app/views/tags/crud/form.html)
+     * @return Its name once precompiled (ex: from_module_crud/app/views/tags/crud/form.html)
+     */
+    public static String name(String relativePath) {
+        return relativePath.replaceAll("\\{(.*)\\}", "from_$1").replace(":", "_").replace("..", "parent");
+    }
+
+    private static String key(String name) {
+        int start = 0;
+        while (start < name.length() && name.charAt(start) == '/') {
+            start++;
+        }
+        return name.substring(start);
+    }
+
+    private static synchronized BytecodeArchive archive() {
+        File file = Play.getFile(ARCHIVE);
+        if (!file.equals(archiveFile)) {
+            archiveFile = file;
+            archive = BytecodeArchive.open(file);
+        }
+        return archive;
+    }
+
+    /**
+     * @param name
+     *            The name of a precompiled template, or of a directory of precompiled templates (ex: app/views)
+     * @return true if it was precompiled
+     */
+    public static boolean exists(String name) {
+        BytecodeArchive current = archive();
+        if (current != null) {
+            String key = key(name);
+            if (current.contains(key) || current.containsPrefix(key + "/")) {
+                return true;
+            }
+        }
+        return Play.getFile(DIRECTORY + name).exists();
+    }
+
+    /**
+     * @param name
+     *            The name of a precompiled template
+     * @return Its compiled code
+     */
+    static byte[] get(String name) {
+        BytecodeArchive current = archive();
+        if (current != null) {
+            byte[] code = current.get(key(name));
+            if (code != null) {
+                return code;
+            }
+        }
+        return IO.readContent(Play.getFile(DIRECTORY + name));
+    }
+
+    /**
+     * Collect the templates compiled from now on, to write them in the archive with {@link #writeArchive()}
+     */
+    static void startArchive() {
+        archiving = new BytecodeArchive.Builder();
+    }
+
+    /**
+     * Keep the compiled code of a template
+     *
+     * @param name
+     *            The name of the precompiled template
+     * @param code
+     *            Its compiled code
+     */
+    static void add(String name, byte[] code) {
+        BytecodeArchive.Builder builder = archiving;
+        if (builder != null) {
+            builder.add(key(name), null, code);
+            return;
+        }
+        try {
+            File f = Play.getFile(DIRECTORY + name);
+            f.getParentFile().mkdirs();
+            FileUtils.writeByteArrayToFile(f, code);
+        } catch (Exception e) {
+            Logger.warn(e, "Unexpected");
+        }
+    }
+
+    /**
+     * Write the templates compiled since {@link #startArchive()} in the archive
+     */
+    static void writeArchive() {
+        BytecodeArchive.Builder builder = archiving;
+        archiving = null;
+        if (builder == null) {
+            return;
+        }
+        try {
+            builder.write(Play.getFile(ARCHIVE));
+            Logger.info("%d templates precompiled in %s", builder.size(), ARCHIVE);
+        } catch (Exception e) {
+            Logger.error(e, "Cannot write the precompiled templates");
+        }
+        synchronized (PrecompiledTemplates.class) {
+            archiveFile = null;
+            archive = null;
+        }
+    }
+}
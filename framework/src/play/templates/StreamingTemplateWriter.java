@@ -0,0 +1,120 @@
+package play.templates;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+/**
+ * The <code>out</code> of a page rendered with {@link Template#render(java.util.Map, Writer)}.
+ * <p>
+ * The first {@link #STREAM_THRESHOLD} characters are kept in memory, then the output goes straight to the target
+ * writer unless the template has called <code>#{extends}</code> by then: the body of a page with a layout is always
+ * kept in memory, since the layout can only be rendered once the body has set its data.
+ * </p>
+ */
+final class StreamingTemplateWriter extends PrintWriter {
+
+    static final int STREAM_THRESHOLD = 4096;
+
+    private final Body body;
+
+    StreamingTemplateWriter(Writer target) {
+        this(new Body(target));
+    }
+
+    private StreamingTemplateWriter(Body body) {
+        super(body);
+        this.body = body;
+    }
+
+    /**
+     * @return true once part of the output has been written to the target
+     */
+    boolean isStreaming() {
+        return body.streaming;
+    }
+
+    /**
+     * @return The output kept in memory, null once streaming
+     */
+    StringBuilder buffered() {
+        return body.buffer;
+    }
+
+    /**
+     * Writes what is still kept in memory to the target.
+     */
+    void finish() throws IOException {
+        super.flush();
+        body.stream();
+    }
+
+    /**
+     * Writes part of a String or StringBuilder without making a String of it.
+     */
+    static void write(Writer target, CharSequence text, int start, int end) throws IOException {
+        if (text instanceof String) {
+            target.write((String) text, start, end - start);
+            return;
+        }
+        char[] slice = new char[Math.min(end - start, 8192)];
+        while (start < end) {
+            int n = Math.min(slice.length, end - start);
+            ((StringBuilder) text).getChars(start, start + n, slice, 0);
+            target.write(slice, 0, n);
+            start += n;
+        }
+    }
+
+    private static final class Body extends Writer {
+
+        final Writer target;
+        StringBuilder buffer = new StringBuilder(256);
+        boolean streaming;
+
+        Body(Writer target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (streaming) {
+                target.write(cbuf, off, len);
+                return;
+            }
+            buffer.append(cbuf, off, len);
+            if (buffer.length() >= STREAM_THRESHOLD && BaseTemplate.layout.get() == null) {
+                stream();
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            if (streaming) {
+                target.write(str, off, len);
+                return;
+            }
+            buffer.append(str, off, off + len);
+            if (buffer.length() >= STREAM_THRESHOLD && BaseTemplate.layout.get() == null) {
+                stream();
+            }
+        }
+
+        void stream() throws IOException {
+            if (!streaming) {
+                streaming = true;
+                StreamingTemplateWriter.write(target, buffer, 0, buffer.length());
+                buffer = null;
+            }
+        }
+
+        @Override
+        public void flush() {
+            // The target is flushed by its owner
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
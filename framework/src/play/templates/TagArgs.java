@@ -0,0 +1,110 @@
+package play.templates;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The variables of a tag. The implicit variables (session, flash, request and params) are read from the variables of
+ * the caller when they are used, instead of being copied for each tag call.
+ */
+class TagArgs extends HashMap<String, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String[] IMPLICIT = { "session", "flash", "request", "params" };
+
+    private Map<?, ?> caller;
+
+    TagArgs(Map<?, ?> caller) {
+        super(32);
+        this.caller = caller;
+    }
+
+    private static boolean isImplicit(Object key) {
+        for (String implicit : IMPLICIT) {
+            if (implicit.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies the implicit variables, before the whole map is read or changed
+     */
+    private void copyImplicits() {
+        if (caller != null) {
+            Map<?, ?> from = caller;
+            caller = null;
+            for (String implicit : IMPLICIT) {
+                if (!super.containsKey(implicit)) {
+                    super.put(implicit, from.get(implicit));
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = super.get(key);
+        if (value == null && caller != null && isImplicit(key) && !super.containsKey(key)) {
+            return caller.get(key);
+        }
+        return value;
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        return containsKey(key) ? get(key) : defaultValue;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return super.containsKey(key) || (caller != null && isImplicit(key));
+    }
+
+    @Override
+    public Object remove(Object key) {
+        copyImplicits();
+        return super.remove(key);
+    }
+
+    @Override
+    public int size() {
+        copyImplicits();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        copyImplicits();
+        return super.isEmpty();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        copyImplicits();
+        return super.entrySet();
+    }
+
+    @Override
+    public Set<String> keySet() {
+        copyImplicits();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        copyImplicits();
+        return super.values();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        copyImplicits();
+        super.forEach(action);
+    }
+}
@@ -1,8 +1,12 @@
 package play.templates;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.HashMap;
 import java.util.Map;
 
+import play.exceptions.UnexpectedException;
+
 public abstract class Template {
 
     public String name;
@@ -28,6 +32,19 @@ public abstract class Template {
         return internalRender(new HashMap<>(args));
     }
 
+    /**
+     * Renders the template into a writer, without modifying the args-map. Templates that support it write to the
+     * writer while they are rendered instead of building the whole result as a String first.
+     * 
+     * @param args
+     *            map containing data binding info
+     * @param out
+     *            The writer to render into
+     */
+    public void render(Map<String, Object> args, Writer out) {
+        internalRender(new HashMap<>(args), out);
+    }
+
     /**
      * The internal rendering method - When one template calls another template, this method is used. The input args-map
      * is constantly being modified, as different templates "communicate" with each other by storing info in the map
@@ -38,6 +55,23 @@ public abstract class Template {
      */
     protected abstract String internalRender(Map<String, Object> args);
 
+    /**
+     * The internal rendering method used by {@link #render(Map, Writer)}. By default the template is rendered as a
+     * String, then written to the writer.
+     * 
+     * @param args
+     *            List of arguments use in render
+     * @param out
+     *            The writer to render into
+     */
+    protected void internalRender(Map<String, Object> args, Writer out) {
+        try {
+            out.write(internalRender(args));
+        } catch (IOException e) {
+            throw new UnexpectedException(e);
+        }
+    }
+
     public String render() {
         return internalRender(new HashMap<String, Object>());
     }
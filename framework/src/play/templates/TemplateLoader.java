@@ -4,25 +4,53 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import play.Logger;
 import play.Play;
+import play.classloading.BytecodeCache;
 import play.exceptions.TemplateCompilationException;
 import play.exceptions.TemplateNotFoundException;
+import play.exceptions.UnexpectedException;
 import play.vfs.VirtualFile;
 
 public class TemplateLoader {
 
-    protected static Map<String, BaseTemplate> templates = new HashMap<>();
+    protected static Map<String, BaseTemplate> templates = new ConcurrentHashMap<>();
     /**
      * See getUniqueNumberForTemplateFile() for more info
      */
     private static AtomicLong nextUniqueNumber = new AtomicLong(1000);// we start on 1000
     private static Map<String, String> templateFile2UniqueNumber = Collections.synchronizedMap(new HashMap<String, String>());
+    /**
+     * The templates of the tags, by tag name and caller extension
+     */
+    private static final Map<String, ResolvedTag> tags = new ConcurrentHashMap<>();
+
+    private static final class ResolvedTag {
+        final String path;
+        /**
+         * Whether this is the .tag template, used as there is no template with the extension of the caller
+         */
+        final boolean fallback;
+        final BaseTemplate template;
+
+        ResolvedTag(String path, boolean fallback, BaseTemplate template) {
+            this.path = path;
+            this.fallback = fallback;
+            this.template = template;
+        }
+    }
 
     /**
      * All loaded templates is cached in the templates-list using a key. This key is included as part of the classname
@@ -41,13 +69,8 @@ public class TemplateLoader {
         // Therefor we assign a unique number to each path the first time we see it, and store it..
         // This way, all seen paths gets a unique number. This number is our UniqueValidClassnamePart..
 
-        String uniqueNumber = templateFile2UniqueNumber.get(path);
-        if (uniqueNumber == null) {
-            // this is the first time we see this path - must assign a unique number to it.
-            uniqueNumber = Long.toString(nextUniqueNumber.getAndIncrement());
-            templateFile2UniqueNumber.put(path, uniqueNumber);
-        }
-        return uniqueNumber;
+        // the first time we see a path we must assign a unique number to it.
+        return templateFile2UniqueNumber.computeIfAbsent(path, p -> Long.toString(nextUniqueNumber.getAndIncrement()));
     }
 
     /**
@@ -69,8 +92,7 @@ public class TemplateLoader {
         String key = getUniqueNumberForTemplateFile(fileRelativePath);
         if (!templates.containsKey(key) || templates.get(key).compiledTemplate == null) {
             if (Play.usePrecompiled) {
-                BaseTemplate template = new GroovyTemplate(
-                        fileRelativePath.replaceAll("\\{(.*)\\}", "from_$1").replace(":", "_").replace("..", "parent"), "");
+                BaseTemplate template = new GroovyTemplate(PrecompiledTemplates.name(fileRelativePath), "");
                 try {
                     template.loadPrecompiled();
                     templates.put(key, template);
@@ -159,6 +181,7 @@ public class TemplateLoader {
      */
     public static void cleanCompiledCache() {
         templates.clear();
+        tags.clear();
     }
 
     /**
@@ -169,6 +192,7 @@ public class TemplateLoader {
      */
     public static void cleanCompiledCache(String key) {
         templates.remove(key);
+        tags.clear();
     }
 
     /**
@@ -187,8 +211,7 @@ public class TemplateLoader {
             VirtualFile tf = vf.child(path);
             boolean templateExists = tf.exists();
             if (!templateExists && Play.usePrecompiled) {
-                String name = tf.relativePath().replaceAll("\\{(.*)\\}", "from_$1").replace(":", "_").replace("..", "parent");
-                templateExists = Play.getFile("precompiled/templates/" + name).exists();
+                templateExists = PrecompiledTemplates.exists(PrecompiledTemplates.name(tf.relativePath()));
             }
             if (templateExists) {
                 template = TemplateLoader.load(tf);
@@ -213,85 +236,220 @@ public class TemplateLoader {
         return template;
     }
 
+    /**
+     * Load the template of a tag: tags/name.extension, or else tags/name.tag. The template found is kept for the next
+     * calls, in DEV mode it is looked up again when the files change.
+     * 
+     * @param templateName
+     *            The path of the tag, without the extension (ex: security/check)
+     * @param callerExtension
+     *            The extension of the template calling the tag (ex: html)
+     * @return The template of the tag, or null if there is none
+     */
+    public static BaseTemplate loadTag(String templateName, String callerExtension) {
+        String key = templateName + "." + callerExtension;
+        ResolvedTag resolved = tags.get(key);
+        if (resolved != null) {
+            if (Play.mode != Play.Mode.DEV) {
+                return resolved.template;
+            }
+            if (!resolved.fallback || !exists("tags/" + key)) {
+                try {
+                    // Compiled again if it was modified
+                    return (BaseTemplate) load(resolved.path);
+                } catch (TemplateNotFoundException e) {
+                    // Deleted
+                }
+            }
+            tags.remove(key);
+        }
+
+        String path = "tags/" + key;
+        boolean fallback = false;
+        BaseTemplate template;
+        try {
+            template = (BaseTemplate) load(path);
+        } catch (TemplateNotFoundException e) {
+            path = "tags/" + templateName + ".tag";
+            fallback = true;
+            try {
+                template = (BaseTemplate) load(path);
+            } catch (TemplateNotFoundException ex) {
+                return null;
+            }
+        }
+        tags.put(key, new ResolvedTag(path, fallback, template));
+        return template;
+    }
+
+    private static boolean exists(String path) {
+        for (VirtualFile vf : Play.templatesPath) {
+            if (vf != null && vf.child(path).exists()) {
+                return true;
+            }
+        }
+        VirtualFile tf = Play.getVirtualFile(path);
+        return tf != null && tf.exists();
+    }
+
     /**
      * List all found templates
      * 
      * @return A list of executable templates
      */
     public static List<Template> getAllTemplate() {
-        List<Template> res = new ArrayList<>();
-        for (VirtualFile virtualFile : Play.templatesPath) {
-            scan(res, virtualFile);
+        BytecodeCache.startArchive();
+        boolean precompile = System.getProperty("precompile") != null;
+        if (precompile) {
+            PrecompiledTemplates.startArchive();
         }
-        for (VirtualFile root : Play.roots) {
-            VirtualFile vf = root.child("conf/routes");
-            if (vf != null && vf.exists()) {
-                Template template = load(vf);
-                if (template != null) {
-                    template.compile();
+        try {
+            List<VirtualFile> files = new ArrayList<>();
+            for (VirtualFile virtualFile : Play.templatesPath) {
+                scan(files, virtualFile);
+            }
+            List<Template> res = compileAll(files);
+            for (VirtualFile root : Play.roots) {
+                VirtualFile vf = root.child("conf/routes");
+                if (vf != null && vf.exists()) {
+                    Template template = load(vf);
+                    if (template != null) {
+                        template.compile();
+                    }
                 }
             }
-        }
 
-        String play_templates_compile = Play.configuration.getProperty("play.templates.compile",
-                System.getProperty("play.templates.compile", System.getenv("PLAY_TEMPLATES_COMPILE")));
-        String play_templates_compile_path_separator = Play.configuration.getProperty("play.templates.compile.path.separator",
-                System.getProperty("play.templates.compile.path.separator", System.getProperty("path.separator")));
-        if (play_templates_compile != null) {
-            for (String yamlTemplate : play_templates_compile.split(play_templates_compile_path_separator)) {
-                VirtualFile vf = null;
-                for (int retry = 0;; retry++) {
-                    if (retry == 0) {
-                        try {
-                            vf = VirtualFile.open(Play.applicationPath.toPath().resolve(Paths.get(yamlTemplate)).toFile());
-                        } catch (InvalidPathException invalidPathException) {
-                            /* ignored */}
-                    } else if (retry == 1) {
-                        vf = VirtualFile.fromRelativePath(yamlTemplate);
-                    } else {
-                        vf = null;
-                        break;
-                    }
-                    if (vf != null && vf.exists()) {
-                        Template template = load(vf);
-                        if (template != null) {
-                            template.compile();
+            String play_templates_compile = Play.configuration.getProperty("play.templates.compile",
+                    System.getProperty("play.templates.compile", System.getenv("PLAY_TEMPLATES_COMPILE")));
+            String play_templates_compile_path_separator = Play.configuration.getProperty("play.templates.compile.path.separator",
+                    System.getProperty("play.templates.compile.path.separator", System.getProperty("path.separator")));
+            if (play_templates_compile != null) {
+                for (String yamlTemplate : play_templates_compile.split(play_templates_compile_path_separator)) {
+                    VirtualFile vf = null;
+                    for (int retry = 0;; retry++) {
+                        if (retry == 0) {
+                            try {
+                                vf = VirtualFile.open(Play.applicationPath.toPath().resolve(Paths.get(yamlTemplate)).toFile());
+                            } catch (InvalidPathException invalidPathException) {
+                                /* ignored */}
+                        } else if (retry == 1) {
+                            vf = VirtualFile.fromRelativePath(yamlTemplate);
+                        } else {
+                            vf = null;
                             break;
                         }
-                    } else {
-                        vf = null;
+                        if (vf != null && vf.exists()) {
+                            Template template = load(vf);
+                            if (template != null) {
+                                template.compile();
+                                break;
+                            }
+                        } else {
+                            vf = null;
+                        }
+                    }
+                    if (vf == null) {
+                        Logger.warn(
+                                "A template specified by system environment 'PLAY_YAML_TEMPLATES' does not exist or path is wrong. template: '%s'",
+                                yamlTemplate);
                     }
                 }
-                if (vf == null) {
-                    Logger.warn(
-                            "A template specified by system environment 'PLAY_YAML_TEMPLATES' does not exist or path is wrong. template: '%s'",
-                            yamlTemplate);
-                }
             }
+            if (precompile) {
+                PrecompiledTemplates.writeArchive();
+            }
+            return res;
+        } finally {
+            BytecodeCache.writeArchive();
         }
-        return res;
     }
 
-    private static void scan(List<Template> templates, VirtualFile current) {
+    private static void scan(List<VirtualFile> files, VirtualFile current) {
         if (!current.isDirectory() && !current.getName().startsWith(".") && !current.getName().endsWith(".scala.html")) {
-            long start = System.currentTimeMillis();
-            Template template = load(current);
-            if (template != null) {
-                try {
-                    template.compile();
-                    if (Logger.isTraceEnabled()) {
-                        Logger.trace("%sms to load %s", System.currentTimeMillis() - start, current.getName());
-                    }
-                } catch (TemplateCompilationException e) {
-                    Logger.error("Template %s does not compile at line %d", e.getTemplate().name, e.getLineNumber());
-                    throw e;
-                }
-                templates.add(template);
-            }
+            files.add(current);
         } else if (current.isDirectory() && !current.getName().startsWith(".")) {
             for (VirtualFile virtualFile : current.list()) {
-                scan(templates, virtualFile);
+                scan(files, virtualFile);
+            }
+        }
+    }
+
+    /**
+     * Compile templates on as many threads as there are processors (or play.templates.compilationThreads). A template
+     * only refers to its tags and layout by name when it is rendered, so they can be compiled in any order.
+     */
+    private static List<Template> compileAll(List<VirtualFile> files) {
+        int threads = Integer.parseInt(Play.configuration.getProperty("play.templates.compilationThreads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        if (threads <= 1 || files.size() <= 1) {
+            List<Template> res = new ArrayList<>(files.size());
+            for (VirtualFile file : files) {
+                Template template = compile(file);
+                if (template != null) {
+                    res.add(template);
+                }
             }
+            return res;
         }
+
+        // Used while compiling, their first lookup is not thread safe
+        if (Play.classloader != null) {
+            Play.classloader.getAssignableClasses(JavaExtensions.class);
+            Play.classloader.getAssignableClasses(FastTags.class);
+        }
+
+        // The biggest templates first, so that a big one does not keep a thread busy when the others are done
+        List<VirtualFile> queue = new ArrayList<>(files);
+        queue.sort(Comparator.comparingLong((VirtualFile file) -> file.length()).reversed());
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()), r -> {
+            Thread thread = new Thread(r, "play-templates-compiler-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        try {
+            Map<VirtualFile, Future<Template>> compiled = new HashMap<>();
+            for (VirtualFile file : queue) {
+                compiled.put(file, executor.submit(() -> compile(file)));
+            }
+            List<Template> res = new ArrayList<>(files.size());
+            for (VirtualFile file : files) {
+                Template template = compiled.get(file).get();
+                if (template != null) {
+                    res.add(template);
+                }
+            }
+            return res;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnexpectedException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UnexpectedException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Template compile(VirtualFile file) {
+        long start = System.currentTimeMillis();
+        Template template = load(file);
+        if (template != null) {
+            try {
+                template.compile();
+                if (Logger.isTraceEnabled()) {
+                    Logger.trace("%sms to load %s", System.currentTimeMillis() - start, file.getName());
+                }
+            } catch (TemplateCompilationException e) {
+                Logger.error("Template %s does not compile at line %d", e.getTemplate().name, e.getLineNumber());
+                throw e;
+            }
+        }
+        return template;
     }
 }
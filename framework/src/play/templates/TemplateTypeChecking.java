@@ -0,0 +1,131 @@
+package play.templates;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.AttributeExpression;
+import org.codehaus.groovy.ast.expr.MethodCall;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.PropertyExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.transform.stc.AbstractTypeCheckingExtension;
+import org.codehaus.groovy.transform.stc.StaticTypeCheckingVisitor;
+
+import groovy.lang.Closure;
+
+/**
+ * Type checking of the templates declaring their types with <code>*{ @types name:Type, ... }*</code>.
+ * <p>
+ * The declared variables, and the variables of the template itself (out, the tag attributes, the list loop
+ * variables...), are read from the binding with their type, so that what is done with them is compiled statically.
+ * The rest is left dynamic: undeclared variables, the methods added by the JavaExtensions, the properties that cannot
+ * be found... except the operators, which need typed operands.
+ * </p>
+ */
+public class TemplateTypeChecking extends AbstractTypeCheckingExtension {
+
+    /**
+     * The types are the parameters of this method of the template class
+     */
+    static final String TYPES_METHOD = "__types";
+
+    private static final ClassNode PRINT_WRITER = ClassHelper.make(PrintWriter.class);
+    private static final ClassNode CLOSURE = ClassHelper.make(Closure.class);
+    private static final ClassNode ITERATOR = ClassHelper.make(Iterator.class);
+
+    private Map<String, ClassNode> types;
+
+    public TemplateTypeChecking(StaticTypeCheckingVisitor typeCheckingVisitor) {
+        super(typeCheckingVisitor);
+    }
+
+    @Override
+    public boolean handleUnresolvedVariableExpression(VariableExpression vexp) {
+        ClassNode type = typeOf(vexp.getName());
+        if (type != null) {
+            makeDynamic(vexp, type);
+        } else {
+            makeDynamic(vexp);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean handleUnresolvedProperty(PropertyExpression pexp) {
+        makeDynamic(pexp);
+        return true;
+    }
+
+    @Override
+    public boolean handleUnresolvedAttribute(AttributeExpression aexp) {
+        makeDynamic(aexp);
+        return true;
+    }
+
+    @Override
+    public List<MethodNode> handleMissingMethod(ClassNode receiver, String name, ArgumentListExpression argumentList,
+            ClassNode[] argumentTypes, MethodCall call) {
+        if (call instanceof MethodCallExpression && argumentList.getExpressions().size() == 1
+                && argumentList.getExpression(0) == ((MethodCallExpression) call).getObjectExpression()) {
+            // An operator (a + b...) cannot be left dynamic: the operands must be typed
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(makeDynamic(call));
+    }
+
+    private ClassNode typeOf(String name) {
+        if (types == null) {
+            types = new HashMap<>();
+            ClassNode template = typeCheckingVisitor.getTypeCheckingContext().getEnclosingClassNode();
+            for (MethodNode method : template.getMethods(TYPES_METHOD)) {
+                for (Parameter parameter : method.getParameters()) {
+                    types.put(parameter.getName(), parameter.getType());
+                }
+            }
+        }
+        ClassNode type = types.get(name);
+        if (type != null) {
+            return type;
+        }
+        if (name.equals("out")) {
+            return PRINT_WRITER;
+        }
+        // Generated by the compiler and the inline tags
+        if (name.matches("attrs[0-9]+")) {
+            return ClassHelper.MAP_TYPE;
+        }
+        if (name.matches("body[0-9]+")) {
+            return CLOSURE;
+        }
+        if (name.matches("_iter[0-9]+")) {
+            return ITERATOR;
+        }
+        if (name.matches("_[0-9]+_i")) {
+            return ClassHelper.Integer_TYPE;
+        }
+        // Set by #{list} for its "as" variable
+        if (isLoopVariable(name, "_index")) {
+            return ClassHelper.Integer_TYPE;
+        }
+        if (isLoopVariable(name, "_isFirst") || isLoopVariable(name, "_isLast")) {
+            return ClassHelper.Boolean_TYPE;
+        }
+        if (isLoopVariable(name, "_parity")) {
+            return ClassHelper.STRING_TYPE;
+        }
+        return null;
+    }
+
+    private boolean isLoopVariable(String name, String suffix) {
+        return name.endsWith(suffix) && types.containsKey(name.substring(0, name.length() - suffix.length()));
+    }
+}
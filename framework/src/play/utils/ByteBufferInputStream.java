@@ -0,0 +1,97 @@
+package play.utils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * An input stream reading a byte buffer without copying it, used for request bodies received in memory.
+ * <p>
+ * Parsers that know about it can decode the body straight from the buffer with {@link #readString(Charset)}, or look
+ * at it with {@link #buffer()}, instead of copying it through <code>read</code>.
+ * </p>
+ */
+public class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+    private int mark;
+
+    /**
+     * @param buffer
+     *            The bytes to read, from its position to its limit. It is not modified.
+     */
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+        this.mark = this.buffer.position();
+    }
+
+    /**
+     * @return A read-only view of the bytes left to read
+     */
+    public ByteBuffer buffer() {
+        return buffer.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Reads all the bytes left, as text.
+     *
+     * @param charset
+     *            The charset of the text
+     * @return The text
+     */
+    public String readString(Charset charset) {
+        String text;
+        if (buffer.hasArray()) {
+            text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), charset);
+        } else {
+            text = charset.decode(buffer.slice()).toString();
+        }
+        buffer.position(buffer.limit());
+        return text;
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        mark = buffer.position();
+    }
+
+    @Override
+    public synchronized void reset() {
+        buffer.position(mark);
+    }
+}
@@ -0,0 +1,128 @@
+package play.utils;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A map that is only built when it is first used, for request data that many requests never look at.
+ * <p>
+ * It is serialized as the {@link HashMap} it holds.
+ * </p>
+ *
+ * @param <K>
+ *            The type of the keys
+ * @param <V>
+ *            The type of the values
+ */
+public class LazyMap<K, V> extends AbstractMap<K, V> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient Supplier<Map<K, V>> loader;
+    private Map<K, V> map;
+
+    /**
+     * @param loader
+     *            Builds the map, on first use
+     */
+    public LazyMap(Supplier<Map<K, V>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * For subclasses that override {@link #load()}
+     */
+    protected LazyMap() {
+    }
+
+    /**
+     * @return The content of the map
+     */
+    protected Map<K, V> load() {
+        return loader.get();
+    }
+
+    /**
+     * @return true if the map has been built
+     */
+    public boolean isLoaded() {
+        return map != null;
+    }
+
+    protected Map<K, V> map() {
+        if (map == null) {
+            map = load();
+            loader = null;
+        }
+        return map;
+    }
+
+    @Override
+    public int size() {
+        return map().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map().isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map().containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        return map().containsValue(value);
+    }
+
+    @Override
+    public V get(Object key) {
+        return map().get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return map().put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+        return map().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        map().putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        map().clear();
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return map().keySet();
+    }
+
+    @Override
+    public Collection<V> values() {
+        return map().values();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return map().entrySet();
+    }
+
+    protected Object writeReplace() {
+        return new HashMap<>(map());
+    }
+}
@@ -0,0 +1,221 @@
+package play;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.Invoker.Invocation;
+import play.Invoker.InvocationContext;
+import play.mvc.Priority.Lane;
+import play.mvc.Router;
+
+public class AdmissionControlTest {
+
+    private ScheduledThreadPoolExecutor scheduler;
+    private InvocationExecutor executor;
+
+    @Before
+    public void setUp() {
+        new PlayBuilder().build();
+        AdmissionControl.configure();
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        executor = new InvocationExecutor.FixedPool(scheduler);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+        AdmissionControl.configure();
+    }
+
+    static class LaneInvocation extends Invocation {
+
+        final Lane lane;
+        final List<Lane> ran;
+        final CountDownLatch blocker;
+
+        LaneInvocation(Lane lane, List<Lane> ran, CountDownLatch blocker) {
+            this.lane = lane;
+            this.ran = ran;
+            this.blocker = blocker;
+        }
+
+        @Override
+        public boolean init() {
+            InvocationContext.current.set(getInvocationContext());
+            return !isOverdue();
+        }
+
+        @Override
+        public InvocationContext getInvocationContext() {
+            return new InvocationContext("Test");
+        }
+
+        @Override
+        public Lane getLane() {
+            return lane;
+        }
+
+        @Override
+        public void execute() throws Exception {
+            if (blocker != null) {
+                blocker.await(5, TimeUnit.SECONDS);
+            }
+            ran.add(lane);
+        }
+    }
+
+    @Test
+    public void turnsRequestsAwayWhenTheQueueIsFull() throws Exception {
+        AdmissionControl.maxQueueSize = 4;
+        List<Lane> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch blocker = new CountDownLatch(1);
+        Future<?> first = AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, blocker), executor);
+        while (AdmissionControl.getQueued() > 0) {
+            Thread.sleep(1);
+        }
+        long rejected = AdmissionControl.getRejected();
+        for (int i = 0; i < 2; i++) {
+            AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, null), executor);
+        }
+        assertFalse(AdmissionControl.admit(Lane.LOW));
+        assertTrue(AdmissionControl.admit(Lane.NORMAL));
+        for (int i = 0; i < 2; i++) {
+            AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, null), executor);
+        }
+        assertFalse(AdmissionControl.admit(Lane.NORMAL));
+        assertTrue(AdmissionControl.admit(Lane.HIGH));
+        assertEquals(rejected + 2, AdmissionControl.getRejected());
+
+        blocker.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, null), executor).get(5, TimeUnit.SECONDS);
+        assertEquals(6, ran.size());
+        assertEquals(0, AdmissionControl.getQueued());
+    }
+
+    @Test
+    public void runsHigherLanesFirst() throws Exception {
+        AdmissionControl.lanes = true;
+        List<Lane> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch blocker = new CountDownLatch(1);
+        AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, blocker), executor);
+        while (AdmissionControl.getQueued() > 0) {
+            Thread.sleep(1);
+        }
+        AdmissionControl.submit(new LaneInvocation(Lane.LOW, ran, null), executor);
+        AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, null), executor);
+        Future<?> last = AdmissionControl.submit(new LaneInvocation(Lane.HIGH, ran, null), executor);
+        blocker.countDown();
+        last.get(5, TimeUnit.SECONDS);
+        while (ran.size() < 4) {
+            Thread.sleep(1);
+        }
+        assertEquals(Lane.HIGH, ran.get(1));
+        assertEquals(Lane.NORMAL, ran.get(2));
+        assertEquals(Lane.LOW, ran.get(3));
+    }
+
+    @Test
+    public void dropsInvocationsThatWaitedTooLong() throws Exception {
+        AdmissionControl.maxQueueWait = TimeUnit.MILLISECONDS.toNanos(20);
+        List<Lane> ran = new CopyOnWriteArrayList<>();
+        CountDownLatch blocker = new CountDownLatch(1);
+        AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, blocker), executor);
+        while (AdmissionControl.getQueued() > 0) {
+            Thread.sleep(1);
+        }
+        LaneInvocation late = new LaneInvocation(Lane.NORMAL, ran, null);
+        LaneInvocation urgent = new LaneInvocation(Lane.HIGH, ran, null);
+        AdmissionControl.submit(late, executor);
+        Future<?> last = AdmissionControl.submit(urgent, executor);
+        Thread.sleep(50);
+        blocker.countDown();
+        last.get(5, TimeUnit.SECONDS);
+
+        assertTrue(late.isOverdue());
+        assertTrue(late.getQueueWait() >= 20);
+        assertFalse(urgent.isOverdue());
+        assertEquals(2, ran.size());
+        // The last invocation waited too long, so will the next ones
+        final CountDownLatch busy = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                busy.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        last = AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, null), executor);
+        assertFalse(AdmissionControl.admit(Lane.NORMAL));
+        assertTrue(AdmissionControl.admit(Lane.HIGH));
+        busy.countDown();
+        last.get(5, TimeUnit.SECONDS);
+        assertTrue(AdmissionControl.admit(Lane.NORMAL));
+    }
+
+    @Test
+    public void staticRoutesAreInTheNormalLane() throws Exception {
+        Play.Mode mode = Play.mode;
+        try {
+            Play.mode = Play.Mode.PROD;
+            AdmissionControl.lanes = true;
+            Router.routes.clear();
+            Router.appendRoute("GET", "/public/", "staticDir:public", null, null, null, 0);
+            Router.appendRoute("GET", "/favicon.ico", "404", null, null, null, 0);
+            assertEquals(Lane.NORMAL, AdmissionControl.lane("GET", "/public/app.css"));
+            assertEquals(Lane.NORMAL, AdmissionControl.lane("GET", "/favicon.ico"));
+            assertEquals(Lane.NORMAL, AdmissionControl.lane("GET", "/missing"));
+        } finally {
+            Router.routes.clear();
+            Play.mode = mode;
+        }
+    }
+
+    @Test
+    public void cancelledInvocationsLeaveTheQueue() throws Exception {
+        for (boolean lanes : new boolean[] { false, true }) {
+            AdmissionControl.lanes = lanes;
+            List<Lane> ran = new CopyOnWriteArrayList<>();
+            CountDownLatch blocker = new CountDownLatch(1);
+            Future<?> first = AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, blocker), executor);
+            while (AdmissionControl.getQueued() > 0) {
+                Thread.sleep(1);
+            }
+            Future<?> cancelled = AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, ran, null), executor);
+            assertEquals(1, AdmissionControl.getQueued());
+            assertTrue(cancelled.cancel(false));
+            assertEquals(0, AdmissionControl.getQueued());
+            blocker.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            assertEquals(0, AdmissionControl.getQueued());
+        }
+    }
+
+    @Test
+    public void rejectedInvocationsLeaveTheQueue() throws Exception {
+        for (boolean lanes : new boolean[] { false, true }) {
+            AdmissionControl.lanes = lanes;
+            scheduler.shutdown();
+            try {
+                AdmissionControl.submit(new LaneInvocation(Lane.NORMAL, new CopyOnWriteArrayList<>(), null), executor);
+                fail();
+            } catch (RejectedExecutionException e) {
+                assertEquals(0, AdmissionControl.getQueued());
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package play;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import play.Invoker.Invocation;
+import play.Invoker.InvocationContext;
+
+/**
+ * Throughput of the invocation executors when the actions block on I/O (simulated with a sleep). Not part of the
+ * test suite, run it with <code>java -cp ... play.InvocationExecutorBenchmark</code>.
+ */
+public class InvocationExecutorBenchmark {
+
+    private static final int POOL_SIZE = 8;
+    private static final int INVOCATIONS = 2000;
+    private static final int BLOCKING_MILLIS = 20;
+
+    public static void main(String[] args) throws Exception {
+        new PlayBuilder().build();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(POOL_SIZE);
+        List<InvocationExecutor> executors = new ArrayList<>();
+        executors.add(new InvocationExecutor.FixedPool(scheduler));
+        executors.add(new InvocationExecutor.WorkStealingPool(POOL_SIZE));
+        if (InvocationExecutor.VirtualThreads.isAvailable()) {
+            executors.add(new InvocationExecutor.VirtualThreads());
+        } else {
+            System.out.println("Virtual threads are not available in Java " + System.getProperty("java.version"));
+        }
+        for (InvocationExecutor executor : executors) {
+            // Warm up, then measure
+            run(executor, INVOCATIONS / 10);
+            long start = System.nanoTime();
+            run(executor, INVOCATIONS);
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%-17s %5d invocations blocking %d ms: %6d ms, %8.1f invocations/s",
+                    executor.getClass().getSimpleName(), INVOCATIONS, BLOCKING_MILLIS, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    INVOCATIONS * 1e9 / elapsed));
+        }
+        scheduler.shutdownNow();
+        System.exit(0);
+    }
+
+    private static void run(InvocationExecutor executor, int count) throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            executor.submit(new Invocation() {
+
+                @Override
+                public boolean init() {
+                    InvocationContext.current.set(getInvocationContext());
+                    return true;
+                }
+
+                @Override
+                public InvocationContext getInvocationContext() {
+                    return new InvocationContext("Benchmark");
+                }
+
+                @Override
+                public void execute() throws Exception {
+                    Thread.sleep(BLOCKING_MILLIS);
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+}
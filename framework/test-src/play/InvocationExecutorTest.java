@@ -0,0 +1,134 @@
+package play;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.Invoker.Invocation;
+import play.Invoker.InvocationContext;
+import play.mvc.Http;
+import play.mvc.Scope;
+
+public class InvocationExecutorTest {
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @Before
+    public void setUp() {
+        new PlayBuilder().build();
+        // One thread, so that the invocations of a test run one after the other on the same thread
+        scheduler = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Sets the request scopes like a request invocation, and records what it saw
+     */
+    static class ScopedInvocation extends Invocation {
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Object> request = new AtomicReference<>();
+
+        @Override
+        public boolean init() {
+            InvocationContext.current.set(getInvocationContext());
+            return true;
+        }
+
+        @Override
+        public InvocationContext getInvocationContext() {
+            return new InvocationContext("Test");
+        }
+
+        @Override
+        public void execute() {
+            Http.Request.current.set(new Http.Request());
+            Scope.Params.current.set(new Scope.Params());
+            request.set(Http.Request.current());
+            done.countDown();
+        }
+    }
+
+    private List<InvocationExecutor> executors() {
+        List<InvocationExecutor> executors = new ArrayList<>();
+        executors.add(new InvocationExecutor.FixedPool(scheduler));
+        executors.add(new InvocationExecutor.WorkStealingPool(1));
+        if (InvocationExecutor.VirtualThreads.isAvailable()) {
+            executors.add(new InvocationExecutor.VirtualThreads());
+        }
+        return executors;
+    }
+
+    @Test
+    public void runsInvocationsAndClearsTheirScopes() throws Exception {
+        for (InvocationExecutor executor : executors()) {
+            ScopedInvocation invocation = new ScopedInvocation();
+            Future<?> future = executor.submit(invocation);
+            future.get(5, TimeUnit.SECONDS);
+            assertTrue(executor.getClass().getSimpleName(), invocation.request.get() != null);
+
+            // The next task of the same thread starts with empty scopes
+            final AtomicReference<Object> leftOver = new AtomicReference<>("not run");
+            Invocation check = new ScopedInvocation() {
+                @Override
+                public void execute() {
+                    leftOver.set(Http.Request.current() != null ? Http.Request.current() : Scope.Params.current());
+                }
+            };
+            executor.submit(check).get(5, TimeUnit.SECONDS);
+            assertNull(executor.getClass().getSimpleName(), leftOver.get());
+            assertTrue(executor.getTaskCount() >= 2);
+        }
+    }
+
+    @Test
+    public void threadsDoNotKeepTheClassloaderOfAnInvocation() throws Exception {
+        for (InvocationExecutor executor : executors()) {
+            final ClassLoader application = new ClassLoader() {
+            };
+            executor.submit(new ScopedInvocation() {
+                @Override
+                public void execute() {
+                    Thread.currentThread().setContextClassLoader(application);
+                }
+            }).get(5, TimeUnit.SECONDS);
+
+            final AtomicReference<ClassLoader> leftOver = new AtomicReference<>(application);
+            final CountDownLatch checked = new CountDownLatch(1);
+            executor.execute(() -> {
+                leftOver.set(Thread.currentThread().getContextClassLoader());
+                checked.countDown();
+            });
+            assertTrue(checked.await(5, TimeUnit.SECONDS));
+            assertTrue(executor.getClass().getSimpleName(), leftOver.get() != application);
+        }
+    }
+
+    @Test
+    public void schedulesDelayedInvocations() throws Exception {
+        for (InvocationExecutor executor : executors()) {
+            ScopedInvocation invocation = new ScopedInvocation();
+            long start = System.nanoTime();
+            Future<?> future = executor.schedule(invocation, 50, TimeUnit.MILLISECONDS);
+            future.get(5, TimeUnit.SECONDS);
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 45);
+            assertEquals(0, invocation.done.getCount());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package play;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import play.Invoker.Invocation;
+import play.Invoker.InvocationContext;
+import play.Invoker.WaitForTasksCompletion;
+
+public class WaitForTasksCompletionTest {
+
+    @Before
+    public void setUp() {
+        new PlayBuilder().build();
+    }
+
+    static class ResumedInvocation extends Invocation {
+
+        final CountDownLatch resumed = new CountDownLatch(1);
+
+        @Override
+        public boolean init() {
+            return true;
+        }
+
+        @Override
+        public InvocationContext getInvocationContext() {
+            return new InvocationContext("Test");
+        }
+
+        @Override
+        public void execute() {
+            resumed.countDown();
+        }
+    }
+
+    /**
+     * Like Guava's ListenableFuture
+     */
+    public static class ListenableTask extends FutureTask<Void> {
+
+        Runnable listener;
+
+        ListenableTask() {
+            super(() -> null);
+        }
+
+        public void addListener(Runnable listener, Executor executor) {
+            this.listener = listener;
+        }
+
+        @Override
+        protected void done() {
+            listener.run();
+        }
+    }
+
+    private static void assertResumed(Future<?> task, Runnable complete) throws Exception {
+        ResumedInvocation invocation = new ResumedInvocation();
+        int pending = WaitForTasksCompletion.getPending();
+        WaitForTasksCompletion.waitFor(task, invocation);
+        assertEquals(pending + 1, WaitForTasksCompletion.getPending());
+        complete.run();
+        assertTrue(invocation.resumed.await(5, TimeUnit.SECONDS));
+        assertEquals(pending, WaitForTasksCompletion.getPending());
+    }
+
+    @Test
+    public void resumesOnCompletion() throws Exception {
+        long resumed = WaitForTasksCompletion.getResumed();
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        assertResumed(future, () -> future.complete("done"));
+
+        ListenableTask listenable = new ListenableTask();
+        assertResumed(listenable, listenable);
+        assertTrue(listenable.listener != null);
+
+        FutureTask<Void> opaque = new FutureTask<>(() -> null);
+        assertResumed(opaque, opaque);
+
+        assertEquals(resumed + 3, WaitForTasksCompletion.getResumed());
+    }
+}
@@ -1,11 +1,43 @@
 package play.cache;
 
 import org.junit.Test;
+import play.Play;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class CacheTest {
+
+    /**
+     * @return A cache keeping the elements in a map, without expiration
+     */
+    public static CacheImpl inMemory() {
+        Map<String, Object> elements = new ConcurrentHashMap<>();
+        CacheImpl cache = mock(CacheImpl.class);
+        when(cache.get(anyString())).thenAnswer(invocation -> elements.get(invocation.getArguments()[0]));
+        doAnswer(invocation -> elements.put((String) invocation.getArguments()[0], invocation.getArguments()[1])).when(cache)
+                .set(anyString(), any(), anyInt());
+        return cache;
+    }
+
     @Test
     public void clearCallsImplClear() {
         Cache.cacheImpl = mock(CacheImpl.class);
@@ -18,4 +50,83 @@ public class CacheTest {
         Cache.cacheImpl = null;
         Cache.clear();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void missingElementsAreComputedOnce() throws Exception {
+        Cache.cacheImpl = inMemory();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch computing = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> values = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                values.add(executor.submit(() -> Cache.get("CacheTest_computedOnce", "1h", () -> {
+                    computations.incrementAndGet();
+                    computing.await(5, TimeUnit.SECONDS);
+                    return "value";
+                })));
+            }
+            Thread.sleep(200);
+            computing.countDown();
+            for (Future<String> value : values) {
+                assertThat(value.get()).isEqualTo("value");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(computations.get()).isEqualTo(1);
+        assertThat(Cache.get("CacheTest_computedOnce", "1h", () -> "other")).isEqualTo("value");
+    }
+
+    @Test
+    public void previousValueIsServedWhileExpiredElementsAreComputedAgain() throws Exception {
+        Cache.cacheImpl = inMemory();
+        Cache.cacheImpl.set("CacheTest_expired", new CachedValue("old", System.currentTimeMillis() - 1, 0), 60);
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> computed = executor.submit(() -> Cache.get("CacheTest_expired", "1h", () -> {
+                computing.countDown();
+                done.await(5, TimeUnit.SECONDS);
+                return "new";
+            }));
+            computing.await(5, TimeUnit.SECONDS);
+            assertThat(Cache.get("CacheTest_expired", "1h", () -> "concurrent")).isEqualTo("old");
+            done.countDown();
+            assertThat(computed.get()).isEqualTo("new");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(Cache.get("CacheTest_expired", "1h", () -> "again")).isEqualTo("new");
+    }
+
+    @Test
+    public void elementsAreSometimesComputedBeforeTheyExpire() {
+        Cache.cacheImpl = inMemory();
+        // Took 1s to compute, expires in 1s
+        Cache.cacheImpl.set("CacheTest_early", new CachedValue("old", System.currentTimeMillis() + 1000, 1000), 60);
+        String value = "old";
+        for (int i = 0; i < 100 && value.equals("old"); i++) {
+            value = Cache.get("CacheTest_early", "1h", () -> "new");
+        }
+        assertThat(value).isEqualTo("new");
+    }
+
+    @Test
+    public void theMaximumWaitIsReadWhenTheCacheStarts() {
+        Properties configuration = Play.configuration;
+        long maxWait = CachedValue.maxWait;
+        try {
+            Play.configuration = new Properties();
+            Play.configuration.setProperty("play.cache.maxWait", "2s");
+            Cache.forcedCacheImpl = inMemory();
+            Cache.init();
+            assertThat(CachedValue.maxWait).isEqualTo(2000L);
+        } finally {
+            Play.configuration = configuration;
+            Cache.forcedCacheImpl = null;
+            CachedValue.maxWait = maxWait;
+        }
+    }
+}
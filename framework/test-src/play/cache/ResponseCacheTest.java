@@ -0,0 +1,262 @@
+package play.cache;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.junit.Before;
+import org.junit.Test;
+import play.Invoker;
+import play.Play;
+import play.PlayBuilder;
+import play.libs.F.Promise;
+import play.mvc.Http;
+import play.mvc.Scope;
+import play.server.PlayHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ResponseCacheTest {
+
+    public static class Pages {
+        @CacheFor("1h")
+        public static void show() {
+        }
+
+        public static void edit() {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        new PlayBuilder().build();
+        Cache.cacheImpl = CacheTest.inMemory();
+    }
+
+    /**
+     * @return Whether the response was cached, released as {@link play.mvc.ActionInvoker} does
+     */
+    private static boolean isCached(Http.Request request) {
+        try {
+            return ResponseCache.lookup(request) != null;
+        } finally {
+            ResponseCache.release(request);
+        }
+    }
+
+    private static Http.Request request(String action, String url) throws Exception {
+        Http.Request request = new Http.Request();
+        request.method = "GET";
+        request.url = url;
+        request.querystring = "";
+        request.invokedMethod = Pages.class.getMethod(action);
+        return request;
+    }
+
+    private static Http.Response respond(Http.Request request, String body) {
+        Http.Response response = new Http.Response();
+        response.out = new ByteArrayOutputStream();
+        response.contentType = "text/html";
+        response.encoding = "utf-8";
+        response.out.write(body.getBytes(StandardCharsets.UTF_8), 0, body.length());
+        return response;
+    }
+
+    private static String served(Http.Request request, CachedResponse cached) {
+        Http.Response response = new Http.Response();
+        response.out = new ByteArrayOutputStream();
+        cached.writeTo(request, response);
+        return response.status + " " + new String(response.out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void responsesAreServedWithoutInvokingTheAction() throws Exception {
+        Http.Request first = request("show", "/pages/1");
+        assertThat(ResponseCache.lookup(first)).isNull();
+        Http.Response response = respond(first, "page 1");
+        ResponseCache.store(first, response);
+        assertThat(response.getHeader("ETag")).isNotNull();
+
+        Http.Request second = request("show", "/pages/1");
+        CachedResponse cached = ResponseCache.lookup(second);
+        assertThat(cached).isNotNull();
+        assertThat(cached.etag).isEqualTo(response.getHeader("ETag"));
+        assertThat(served(second, cached)).isEqualTo("200 page 1");
+
+        assertThat(isCached(request("show", "/pages/2"))).isFalse();
+    }
+
+    @Test
+    public void clientsRevalidateWithTheEtag() throws Exception {
+        Http.Request first = request("show", "/pages/1");
+        ResponseCache.lookup(first);
+        Http.Response response = respond(first, "page 1");
+        ResponseCache.store(first, response);
+
+        Http.Request second = request("show", "/pages/1");
+        second.headers.put("if-none-match", new Http.Header("if-none-match", "\"other\", " + response.getHeader("ETag")));
+        assertThat(served(second, ResponseCache.lookup(second))).isEqualTo("304 ");
+    }
+
+    @Test
+    public void responsesVaryOnTheRequestHeaders() throws Exception {
+        Http.Request french = request("show", "/pages/1");
+        french.headers.put("accept-language", new Http.Header("accept-language", "fr"));
+        Http.Request english = request("show", "/pages/1");
+        english.headers.put("accept-language", new Http.Header("accept-language", "en"));
+
+        ResponseCache.lookup(french);
+        Http.Response response = respond(french, "bonjour");
+        response.setHeader("Vary", "Accept-Language");
+        ResponseCache.store(french, response);
+
+        assertThat(ResponseCache.lookup(english)).isNull();
+        response = respond(english, "hello");
+        response.setHeader("Vary", "Accept-Language");
+        ResponseCache.store(english, response);
+
+        french.args.clear();
+        english.args.clear();
+        assertThat(served(french, ResponseCache.lookup(french))).isEqualTo("200 bonjour");
+        assertThat(served(english, ResponseCache.lookup(english))).isEqualTo("200 hello");
+    }
+
+    @Test
+    public void requestsWithASessionAreNotCached() throws Exception {
+        Http.Request first = request("show", "/pages/1");
+        Http.Cookie session = new Http.Cookie();
+        session.name = Scope.COOKIE_PREFIX + "_SESSION";
+        session.value = "user=1";
+        first.cookies.put(session.name, session);
+        assertThat(ResponseCache.lookup(first)).isNull();
+        ResponseCache.store(first, respond(first, "page 1 for user 1"));
+
+        assertThat(isCached(request("show", "/pages/1"))).isFalse();
+    }
+
+    @Test
+    public void responsesSettingCookiesOrFailingAreNotCached() throws Exception {
+        Http.Request first = request("show", "/pages/1");
+        ResponseCache.lookup(first);
+        Http.Response response = respond(first, "page 1");
+        response.setCookie("visited", "1");
+        ResponseCache.store(first, response);
+
+        Http.Request second = request("show", "/pages/1");
+        assertThat(ResponseCache.lookup(second)).isNull();
+        response = respond(second, "error");
+        response.status = Http.StatusCode.INTERNAL_ERROR;
+        ResponseCache.store(second, response);
+
+        assertThat(isCached(request("show", "/pages/1"))).isFalse();
+    }
+
+    @Test
+    public void onlyCachedActionsAreLookedUp() throws Exception {
+        Http.Request get = request("edit", "/pages/1/edit");
+        assertThat(ResponseCache.lookup(get)).isNull();
+        ResponseCache.store(get, respond(get, "form"));
+        assertThat(isCached(request("edit", "/pages/1/edit"))).isFalse();
+
+        Http.Request post = request("show", "/pages/1");
+        post.method = "POST";
+        assertThat(ResponseCache.lookup(post)).isNull();
+        assertThat(post.args).isEmpty();
+    }
+
+    @Test
+    public void requestsWithAnAuthorizationAreNotCached() throws Exception {
+        Http.Request first = request("show", "/pages/1");
+        first.headers.put("authorization", new Http.Header("authorization", "Basic dXNlcjpzZWNyZXQ="));
+        assertThat(ResponseCache.lookup(first)).isNull();
+        ResponseCache.store(first, respond(first, "page 1 for user"));
+
+        assertThat(isCached(request("show", "/pages/1"))).isFalse();
+    }
+
+    @Test
+    public void theOthersComputeTheResponseWhenTheActionIsNotInvoked() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Http.Request first = request("show", "/pages/1");
+            assertThat(ResponseCache.lookup(first)).isNull();
+            final Http.Request second = request("show", "/pages/1");
+            Future<CachedResponse> waiting = executor.submit(() -> ResponseCache.lookup(second));
+
+            // The client went away while the request was queued: the action is not invoked
+            Channel channel = mock(Channel.class);
+            ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+            when(ctx.getChannel()).thenReturn(channel);
+            PlayHandler.NettyInvocation invocation = new PlayHandler().new NettyInvocation(first, new Http.Response(), ctx, null, null);
+            invocation.execute();
+            invocation._finally();
+
+            assertThat(waiting.get(5, TimeUnit.SECONDS)).isNull();
+            ResponseCache.store(second, respond(second, "page 1"));
+            assertThat(isCached(request("show", "/pages/1"))).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void theOthersStopWaitingForAComputationThatNeverEnds() throws Exception {
+        long maxWait = CachedValue.maxWait;
+        Http.Request first = request("show", "/pages/1");
+        try {
+            CachedValue.maxWait = 50;
+            assertThat(ResponseCache.lookup(first)).isNull();
+            Http.Request second = request("show", "/pages/1");
+            long start = System.currentTimeMillis();
+            assertThat(ResponseCache.lookup(second)).isNull();
+            assertThat(System.currentTimeMillis() - start).isGreaterThanOrEqualTo(50);
+            ResponseCache.store(second, respond(second, "page 1"));
+            assertThat(isCached(request("show", "/pages/1"))).isTrue();
+        } finally {
+            CachedValue.maxWait = maxWait;
+            ResponseCache.release(first);
+        }
+    }
+
+    @Test
+    public void suspendedActionsKeepComputingTheResponse() throws Exception {
+        Http.Request first = request("show", "/pages/1");
+        assertThat(ResponseCache.lookup(first)).isNull();
+
+        Channel channel = mock(Channel.class);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.getChannel()).thenReturn(channel);
+        PlayHandler.NettyInvocation invocation = new PlayHandler().new NettyInvocation(first, new Http.Response(), ctx, null, null);
+        Promise<Void> task = new Promise<>();
+        invocation.suspend(new Invoker.Suspend(task));
+        invocation._finally();
+        assertThat(CachedValue.Computing.of("urlcache:/pages/1")).isNotNull();
+
+        ResponseCache.store(first, respond(first, "page 1"));
+        assertThat(CachedValue.Computing.of("urlcache:/pages/1")).isNull();
+        assertThat(isCached(request("show", "/pages/1"))).isTrue();
+    }
+
+    @Test
+    public void responsesAreOnlyServedBeforeTheInterceptorsWhenEnabled() throws Exception {
+        Http.Request first = request("show", "/pages/1");
+        ResponseCache.lookup(first);
+        ResponseCache.store(first, respond(first, "page 1"));
+
+        assertThat(ResponseCache.lookupBeforeInvocation(request("show", "/pages/1"))).isNull();
+        try {
+            Play.configuration.setProperty("play.cache.serveBeforeInterceptors", "true");
+            ResponseCache.configure();
+            assertThat(ResponseCache.lookupBeforeInvocation(request("show", "/pages/1"))).isNotNull();
+        } finally {
+            ResponseCache.serveBeforeInterceptors = false;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package play.classloading;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BytecodeArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entriesAreReadBackWhenTheSourceHasNotChanged() throws Exception {
+        File file = new File(folder.getRoot(), "test.archive");
+        BytecodeArchive.Builder builder = new BytecodeArchive.Builder();
+        builder.add("/app/views/Application/index.html", "abc", "index".getBytes("UTF-8"));
+        builder.add("controllers.Application", "def", new byte[0]);
+        builder.add("/app/views/main.html", null, "main".getBytes("UTF-8"));
+        builder.write(file);
+
+        BytecodeArchive archive = BytecodeArchive.open(file);
+        assertThat(archive.names()).hasSize(3);
+        assertThat(new String(archive.get("/app/views/Application/index.html", "abc"), "UTF-8")).isEqualTo("index");
+        assertThat(archive.get("/app/views/Application/index.html", "changed")).isNull();
+        assertThat(archive.get("controllers.Application", "def")).isEmpty();
+        assertThat(new String(archive.get("/app/views/main.html"), "UTF-8")).isEqualTo("main");
+        assertThat(archive.get("/app/views/missing.html")).isNull();
+        assertThat(archive.containsPrefix("/app/views/Application/")).isTrue();
+        assertThat(archive.containsPrefix("/app/controllers/")).isFalse();
+    }
+
+    @Test
+    public void invalidArchivesAreIgnored() throws Exception {
+        assertThat(BytecodeArchive.open(new File(folder.getRoot(), "missing.archive"))).isNull();
+
+        File file = new File(folder.getRoot(), "truncated.archive");
+        BytecodeArchive.Builder builder = new BytecodeArchive.Builder();
+        builder.add("template", "abc", new byte[1000]);
+        builder.write(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+        assertThat(BytecodeArchive.open(file)).isNull();
+
+        File other = folder.newFile("other.archive");
+        assertThat(BytecodeArchive.open(other)).isNull();
+    }
+}
@@ -0,0 +1,115 @@
+package play.data.binding;
+
+import java.lang.annotation.Annotation;
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import play.PlayBuilder;
+import play.data.validation.ValidationPlugin;
+
+/**
+ * Time to bind the form of a CRUD edit screen: an order with a customer, an address and 50 lines. Not part of the test
+ * suite, run it with <code>java -cp ... play.data.binding.BinderBenchmark</code>.
+ */
+public class BinderBenchmark {
+
+    private static final int ITERATIONS = 20000;
+
+    public enum Status {
+        NEW, PAID, SHIPPED
+    }
+
+    public static class Address {
+        public String street;
+        public String city;
+        public String zip;
+        public String country;
+    }
+
+    public static class Customer {
+        private String name;
+        private String email;
+        public Address address;
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setEmail(String email) {
+            this.email = email;
+        }
+    }
+
+    public static class Line {
+        public Long id;
+        public String product;
+        public int quantity;
+        public BigDecimal price;
+        public boolean gift;
+        public String comment;
+    }
+
+    public static class Order {
+        public Long id;
+        public String reference;
+        public Status status;
+        public Date ordered;
+        public Integer priority;
+        public boolean urgent;
+        public BigDecimal total;
+        public String notes;
+        public Customer customer;
+        public List<Line> lines;
+    }
+
+    public static void main(String[] args) {
+        new PlayBuilder().build();
+        new ValidationPlugin().beforeInvocation();
+
+        Map<String, String[]> params = new HashMap<>();
+        put(params, "order.id", "42");
+        put(params, "order.reference", "ORD-42");
+        put(params, "order.status", "PAID");
+        put(params, "order.ordered", "2018-06-01");
+        put(params, "order.priority", "3");
+        put(params, "order.urgent", "true");
+        put(params, "order.total", "1234.50");
+        put(params, "order.notes", "Leave at the door");
+        put(params, "order.customer.name", "Jane");
+        put(params, "order.customer.email", "jane@example.com");
+        put(params, "order.customer.address.street", "1 Main Street");
+        put(params, "order.customer.address.city", "Springfield");
+        put(params, "order.customer.address.zip", "12345");
+        put(params, "order.customer.address.country", "US");
+        for (int i = 0; i < 50; i++) {
+            String line = "order.lines[" + i + "].";
+            put(params, line + "id", String.valueOf(i));
+            put(params, line + "product", "Product " + i);
+            put(params, line + "quantity", String.valueOf(i % 5 + 1));
+            put(params, line + "price", "19.99");
+            put(params, line + "gift", i % 2 == 0 ? "true" : "false");
+            put(params, line + "comment", "");
+        }
+
+        Annotation[] annotations = new Annotation[0];
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int lines = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                RootParamNode root = RootParamNode.convert(params);
+                Order order = (Order) Binder.bind(root, "order", Order.class, Order.class, annotations);
+                lines += order.lines.size();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.println(String.format("%d params: %8.0f ns/bind %s", params.size(), (double) elapsed / ITERATIONS,
+                    lines == ITERATIONS * 50 ? "" : "!"));
+        }
+    }
+
+    private static void put(Map<String, String[]> params, String name, String value) {
+        params.put(name, new String[] { value });
+    }
+}
@@ -326,6 +326,27 @@ public class BinderTest {
         assertNull(Binder.supportedTypes.get(BigDecimal.class));
     }
 
+    @Test
+    public void customBindersAreUsedOnceTheTypeWasBound() throws Exception {
+        assertThat(Binder.directBind("1", BigDecimal.class)).isEqualTo(BigDecimal.ONE);
+
+        Binder.register(BigDecimal.class, new MyBigDecimalBinder());
+        try {
+            assertThat(Binder.directBind("1", BigDecimal.class)).isEqualTo(new BigDecimal(11));
+        } finally {
+            Binder.unregister(BigDecimal.class);
+        }
+        assertThat(Binder.directBind("1", BigDecimal.class)).isEqualTo(BigDecimal.ONE);
+    }
+
+    @Test
+    public void paramNamesAreSplitLikeTheRegexp() {
+        for (String key : new String[] { "a", "", "a.b.c", "a[b].c", "a[b][c]", "a.b[c]", "[a]", ".a", "a.", "a[]", "[]", "a..b",
+                "a[0].b", "..", "a]b" }) {
+            assertThat(ParamNode.splitKey(key)).as(key).isEqualTo(key.split("[\\.\\[\\]]+"));
+        }
+    }
+
     private static class MyBigDecimalBinder implements TypeBinder<BigDecimal> {
         @Override
         public Object bind(String name, Annotation[] annotations, String value, Class actualClass, Type genericType) throws Exception {
@@ -0,0 +1,94 @@
+package play.data.parsing;
+
+import java.lang.management.ManagementFactory;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import play.mvc.Http;
+import play.test.FunctionalTest;
+import play.utils.ByteBufferInputStream;
+import play.utils.Utils;
+
+/**
+ * Time and memory allocated to decode forms of 1, 20 and 500 fields, posted or in the query string, by
+ * {@link UrlEncodedParser} and by the previous parsing (split on <code>&amp;</code>, then <code>URLDecoder</code> on
+ * each name and value). Not part of the test suite, run it with
+ * <code>java -cp ... play.data.parsing.UrlEncodedParserBenchmark</code>.
+ */
+public class UrlEncodedParserBenchmark {
+
+    private static final int ITERATIONS = 2000000;
+
+    interface Parser {
+        Map<String, String[]> parse(byte[] form);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Http.Request.current.set(FunctionalTest.newRequest());
+
+        Parser split = form -> {
+            try {
+                String data = new String(form, "utf-8");
+                Map<String, String[]> params = new LinkedHashMap<>();
+                for (String keyValue : data.split("&")) {
+                    int i = keyValue.indexOf('=');
+                    String key = i > 0 ? keyValue.substring(0, i) : keyValue;
+                    String value = i > 0 ? keyValue.substring(i + 1) : null;
+                    Utils.Maps.mergeValueInMap(params, URLDecoder.decode(key, "utf-8"),
+                            value == null ? null : URLDecoder.decode(value, "utf-8"));
+                }
+                params.put("body", new String[] { data });
+                return params;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+        UrlEncodedParser parser = new UrlEncodedParser();
+        Parser posted = form -> parser.parse(new ByteBufferInputStream(ByteBuffer.wrap(form)));
+        Parser queryString = form -> {
+            Map<String, String[]> params = new LinkedHashMap<>();
+            UrlEncodedParser.parseQueryString(new String(form, StandardCharsets.ISO_8859_1), params);
+            return params;
+        };
+
+        for (int round = 0; round < 3; round++) {
+            // The first rounds warm up
+            for (int fields : new int[] { 1, 20, 500 }) {
+                byte[] form = form(fields);
+                measure("split + URLDecoder", fields, form, split);
+                measure("UrlEncodedParser", fields, form, posted);
+                measure("query string", fields, form, queryString);
+            }
+            System.out.println();
+        }
+    }
+
+    private static byte[] form(int fields) {
+        StringBuilder form = new StringBuilder();
+        for (int i = 0; i < fields; i++) {
+            if (i > 0) {
+                form.append('&');
+            }
+            form.append("items%5B").append(i).append("%5D.address=Rue+de+la+Gare+").append(i).append("%2C+Z%C3%BCrich");
+        }
+        return form.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void measure(String name, int fields, byte[] form, Parser parser) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int iterations = ITERATIONS / fields;
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        int size = 0;
+        for (int i = 0; i < iterations; i++) {
+            size += parser.parse(form).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+        System.out.println(String.format("%-20s %3d fields (%6d bytes): %8.0f ns/form, %8d bytes allocated/form %s", name,
+                fields, form.length, (double) elapsed / iterations, allocated / iterations, size > 0 ? "" : "!"));
+    }
+}
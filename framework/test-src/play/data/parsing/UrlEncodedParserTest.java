@@ -3,8 +3,12 @@ package play.data.parsing;
 import org.junit.Test;
 import play.mvc.Http;
 import play.test.FunctionalTest;
+import play.utils.ByteBufferInputStream;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -41,6 +45,74 @@ public class UrlEncodedParserTest {
         assertThat(transform(parse), is(transform(params)));
     }
 
+    @Test
+    public void parsesBodiesStraightFromTheirBuffer() {
+        Http.Request req = FunctionalTest.newRequest();
+        Http.Request.current.set(req);
+
+        // The body is a slice of what was received, as Netty hands it over
+        byte[] received = "GARBAGEname=Jos%C3%A9&city=Z%C3%BCrich&name=Ana".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(received, 7, received.length - 7).slice();
+        Map<String, String[]> parse = new UrlEncodedParser().parse(new ByteBufferInputStream(buffer));
+
+        assertThat(parse.get("name"), is(new String[] {"José", "Ana"}));
+        assertThat(parse.get("city"), is(new String[] {"Zürich"}));
+        assertThat(parse.get("body")[0], is("name=Jos%C3%A9&city=Z%C3%BCrich&name=Ana"));
+        // The received bytes are left untouched
+        assertThat(buffer.position(), is(0));
+    }
+
+    @Test
+    public void mergesQueryStringsIntoExistingParams() {
+        Http.Request req = FunctionalTest.newRequest();
+        Http.Request.current.set(req);
+
+        Map<String, String[]> params = new LinkedHashMap<>();
+        params.put("id", new String[] {"12"});
+        UrlEncodedParser.parseQueryString("id=13&q=a+b%26c&flag&=x&bad=100%&&empty=", params);
+
+        assertThat(params.get("id"), is(new String[] {"12", "13"}));
+        assertThat(params.get("q"), is(new String[] {"a b&c"}));
+        assertThat(params.get("flag"), is(new String[] {null}));
+        assertThat(params.get("=x"), is(new String[] {null}));
+        // Values that are not properly encoded are kept as they are
+        assertThat(params.get("bad"), is(new String[] {"100%"}));
+        assertThat(params.get("empty"), is(new String[] {""}));
+        assertThat(params.containsKey("body"), is(false));
+    }
+
+    @Test
+    public void decodesWithTheCharsetOfTheForm() {
+        Http.Request req = FunctionalTest.newRequest();
+        Http.Request.current.set(req);
+
+        Map<String, String[]> parse = UrlEncodedParser.parse("name=Jos%E9&_charset_=ISO-8859-1");
+
+        assertThat(parse.get("name"), is(new String[] {"José"}));
+        assertThat(parse.get("_charset_"), is(new String[] {"ISO-8859-1"}));
+    }
+
+    @Test
+    public void theBodyReplacesAFormFieldWithTheSameName() {
+        Http.Request req = FunctionalTest.newRequest();
+        Http.Request.current.set(req);
+
+        Map<String, String[]> parse = UrlEncodedParser.parse("body=field&title=t");
+        assertThat(parse.get("body"), is(new String[] {"body=field&title=t"}));
+
+        // The params of the query string are kept
+        Map<String, String[]> params = new LinkedHashMap<>();
+        params.put("body", new String[] {"query"});
+        new UrlEncodedParser().parse(new ByteBufferInputStream(ByteBuffer.wrap("body=field".getBytes(StandardCharsets.UTF_8))), params);
+        assertThat(params.get("body"), is(new String[] {"query", "body=field"}));
+    }
+
+    @Test
+    public void largeInputsAreNotKeptByTheThread() {
+        UrlEncodedParser.Decoder decoder = new UrlEncodedParser.Decoder();
+        assertThat(decoder.input(100) == decoder.input(200), is(true));
+        assertThat(decoder.input(1 << 20) == decoder.input(1 << 20), is(false));
+    }
 
     private Map<String, String> transform(Map<String, String[]> map) {
         // arrays in map values fail during asserting
@@ -0,0 +1,198 @@
+package play.libs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import play.libs.BroadcastHub.SlowConsumerPolicy;
+import play.libs.BroadcastHub.Subscription;
+import play.libs.BroadcastHub.Topic;
+import play.libs.F.IndexedEvent;
+import play.libs.F.Promise;
+import play.mvc.Http;
+
+public class BroadcastHubTest {
+
+    static class RecordingOutbound extends Http.Outbound {
+        final List<Http.WebSocketFrame> frames = new ArrayList<>();
+        boolean writable = true;
+        boolean open = true;
+
+        @Override
+        public void send(String data) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(byte opcode, byte[] data, int offset, int length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void send(Http.WebSocketFrame frame) {
+            frames.add(frame);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean isWritable() {
+            return writable;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        List<String> texts() {
+            List<String> texts = new ArrayList<>();
+            for (Http.WebSocketFrame frame : frames) {
+                texts.add(frame.textData);
+            }
+            return texts;
+        }
+    }
+
+    private static List<String> data(List<IndexedEvent<String>> events) {
+        List<String> data = new ArrayList<>();
+        for (IndexedEvent<String> event : events) {
+            data.add(event.data);
+        }
+        return data;
+    }
+
+    @Test
+    public void findsTheMessagesSinceAnId() {
+        Topic<String> topic = new Topic<>(4);
+        for (int i = 1; i <= 6; i++) {
+            assertEquals(i, (long) topic.publish("m" + i).id);
+        }
+        assertEquals(Arrays.asList("m5", "m6"), data(topic.since(4)));
+        // Only the last 4 are kept
+        assertEquals(Arrays.asList("m3", "m4", "m5", "m6"), data(topic.since(0)));
+        assertTrue(topic.since(6).isEmpty());
+        assertEquals(Arrays.asList("m3", "m4", "m5", "m6"), topic.archive());
+    }
+
+    @Test
+    public void sendsTheSameFrameToEverySocket() {
+        Topic<String> topic = new Topic<>(10);
+        RecordingOutbound first = new RecordingOutbound();
+        RecordingOutbound second = new RecordingOutbound();
+        topic.subscribe(first, SlowConsumerPolicy.DROP);
+        topic.subscribe(second, SlowConsumerPolicy.DROP);
+
+        topic.publish("hello");
+        assertEquals(Arrays.asList("hello"), first.texts());
+        assertSame(first.frames.get(0), second.frames.get(0));
+    }
+
+    @Test
+    public void replaysTheMissedMessages() {
+        Topic<String> topic = new Topic<>(10);
+        topic.publish("m1");
+        topic.publish("m2");
+        RecordingOutbound outbound = new RecordingOutbound();
+        topic.subscribe(outbound, SlowConsumerPolicy.DROP, 1);
+        topic.publish("m3");
+        assertEquals(Arrays.asList("m2", "m3"), outbound.texts());
+    }
+
+    @Test
+    public void aSlowReplayDoesNotHoldThePublishers() throws Exception {
+        Topic<String> topic = new Topic<>(10);
+        topic.publish("m1");
+        topic.publish("m2");
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch sent = new CountDownLatch(1);
+        final RecordingOutbound outbound = new RecordingOutbound() {
+            @Override
+            public synchronized void send(Http.WebSocketFrame frame) {
+                if (frames.isEmpty()) {
+                    sending.countDown();
+                    try {
+                        sent.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.send(frame);
+            }
+        };
+        Thread subscriber = new Thread(() -> topic.subscribe(outbound, SlowConsumerPolicy.DISCONNECT, 0));
+        subscriber.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // Not sent before the replayed messages, nor waiting for them
+        Thread publisher = new Thread(() -> topic.publish("m3"));
+        publisher.start();
+        publisher.join(1000);
+        assertFalse(publisher.isAlive());
+        assertEquals(1, topic.subscribers());
+        sent.countDown();
+        subscriber.join(5000);
+        topic.publish("m4");
+        assertEquals(Arrays.asList("m1", "m2", "m3", "m4"), outbound.texts());
+    }
+
+    @Test
+    public void appliesTheSlowConsumerPolicies() {
+        Topic<String> topic = new Topic<>(10);
+        RecordingOutbound dropping = new RecordingOutbound();
+        RecordingOutbound disconnected = new RecordingOutbound();
+        Subscription dropped = topic.subscribe(dropping, SlowConsumerPolicy.DROP);
+        topic.subscribe(disconnected, SlowConsumerPolicy.DISCONNECT);
+
+        dropping.writable = false;
+        disconnected.writable = false;
+        topic.publish("m1");
+        dropping.writable = true;
+        topic.publish("m2");
+
+        assertEquals(Arrays.asList("m2"), dropping.texts());
+        assertEquals(1, dropped.dropped());
+        assertFalse(disconnected.isOpen());
+        assertTrue(disconnected.frames.isEmpty());
+        assertEquals(1, topic.subscribers());
+    }
+
+    @Test
+    public void unsubscribesClosedSockets() {
+        Topic<String> topic = new Topic<>(10);
+        RecordingOutbound outbound = new RecordingOutbound();
+        topic.subscribe(outbound, SlowConsumerPolicy.DROP);
+        outbound.open = false;
+        topic.publish("m1");
+        assertEquals(0, topic.subscribers());
+    }
+
+    @Test
+    public void wakesUpTheLongPollingClients() throws Exception {
+        Topic<String> topic = BroadcastHub.topic("test");
+        try {
+            Promise<List<IndexedEvent<String>>> waiting = topic.nextEvents(0);
+            assertFalse(waiting.isDone());
+            topic.publish("m1");
+            assertEquals(Arrays.asList("m1"), data(waiting.get()));
+
+            Promise<List<IndexedEvent<String>>> late = topic.nextEvents(0);
+            assertTrue(late.isDone());
+            assertSame(topic, BroadcastHub.topic("test"));
+        } finally {
+            BroadcastHub.remove("test");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package play.libs;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of scheduling then cancelling the timeouts of long-polling requests, with {@link java.util.Timer} (what
+ * <code>F.Timeout</code> used), a {@link ScheduledThreadPoolExecutor} (what delayed invocations used) and
+ * {@link Timers}. Several threads schedule at once, like the invocation threads do, each with a window of pending
+ * timeouts. Not part of the test suite, run it with <code>java -cp ... play.libs.TimersBenchmark</code>.
+ */
+public class TimersBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int TIMEOUTS_PER_THREAD = 100000;
+    private static final int WINDOW = 10000;
+    private static final long DELAY_MILLIS = 30000;
+
+    interface Scheduler {
+        Runnable schedule(Runnable task);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final Timer timer = new Timer("benchmark-timer", true);
+        Scheduler javaTimer = task -> {
+            TimerTask timerTask = new TimerTask() {
+                @Override
+                public void run() {
+                    task.run();
+                }
+            };
+            timer.schedule(timerTask, DELAY_MILLIS);
+            return timerTask::cancel;
+        };
+
+        final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        Scheduler scheduledExecutor = task -> {
+            ScheduledFuture<?> future = executor.schedule(task, DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            return () -> future.cancel(false);
+        };
+
+        Scheduler wheel = task -> {
+            org.jboss.netty.util.Timeout timeout = Timers.schedule(task, DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            return timeout::cancel;
+        };
+
+        for (int round = 0; round < 3; round++) {
+            // The first rounds warm up
+            measure("java.util.Timer", javaTimer);
+            // A cancelled TimerTask stays in the queue until its time comes
+            System.out.println(String.format("%-28s %7d cancelled tasks still queued", "", timer.purge()));
+            measure("ScheduledThreadPoolExecutor", scheduledExecutor);
+            measure("Timers (hashed wheel)", wheel);
+            System.out.println();
+        }
+        executor.shutdownNow();
+        timer.cancel();
+    }
+
+    private static void measure(String name, final Scheduler scheduler) throws InterruptedException {
+        Thread[] threads = new Thread[THREADS];
+        final Runnable nothing = () -> {
+        };
+        for (int i = 0; i < THREADS; i++) {
+            threads[i] = new Thread(() -> {
+                // Each thread keeps WINDOW requests waiting, and the oldest gets its event as a new one comes
+                Runnable[] window = new Runnable[WINDOW];
+                for (int j = 0; j < TIMEOUTS_PER_THREAD; j++) {
+                    int slot = j % WINDOW;
+                    if (window[slot] != null) {
+                        window[slot].run();
+                    }
+                    window[slot] = scheduler.schedule(nothing);
+                }
+                for (Runnable cancel : window) {
+                    cancel.run();
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        int total = THREADS * TIMEOUTS_PER_THREAD;
+        System.out.println(String.format("%-28s %7d schedule+cancel: %6d ms, %10.0f ops/s", name, total,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), total * 1e9 / elapsed));
+    }
+}
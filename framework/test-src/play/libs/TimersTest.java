@@ -0,0 +1,62 @@
+package play.libs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import play.libs.F.Either;
+import play.libs.F.Promise;
+import play.libs.F.Timeout;
+
+public class TimersTest {
+
+    @Test
+    public void runsTasksAfterTheirDelay() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Timers.schedule(done::countDown, 30, TimeUnit.MILLISECONDS);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 25);
+
+        final AtomicInteger runs = new AtomicInteger();
+        org.jboss.netty.util.Timeout cancelled = Timers.schedule(runs::incrementAndGet, 20, TimeUnit.MILLISECONDS);
+        cancelled.cancel();
+        Thread.sleep(100);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void timeoutIsRedeemedAfterItsDelay() throws Exception {
+        Timeout timeout = F.Timeout("token", 20);
+        assertEquals(timeout, timeout.get(5, TimeUnit.SECONDS));
+        assertEquals("token", timeout.token);
+        assertFalse(timeout.cancel(false));
+    }
+
+    @Test
+    public void timeoutSharedBetweenWaitsStillFires() throws Exception {
+        Promise<String> event = new Promise<>();
+        Timeout timeout = F.Timeout(50);
+        Promise<Either<String, Timeout>> either = Promise.waitEither(event, timeout);
+        Promise<Timeout> any = Promise.waitAny(new Promise<Timeout>(), timeout);
+        event.invoke("event");
+        assertEquals("event", either.get(5, TimeUnit.SECONDS)._1.get());
+        assertFalse(timeout.isCancelled());
+        assertEquals(timeout, any.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledTimeoutIsNeverRedeemed() throws Exception {
+        Timeout timeout = F.Timeout(20);
+        assertTrue(timeout.cancel(false));
+        assertTrue(timeout.isCancelled());
+        Thread.sleep(100);
+        assertFalse(timeout.isDone());
+    }
+}
@@ -156,6 +156,26 @@ public class ActionInvokerTest {
         }
     }
 
+    @Test
+    public void interceptorChainAppliesOnlyAndUnless() throws Exception {
+        InterceptorChain index = InterceptorChain.of(FilteredController.class, "Filtered.index");
+        InterceptorChain other = InterceptorChain.of(FilteredController.class, "Filtered.other");
+
+        assertEquals(1, index.befores.length);
+        assertEquals("onlyIndex", index.befores[0].getName());
+        assertEquals(1, other.befores.length);
+        assertEquals("unlessIndex", other.befores[0].getName());
+        assertEquals(1, index.afters.length);
+        assertEquals(1, other.afters.length);
+        assertEquals(1, index.finallies.length);
+        assertEquals(0, other.finallies.length);
+        assertEquals(1, index.catches.length);
+        assertArrayEquals(new Class<?>[] { IllegalStateException.class }, index.caught[0]);
+
+        // Built once per action
+        assertSame(index, InterceptorChain.of(FilteredController.class, "Filtered.index"));
+    }
+
     @Test
     public void testFindActionMethod() throws Exception {
         assertNull(ActionInvoker.findActionMethod("notExistingMethod", ActionClass.class));
@@ -289,4 +309,26 @@ public class ActionInvokerTest {
         @After
         public void afterMethod() {aftersCounter++;}
     }
+
+    public static class FilteredController extends Controller {
+        @play.mvc.Before(only = "Filtered.index")
+        public static void onlyIndex() {
+        }
+
+        @play.mvc.Before(unless = "Filtered.index")
+        public static void unlessIndex() {
+        }
+
+        @After(only = { "Filtered.index", "Filtered.other" })
+        public static void afterBoth() {
+        }
+
+        @Finally(unless = "Filtered.other")
+        public static void finallyIndex() {
+        }
+
+        @Catch(IllegalStateException.class)
+        public static void catchIllegalState() {
+        }
+    }
 }
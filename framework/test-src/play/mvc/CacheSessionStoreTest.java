@@ -0,0 +1,274 @@
+package play.mvc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.Play;
+import play.PlayBuilder;
+import play.cache.Cache;
+import play.cache.CacheImpl;
+import play.libs.Crypto;
+import play.mvc.Http.Request;
+import play.mvc.Http.Response;
+import play.mvc.Scope.Session;
+
+public class CacheSessionStoreTest {
+
+    /**
+     * Keeps the values in a map, and the keys written
+     */
+    static class MapCache implements CacheImpl {
+        final Map<String, Object> values = new ConcurrentHashMap<>();
+        final List<String> written = new ArrayList<>();
+
+        @Override
+        public void add(String key, Object value, int expiration) {
+            values.putIfAbsent(key, value);
+        }
+
+        @Override
+        public boolean safeAdd(String key, Object value, int expiration) {
+            return values.putIfAbsent(key, value) == null;
+        }
+
+        @Override
+        public void set(String key, Object value, int expiration) {
+            written.add(key);
+            values.put(key, value);
+        }
+
+        @Override
+        public boolean safeSet(String key, Object value, int expiration) {
+            set(key, value, expiration);
+            return true;
+        }
+
+        @Override
+        public void replace(String key, Object value, int expiration) {
+            values.replace(key, value);
+        }
+
+        @Override
+        public boolean safeReplace(String key, Object value, int expiration) {
+            return values.replace(key, value) != null;
+        }
+
+        @Override
+        public Object get(String key) {
+            return values.get(key);
+        }
+
+        @Override
+        public Map<String, Object> get(String[] keys) {
+            Map<String, Object> result = new HashMap<>();
+            for (String key : keys) {
+                result.put(key, values.get(key));
+            }
+            return result;
+        }
+
+        @Override
+        public long incr(String key, int by) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long decr(String key, int by) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear() {
+            values.clear();
+        }
+
+        @Override
+        public void delete(String key) {
+            written.add(key);
+            values.remove(key);
+        }
+
+        @Override
+        public boolean safeDelete(String key) {
+            delete(key);
+            return true;
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    private MapCache cache;
+
+    @Before
+    public void setUp() {
+        new PlayBuilder().build();
+        Play.started = true;
+        Play.secretKey = "0112358";
+        cache = new MapCache();
+        Cache.cacheImpl = cache;
+    }
+
+    @After
+    public void tearDown() {
+        CacheSessionStore.stopAll();
+        Play.started = false;
+        Cache.cacheImpl = null;
+    }
+
+    private static void newRequest(String sessionCookie) {
+        Request request = new Request();
+        if (sessionCookie != null) {
+            Http.Cookie cookie = new Http.Cookie();
+            cookie.name = Scope.COOKIE_PREFIX + "_SESSION";
+            cookie.value = sessionCookie;
+            request.cookies.put(cookie.name, cookie);
+        }
+        Request.current.set(request);
+        Response.current.set(new Response());
+    }
+
+    private static String sessionCookie() {
+        Http.Cookie cookie = Response.current().cookies.get(Scope.COOKIE_PREFIX + "_SESSION");
+        return cookie != null ? cookie.value : null;
+    }
+
+    private static String save(CacheSessionStore store, String cookie, String... keyValues) {
+        newRequest(cookie);
+        Session session = store.restore();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            session.put(keyValues[i], keyValues[i + 1]);
+        }
+        store.save(session);
+        return sessionCookie();
+    }
+
+    @Test
+    public void keepsOnlyASignedIdInTheCookie() {
+        String cookie = save(new CacheSessionStore(), null, "user", "jane", "lang", "fr");
+        String id = cookie.substring(cookie.indexOf('-') + 1);
+        assertFalse(cookie.contains("jane"));
+        assertEquals(Crypto.sign(id, Play.secretKey.getBytes(), CookieSessionStore.SIGNATURE_ALGORITHM) + "-" + id, cookie);
+        assertEquals("jane", cache.get(CacheSessionStore.KEY_PREFIX + id + ":user"));
+
+        // Read back from the cache by another node
+        newRequest(cookie);
+        Session session = new CacheSessionStore().restore();
+        assertEquals("jane", session.get("user"));
+        assertEquals("fr", session.get("lang"));
+
+        newRequest(cookie.replace(id, id.replace('-', '0')));
+        assertTrue(new CacheSessionStore().restore().isEmpty());
+    }
+
+    @Test
+    public void writesOnlyTheValuesThatChanged() {
+        CacheSessionStore store = new CacheSessionStore();
+        String cookie = save(store, null, "user", "jane", "lang", "fr");
+        String prefix = CacheSessionStore.KEY_PREFIX + cookie.substring(cookie.indexOf('-') + 1);
+        cache.written.clear();
+
+        assertEquals(cookie, save(store, cookie, "lang", "fr"));
+        assertEquals(Arrays.asList(), cache.written);
+
+        save(store, cookie, "lang", "de");
+        assertEquals(Arrays.asList(prefix + ":lang"), cache.written);
+        cache.written.clear();
+
+        newRequest(cookie);
+        Session session = store.restore();
+        session.remove("lang");
+        store.save(session);
+        assertEquals(Arrays.asList(prefix + ":lang", prefix), cache.written);
+        assertEquals(Arrays.asList("user"), Arrays.asList(((CacheSessionStore.Index) cache.get(prefix)).names));
+    }
+
+    @Test
+    public void deletesEmptySessions() {
+        CacheSessionStore store = new CacheSessionStore();
+        String cookie = save(store, null, "user", "jane");
+
+        newRequest(cookie);
+        Session session = store.restore();
+        session.clear();
+        store.save(session);
+        assertEquals("", sessionCookie());
+        assertTrue(cache.values.isEmpty());
+
+        newRequest(cookie);
+        assertTrue(store.restore().isEmpty());
+    }
+
+    @Test
+    public void delaysTheWritesWithWriteBehind() {
+        Play.configuration.setProperty("application.session.cache.writeBehind", "1h");
+        CacheSessionStore store = new CacheSessionStore();
+        String cookie = save(store, null, "user", "jane");
+        save(store, cookie, "lang", "fr");
+        assertTrue(cache.values.isEmpty());
+
+        newRequest(cookie);
+        assertEquals("fr", store.restore().get("lang"));
+
+        store.flush();
+        String prefix = CacheSessionStore.KEY_PREFIX + cookie.substring(cookie.indexOf('-') + 1);
+        assertEquals("jane", cache.get(prefix + ":user"));
+        assertEquals("fr", cache.get(prefix + ":lang"));
+        assertEquals(3, cache.written.size());
+        assertNull(cache.get(prefix + ":other"));
+    }
+
+    @Test
+    public void writesOnlyTheValuesThatChangedWithoutLocalCopies() {
+        Play.configuration.setProperty("application.session.cache.localSize", "0");
+        CacheSessionStore store = new CacheSessionStore();
+        String cookie = save(store, null, "user", "jane", "lang", "fr");
+        String prefix = CacheSessionStore.KEY_PREFIX + cookie.substring(cookie.indexOf('-') + 1);
+        cache.written.clear();
+
+        save(store, cookie, "lang", "fr");
+        assertEquals(Arrays.asList(), cache.written);
+
+        save(store, cookie, "lang", "de");
+        assertEquals(Arrays.asList(prefix + ":lang"), cache.written);
+        cache.written.clear();
+
+        save(store, cookie, "theme", "dark");
+        assertEquals(Arrays.asList(prefix + ":theme", prefix), cache.written);
+        newRequest(cookie);
+        assertEquals("de", new CacheSessionStore().restore().get("lang"));
+    }
+
+    @Test
+    public void writesTheDelayedChangesWhenTheApplicationStops() {
+        Play.configuration.setProperty("application.session.cache.writeBehind", "1h");
+        CacheSessionStore store = new CacheSessionStore();
+        String cookie = save(store, null, "user", "jane");
+        assertTrue(cache.values.isEmpty());
+        assertTrue(store.scheduler != null);
+
+        CacheSessionStore.stopAll();
+        String prefix = CacheSessionStore.KEY_PREFIX + cookie.substring(cookie.indexOf('-') + 1);
+        assertEquals("jane", cache.get(prefix + ":user"));
+        assertNull(store.scheduler);
+
+        // Started again by the next request
+        newRequest(cookie);
+        assertEquals("jane", store.restore().get("user"));
+        assertTrue(store.scheduler != null);
+    }
+}
@@ -0,0 +1,113 @@
+package play.mvc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import play.Play;
+import play.PlayBuilder;
+import play.libs.Crypto;
+import play.mvc.Http.Request;
+import play.mvc.Http.Response;
+import play.mvc.Scope.Session;
+
+public class CookieSessionStoreTest {
+
+    private final CookieSessionStore store = new CookieSessionStore();
+
+    @Before
+    public void setUp() {
+        new PlayBuilder().build();
+        Play.started = true;
+        Play.secretKey = "0112358";
+    }
+
+    @After
+    public void tearDown() {
+        Play.started = false;
+    }
+
+    private static void newRequest(String sessionCookie) {
+        Request request = new Request();
+        if (sessionCookie != null) {
+            Http.Cookie cookie = new Http.Cookie();
+            cookie.name = Scope.COOKIE_PREFIX + "_SESSION";
+            cookie.value = sessionCookie;
+            request.cookies.put(cookie.name, cookie);
+        }
+        Request.current.set(request);
+        Response.current.set(new Response());
+    }
+
+    private static String sessionCookie() {
+        return Response.current().cookies.get(Scope.COOKIE_PREFIX + "_SESSION").value;
+    }
+
+    private String save(String key, String value) {
+        newRequest(null);
+        Session session = store.restore();
+        session.put(key, value);
+        store.save(session);
+        return sessionCookie();
+    }
+
+    @Test
+    public void restoresTheSessionItSigned() {
+        String cookie = save("user", "jane");
+        assertEquals(Crypto.sign(cookie.substring(cookie.indexOf('-') + 1), Play.secretKey.getBytes()),
+                cookie.substring(0, cookie.indexOf('-')));
+
+        // Once from the cookies verified, then as a cookie never seen
+        for (int i = 0; i < 2; i++) {
+            newRequest(cookie);
+            assertEquals("jane", store.restore().get("user"));
+            Play.secretKey = new String(Play.secretKey);
+        }
+    }
+
+    @Test
+    public void ignoresTamperedCookies() {
+        String cookie = save("user", "jane");
+        String tampered = cookie.replace("jane", "john");
+        assertNotEquals(cookie, tampered);
+
+        newRequest(tampered);
+        assertTrue(store.restore().isEmpty());
+
+        Play.secretKey = "another secret";
+        newRequest(cookie);
+        assertTrue(store.restore().isEmpty());
+    }
+
+    @Test
+    public void keepsTheSignatureOfAnUnchangedSession() {
+        String cookie = save("user", "jane");
+
+        newRequest(cookie);
+        Session session = store.restore();
+        session.put("user", "jane");
+        store.save(session);
+        assertSame(cookie, sessionCookie());
+
+        newRequest(cookie);
+        session = store.restore();
+        session.put("user", "john");
+        store.save(session);
+        assertNotEquals(cookie, sessionCookie());
+        newRequest(sessionCookie());
+        assertEquals("john", store.restore().get("user"));
+    }
+
+    @Test
+    public void signsWithOtherAlgorithms() {
+        byte[] key = Play.secretKey.getBytes();
+        assertEquals(Crypto.sign("message", key), Crypto.sign("message", key, "HmacSHA1"));
+        assertEquals(64, Crypto.sign("message", key, "HmacSHA256").length());
+        assertNotEquals(Crypto.sign("message", key, "HmacSHA256"), Crypto.sign("message", "other".getBytes(), "HmacSHA256"));
+    }
+}
@@ -0,0 +1,100 @@
+package play.mvc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.junit.Test;
+
+public class ResponseBufferTest {
+
+    private static String text(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        String sample = "abc é € 😀 ";
+        while (sb.length() < length) {
+            sb.append(sample);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void writesBytesAcrossChunks() throws Exception {
+        byte[] data = new byte[ResponseBuffer.CHUNK_SIZE * 2 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ResponseBuffer buffer = new ResponseBuffer();
+        buffer.write(data[0]);
+        buffer.write(data, 1, data.length - 1);
+        assertEquals(data.length, buffer.size());
+        assertArrayEquals(data, buffer.toByteArray());
+
+        ChannelBuffer channelBuffer = buffer.toChannelBuffer();
+        byte[] wrapped = new byte[channelBuffer.readableBytes()];
+        channelBuffer.readBytes(wrapped);
+        assertArrayEquals(data, wrapped);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void encodesTextLikeGetBytes() throws Exception {
+        for (Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1 }) {
+            for (int length : new int[] { 0, 1, 4095, 4096, 4097, ResponseBuffer.CHUNK_SIZE * 3 }) {
+                String text = text(length);
+                ResponseBuffer buffer = new ResponseBuffer();
+                buffer.write("<", charset);
+                buffer.write(text, charset);
+                buffer.write(new StringBuilder(text), charset);
+                assertArrayEquals(charset + " " + length, ("<" + text + text).getBytes(charset), buffer.toByteArray());
+                buffer.release();
+            }
+        }
+    }
+
+    @Test
+    public void releaseEmptiesTheBuffer() throws Exception {
+        ResponseBuffer buffer = new ResponseBuffer();
+        buffer.write("first".getBytes());
+        buffer.release();
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.toChannelBuffer().readableBytes());
+        buffer.write("second".getBytes());
+        assertEquals("second", buffer.toString());
+        buffer.reset();
+        assertEquals("", buffer.toString());
+    }
+
+    @Test
+    public void thePoolDoesNotGrowPastItsSize() throws Exception {
+        ResponseBuffer[] buffers = new ResponseBuffer[ResponseBuffer.POOL_SIZE + 10];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new ResponseBuffer();
+            buffers[i].write(1);
+        }
+        for (ResponseBuffer buffer : buffers) {
+            buffer.release();
+        }
+        assertEquals(ResponseBuffer.POOL_SIZE, ResponseBuffer.pooledChunks());
+    }
+
+    @Test
+    public void detachMovesTheContentWithoutCopyingIt() throws Exception {
+        ResponseBuffer buffer = new ResponseBuffer();
+        buffer.write("first", StandardCharsets.UTF_8);
+        ResponseBuffer detached = buffer.detach();
+        assertEquals(0, buffer.size());
+
+        // The detached chunks are not reused by the next writes
+        buffer.write("second", StandardCharsets.UTF_8);
+        assertEquals("first", detached.toChannelBuffer().toString(StandardCharsets.UTF_8));
+        assertEquals("second", buffer.toString("UTF-8"));
+        buffer.release();
+    }
+}
@@ -0,0 +1,62 @@
+package play.mvc;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import play.Play;
+
+/**
+ * Compares the route dispatch index with the linear scan of the routes list. Not part of the test suite, run it with
+ * <code>java -cp ... play.mvc.RouterBenchmark</code>.
+ */
+public class RouterBenchmark {
+
+    public static void main(String[] args) {
+        Play.configuration = new Properties();
+        for (int size : new int[] { 50, 500, 5000 }) {
+            run(size);
+        }
+    }
+
+    private static void run(int size) {
+        Router.routes.clear();
+        for (int i = 0; i < size; i++) {
+            Router.appendRoute(i % 2 == 0 ? "GET" : "POST", "/module" + (i / 10) + "/resource" + i + "/{id}", "Controller" + i + ".action", null,
+                    null, null, 0);
+        }
+        Random random = new Random(size);
+        String[] paths = new String[1024];
+        for (int i = 0; i < paths.length; i++) {
+            int route = random.nextInt(size);
+            paths[i] = "/module" + (route / 10) + "/resource" + route + "/" + i;
+        }
+
+        long linear = 0;
+        long indexed = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (String path : paths) {
+                linearScan("GET", path);
+            }
+            linear = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (String path : paths) {
+                Router.route("GET", path);
+            }
+            indexed = System.nanoTime() - start;
+        }
+        System.out.println(String.format("%5d routes: linear scan %8d ns/op, index %8d ns/op", size, linear / paths.length,
+                indexed / paths.length));
+    }
+
+    private static Map<String, String> linearScan(String method, String path) {
+        for (Router.Route route : Router.routes) {
+            Map<String, String> args = route.matches(method, path, null, null);
+            if (args != null) {
+                return args;
+            }
+        }
+        return null;
+    }
+}
@@ -7,7 +7,11 @@ import play.mvc.Http.Request;
 import play.mvc.results.NotFound;
 import play.mvc.results.RenderStatic;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
 
 import static org.fest.assertions.Assertions.assertThat;
 import static org.junit.Assert.*;
@@ -126,6 +130,151 @@ public class RouterTest {
         assertTrue("Musicfile [" + musicRequest.domain + "] from the right domain must be found", canRenderFile(musicRequest));
     }
     
+    @Test
+    public void test_routeIndexKeepsFirstMatchOrder() {
+        Play.configuration = new Properties();
+        Router.routes.clear();
+        Router.appendRoute("GET", "/", "Application.index", null, null, null, 0);
+        Router.appendRoute("GET", "/?", "Application.never", null, null, null, 0);
+        Router.appendRoute("GET", "/users", "Users.list", null, null, null, 0);
+        Router.appendRoute("GET", "/users/new", "Users.blank", null, null, null, 0);
+        Router.appendRoute("GET", "/users/{id}", "Users.show", null, null, null, 0);
+        Router.appendRoute("POST", "/users/{id}", "Users.save", null, null, null, 0);
+        Router.appendRoute("*", "/users/{id}/edit", "Users.edit", null, null, null, 0);
+        Router.appendRoute("GET", "/files/.*", "Files.any", null, null, null, 0);
+        Router.appendRoute("GET", "/legacy/?", "Legacy.index", null, null, null, 0);
+        Router.appendRoute("GET", "api.example.com/users/{id}", "Api.show", null, null, null, 0);
+        Router.appendRoute("*", "/{controller}/{action}", "{controller}.{action}", null, null, null, 0);
+
+        assertEquals("Application.index", Router.route("GET", "/").get("action"));
+        assertEquals("Users.list", Router.route("GET", "/users").get("action"));
+        assertEquals("Users.blank", Router.route("GET", "/users/new").get("action"));
+        assertEquals("Users.show", Router.route("GET", "/users/42").get("action"));
+        assertEquals("Users.show", Router.route("HEAD", "/users/42").get("action"));
+        assertEquals("Users.save", Router.route("POST", "/users/42").get("action"));
+        assertEquals("Users.edit", Router.route("DELETE", "/users/42/edit").get("action"));
+        assertEquals("Files.any", Router.route("GET", "/files/a/b/c").get("action"));
+        assertEquals("Legacy.index", Router.route("GET", "/legacy/").get("action"));
+        assertEquals("Legacy.index", Router.route("GET", "/legacy").get("action"));
+        assertEquals("Users.show", Router.route("GET", "/users/42", null, "api.example.com").get("action"));
+        assertEquals("{controller}.{action}", Router.route("PROPFIND", "/users/42").get("action"));
+        assertEquals("{controller}.{action}", Router.route("GET", "/foo/bar").get("action"));
+        assertTrue(Router.route("GET", "/foo/bar/baz").isEmpty());
+
+        // The index follows changes made to the routes list
+        Router.prependRoute("GET", "/users/{id}", "Users.override");
+        assertEquals("Users.override", Router.route("GET", "/users/42").get("action"));
+        Router.routes.remove(0);
+        assertEquals("Users.show", Router.route("GET", "/users/42").get("action"));
+    }
+
+    @Test
+    public void test_routeIndexMatchesLinearScan() {
+        Play.configuration = new Properties();
+        Router.routes.clear();
+        String[] methods = { "GET", "POST", "*" };
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            String path;
+            switch (i % 5) {
+            case 0:
+                path = "/section" + (i % 7) + "/page" + i;
+                break;
+            case 1:
+                path = "/section" + (i % 7) + "/{id}";
+                break;
+            case 2:
+                path = "/section" + (i % 7) + "/item{<[0-9]+>id}/" + (i % 3);
+                break;
+            case 3:
+                path = "/section" + (i % 7) + "/page" + (i % 11) + "/?";
+                break;
+            default:
+                path = "/{a}/page" + (i % 13);
+            }
+            Router.appendRoute(methods[random.nextInt(methods.length)], path, "Action" + i + ".index", null, null, null, 0);
+        }
+        for (int i = 0; i < 2000; i++) {
+            String method = random.nextBoolean() ? "GET" : (random.nextBoolean() ? "POST" : "HEAD");
+            String path = "/section" + random.nextInt(8) + (random.nextBoolean() ? "/page" : "/item") + random.nextInt(300)
+                    + (random.nextBoolean() ? "/" + random.nextInt(4) : "") + (random.nextInt(5) == 0 ? "/" : "");
+            Map<String, String> expected = new HashMap<>();
+            for (Router.Route route : Router.routes) {
+                Map<String, String> args = route.matches(method, path, null, null);
+                if (args != null) {
+                    args.put("action", route.action);
+                    expected = args;
+                    break;
+                }
+            }
+            assertEquals(method + " " + path, expected, Router.route(method, path));
+        }
+    }
+
+    @Test
+    public void test_reverse() {
+        Play.configuration = new Properties();
+        Router.routes.clear();
+        Router.appendRoute("GET", "/users/{id}", "Users.show", null, null, null, 0);
+        Router.appendRoute("GET", "/users/{<[0-9]+>id}/posts/{slug}/?", "Posts.show", null, null, null, 0);
+        Router.appendRoute("GET", "/search", "Search.index", null, null, null, 0);
+
+        Map<String, Object> args = new HashMap<>();
+        args.put("id", "jean pierre:@/é");
+        assertEquals("/users/jean%20pierre:@%2F%C3%A9", Router.reverse("Users.show", args).url);
+
+        args = new HashMap<>();
+        args.put("id", 42);
+        args.put("slug", "hello-world");
+        args.put("page", Arrays.asList(1, 2));
+        assertEquals("/users/42/posts/hello-world?page=1&page=2", Router.reverse("Posts.show", args).url);
+
+        args = new HashMap<>();
+        args.put("id", "abc");
+        args.put("slug", "hello-world");
+        assertEquals("/users/abc?slug=hello-world", Router.reverse("Users.show", args).url);
+
+        args = new HashMap<>();
+        args.put("q", "a b&c=d");
+        args.put("filter", ":js");
+        Router.ActionDefinition definition = Router.reverse("Search.index", args);
+        assertTrue(definition.url.startsWith("/search?"));
+        assertTrue(definition.url.contains("q=a+b%26c%3Dd"));
+        assertTrue(definition.url.contains("filter=:js"));
+        assertEquals("GET", definition.method);
+    }
+
+    @Test
+    public void test_reverseCache() {
+        Play.configuration = new Properties();
+        Router.routes.clear();
+        Router.appendRoute("GET", "/users/{id}", "Users.show", null, null, null, 0);
+        Router.reverseCacheSize = 10;
+        try {
+            Map<String, Object> args = new HashMap<>();
+            args.put("id", 1);
+            Router.ActionDefinition first = Router.reverse("Users.show", args);
+            first.addRef("top");
+            args = new HashMap<>();
+            args.put("id", 1);
+            Router.ActionDefinition second = Router.reverse("Users.show", args);
+            assertEquals("/users/1", second.url);
+            assertNotSame(first, second);
+
+            args = new HashMap<>();
+            args.put("id", 2);
+            assertEquals("/users/2", Router.reverse("Users.show", args).url);
+
+            // Route changes drop the cache
+            Router.prependRoute("GET", "/people/{id}", "Users.show");
+            args = new HashMap<>();
+            args.put("id", 1);
+            assertEquals("/people/1", Router.reverse("Users.show", args).url);
+        } finally {
+            Router.reverseCacheSize = 0;
+        }
+    }
+
     public boolean canRenderFile(Request request){
         try {
             Router.route(request);
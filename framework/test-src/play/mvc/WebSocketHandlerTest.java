@@ -0,0 +1,186 @@
+package play.mvc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.junit.Test;
+
+public class WebSocketHandlerTest {
+
+    static class Recorder implements WebSocketHandler {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onOpen(Http.Outbound outbound) {
+            events.add("open");
+        }
+
+        @Override
+        public void onFrame(Http.WebSocketFrame frame) {
+            events.add(frame.textData);
+        }
+
+        @Override
+        public void onClose() {
+            events.add("close");
+        }
+    }
+
+    static class RecordingOutbound extends Http.Outbound {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void send(String data) {
+            calls.add(data);
+        }
+
+        @Override
+        public void send(byte opcode, byte[] data, int offset, int length) {
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void hold() {
+            calls.add("hold");
+        }
+
+        @Override
+        public void flush() {
+            calls.add("flush");
+        }
+    }
+
+    /**
+     * Dispatches the events when {@link #run()} is called
+     */
+    static class DeferredInbound extends Http.Inbound {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        DeferredInbound(ChannelHandlerContext ctx) {
+            super(ctx);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        protected void dispatch(Runnable task) {
+            tasks.add(task);
+        }
+
+        void run() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    private static ChannelHandlerContext context(Channel channel) {
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.getChannel()).thenReturn(channel);
+        when(channel.isReadable()).thenReturn(true);
+        return ctx;
+    }
+
+    @Test
+    public void handlesTheFramesInTheOrderTheyArrived() {
+        Channel channel = mock(Channel.class);
+        DeferredInbound inbound = new DeferredInbound(context(channel));
+        inbound._received(new Http.WebSocketFrame("before"));
+
+        Recorder handler = new Recorder();
+        RecordingOutbound outbound = new RecordingOutbound();
+        inbound.handle(handler, outbound);
+        inbound._received(new Http.WebSocketFrame("after"));
+        inbound.close();
+        inbound._received(new Http.WebSocketFrame("ignored"));
+        assertEquals(1, inbound.tasks.size());
+
+        inbound.run();
+        assertEquals(Arrays.asList("open", "before", "after", "close"), handler.events);
+        // The frames sent by the handler are written at once, for each dispatch
+        assertEquals(Arrays.asList("hold", "flush", "hold", "flush"), outbound.calls);
+    }
+
+    @Test
+    public void closesAfterTheHandlerFailed() {
+        for (boolean closedBeforeTheFailure : new boolean[] { false, true }) {
+            Channel channel = mock(Channel.class);
+            DeferredInbound inbound = new DeferredInbound(context(channel));
+            Recorder handler = new Recorder() {
+                @Override
+                public void onFrame(Http.WebSocketFrame frame) {
+                    super.onFrame(frame);
+                    throw new IllegalStateException(frame.textData);
+                }
+            };
+            inbound.handle(handler, new RecordingOutbound());
+            inbound._received(new Http.WebSocketFrame("failing"));
+            if (closedBeforeTheFailure) {
+                inbound.close();
+            }
+            try {
+                inbound.run();
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals("failing", e.getMessage());
+            }
+            // The server closes the socket after the failure
+            inbound.close();
+            inbound.run();
+            assertEquals(Arrays.asList("open", "failing", "close"), handler.events);
+        }
+    }
+
+    @Test
+    public void stopsReadingWhileTheHandlerIsBehind() {
+        Channel channel = mock(Channel.class);
+        DeferredInbound inbound = new DeferredInbound(context(channel));
+        inbound.handle(new Recorder(), new RecordingOutbound());
+
+        for (int i = 0; i < Http.Inbound.MAX_QUEUED_FRAMES - 1; i++) {
+            inbound._received(new Http.WebSocketFrame("frame"));
+        }
+        verify(channel, never()).setReadable(false);
+        inbound._received(new Http.WebSocketFrame("frame"));
+        verify(channel).setReadable(false);
+
+        inbound.run();
+        verify(channel).setReadable(true);
+    }
+
+    @Test
+    public void sendsFromTheHandler() {
+        Channel channel = mock(Channel.class);
+        Http.Inbound inbound = new DeferredInbound(context(channel)) {
+            @Override
+            protected void dispatch(Runnable task) {
+                task.run();
+            }
+        };
+        RecordingOutbound outbound = new RecordingOutbound();
+        inbound.handle(frame -> outbound.send("echo " + frame.textData), outbound);
+        inbound._received(new Http.WebSocketFrame("hello"));
+        assertEquals(Arrays.asList("hold", "flush", "hold", "echo hello", "flush"), outbound.calls);
+    }
+}
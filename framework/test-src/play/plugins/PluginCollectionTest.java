@@ -6,8 +6,14 @@ import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -16,6 +22,7 @@ import play.ConfigurationChangeWatcherPlugin;
 import play.Play;
 import play.PlayBuilder;
 import play.PlayPlugin;
+import play.data.binding.RootParamNode;
 import play.data.parsing.TempFilePlugin;
 import play.data.validation.ValidationPlugin;
 import play.db.DBPlugin;
@@ -168,6 +175,34 @@ public class PluginCollectionTest {
 
     }
 
+    @Test
+    public void dispatchesHooksToThePluginsThatOverrideThem() {
+        PluginCollection pc = new PluginCollection();
+        HookPlugin hookPlugin = new HookPlugin();
+        LegacyBinderPlugin legacyBinder = new LegacyBinderPlugin();
+        pc.addPlugin(hookPlugin);
+        pc.addPlugin(legacyBinder);
+        pc.addPlugin(new TestPlugin());
+        pc.enablePlugin(hookPlugin);
+        pc.enablePlugin(legacyBinder);
+
+        pc.beforeInvocation();
+        pc.afterInvocation();
+        assertThat(hookPlugin.calls).containsExactly("beforeInvocation");
+        assertThat(pc.getMessage("en", "key")).isEqualTo("message");
+        // Plugins that only override the deprecated bind are still asked
+        assertThat(pc.bind(new RootParamNode(new HashMap<String, String[]>()), "name", String.class, String.class, new Annotation[0]))
+                .isEqualTo("legacy");
+
+        // Enabling a plugin updates the tables
+        TestPlugin testPlugin = pc.getPluginInstance(TestPlugin.class);
+        pc.enablePlugin(testPlugin);
+        pc.disablePlugin(hookPlugin);
+        pc.beforeInvocation();
+        assertThat(hookPlugin.calls).containsExactly("beforeInvocation");
+        assertThat(pc.getMessage("en", "key")).isNull();
+    }
+
     @Test
     public void verifyThatPluginsCanAddUnitTests() {
         PluginCollection pc = new PluginCollection();
@@ -189,6 +224,28 @@ public class PluginCollectionTest {
     }
 }
 
+class HookPlugin extends PlayPlugin {
+    final List<String> calls = new ArrayList<>();
+
+    @Override
+    public void beforeInvocation() {
+        calls.add("beforeInvocation");
+    }
+
+    @Override
+    public String getMessage(String locale, Object key, Object... args) {
+        return "message";
+    }
+}
+
+class LegacyBinderPlugin extends PlayPlugin {
+    @Override
+    @Deprecated
+    public Object bind(String name, Class clazz, Type type, Annotation[] annotations, Map<String, String[]> params) {
+        return "legacy";
+    }
+}
+
 class LegacyPlugin extends PlayPlugin {
 
     @SuppressWarnings({ "deprecation" })
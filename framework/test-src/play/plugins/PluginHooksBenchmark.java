@@ -0,0 +1,145 @@
+package play.plugins;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import play.PlayBuilder;
+import play.PlayPlugin;
+
+/**
+ * Cost of the plugin hooks of a request (routing, invocation, action, and ten messages from the template) with 25
+ * enabled plugins of which two implement a hook, when every plugin is called for every hook versus with the
+ * dispatch tables of {@link PluginCollection}. Not part of the test suite, run it with
+ * <code>java -cp ... play.plugins.PluginHooksBenchmark</code>.
+ */
+public class PluginHooksBenchmark {
+
+    private static final int PLUGINS = 25;
+    private static final int REQUESTS = 2000000;
+
+    static class IdlePlugin1 extends PlayPlugin {
+    }
+
+    static class IdlePlugin2 extends PlayPlugin {
+    }
+
+    static class IdlePlugin3 extends PlayPlugin {
+    }
+
+    static class IdlePlugin4 extends PlayPlugin {
+    }
+
+    static class InvocationPlugin extends PlayPlugin {
+        int invocations;
+
+        @Override
+        public void beforeInvocation() {
+            invocations++;
+        }
+    }
+
+    static class MessagesPlugin extends PlayPlugin {
+        @Override
+        public String getMessage(String locale, Object key, Object... args) {
+            return null;
+        }
+    }
+
+    interface Request {
+        void run(PluginCollection plugins) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new PlayBuilder().build();
+        PluginCollection pc = new PluginCollection();
+        for (int i = 0; i < PLUGINS - 2; i++) {
+            PlayPlugin plugin = i % 4 == 0 ? new IdlePlugin1() : i % 4 == 1 ? new IdlePlugin2() : i % 4 == 2 ? new IdlePlugin3() : new IdlePlugin4();
+            plugin.index = i;
+            pc.addPlugin(plugin);
+            pc.enablePlugin(plugin);
+        }
+        PlayPlugin invocationPlugin = new InvocationPlugin();
+        PlayPlugin messagesPlugin = new MessagesPlugin();
+        for (PlayPlugin plugin : new PlayPlugin[] { invocationPlugin, messagesPlugin }) {
+            plugin.index = PLUGINS + plugin.getClass().getSimpleName().length();
+            pc.addPlugin(plugin);
+            pc.enablePlugin(plugin);
+        }
+
+        Request everyPlugin = plugins -> {
+            List<PlayPlugin> enabled = plugins.getEnabledPlugins();
+            for (PlayPlugin plugin : enabled) {
+                plugin.routeRequest(null);
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.onRequestRouting(null);
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.rawInvocation(null, null);
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.beforeInvocation();
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.beforeActionInvocation(null);
+            }
+            for (int i = 0; i < 10; i++) {
+                for (PlayPlugin plugin : enabled) {
+                    plugin.getMessage("en", "key");
+                }
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.onActionInvocationResult(null);
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.afterActionInvocation();
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.onActionInvocationFinally();
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.afterInvocation();
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.onInvocationSuccess();
+            }
+            for (PlayPlugin plugin : enabled) {
+                plugin.invocationFinally();
+            }
+        };
+
+        Request dispatchTables = plugins -> {
+            plugins.routeRequest(null);
+            plugins.onRequestRouting(null);
+            plugins.rawInvocation(null, null);
+            plugins.beforeInvocation();
+            plugins.beforeActionInvocation(null);
+            for (int i = 0; i < 10; i++) {
+                plugins.getMessage("en", "key");
+            }
+            plugins.onActionInvocationResult(null);
+            plugins.afterActionInvocation();
+            plugins.onActionInvocationFinally();
+            plugins.afterInvocation();
+            plugins.onInvocationSuccess();
+            plugins.invocationFinally();
+        };
+
+        for (int round = 0; round < 3; round++) {
+            // The first rounds warm up
+            measure("every plugin", everyPlugin, pc);
+            measure("dispatch tables", dispatchTables, pc);
+            System.out.println();
+        }
+    }
+
+    private static void measure(String name, Request request, PluginCollection pc) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            request.run(pc);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%-16s %d requests: %6d ms, %6.1f ns/request", name, REQUESTS,
+                TimeUnit.NANOSECONDS.toMillis(elapsed), (double) elapsed / REQUESTS));
+    }
+}
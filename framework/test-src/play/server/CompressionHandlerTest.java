@@ -0,0 +1,188 @@
+package play.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseDecoder;
+import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import play.Play;
+
+public class CompressionHandlerTest {
+
+    private static final String TEXT = text();
+
+    @BeforeClass
+    public static void enableCompression() {
+        Play.configuration = new Properties();
+        Play.configuration.setProperty("play.netty.compression", "true");
+    }
+
+    private static String text() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            sb.append("<li>item ").append(i).append("</li>\n");
+        }
+        return sb.toString();
+    }
+
+    private static HttpResponse roundTrip(String method, String acceptEncoding, Object... messages) {
+        EncoderEmbedder<Object> server = new EncoderEmbedder<>(new HttpResponseEncoder(), new CompressionHandler());
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.valueOf(method), "/");
+        if (acceptEncoding != null) {
+            request.headers().set(HttpHeaders.Names.ACCEPT_ENCODING, acceptEncoding);
+        }
+        server.getPipeline().sendUpstream(new UpstreamMessageEvent(server.getPipeline().getChannel(), request, null));
+        for (Object message : messages) {
+            server.offer(message);
+        }
+        server.finish();
+        DecoderEmbedder<HttpResponse> client = new DecoderEmbedder<>(new HttpResponseDecoder(), new HttpChunkAggregator(1 << 22));
+        Object written;
+        while ((written = server.poll()) != null) {
+            // The request went through the pipeline too
+            if (written instanceof ChannelBuffer) {
+                client.offer(written);
+            }
+        }
+        return client.poll();
+    }
+
+    private static HttpResponse response(String contentType) {
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        response.headers().set(HttpHeaders.Names.CONTENT_TYPE, contentType);
+        return response;
+    }
+
+    private static byte[] body(HttpResponse response) throws Exception {
+        ChannelBuffer content = response.getContent();
+        byte[] bytes = new byte[content.readableBytes()];
+        content.readBytes(bytes);
+        String encoding = response.headers().get(HttpHeaders.Names.CONTENT_ENCODING);
+        InputStream in = new ByteArrayInputStream(bytes);
+        if ("gzip".equals(encoding)) {
+            in = new GZIPInputStream(in);
+        } else if ("deflate".equals(encoding)) {
+            in = new InflaterInputStream(in);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void compressesFullResponses() throws Exception {
+        byte[] text = TEXT.getBytes(StandardCharsets.UTF_8);
+        for (String encoding : new String[] { "gzip", "deflate" }) {
+            HttpResponse response = response("text/html; charset=utf-8");
+            response.setContent(ChannelBuffers.wrappedBuffer(text));
+            HttpHeaders.setContentLength(response, text.length);
+
+            HttpResponse received = roundTrip("GET", "br;q=1.0, " + encoding + ";q=0.8", response);
+            assertEquals(encoding, received.headers().get(HttpHeaders.Names.CONTENT_ENCODING));
+            assertEquals(HttpHeaders.Names.ACCEPT_ENCODING, received.headers().get(HttpHeaders.Names.VARY));
+            assertArrayEquals(text, body(received));
+        }
+    }
+
+    @Test
+    public void acceptEncodingIsMergedIntoTheVaryHeader() throws Exception {
+        HttpResponse response = response("text/html");
+        CompressionHandler.varyOnAcceptEncoding(response);
+        assertEquals("Accept-Encoding", response.headers().get(HttpHeaders.Names.VARY));
+
+        response = response("text/html");
+        response.headers().add(HttpHeaders.Names.VARY, "accept-encoding");
+        CompressionHandler.varyOnAcceptEncoding(response);
+        assertEquals(Arrays.asList("accept-encoding"), response.headers().getAll(HttpHeaders.Names.VARY));
+
+        response = response("text/html");
+        response.headers().add(HttpHeaders.Names.VARY, "Accept-Language");
+        response.headers().add(HttpHeaders.Names.VARY, "Cookie, User-Agent");
+        CompressionHandler.varyOnAcceptEncoding(response);
+        assertEquals(Arrays.asList("Accept-Language, Cookie, User-Agent, Accept-Encoding"), response.headers().getAll(HttpHeaders.Names.VARY));
+    }
+
+    @Test
+    public void compressesChunkedAndStreamedBodies() throws Exception {
+        byte[] text = TEXT.getBytes(StandardCharsets.UTF_8);
+        int half = text.length / 2;
+
+        HttpResponse chunked = response("application/json");
+        chunked.headers().set(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        HttpResponse received = roundTrip("GET", "gzip", chunked, new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(text, 0, half)),
+                new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(text, half, text.length - half)), HttpChunk.LAST_CHUNK);
+        assertEquals("gzip", received.headers().get(HttpHeaders.Names.CONTENT_ENCODING));
+        assertArrayEquals(text, body(received));
+
+        HttpResponse streamed = response("text/css");
+        HttpHeaders.setContentLength(streamed, text.length);
+        received = roundTrip("GET", "gzip", streamed, ChannelBuffers.wrappedBuffer(text, 0, half),
+                ChannelBuffers.wrappedBuffer(text, half, text.length - half));
+        assertEquals("gzip", received.headers().get(HttpHeaders.Names.CONTENT_ENCODING));
+        assertArrayEquals(text, body(received));
+    }
+
+    @Test
+    public void leavesOtherResponsesAlone() throws Exception {
+        byte[] text = TEXT.getBytes(StandardCharsets.UTF_8);
+        String[][] cases = { { "GET", null, "text/html" }, { "GET", "gzip;q=0, identity", "text/html" }, { "HEAD", "gzip", "text/html" },
+                { "GET", "gzip", "image/png" }, { "GET", "gzip", "application/zip" } };
+        for (String[] c : cases) {
+            HttpResponse response = response(c[2]);
+            response.setContent(ChannelBuffers.wrappedBuffer(text));
+            HttpHeaders.setContentLength(response, text.length);
+            HttpResponse received = roundTrip(c[0], c[1], response);
+            assertNull(received.headers().get(HttpHeaders.Names.CONTENT_ENCODING));
+            if (!c[0].equals("HEAD")) {
+                assertArrayEquals(text, body(received));
+            }
+        }
+
+        HttpResponse small = response("text/html");
+        small.setContent(ChannelBuffers.wrappedBuffer("<p>small</p>".getBytes()));
+        HttpHeaders.setContentLength(small, small.getContent().readableBytes());
+        assertNull(roundTrip("GET", "gzip", small).headers().get(HttpHeaders.Names.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void negotiatesByQuality() {
+        assertEquals("gzip", CompressionHandler.negotiate("gzip, deflate", "gzip", "deflate"));
+        assertEquals("deflate", CompressionHandler.negotiate("gzip;q=0.5, deflate", "gzip", "deflate"));
+        assertEquals("gzip", CompressionHandler.negotiate("*", "gzip", "deflate"));
+        assertNull(CompressionHandler.negotiate("br, identity", "gzip", "deflate"));
+        assertNull(CompressionHandler.negotiate("*;q=0", "gzip", "deflate"));
+    }
+}
@@ -0,0 +1,60 @@
+package play.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import play.mvc.Http.Response;
+import play.mvc.ResponseBuffer;
+
+public class PlayHandlerTest {
+
+    @Test
+    public void theBodyIsMovedOutOfTheResponseOnceWritten() throws Exception {
+        Channel channel = mock(Channel.class);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        ChannelFuture future = mock(ChannelFuture.class);
+        when(ctx.getChannel()).thenReturn(channel);
+        when(channel.isOpen()).thenReturn(true);
+        when(channel.write(any())).thenReturn(future);
+
+        Response response = new Response();
+        ResponseBuffer out = new ResponseBuffer();
+        out.write("page", StandardCharsets.UTF_8);
+        response.out = out;
+        HttpResponse nettyResponse = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        DefaultHttpRequest nettyRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        nettyRequest.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+        PlayHandler.writeResponse(ctx, response, nettyResponse, nettyRequest);
+
+        // The plugins that run after the response was written see an empty body, not a released one
+        assertEquals(0, response.out.size());
+        assertEquals("4", nettyResponse.headers().get(HttpHeaders.Names.CONTENT_LENGTH));
+
+        ArgumentCaptor<ChannelFutureListener> listener = ArgumentCaptor.forClass(ChannelFutureListener.class);
+        verify(future).addListener(listener.capture());
+        // Still sent as it was, until Netty has written it
+        out.write("next", StandardCharsets.UTF_8);
+        assertEquals("page", nettyResponse.getContent().toString(StandardCharsets.UTF_8));
+        listener.getValue().operationComplete(future);
+        response.out.reset();
+    }
+}
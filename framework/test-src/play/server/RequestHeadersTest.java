@@ -0,0 +1,95 @@
+package play.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import play.Play;
+import play.mvc.Http;
+import play.utils.LazyMap;
+
+public class RequestHeadersTest {
+
+    @BeforeClass
+    public static void configure() {
+        Play.configuration = new Properties();
+    }
+
+    private static HttpRequest request() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        request.headers().add("Accept", "text/html");
+        request.headers().add("X-Forwarded-For", "10.0.0.1");
+        request.headers().add("X-Forwarded-For", "10.0.0.2");
+        request.headers().add("Cookie", "PLAY_SESSION=abc; lang=fr");
+        return request;
+    }
+
+    @Test
+    public void readsHeadersAsTheyAreLookedUp() {
+        RequestHeaders headers = (RequestHeaders) PlayHandler.getHeaders(request());
+
+        assertEquals("text/html", headers.get("accept").value());
+        assertEquals(Arrays.asList("10.0.0.1", "10.0.0.2"), headers.get("x-forwarded-for").values);
+        assertTrue(headers.containsKey("x-forwarded-for"));
+        // Names are lower case, as they always were
+        assertNull(headers.get("Accept"));
+        assertFalse(headers.containsKey("Accept"));
+        assertNull(headers.get("authorization"));
+        assertFalse(headers.isLoaded());
+        assertSame(headers.get("accept"), headers.get("accept"));
+    }
+
+    @Test
+    public void buildsTheMapWhenItIsChanged() {
+        RequestHeaders headers = (RequestHeaders) PlayHandler.getHeaders(request());
+        Http.Header accept = headers.get("accept");
+        accept.values.add("application/json");
+
+        headers.put("x-custom", new Http.Header("x-custom", "1"));
+
+        assertTrue(headers.isLoaded());
+        assertEquals(4, headers.size());
+        assertSame(accept, headers.get("accept"));
+        assertEquals(Arrays.asList("text/html", "application/json"), headers.get("accept").values);
+        assertEquals("1", headers.get("x-custom").value());
+    }
+
+    @Test
+    public void isSerializedAsAHashMap() throws Exception {
+        Map<String, Http.Header> headers = PlayHandler.getHeaders(request());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(headers);
+        }
+        Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals(HashMap.class, copy.getClass());
+        assertEquals("text/html", ((Map<?, ?>) copy).get("accept").toString().replaceAll("[\\[\\]]", ""));
+    }
+
+    @Test
+    public void decodesCookiesWhenTheyAreFirstUsed() {
+        LazyMap<String, Http.Cookie> cookies = (LazyMap<String, Http.Cookie>) PlayHandler.getCookies(request());
+        assertFalse(cookies.isLoaded());
+        assertEquals("abc", cookies.get("PLAY_SESSION").value);
+        assertEquals("fr", cookies.get("lang").value);
+        assertTrue(cookies.isLoaded());
+    }
+}
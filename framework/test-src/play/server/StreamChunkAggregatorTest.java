@@ -0,0 +1,114 @@
+package play.server;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import play.Play;
+
+public class StreamChunkAggregatorTest {
+
+    @BeforeClass
+    public static void configure() throws Exception {
+        Play.configuration = new Properties();
+        Play.configuration.setProperty("play.netty.requestBody.memoryThreshold", "1024");
+        Play.tmpDir = Files.createTempDirectory("aggregator").toFile();
+    }
+
+    private static HttpRequest aggregate(byte[] body, int chunkSize) {
+        DecoderEmbedder<HttpRequest> embedder = new DecoderEmbedder<>(new StreamChunkAggregator());
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        request.setChunked(true);
+        embedder.offer(request);
+        for (int i = 0; i < body.length; i += chunkSize) {
+            embedder.offer(new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(body, i, Math.min(chunkSize, body.length - i))));
+        }
+        assertEquals(0, embedder.size());
+        embedder.offer(HttpChunk.LAST_CHUNK);
+        embedder.finish();
+        return embedder.poll();
+    }
+
+    private static byte[] body(int length) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) (i * 31);
+        }
+        return body;
+    }
+
+    @Test
+    public void keepsSmallBodiesInMemory() throws Exception {
+        byte[] body = body(1000);
+        HttpRequest request = aggregate(body, 100);
+        assertFalse(request.getContent() instanceof FileChannelBuffer);
+        assertArrayEquals(body, IOUtils.toByteArray(new ChannelBufferInputStream(request.getContent())));
+        assertEquals("1000", request.headers().get(HttpHeaders.Names.CONTENT_LENGTH));
+        assertFalse(request.headers().contains(HttpHeaders.Names.TRANSFER_ENCODING));
+        assertEquals(0, Play.tmpDir.list().length);
+    }
+
+    @Test
+    public void spillsLargeBodiesToAFile() throws Exception {
+        byte[] body = body(300000);
+        HttpRequest request = aggregate(body, 777);
+        assertTrue(request.getContent() instanceof FileChannelBuffer);
+        try (InputStream in = ((FileChannelBuffer) request.getContent()).getInputStream()) {
+            assertArrayEquals(body, IOUtils.toByteArray(in));
+        }
+        assertEquals("300000", request.headers().get(HttpHeaders.Names.CONTENT_LENGTH));
+        // The file is deleted as soon as it is open
+        assertEquals(0, Play.tmpDir.list().length);
+    }
+
+    @Test
+    public void streamsBodiesAsTheirChunksArrive() throws Exception {
+        Channel channel = mock(Channel.class);
+        StreamChunkAggregator.StreamedBody stream = new StreamChunkAggregator.StreamedBody(channel, 8);
+        CompletableFuture<byte[]> read = CompletableFuture.supplyAsync(() -> {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                IOUtils.copy(stream, out);
+                return out.toByteArray();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        byte[] body = body(100);
+        stream.offer(ChannelBuffers.wrappedBuffer(body, 0, 50));
+        stream.offer(ChannelBuffers.wrappedBuffer(body, 50, 50));
+        stream.finish();
+        assertArrayEquals(body, read.get(5, TimeUnit.SECONDS));
+        // Reading the client was suspended while too much was waiting, and resumed once it was read
+        verify(channel, atLeastOnce()).setReadable(false);
+        verify(channel, atLeastOnce()).setReadable(true);
+        assertEquals(-1, stream.read());
+    }
+}
@@ -0,0 +1,55 @@
+package play.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.EncoderEmbedder;
+import org.jboss.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import org.jboss.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.jboss.netty.handler.codec.http.websocketx.WebSocket13FrameEncoder;
+import org.jboss.netty.handler.codec.http.websocketx.WebSocketFrame;
+import org.junit.Test;
+
+import play.mvc.Http;
+
+public class WebSocketFramesTest {
+
+    @Test
+    public void encodesFramesAsNettyDoes() {
+        char[] text = new char[70000];
+        Arrays.fill(text, 'x');
+        List<WebSocketFrame> frames = Arrays.asList(new TextWebSocketFrame("hello"),
+                new BinaryWebSocketFrame(ChannelBuffers.wrappedBuffer(new byte[300])), new TextWebSocketFrame(new String(text)),
+                new TextWebSocketFrame("hé"));
+
+        EncoderEmbedder<ChannelBuffer> embedder = new EncoderEmbedder<>(new WebSocket13FrameEncoder(false));
+        for (WebSocketFrame frame : frames) {
+            embedder.offer(frame);
+        }
+        embedder.finish();
+        ChannelBuffer expected = ChannelBuffers.dynamicBuffer();
+        for (ChannelBuffer encoded; (encoded = embedder.poll()) != null;) {
+            expected.writeBytes(encoded);
+        }
+
+        assertEquals(expected, PlayHandler.encodeFrames(frames));
+    }
+
+    @Test
+    public void encodesAFrameSentToManySocketsOnce() {
+        Http.WebSocketFrame frame = new Http.WebSocketFrame("hello");
+        ChannelBuffer encoded = frame.encoded(PlayHandler::encodeFrame);
+        assertSame(encoded, frame.encoded(f -> {
+            throw new AssertionError("Encoded again");
+        }));
+
+        EncoderEmbedder<ChannelBuffer> embedder = new EncoderEmbedder<>(new WebSocket13FrameEncoder(false));
+        embedder.offer(new TextWebSocketFrame("hello"));
+        assertEquals(embedder.poll(), encoded);
+    }
+}
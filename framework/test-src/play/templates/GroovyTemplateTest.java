@@ -1,11 +1,26 @@
 package play.templates;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import play.Play;
 import play.PlayBuilder;
+import play.cache.Cache;
+import play.cache.CacheTest;
+import play.classloading.BytecodeArchive;
+import play.exceptions.TemplateCompilationException;
+import play.exceptions.TemplateExecutionException;
+import play.vfs.VirtualFile;
 
+import java.io.File;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.fest.assertions.Assertions.assertThat;
@@ -13,6 +28,9 @@ import static org.junit.Assert.assertEquals;
 
 public class GroovyTemplateTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void init(){
         new PlayBuilder().build();
@@ -124,4 +142,157 @@ public class GroovyTemplateTest {
         new GroovyTemplateCompiler().compile(groovyTemplate);
         assertEquals("123", groovyTemplate.render());
     }
+
+    @Test
+    public void verifyStreamingRenderMatchesStringRender() {
+        String source = "#{list items:1..2000, as:'i'}line ${i} ${name}\n#{/list}";
+        GroovyTemplate t = new GroovyTemplate("Streamed_template", source);
+        new GroovyTemplateCompiler().compile(t);
+
+        Map<String, Object> args = new HashMap<>();
+        args.put("name", "Morten");
+        StringWriter out = new StringWriter();
+        t.render(args, out);
+        assertThat(out.toString().length()).isGreaterThan(StreamingTemplateWriter.STREAM_THRESHOLD);
+        assertEquals(t.render(args), out.toString());
+    }
+
+    @Test
+    public void verifyStreamingRenderWithLayout() {
+        GroovyTemplate layout = new GroovyTemplate("Streamed_layout", "\n  <html>#{get 'title'/}|#{doLayout/}|</html>\n ");
+        new GroovyTemplateCompiler().compile(layout);
+        String source = "%{ play.templates.BaseTemplate.layout.set(theLayout) }%\n#{set title:'Title'/}\n#{list items:1..2000, as:'i'}${i}#{/list}\n";
+        GroovyTemplate t = new GroovyTemplate("Streamed_page", source);
+        new GroovyTemplateCompiler().compile(t);
+
+        Map<String, Object> args = new HashMap<>();
+        args.put("theLayout", layout);
+        StringWriter out = new StringWriter();
+        t.render(args, out);
+        assertThat(out.toString()).startsWith("<html>Title|1234").endsWith("2000|</html>");
+        assertEquals(t.render(args), out.toString());
+    }
+
+    @Test(expected = TemplateExecutionException.class)
+    public void verifyExtendsAfterStreamingFails() {
+        String source = "#{list items:1..2000, as:'i'}${i}#{/list}#{extends 'main.html'/}";
+        GroovyTemplate t = new GroovyTemplate("Streamed_extends", source);
+        new GroovyTemplateCompiler().compile(t);
+        t.render(new HashMap<String, Object>(), new StringWriter());
+    }
+
+    @Test
+    public void tagsSeeTheVariablesOfTheCallerAndAreLookedUpAgainWhenAdded() throws Exception {
+        File tags = folder.newFolder("tags");
+        FileUtils.writeStringToFile(new File(tags, "hello.tag"), "tag ${_name} ${session}", "UTF-8");
+        List<VirtualFile> templatesPath = Play.templatesPath;
+        Play.templatesPath = Arrays.asList(VirtualFile.open(folder.getRoot()));
+        Play.mode = Play.Mode.DEV;
+        try {
+            GroovyTemplate t = new GroovyTemplate("Page.html", "#{hello name:'Morten'/}|#{hello name:'Guillaume'/}");
+            new GroovyTemplateCompiler().compile(t);
+            Map<String, Object> args = new HashMap<>();
+            args.put("session", "s");
+            assertThat(t.render(args)).isEqualTo("tag Morten s|tag Guillaume s");
+
+            FileUtils.writeStringToFile(new File(tags, "hello.html"), "html ${_name}", "UTF-8");
+            assertThat(t.render(args)).isEqualTo("html Morten|html Guillaume");
+        } finally {
+            Play.templatesPath = templatesPath;
+            TemplateLoader.cleanCompiledCache();
+        }
+    }
+
+    @Test
+    public void typedTemplatesRenderLikeDynamicOnes() {
+        List<TemplateBenchmark.Row> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(new TemplateBenchmark.Row(i));
+        }
+        Map<String, Object> args = new HashMap<>();
+        args.put("rows", rows);
+        args.put("title", "Customers");
+
+        String source = "<h1>${title}</h1>\n" + TemplateBenchmark.TABLE + "#{if rows.size() > 3}many#{/if}";
+        GroovyTemplate dynamic = new GroovyTemplate("Dynamic_rows.html", source);
+        new GroovyTemplateCompiler().compile(dynamic);
+        GroovyTemplate typed = new GroovyTemplate("Typed_rows.html",
+                "*{ @types rows : java.util.List<play.templates.TemplateBenchmark.Row>,\n row:play.templates.TemplateBenchmark.Row }*" + source);
+        new GroovyTemplateCompiler().compile(typed);
+
+        assertThat(typed.compiledSource).contains("@groovy.transform.CompileStatic");
+        assertThat(typed.render(args)).isEqualTo(dynamic.render(args)).contains("<td>Customer &lt;4&gt;</td>").endsWith("many");
+    }
+
+    @Test
+    public void typedTemplatesAreTypeChecked() {
+        GroovyTemplate t = new GroovyTemplate("Typed_error.html",
+                "*{ @types row:play.templates.TemplateBenchmark.Row }*\nName: ${row.name}\n%{ Integer id = row.name }%");
+        try {
+            new GroovyTemplateCompiler().compile(t);
+            t.compile();
+        } catch (TemplateCompilationException e) {
+            assertEquals(Integer.valueOf(3), e.getLineNumber());
+            return;
+        }
+        throw new AssertionError("Should not compile");
+    }
+
+    @Test
+    public void allTemplatesAreCompiledInParallelAndArchived() throws Exception {
+        File views = folder.newFolder("app", "views");
+        for (int i = 0; i < 20; i++) {
+            FileUtils.writeStringToFile(new File(views, "Page" + i + ".html"), "page " + i + " ${name}", "UTF-8");
+        }
+        List<VirtualFile> templatesPath = Play.templatesPath;
+        Play.applicationPath = folder.getRoot();
+        Play.templatesPath = Arrays.asList(VirtualFile.open(views));
+        Play.tmpDir = folder.newFolder("tmp");
+        Play.initialized = true;
+        System.setProperty("precompile", "yes");
+        try {
+            assertThat(TemplateLoader.getAllTemplate()).hasSize(20);
+            File bytecode = new File(Play.tmpDir, "bytecode/" + Play.mode.name());
+            assertThat(bytecode.list()).containsOnly("bytecode.archive");
+            BytecodeArchive cache = BytecodeArchive.open(new File(bytecode, "bytecode.archive"));
+            assertThat(cache.names()).hasSize(20).contains("/app/views/Page7.html");
+            BytecodeArchive precompiled = BytecodeArchive.open(new File(folder.getRoot(), "precompiled/templates.archive"));
+            assertThat(precompiled.names()).hasSize(20).contains("app/views/Page7.html");
+
+            // Loaded without the sources
+            System.clearProperty("precompile");
+            FileUtils.deleteDirectory(views);
+            TemplateLoader.cleanCompiledCache();
+            Play.usePrecompiled = true;
+            Map<String, Object> args = new HashMap<>();
+            args.put("name", "precompiled");
+            assertThat(TemplateLoader.load("Page7.html").render(args)).isEqualTo("page 7 precompiled");
+        } finally {
+            System.clearProperty("precompile");
+            Play.usePrecompiled = false;
+            Play.initialized = false;
+            Play.tmpDir = null;
+            Play.templatesPath = templatesPath;
+            TemplateLoader.cleanCompiledCache();
+        }
+    }
+
+    @Test
+    public void cachedFragmentsVary() {
+        Cache.cacheImpl = CacheTest.inMemory();
+        GroovyTemplate t = new GroovyTemplate("Cached.html", "#{cache 'menu', vary:[country, role]}menu ${country} ${role} ${n}#{/cache}");
+        new GroovyTemplateCompiler().compile(t);
+        Map<String, Object> args = new HashMap<>();
+        args.put("country", "fr");
+        args.put("role", "admin");
+        args.put("n", 1);
+        assertThat(t.render(args)).isEqualTo("menu fr admin 1");
+        args.put("n", 2);
+        assertThat(t.render(args)).isEqualTo("menu fr admin 1");
+        args.put("country", "en");
+        assertThat(t.render(args)).isEqualTo("menu en admin 2");
+        args.put("role", "guest");
+        args.put("n", 3);
+        assertThat(t.render(args)).isEqualTo("menu en guest 3");
+    }
 }